@@ -16,32 +16,219 @@
 
 package com.welyab.margelet;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A set of configuration properties for Margelet.
+ * 
+ * <p>
+ * The list of available configuration properties is the set of constants
+ * starting with <code>"CONFIG_"</code> in the {@link Constants} class. Each
+ * property has a default value, in the constant with same name ending with
+ * <code>"_DEFAULT"</code>, that is used when the property is not present.
+ * 
+ * <p>
+ * Instances of this class are immutable and thread safe.
+ * 
+ * <pre>
+ * Configuration configuration = Configuration.builder()
+ * 	.property(Constants.CONFIG_HTTP_MAX_CONNECTIONS_TOTAL, 500)
+ * 	.build();
+ * </pre>
+ * 
+ * @author Welyab Paula
+ */
 public class Configuration {
 
     private static final Configuration EMPTY = builder().build();
 
+    /**
+     * The configured properties.
+     */
+    private final ImmutableMap<String, Object> properties;
+
+    @SuppressWarnings("javadoc")
+    private Configuration(ImmutableMap<String, Object> properties) {
+	this.properties = properties;
+    }
+
+    /**
+     * Creates a new configuration with the properties of this configuration
+     * overridden by the properties of the given one.
+     * 
+     * @param configuration The configuration with overriding properties.
+     * 
+     * @return The merged configuration.
+     */
     public Configuration merge(Configuration configuration) {
-	return this;
+	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	if (configuration.properties.isEmpty()) {
+	    return this;
+	}
+	if (properties.isEmpty()) {
+	    return configuration;
+	}
+	Map<String, Object> merged = new LinkedHashMap<>(properties);
+	merged.putAll(configuration.properties);
+	return new Configuration(ImmutableMap.copyOf(merged));
+    }
+
+    /**
+     * Retrieves the value of a configuration property.
+     * 
+     * @param name The property name.
+     * @param defaultValue The value to be returned if the property is not
+     *            present.
+     * 
+     * @return The property value, or the default value.
+     */
+    public Object get(String name, Object defaultValue) {
+	Preconditions.checkNotNull(name, "Parameter 'name' cannot be null");
+	Object value = properties.get(name);
+	return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Retrieves the value of a boolean configuration property.
+     * 
+     * @param name The property name.
+     * @param defaultValue The value to be returned if the property is not
+     *            present.
+     * 
+     * @return The property value, or the default value.
+     * 
+     * @throws MargeletException If the property value is not a boolean.
+     */
+    public boolean getBoolean(String name, boolean defaultValue) {
+	Object value = get(name, defaultValue);
+	if (value instanceof Boolean) {
+	    return (Boolean) value;
+	}
+	if (value instanceof String) {
+	    return Boolean.parseBoolean((String) value);
+	}
+	throw invalidValue(name, value);
+    }
+
+    /**
+     * Retrieves the value of an integer configuration property.
+     * 
+     * @param name The property name.
+     * @param defaultValue The value to be returned if the property is not
+     *            present.
+     * 
+     * @return The property value, or the default value.
+     * 
+     * @throws MargeletException If the property value is not an integer.
+     */
+    public int getInt(String name, int defaultValue) {
+	return (int) getLong(name, defaultValue);
+    }
+
+    /**
+     * Retrieves the value of a long configuration property.
+     * 
+     * @param name The property name.
+     * @param defaultValue The value to be returned if the property is not
+     *            present.
+     * 
+     * @return The property value, or the default value.
+     * 
+     * @throws MargeletException If the property value is not a long.
+     */
+    public long getLong(String name, long defaultValue) {
+	Object value = get(name, defaultValue);
+	if (value instanceof Number) {
+	    return ((Number) value).longValue();
+	}
+	if (value instanceof String) {
+	    try {
+		return Long.parseLong((String) value);
+	    } catch (NumberFormatException e) {
+		throw invalidValue(name, value);
+	    }
+	}
+	throw invalidValue(name, value);
+    }
+
+    @Override
+    public int hashCode() {
+	return properties.hashCode();
     }
 
+    @Override
+    public boolean equals(Object obj) {
+	if (this == obj)
+	    return true;
+	if (obj == null)
+	    return false;
+	if (getClass() != obj.getClass())
+	    return false;
+	Configuration other = (Configuration) obj;
+	return properties.equals(other.properties);
+    }
+
+    @Override
+    public String toString() {
+	return "Configuration " + properties;
+    }
+
+    @SuppressWarnings("javadoc")
+    private static MargeletException invalidValue(String name, Object value) {
+	return new MargeletException(String.format("Invalid value for configuration property '%s': %s", name, value));
+    }
+
+    @SuppressWarnings("javadoc")
     public static Builder builder() {
 	return new Builder();
     }
 
+    /**
+     * Retrieves a configuration without properties. All properties will
+     * assume its default values.
+     * 
+     * @return The empty configuration.
+     */
     public static Configuration empty() {
 	return EMPTY;
     }
 
+    /**
+     * A builder for <code>Configuration</code> objects.
+     * 
+     * @author Welyab Paula
+     */
     public static final class Builder {
 
-	private Configuration configuration;
+	private final Map<String, Object> properties;
 
 	private Builder() {
-	    configuration = new Configuration();
+	    properties = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Adjusts a configuration property.
+	 * 
+	 * @param name The property name. See the constants starting with
+	 *            <code>"CONFIG_"</code> in the {@link Constants} class.
+	 * @param value The property value.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder property(String name, Object value) {
+	    Preconditions.checkNotNull(name, "Parameter 'name' cannot be null");
+	    Preconditions.checkNotNull(value, "Parameter 'value' cannot be null");
+	    properties.put(name, value);
+	    return this;
 	}
 
+	@SuppressWarnings("javadoc")
 	public Configuration build() {
-	    return configuration;
+	    return new Configuration(ImmutableMap.copyOf(properties));
 	}
     }
 }
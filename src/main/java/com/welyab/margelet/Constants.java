@@ -186,4 +186,177 @@ public class Constants {
      * Default value for the configuration property {@link #CONFIG_FORMAT_JSON}.
      */
     public static final Boolean CONFIG_FORMAT_JSON_DEFAULT = Boolean.FALSE;
+
+    /**
+     * The maximum number of HTTP connections kept open to Telegram services,
+     * for all routes.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_HTTP_MAX_CONNECTIONS_TOTAL_DEFAULT}.
+     */
+    public static final String CONFIG_HTTP_MAX_CONNECTIONS_TOTAL = "TelegramBots.CONFIG_HTTP_MAX_CONNECTIONS_TOTAL";
+
+    /**
+     * Default value for the configuration property
+     * {@link #CONFIG_HTTP_MAX_CONNECTIONS_TOTAL}.
+     */
+    public static final Integer CONFIG_HTTP_MAX_CONNECTIONS_TOTAL_DEFAULT = 100;
+
+    /**
+     * The maximum number of HTTP connections kept open to a single route
+     * (host). All Telegram Bot API methods are served by the same route.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE_DEFAULT}.
+     */
+    public static final String CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE = "TelegramBots.CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE";
+
+    /**
+     * Default value for the configuration property
+     * {@link #CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE}.
+     */
+    public static final Integer CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE_DEFAULT = 50;
+
+    /**
+     * The time, in milliseconds, that a pooled HTTP connection may stay idle
+     * before being evicted from the pool.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT_DEFAULT}.
+     */
+    public static final String CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT = "TelegramBots.CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT";
+
+    /**
+     * Default value for the configuration property
+     * {@link #CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT}.
+     */
+    public static final Long CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT_DEFAULT = 30_000L;
+
+    /**
+     * The time, in milliseconds, that a pooled HTTP connection is kept alive
+     * when the server response does not specify a keep-alive timeout.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_HTTP_KEEP_ALIVE_DEFAULT}.
+     */
+    public static final String CONFIG_HTTP_KEEP_ALIVE = "TelegramBots.CONFIG_HTTP_KEEP_ALIVE";
+
+    /**
+     * Default value for the configuration property
+     * {@link #CONFIG_HTTP_KEEP_ALIVE}.
+     */
+    public static final Long CONFIG_HTTP_KEEP_ALIVE_DEFAULT = 60_000L;
+
+    /**
+     * The number of I/O threads used by the non blocking HTTP client, that
+     * serves the asynchronous Telegram method calls.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_HTTP_IO_THREADS_DEFAULT}.
+     */
+    public static final String CONFIG_HTTP_IO_THREADS = "TelegramBots.CONFIG_HTTP_IO_THREADS";
+
+    /**
+     * Default value for the configuration property
+     * {@link #CONFIG_HTTP_IO_THREADS}, the number of available processors.
+     */
+    public static final Integer CONFIG_HTTP_IO_THREADS_DEFAULT = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The HTTP transport used to communicate with Telegram services. Built in
+     * values are <code>"apache"</code>, for Apache HttpComponents, and
+     * <code>"jdk"</code>, for <code>java.net.http.HttpClient</code> with
+     * HTTP/2 (requires Java 11 or later). The <code>"jdk"</code> transport
+     * manages its connections by itself, and ignores the connection pool,
+     * idle timeout, keep-alive and I/O threads properties.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_HTTP_TRANSPORT_DEFAULT}.
+     * 
+     * @see com.welyab.margelet.http.HttpClientPool
+     */
+    public static final String CONFIG_HTTP_TRANSPORT = "TelegramBots.CONFIG_HTTP_TRANSPORT";
+
+    /**
+     * Default value for the configuration property
+     * {@link #CONFIG_HTTP_TRANSPORT}.
+     */
+    public static final String CONFIG_HTTP_TRANSPORT_DEFAULT = "apache";
+
+    /**
+     * Indicates that the payload of each decoded {@link com.welyab.margelet.types.Update}
+     * (its message, callback query, inline query...) is kept as raw JSON and
+     * only decoded when its getter is first called.
+     * 
+     * <p>
+     * The payload is located in the received JSON without being tokenized,
+     * checking only its strings and brackets, and kept as a copy of the
+     * characters it occupies. This applies to updates received by
+     * <code>getUpdates</code>, by the webhook server and read from journals;
+     * updates decoded by generic <code>Gson</code> calls are decoded eagerly.
+     * To skip the payloads of kinds a bot does not handle without even
+     * copying them, decode updates with a
+     * {@link com.welyab.margelet.UpdateProjection}.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_LAZY_DECODING_DEFAULT}.
+     */
+    public static final String CONFIG_LAZY_DECODING = "TelegramBots.CONFIG_LAZY_DECODING";
+
+    /**
+     * Default value for the configuration property
+     * {@link #CONFIG_LAZY_DECODING}.
+     */
+    public static final Boolean CONFIG_LAZY_DECODING_DEFAULT = Boolean.FALSE;
+
+    /**
+     * Indicates that decoded {@link com.welyab.margelet.types.User} and
+     * {@link com.welyab.margelet.types.Chat} objects are interned: equal
+     * objects (same id and same content) received in many updates share a
+     * single instance, kept in a bounded cache. Shared instances are frozen,
+     * and its setters throw <code>IllegalStateException</code>.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_INTERNING_DEFAULT}.
+     */
+    public static final String CONFIG_INTERNING = "TelegramBots.CONFIG_INTERNING";
+
+    /**
+     * Default value for the configuration property {@link #CONFIG_INTERNING}.
+     */
+    public static final Boolean CONFIG_INTERNING_DEFAULT = Boolean.FALSE;
+
+    /**
+     * The maximum number of users and chats kept by the interning cache. Least
+     * recently used entries are evicted. See {@link #CONFIG_INTERNING}.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_INTERNING_MAXIMUM_SIZE_DEFAULT}.
+     */
+    public static final String CONFIG_INTERNING_MAXIMUM_SIZE = "TelegramBots.CONFIG_INTERNING_MAXIMUM_SIZE";
+
+    /**
+     * Default value for the configuration property
+     * {@link #CONFIG_INTERNING_MAXIMUM_SIZE}.
+     */
+    public static final Long CONFIG_INTERNING_MAXIMUM_SIZE_DEFAULT = 10_000L;
+
+    /**
+     * Indicates that asynchronous calls, like
+     * {@link Margelet#callMethodAsync(String, com.google.common.collect.ImmutableMap, Class, Configuration)},
+     * run the blocking HTTP client in a new virtual thread instead of using
+     * the non blocking one. Cancelling the returned future interrupts the
+     * virtual thread, aborting the request. Requires Java 21 or later; see
+     * {@link com.welyab.margelet.concurrent.VirtualThreads}.
+     * 
+     * <p>
+     * Default value: {@link #CONFIG_VIRTUAL_THREADS_DEFAULT}.
+     */
+    public static final String CONFIG_VIRTUAL_THREADS = "TelegramBots.CONFIG_VIRTUAL_THREADS";
+
+    /**
+     * Default value for the configuration property
+     * {@link #CONFIG_VIRTUAL_THREADS}.
+     */
+    public static final Boolean CONFIG_VIRTUAL_THREADS_DEFAULT = Boolean.FALSE;
 }
@@ -16,26 +16,35 @@
 
 package com.welyab.margelet;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import javax.naming.spi.DirStateFactory.Result;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.util.EntityUtils;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
 
+import com.welyab.margelet.gson.GsonFactory;
+import com.welyab.margelet.gson.UpdateStreamReader;
 import com.welyab.margelet.http.HttpClientPool;
+import com.welyab.margelet.http.HttpTransport;
+import com.welyab.margelet.http.HttpTransportRequest;
 import com.welyab.margelet.types.File;
 import com.welyab.margelet.types.Response;
 import com.welyab.margelet.types.ResponseParameters;
@@ -80,7 +89,9 @@ import com.welyab.margelet.types.User;
  * 
  * <p>
  * Margelet uses Google Gson to JSON processing, and Apache HttpComponents to
- * make HTTP requests.
+ * make HTTP requests by default (see {@link HttpClientPool} for the available
+ * HTTP transports). HTTP connections are pooled and reused across requests;
+ * call {@link #close()} to release them when the bot is shut down.
  * 
  * <p>
  * Telegram docs: <a
@@ -90,7 +101,7 @@ import com.welyab.margelet.types.User;
  * 
  * @see Response
  */
-public class Margelet {
+public class Margelet implements Closeable {
 
     /**
      * The API token to auth the bot to access Telegram Bot API.
@@ -102,6 +113,45 @@ public class Margelet {
      */
     private final Configuration configuration;
 
+    /**
+     * The generic result type <code>Map&lt;String, Object&gt;</code>.
+     */
+    private static final Type MAP_TYPE = TypeToken.getParameterized(Map.class, String.class, Object.class).getType();
+
+    /**
+     * The pool that provides the HTTP clients used to communicate with
+     * Telegram services.
+     */
+    private final HttpClientPool httpClientPool;
+
+    /**
+     * Prepared Telegram methods, keyed by method name and result type, so the
+     * method URL and response type are computed once.
+     */
+    private final ConcurrentMap<ImmutableList<Object>, TelegramMethod> methods = new ConcurrentHashMap<>();
+
+    /**
+     * Parameterized <code>List</code> types, keyed by element type.
+     */
+    private final ConcurrentMap<Type, Type> listTypes = new ConcurrentHashMap<>();
+
+    /**
+     * The prepared <code>getUpdates</code> method, the hottest path of a bot
+     * that uses long polling.
+     */
+    private final TelegramMethod getUpdatesMethod;
+
+    /**
+     * Update adapters, keyed by the projection of the decoded update parts.
+     */
+    private final ConcurrentMap<UpdateProjection, TypeAdapter<Update>> updateAdapters = new ConcurrentHashMap<>();
+
+    /**
+     * The bot user, returned by <code>getMe</code>; <code>null</code> until
+     * it is first retrieved by {@link #getBotUser()}.
+     */
+    private volatile User botUser;
+
     /**
      * Creates a new Telegram Bot Client.
      * 
@@ -125,6 +175,11 @@ public class Margelet {
 	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
 	this.apiToken = apiToken;
 	this.configuration = configuration;
+	this.httpClientPool = new HttpClientPool();
+	this.getUpdatesMethod = getTelegramMethod(Constants.METHOD_GET_UPDATES, listType(Update.class));
+
+	// resolves JSON type adapters at startup, not on the first request
+	GsonFactory.create(configuration);
     }
 
     /**
@@ -156,6 +211,25 @@ public class Margelet {
 	);
     }
 
+    /**
+     * Retrieves the bot user, calling {@link #getMe()} the first time and
+     * caching its result afterwards. The identity of a bot never changes for
+     * a given API token.
+     * 
+     * @return The bot user.
+     * 
+     * @throws TelegramApiException If <code>getMe</code> fails. The call is
+     *             made again next time.
+     */
+    public User getBotUser() {
+	User user = botUser;
+	if (user == null) {
+	    user = getMe().getResultOrThrow();
+	    botUser = user;
+	}
+	return user;
+    }
+
     /**
      * Use this method to receive incoming updates using long polling. An Array
      * of Update objects is returned.
@@ -207,14 +281,217 @@ public class Margelet {
      * @return A list of {@link Update} wrapped into a <code>Update</code>.
      */
     public Response<List<Update>> getUpdates(ImmutableMap<String, Object> parameters) {
-	return callMethodList(
-		Constants.METHOD_GET_UPDATES,
+	return getUpdates(parameters, UpdateProjection.all());
+    }
+
+    /**
+     * Use this method to receive incoming updates using long polling. Updates
+     * are handed to the given consumer one by one, as soon as each one is
+     * decoded from the HTTP response, so the whole batch is never
+     * materialized in memory.
+     * 
+     * <p>
+     * The consumer runs in the calling thread, while the HTTP response is
+     * being read.
+     * 
+     * <p>
+     * Telegram docs: <a
+     * href="https://core.telegram.org/bots/api#getting-updates">https://core.telegram.org/bots/api#getting-updates</a>.
+     * 
+     * @param parameters The list of parameters.
+     * @param consumer Receives each update, in the order they are received.
+     * 
+     * @return The number of updates handed to the consumer, wrapped into a
+     *         <code>Response</code> object.
+     */
+    public Response<Integer> getUpdates(ImmutableMap<String, Object> parameters, Consumer<? super Update> consumer) {
+	return getUpdates(parameters, UpdateProjection.all(), consumer);
+    }
+
+    /**
+     * Use this method to receive incoming updates using long polling,
+     * decoding only the parts of each update selected by the given
+     * projection. Everything else is skipped while reading the HTTP response,
+     * so parsing time and allocation drop in proportion to what is ignored.
+     * 
+     * <p>
+     * Telegram docs: <a
+     * href="https://core.telegram.org/bots/api#getting-updates">https://core.telegram.org/bots/api#getting-updates</a>.
+     * 
+     * @param parameters The list of parameters.
+     * @param projection Selects the decoded update kinds and message fields.
+     * 
+     * @return A list of {@link Update} wrapped into a <code>Response</code>.
+     */
+    public Response<List<Update>> getUpdates(ImmutableMap<String, Object> parameters, UpdateProjection projection) {
+	List<Update> updates = new ArrayList<>();
+	return toListResponse(getUpdates(parameters, projection, updates::add), updates);
+    }
+
+    /**
+     * Streaming version of {@link #getUpdates(ImmutableMap, UpdateProjection)}.
+     * Updates are handed to the given consumer one by one, as soon as each
+     * one is decoded from the HTTP response.
+     * 
+     * <p>
+     * The consumer runs in the calling thread, while the HTTP response is
+     * being read.
+     * 
+     * @param parameters The list of parameters.
+     * @param projection Selects the decoded update kinds and message fields.
+     * @param consumer Receives each update, in the order they are received.
+     * 
+     * @return The number of updates handed to the consumer, wrapped into a
+     *         <code>Response</code> object.
+     */
+    public Response<Integer> getUpdates(
+	    ImmutableMap<String, Object> parameters,
+	    UpdateProjection projection,
+	    Consumer<? super Update> consumer
+    ) {
+	Preconditions.checkNotNull(parameters, "Parameter 'parameters' cannot be null");
+	Preconditions.checkNotNull(projection, "Parameter 'projection' cannot be null");
+	Preconditions.checkNotNull(consumer, "Parameter 'consumer' cannot be null");
+	return getUpdatesMethod.call(
 		parameters,
-		Update.class,
-		Configuration.empty()
+		configuration,
+		new UpdateStreamReader(GsonFactory.create(configuration), updateAdapter(projection), consumer)
+	);
+    }
+
+    /**
+     * Asynchronous version of {@link #getUpdates(ImmutableMap)}. The calling
+     * thread is not held during the HTTP round trip.
+     * 
+     * <p>
+     * Telegram docs: <a
+     * href="https://core.telegram.org/bots/api#getting-updates">https://core.telegram.org/bots/api#getting-updates</a>.
+     * 
+     * @param parameters The list of parameters.
+     * 
+     * @return A future of a list of {@link Update} wrapped into a
+     *         <code>Response</code>.
+     */
+    public CompletableFuture<Response<List<Update>>> getUpdatesAsync(ImmutableMap<String, Object> parameters) {
+	return getUpdatesAsync(parameters, UpdateProjection.all());
+    }
+
+    /**
+     * Asynchronous version of
+     * {@link #getUpdates(ImmutableMap, UpdateProjection)}. The calling thread
+     * is not held during the HTTP round trip, and cancelling the returned
+     * future aborts the HTTP request, which makes it suited to interruptible
+     * long polling.
+     * 
+     * <p>
+     * Telegram docs: <a
+     * href="https://core.telegram.org/bots/api#getting-updates">https://core.telegram.org/bots/api#getting-updates</a>.
+     * 
+     * @param parameters The list of parameters.
+     * @param projection Selects the decoded update kinds and message fields.
+     * 
+     * @return A future of a list of {@link Update} wrapped into a
+     *         <code>Response</code>.
+     */
+    public CompletableFuture<Response<List<Update>>> getUpdatesAsync(
+	    ImmutableMap<String, Object> parameters,
+	    UpdateProjection projection
+    ) {
+	Preconditions.checkNotNull(parameters, "Parameter 'parameters' cannot be null");
+	Preconditions.checkNotNull(projection, "Parameter 'projection' cannot be null");
+	TypeAdapter<Update> updateAdapter = updateAdapter(projection);
+	return getUpdatesMethod.callAsync(
+		parameters,
+		configuration,
+		(statusCode, content) -> {
+		    List<Update> updates = new ArrayList<>();
+		    Response<Integer> streamed = new UpdateStreamReader(
+			    GsonFactory.create(configuration),
+			    updateAdapter,
+			    updates::add
+		    ).read(statusCode, content);
+		    return toListResponse(streamed, updates);
+		}
 	);
     }
 
+    /**
+     * Version of {@link #getUpdatesAsync(ImmutableMap, UpdateProjection)} that
+     * also hands each update, along with its raw JSON, to a listener as soon
+     * as it is decoded, before the returned future completes. The listener
+     * runs in a thread of the HTTP transport; if it throws an exception, the
+     * returned future completes exceptionally.
+     * 
+     * @param parameters The list of parameters.
+     * @param projection Selects the decoded update kinds and message fields.
+     * @param rawJsonListener Receives each update and its raw JSON.
+     * 
+     * @return A future of a list of {@link Update} wrapped into a
+     *         <code>Response</code>.
+     * 
+     * @see UpdateStreamReader#withRawJson(com.google.gson.Gson, TypeAdapter,
+     *      BiConsumer)
+     */
+    public CompletableFuture<Response<List<Update>>> getUpdatesAsync(
+	    ImmutableMap<String, Object> parameters,
+	    UpdateProjection projection,
+	    BiConsumer<? super Update, ? super String> rawJsonListener
+    ) {
+	Preconditions.checkNotNull(parameters, "Parameter 'parameters' cannot be null");
+	Preconditions.checkNotNull(projection, "Parameter 'projection' cannot be null");
+	Preconditions.checkNotNull(rawJsonListener, "Parameter 'rawJsonListener' cannot be null");
+	TypeAdapter<Update> updateAdapter = updateAdapter(projection);
+	return getUpdatesMethod.callAsync(
+		parameters,
+		configuration,
+		(statusCode, content) -> {
+		    List<Update> updates = new ArrayList<>();
+		    Response<Integer> streamed = UpdateStreamReader.withRawJson(
+			    GsonFactory.create(configuration),
+			    updateAdapter,
+			    (update, json) -> {
+				rawJsonListener.accept(update, json);
+				updates.add(update);
+			    }
+		    ).read(statusCode, content);
+		    return toListResponse(streamed, updates);
+		}
+	);
+    }
+
+    /**
+     * Retrieves the update adapter of the given projection, creating it if
+     * needed.
+     * 
+     * @param projection The projection.
+     * 
+     * @return The update adapter.
+     */
+    private TypeAdapter<Update> updateAdapter(UpdateProjection projection) {
+	return updateAdapters.computeIfAbsent(
+		projection,
+		key -> GsonFactory.updateAdapter(configuration, key)
+	);
+    }
+
+    /**
+     * Creates a response with the list of streamed updates as result.
+     * 
+     * @param streamed The response of the streamed <code>getUpdates</code>.
+     * @param updates The streamed updates.
+     * 
+     * @return The response.
+     */
+    private static Response<List<Update>> toListResponse(Response<Integer> streamed, List<Update> updates) {
+	Response<List<Update>> response = new Response<>();
+	response.setOk(streamed.isOk());
+	response.setDescription(streamed.getDescription());
+	response.setErrorCode(streamed.getErrorCode());
+	response.setParameters(streamed.getParameters());
+	response.setResult(updates);
+	return response;
+    }
+
     /**
      * Downloads the content of a file stored in the Telegram cloud.
      * 
@@ -244,13 +521,13 @@ public class Margelet {
 			filePath
 		}
 	);
-	try (CloseableHttpClient httpClient = HttpClientPool.getClient(configuration)) {
-	    HttpGet httpGet = new HttpGet(targetUrl);
-	    try (CloseableHttpResponse httpResponse = httpClient.execute(httpGet)) {
-		HttpEntity httpEntity = httpResponse.getEntity();
-		byte[] bytes = EntityUtils.toByteArray(httpEntity);
-		return ByteSource.wrap(bytes);
-	    }
+	HttpTransport transport = httpClientPool.getTransport(configuration);
+	try {
+	    byte[] bytes = transport.execute(
+		    HttpTransportRequest.get(targetUrl),
+		    (statusCode, content) -> ByteStreams.toByteArray(content)
+	    );
+	    return ByteSource.wrap(bytes);
 	} catch (IOException e) {
 	    throw new MargeletException("Fail to download file", e);
 	}
@@ -352,13 +629,11 @@ public class Margelet {
 	Preconditions.checkNotNull(type, "Parameter 'type' cannot be null");
 	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
 
-	TypeToken<?> typeToken = TypeToken.getParameterized(List.class, type);
-
 	@SuppressWarnings("unchecked")
 	Response<List<?>> callMethod = (Response<List<?>>) callMethod(
 		methodName,
 		parameters,
-		typeToken.getType(),
+		listType(type),
 		configuration
 	);
 
@@ -454,13 +729,11 @@ public class Margelet {
 	    ImmutableMap<String, Object> parameters,
 	    Configuration configuration
     ) {
-	TypeToken<?> typeToken = TypeToken.getParameterized(Map.class, String.class, Object.class);
-
 	@SuppressWarnings("unchecked")
 	Response<Map<String, Object>> response = (Response<Map<String, Object>>) callMethod(
 		methodName,
 		parameters,
-		typeToken.getType(),
+		MAP_TYPE,
 		configuration
 	);
 
@@ -510,10 +783,179 @@ public class Margelet {
 
 	configuration = this.configuration.merge(configuration);
 
-	TelegramMethod caller = new TelegramMethod(methodName, type, apiToken);
+	TelegramMethod caller = getTelegramMethod(methodName, type);
 	return caller.call(parameters, configuration);
     }
 
+    /**
+     * Asynchronous version of
+     * {@link #callMethodList(String, ImmutableMap, Class, Configuration)}.
+     * 
+     * <p>
+     * The request is performed by a non blocking HTTP client, driven by a
+     * small number of I/O threads (see {@link Constants#CONFIG_HTTP_IO_THREADS}),
+     * so many requests can be in flight without holding a thread for each one.
+     * 
+     * @param methodName The method name to call in the Telegram API.
+     * @param parameters Parameters to passing to the called method.
+     * @param type The expected result type.
+     * @param configuration Specific configuration to method calling process.
+     *            This configurations will override possible present
+     *            configuration in <code>Margelet</code>.
+     * 
+     * @return A future of the response from Telegram service. The
+     *         <code>result</code> field will be a list. The list element is
+     *         expected to be an type of given <code>type</code> parameter.
+     * 
+     * @see TelegramMethod#callAsync(Object, Configuration)
+     */
+    public <E> CompletableFuture<Response<List<E>>> callMethodListAsync(
+	    String methodName,
+	    ImmutableMap<String, Object> parameters,
+	    Class<E> type,
+	    Configuration configuration
+    ) {
+	Preconditions.checkNotNull(type, "Parameter 'type' cannot be null");
+
+	return callMethodAsync(
+		methodName,
+		parameters,
+		listType(type),
+		configuration
+	).thenApply(Margelet::unsafeCast);
+    }
+
+    /**
+     * Asynchronous version of
+     * {@link #callMethod(String, ImmutableMap, Class, Configuration)}.
+     * 
+     * <p>
+     * The request is performed by a non blocking HTTP client, driven by a
+     * small number of I/O threads (see {@link Constants#CONFIG_HTTP_IO_THREADS}),
+     * so many requests can be in flight without holding a thread for each one.
+     * 
+     * @param methodName The method name to call in the Telegram API.
+     * @param parameters Parameters to passing to the called method.
+     * @param type The expected result type.
+     * @param configuration Specific configuration to method calling process.
+     *            This configurations will override possible present
+     *            configuration in <code>Margelet</code>.
+     * 
+     * @return A future of the telegram result as a type of given <i>type</i>
+     *         parameter, wrapped into a <code>Response</code> object.
+     * 
+     * @see TelegramMethod#callAsync(Object, Configuration)
+     */
+    public <E> CompletableFuture<Response<E>> callMethodAsync(
+	    String methodName,
+	    ImmutableMap<String, Object> parameters,
+	    Class<E> type,
+	    Configuration configuration
+    ) {
+	Preconditions.checkNotNull(type, "Parameter 'type' cannot be null");
+
+	// cast trick
+	Type _type = type;
+
+	return callMethodAsync(
+		methodName,
+		parameters,
+		_type,
+		configuration
+	).thenApply(Margelet::unsafeCast);
+    }
+
+    /**
+     * Asynchronous version of
+     * {@link #callMethod(String, ImmutableMap, Type, Configuration)}.
+     * 
+     * <p>
+     * The request is performed by a non blocking HTTP client, driven by a
+     * small number of I/O threads (see {@link Constants#CONFIG_HTTP_IO_THREADS}),
+     * so many requests can be in flight without holding a thread for each one.
+     * 
+     * @param methodName The method name to call in the Telegram API.
+     * @param parameters Parameters to passing to the called method.
+     * @param type The expected result type.
+     * @param configuration Specific configuration to method calling process.
+     *            This configurations will override possible present
+     *            configuration in <code>Margelet</code>.
+     * 
+     * @return A future of the telegram result as a type of given <i>type</i>
+     *         parameter, wrapped into a <code>Response</code> object.
+     * 
+     * @see TelegramMethod#callAsync(Object, Configuration)
+     */
+    public CompletableFuture<Response<?>> callMethodAsync(
+	    String methodName,
+	    ImmutableMap<String, Object> parameters,
+	    Type type,
+	    Configuration configuration
+    ) {
+	Preconditions.checkNotNull(methodName, "Parameter 'methodName' cannot be null");
+	Preconditions.checkNotNull(parameters, "Parameter 'parameters' cannot be null");
+	Preconditions.checkNotNull(type, "Parameter 'type' cannot be null");
+	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+
+	configuration = this.configuration.merge(configuration);
+
+	TelegramMethod caller = getTelegramMethod(methodName, type);
+	return caller.callAsync(parameters, configuration);
+    }
+
+    /**
+     * Retrieves the prepared representation of a Telegram method, creating it
+     * if needed. Prepared methods are cached by this <code>Margelet</code>, so
+     * the method URL and response type are computed only once for each
+     * method name and result type.
+     * 
+     * <p>
+     * This method is thread safe.
+     * 
+     * @param methodName The method name to call in the Telegram API.
+     * @param type The expected result type.
+     * 
+     * @return The prepared Telegram method.
+     */
+    public TelegramMethod getTelegramMethod(String methodName, Type type) {
+	Preconditions.checkNotNull(methodName, "Parameter 'methodName' cannot be null");
+	Preconditions.checkNotNull(type, "Parameter 'type' cannot be null");
+	return methods.computeIfAbsent(
+		ImmutableList.of(methodName, type),
+		key -> new TelegramMethod(methodName, type, apiToken, httpClientPool)
+	);
+    }
+
+    /**
+     * Retrieves the parameterized <code>List</code> type of the given element
+     * type.
+     * 
+     * @param elementType The list element type.
+     * 
+     * @return The type <code>List&lt;elementType&gt;</code>.
+     */
+    private Type listType(Type elementType) {
+	return listTypes.computeIfAbsent(
+		elementType,
+		key -> TypeToken.getParameterized(List.class, key).getType()
+	);
+    }
+
+    /**
+     * Releases the HTTP connections held by this <code>Margelet</code>. After
+     * closing, any attempt to call Telegram methods will fail.
+     * 
+     * @throws MargeletException If the connections cannot be released.
+     */
+    @Override
+    public void close() {
+	try {
+	    httpClientPool.close();
+	} catch (IOException e) {
+	    throw new MargeletException("Fail to release HTTP connections", e);
+	}
+    }
+
     @SuppressWarnings("javadoc")
     private static <E> E unsafeCast(Object value) {
 	@SuppressWarnings("unchecked")
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet;
+
+import com.google.common.base.Preconditions;
+
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.ResponseParameters;
+
+/**
+ * Thrown when Telegram services answer a request with an unsuccessful
+ * {@link Response}, that is, one with <code>"ok"</code> equals to
+ * <code>false</code>.
+ * 
+ * <p>
+ * The error fields of the response are copied into primitive fields, so retry
+ * logic can decide what to do without inspecting the response again:
+ * 
+ * <pre>
+ * try {
+ *     margelet.callMethod(...).getResultOrThrow();
+ * } catch (TelegramApiException e) {
+ *     if (e.isRetryable()) {
+ *         // wait e.getRetryAfter() seconds and try again
+ *     }
+ * }
+ * </pre>
+ * 
+ * @author Welyab Paula
+ */
+public class TelegramApiException extends MargeletException {
+
+    /**
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The HTTP status code of <i>too many requests</i> errors.
+     */
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * The lowest HTTP status code of server errors.
+     */
+    private static final int SERVER_ERROR = 500;
+
+    @SuppressWarnings("javadoc")
+    private final int errorCode;
+
+    @SuppressWarnings("javadoc")
+    private final String description;
+
+    @SuppressWarnings("javadoc")
+    private final int retryAfter;
+
+    @SuppressWarnings("javadoc")
+    private final long migrateToChatId;
+
+    /**
+     * Creates a new exception from an unsuccessful response.
+     * 
+     * @param response The response.
+     */
+    public TelegramApiException(Response<?> response) {
+	super(message(Preconditions.checkNotNull(response, "Parameter 'response' cannot be null")));
+	ResponseParameters parameters = response.getParameters();
+	this.errorCode = response.getErrorCode() == null ? 0 : response.getErrorCode();
+	this.description = response.getDescription();
+	this.retryAfter = parameters == null || parameters.getRetryAfter() == null
+		? 0
+		: parameters.getRetryAfter();
+	this.migrateToChatId = parameters == null || parameters.getMigrateToChatId() == null
+		? 0
+		: parameters.getMigrateToChatId();
+    }
+
+    /**
+     * Retrieves the error code, which follows HTTP status codes.
+     * 
+     * @return The error code, or <code>0</code> if the response had none.
+     */
+    public int getErrorCode() {
+	return errorCode;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getDescription() {
+	return description;
+    }
+
+    /**
+     * Retrieves the number of seconds left to wait before the request can be
+     * repeated, when the flood control was exceeded.
+     * 
+     * @return The seconds to wait, or <code>0</code> if not informed.
+     */
+    public int getRetryAfter() {
+	return retryAfter;
+    }
+
+    /**
+     * Retrieves the identifier of the supergroup a group has been migrated to.
+     * 
+     * @return The supergroup identifier, or <code>0</code> if the group was
+     *         not migrated.
+     */
+    public long getMigrateToChatId() {
+	return migrateToChatId;
+    }
+
+    /**
+     * Indicates if the flood control was exceeded.
+     * 
+     * @return <code>true</code> if the request was rejected due to too many
+     *         requests.
+     */
+    public boolean isRateLimited() {
+	return errorCode == TOO_MANY_REQUESTS || retryAfter > 0;
+    }
+
+    /**
+     * Indicates if repeating the same request may succeed: the flood control
+     * was exceeded, or Telegram services failed. Other errors, like invalid
+     * parameters or missing permissions, fail again if the request is
+     * repeated, except for group migrations, which require the request to be
+     * sent to {@link #getMigrateToChatId() the new chat}.
+     * 
+     * @return <code>true</code> if the request can be retried as is.
+     */
+    public boolean isRetryable() {
+	return isRateLimited() || errorCode >= SERVER_ERROR;
+    }
+
+    @SuppressWarnings("javadoc")
+    private static String message(Response<?> response) {
+	return String.format(
+		"Telegram request failed: [%s] %s",
+		response.getErrorCode(),
+		response.getDescription()
+	);
+    }
+}
@@ -17,27 +17,28 @@
 package com.welyab.margelet;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpHeaders;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 
+import com.welyab.margelet.concurrent.VirtualThreads;
 import com.welyab.margelet.gson.GsonFactory;
+import com.welyab.margelet.gson.JsonBuffer;
 import com.welyab.margelet.http.HttpClientPool;
+import com.welyab.margelet.http.HttpTransport;
+import com.welyab.margelet.http.HttpTransportRequest;
+import com.welyab.margelet.http.ResponseBodyReader;
 import com.welyab.margelet.types.Response;
 
 /**
@@ -48,6 +49,11 @@ import com.welyab.margelet.types.Response;
  */
 public class TelegramMethod {
 
+    /**
+     * The HTTP status code of successful requests.
+     */
+    private static final int HTTP_OK = 200;
+
     /**
      * The name of the method to be called in Telegram service.
      */
@@ -87,7 +93,14 @@ public class TelegramMethod {
     private final Type responseType;
 
     /**
-     * Creates a new <code>TelegramMethod</code> representation.
+     * The pool that provides the HTTP clients used to call the method.
+     */
+    private final HttpClientPool httpClientPool;
+
+    /**
+     * Creates a new <code>TelegramMethod</code> representation, which calls
+     * the method with the HTTP clients of the {@link HttpClientPool#shared()
+     * shared pool}.
      * 
      * <p>
      * This method is thread safe.
@@ -102,15 +115,38 @@ public class TelegramMethod {
      * @param apiToken The API token to access Telegram services.
      */
     public TelegramMethod(String methodName, Type type, String apiToken) {
+	this(methodName, type, apiToken, HttpClientPool.shared());
+    }
+
+    /**
+     * Creates a new <code>TelegramMethod</code> representation.
+     * 
+     * <p>
+     * This method is thread safe.
+     * 
+     * @param methodName The name of the method to be called in Telegram
+     *            service.
+     * @param type The expected type as result of calling the Telegram method.
+     *            This result is always wrapped into a <code>Response</code>
+     *            object. So, the actual returned type from Telegram service
+     *            will be <code>Response&lt;type&gt;</code>. That type is marked
+     *            in {@link #responseType} field.
+     * @param apiToken The API token to access Telegram services.
+     * @param httpClientPool The pool that provides the HTTP clients used to
+     *            call the method.
+     */
+    public TelegramMethod(String methodName, Type type, String apiToken, HttpClientPool httpClientPool) {
 	Preconditions.checkNotNull(methodName, "Parameter 'methodName' cannot be null");
 	Preconditions.checkNotNull(type, "Parameter 'type' cannot be null");
 	Preconditions.checkNotNull(apiToken, "Parameter 'apiToken' cannot be null");
+	Preconditions.checkNotNull(httpClientPool, "Parameter 'httpClientPool' cannot be null");
 
 	this.methodName = methodName;
 	this.type = type;
 	this.apiToken = apiToken;
 	this.targetUrl = createTargetUrl(methodName, apiToken);
 	this.responseType = TypeToken.getParameterized(Response.class, type).getType();
+	this.httpClientPool = httpClientPool;
     }
 
     /**
@@ -183,28 +219,256 @@ public class TelegramMethod {
 	Preconditions.checkNotNull(parameters, "Parameter 'parameters' cannot be null");
 	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
 
+	return call(parameters, configuration, responseReader(GsonFactory.create(configuration)));
+    }
+
+    /**
+     * Calls a Telegram method with given parameters and configuration, handing
+     * the raw response body to the given reader instead of decoding it as a
+     * <code>Response</code> object.
+     * 
+     * <p>
+     * This allows the response to be processed incrementally, while it is
+     * received. The reader runs in the calling thread.
+     * 
+     * @param parameters Parameters expected by Telegram method. This object
+     *            will be encoded as JSON document and delivered in HTTP request
+     *            boby.
+     * 
+     *            <p>
+     *            If the parameter is a instance of a <code>java.util.Map</code>
+     *            and is empty, it will be ignored.
+     * 
+     * @param configuration The configuration.
+     * @param reader Reads the response body.
+     * 
+     * @return The value produced by the reader.
+     */
+    public <R> R call(Object parameters, Configuration configuration, ResponseBodyReader<R> reader) {
+	Preconditions.checkNotNull(parameters, "Parameter 'parameters' cannot be null");
+	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	Preconditions.checkNotNull(reader, "Parameter 'reader' cannot be null");
+
 	Gson gson = GsonFactory.create(configuration);
-	HttpEntity parametersHttpEntity = null;
-	if (parameters != null && !((Map<?, ?>) parameters).isEmpty()) {
-	    String jsonParameters = gson.toJson(parameters);
-	    parametersHttpEntity = new ByteArrayEntity(jsonParameters.getBytes(StandardCharsets.UTF_8));
+	HttpTransport transport = httpClientPool.getTransport(configuration);
+	// the request is completely sent before execute returns, so the body
+	// can be encoded into the reusable buffer of the calling thread
+	JsonBuffer buffer = JsonBuffer.acquire();
+	try {
+	    return transport.execute(createRequest(gson, parameters, buffer), reader);
+	} catch (IOException e) {
+	    throw new MargeletException("Fail during communication with Telegram services", e);
+	} finally {
+	    buffer.release();
 	}
+    }
 
-	try (CloseableHttpClient httpClient = HttpClientPool.getClient(configuration)) {
-	    HttpPost request = new HttpPost(targetUrl);
-	    if (parametersHttpEntity != null) {
-		request.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
-		request.setEntity(parametersHttpEntity);
+    /**
+     * Calls a Telegram method asynchronously with given parameters and
+     * configuration.
+     * 
+     * <p>
+     * The request is performed without blocking the calling thread during the
+     * HTTP round trip. Parameters encoding and response decoding are the same
+     * of {@link #call(Object, Configuration)}.
+     * 
+     * <p>
+     * Cancelling the returned future aborts the underlying HTTP request.
+     * 
+     * @param parameters Parameters expected by Telegram method. This object
+     *            will be encoded as JSON document and delivered in HTTP request
+     *            boby.
+     * 
+     *            <p>
+     *            If the parameter is a instance of a <code>java.util.Map</code>
+     *            and is empty, it will be ignored.
+     * 
+     * @param configuration The configuration.
+     * 
+     * @return A future that completes with the method result, or
+     *         exceptionally with a {@link MargeletException} if the
+     *         communication with Telegram services fails.
+     */
+    public CompletableFuture<Response<?>> callAsync(Object parameters, Configuration configuration) {
+	Preconditions.checkNotNull(parameters, "Parameter 'parameters' cannot be null");
+	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+
+	return callAsync(parameters, configuration, responseReader(GsonFactory.create(configuration)));
+    }
+
+    /**
+     * Calls a Telegram method asynchronously with given parameters and
+     * configuration, handing the raw response body to the given reader
+     * instead of decoding it as a <code>Response</code> object.
+     * 
+     * <p>
+     * The reader runs in a thread of the HTTP transport, once the response is
+     * received. Cancelling the returned future aborts the underlying HTTP
+     * request.
+     * 
+     * @param parameters Parameters expected by Telegram method. This object
+     *            will be encoded as JSON document and delivered in HTTP request
+     *            boby.
+     * 
+     *            <p>
+     *            If the parameter is a instance of a <code>java.util.Map</code>
+     *            and is empty, it will be ignored.
+     * 
+     * @param configuration The configuration.
+     * @param reader Reads the response body.
+     * 
+     * @return A future that completes with the value produced by the reader,
+     *         or exceptionally with a {@link MargeletException} if the
+     *         communication with Telegram services fails.
+     */
+    public <R> CompletableFuture<R> callAsync(
+	    Object parameters,
+	    Configuration configuration,
+	    ResponseBodyReader<R> reader
+    ) {
+	Preconditions.checkNotNull(parameters, "Parameter 'parameters' cannot be null");
+	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	Preconditions.checkNotNull(reader, "Parameter 'reader' cannot be null");
+
+	if (configuration.getBoolean(Constants.CONFIG_VIRTUAL_THREADS, Constants.CONFIG_VIRTUAL_THREADS_DEFAULT)) {
+	    return callInVirtualThread(parameters, configuration, reader);
+	}
+
+	Gson gson = GsonFactory.create(configuration);
+	HttpTransport transport = httpClientPool.getTransport(configuration);
+	CompletableFuture<R> httpFuture = transport.executeAsync(
+		createRequest(gson, parameters, new JsonBuffer()),
+		reader
+	);
+
+	CompletableFuture<R> result = new CompletableFuture<>();
+	httpFuture.whenComplete((response, throwable) -> {
+	    if (throwable == null) {
+		result.complete(response);
+	    } else {
+		Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+		result.completeExceptionally(
+			new MargeletException("Fail during communication with Telegram services", cause)
+		);
 	    }
-	    try (CloseableHttpResponse httpResponse = httpClient.execute(request)) {
-		HttpEntity responseHttpEntity = httpResponse.getEntity();
-		InputStream inputStream = responseHttpEntity.getContent();
-		InputStreamReader reader = new InputStreamReader(inputStream);
-		return gson.fromJson(reader, responseType);
+	});
+	result.whenComplete((response, throwable) -> {
+	    if (result.isCancelled()) {
+		httpFuture.cancel(true);
 	    }
-	} catch (IOException e) {
-	    throw new MargeletException("Fail during communication with Telegram services", e);
+	});
+	return result;
+    }
+
+    /**
+     * Runs the blocking {@link #call(Object, Configuration, ResponseBodyReader)}
+     * in a new virtual thread. Cancelling the returned future interrupts the
+     * thread, which aborts its blocking socket operations.
+     * 
+     * @param parameters The method parameters.
+     * @param configuration The configuration.
+     * @param reader Reads the response body.
+     * 
+     * @return A future that completes with the value produced by the reader.
+     * 
+     * @throws MargeletException If virtual threads are not supported.
+     */
+    private <R> CompletableFuture<R> callInVirtualThread(
+	    Object parameters,
+	    Configuration configuration,
+	    ResponseBodyReader<R> reader
+    ) {
+	CompletableFuture<R> result = new CompletableFuture<>();
+	Thread thread = VirtualThreads.newThread(() -> {
+	    try {
+		result.complete(call(parameters, configuration, reader));
+	    } catch (Throwable e) {
+		result.completeExceptionally(e);
+	    }
+	});
+	result.whenComplete((response, throwable) -> {
+	    if (result.isCancelled()) {
+		thread.interrupt();
+	    }
+	});
+	thread.start();
+	return result;
+    }
+
+    /**
+     * Creates the HTTP request to call this method, with the given parameters
+     * encoded as JSON in the request body.
+     * 
+     * <p>
+     * Parameters are encoded straight to UTF-8 bytes into the given buffer,
+     * which backs the request body without being copied. Any parameters
+     * object is encoded by its runtime type; an empty <code>Map</code> means
+     * no parameters.
+     * 
+     * @param gson The JSON processor.
+     * @param parameters The method parameters.
+     * @param buffer Receives the encoded parameters. It must not be modified
+     *            while the request is in progress.
+     * 
+     * @return The HTTP request.
+     */
+    private HttpTransportRequest createRequest(Gson gson, Object parameters, JsonBuffer buffer) {
+	if (parameters instanceof Map && ((Map<?, ?>) parameters).isEmpty()) {
+	    return HttpTransportRequest.post(targetUrl);
 	}
+	return HttpTransportRequest.post(
+		targetUrl,
+		"application/json",
+		buffer.write(gson, parameters).toRequestBody()
+	);
+    }
+
+    /**
+     * Creates the reader that decodes the HTTP response body as a
+     * <code>Response</code> object.
+     * 
+     * <p>
+     * Error responses whose body is not a Telegram JSON document, like the
+     * ones produced by proxies and load balancers, are turned into
+     * unsuccessful <code>Response</code> objects with the HTTP status code as
+     * error code.
+     * 
+     * @param gson The JSON processor.
+     * 
+     * @return The response reader.
+     */
+    private ResponseBodyReader<Response<?>> responseReader(Gson gson) {
+	return (statusCode, content) -> {
+	    Response<?> response;
+	    try {
+		response = gson.fromJson(
+			new InputStreamReader(content, StandardCharsets.UTF_8),
+			responseType
+		);
+	    } catch (JsonParseException e) {
+		if (statusCode == HTTP_OK) {
+		    throw e;
+		}
+		response = null;
+	    }
+	    return response != null ? response : httpFailure(statusCode);
+	};
+    }
+
+    /**
+     * Creates an unsuccessful response for a HTTP failure without a Telegram
+     * JSON document.
+     * 
+     * @param statusCode The HTTP status code.
+     * 
+     * @return The response.
+     */
+    private static Response<?> httpFailure(int statusCode) {
+	Response<?> response = new Response<>();
+	response.setOk(false);
+	response.setErrorCode(statusCode);
+	response.setDescription(String.format("HTTP status %d", statusCode));
+	return response;
     }
 
     /**
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Objects;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.gson.annotations.SerializedName;
+
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.UpdateType;
+
+/**
+ * Declares which parts of an {@link Update} must be decoded. Everything else
+ * is skipped at the JSON token level, without building any object.
+ * 
+ * <p>
+ * A projection selects:
+ * <ul>
+ * <li>the update kinds whose payloads are decoded. The payload of other kinds
+ * is skipped, but the update id and {@link Update#getType() kind} are still
+ * available;</li>
+ * <li>the fields of the {@link Message} payloads that are decoded, by its
+ * JSON names, like <code>"text"</code>, <code>"chat"</code> and
+ * <code>"from"</code>. Nested messages (<code>"reply_to_message"</code> and
+ * <code>"pinned_message"</code>) are fully decoded when selected.</li>
+ * </ul>
+ * An empty selection means "everything".
+ * 
+ * <p>
+ * Instances of this class are immutable and thread safe, and can be used as
+ * keys of maps.
+ * 
+ * <pre>
+ * UpdateProjection projection = UpdateProjection.builder()
+ * 	.updateTypes(UpdateType.MESSAGE)
+ * 	.messageFields("text", "chat", "from")
+ * 	.build();
+ * </pre>
+ * 
+ * @author Welyab Paula
+ */
+public final class UpdateProjection {
+
+    /**
+     * The JSON names of the fields of {@link Message}, as mapped by its
+     * <code>@SerializedName</code> annotations and decoded by its adapter.
+     */
+    private static final ImmutableSet<String> MESSAGE_FIELDS = Arrays.stream(Message.class.getDeclaredFields())
+	    .map(field -> field.getAnnotation(SerializedName.class))
+	    .filter(Objects::nonNull)
+	    .map(SerializedName::value)
+	    .collect(ImmutableSet.toImmutableSet());
+
+    private static final UpdateProjection ALL = builder().build();
+
+    /**
+     * The selected update kinds; empty means all.
+     */
+    private final ImmutableSet<UpdateType> updateTypes;
+
+    /**
+     * The JSON names of the selected message fields; empty means all.
+     */
+    private final ImmutableSet<String> messageFields;
+
+    @SuppressWarnings("javadoc")
+    private UpdateProjection(ImmutableSet<UpdateType> updateTypes, ImmutableSet<String> messageFields) {
+	this.updateTypes = updateTypes;
+	this.messageFields = messageFields;
+    }
+
+    @SuppressWarnings("javadoc")
+    public ImmutableSet<UpdateType> getUpdateTypes() {
+	return updateTypes;
+    }
+
+    @SuppressWarnings("javadoc")
+    public ImmutableSet<String> getMessageFields() {
+	return messageFields;
+    }
+
+    /**
+     * Checks if the payload of updates of the given kind is decoded.
+     * 
+     * @param updateType The update kind.
+     * 
+     * @return <code>true</code> if the payload is decoded.
+     */
+    public boolean includes(UpdateType updateType) {
+	return updateTypes.isEmpty() || updateTypes.contains(updateType);
+    }
+
+    /**
+     * Checks if the given field of the message payloads is decoded.
+     * 
+     * @param messageField The JSON name of the message field.
+     * 
+     * @return <code>true</code> if the field is decoded.
+     */
+    public boolean includes(String messageField) {
+	return messageFields.isEmpty() || messageFields.contains(messageField);
+    }
+
+    /**
+     * Indicates if this projection selects everything, decoding updates as
+     * if there was no projection at all.
+     * 
+     * @return <code>true</code> if nothing is skipped.
+     */
+    public boolean isAll() {
+	return updateTypes.isEmpty() && messageFields.isEmpty();
+    }
+
+    @Override
+    public int hashCode() {
+	return 31 * updateTypes.hashCode() + messageFields.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+	if (this == obj)
+	    return true;
+	if (obj == null)
+	    return false;
+	if (getClass() != obj.getClass())
+	    return false;
+	UpdateProjection other = (UpdateProjection) obj;
+	return updateTypes.equals(other.updateTypes)
+		&& messageFields.equals(other.messageFields);
+    }
+
+    @Override
+    public String toString() {
+	return "UpdateProjection [updateTypes=" + updateTypes + ", messageFields=" + messageFields + "]";
+    }
+
+    /**
+     * Retrieves the projection that selects everything.
+     * 
+     * @return The projection.
+     */
+    public static UpdateProjection all() {
+	return ALL;
+    }
+
+    @SuppressWarnings("javadoc")
+    public static Builder builder() {
+	return new Builder();
+    }
+
+    /**
+     * A builder for <code>UpdateProjection</code> objects.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	private final EnumSet<UpdateType> updateTypes;
+
+	private final ImmutableSet.Builder<String> messageFields;
+
+	private Builder() {
+	    updateTypes = EnumSet.noneOf(UpdateType.class);
+	    messageFields = ImmutableSet.builder();
+	}
+
+	/**
+	 * Selects update kinds whose payloads are decoded.
+	 * 
+	 * @param updateTypes The update kinds.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder updateTypes(UpdateType... updateTypes) {
+	    Preconditions.checkNotNull(updateTypes, "Parameter 'updateTypes' cannot be null");
+	    this.updateTypes.addAll(Arrays.asList(updateTypes));
+	    return this;
+	}
+
+	/**
+	 * Selects fields of the message payloads that are decoded.
+	 * 
+	 * @param messageFields The JSON names of the message fields, like
+	 *            <code>"text"</code>.
+	 * 
+	 * @return This builder.
+	 * 
+	 * @throws IllegalArgumentException If some name is not the JSON name of
+	 *             a {@link Message} field.
+	 */
+	public Builder messageFields(String... messageFields) {
+	    Preconditions.checkNotNull(messageFields, "Parameter 'messageFields' cannot be null");
+	    for (String messageField : messageFields) {
+		Preconditions.checkArgument(
+			MESSAGE_FIELDS.contains(messageField),
+			"Unknown message field: '%s'. Known fields: %s",
+			messageField,
+			MESSAGE_FIELDS
+		);
+	    }
+	    this.messageFields.add(messageFields);
+	    return this;
+	}
+
+	@SuppressWarnings("javadoc")
+	public UpdateProjection build() {
+	    return new UpdateProjection(
+		    Sets.immutableEnumSet(updateTypes),
+		    messageFields.build()
+	    );
+	}
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded, pre-allocated queue for one producer thread and many consumer
+ * threads.
+ * 
+ * <p>
+ * The slots are allocated once, so handing an element over allocates
+ * nothing, and there are no locks: each slot carries a sequence number that
+ * tells whether it holds an element to be taken or is free to be written.
+ * The producer only writes free slots, so a full buffer makes
+ * {@link #offer(Object)} fail instead of growing; consumers claim elements
+ * with a compare and set on the head of the buffer.
+ * 
+ * <p>
+ * Waiting for room or for elements is up to the caller, usually with a
+ * {@link WaitStrategy}.
+ * 
+ * <p>
+ * {@link #offer(Object)} must be called by one thread at a time. The other
+ * methods are thread safe.
+ * 
+ * @author Welyab Paula
+ * 
+ * @param <E> The type of the elements.
+ */
+public final class RingBuffer<E> {
+
+    @SuppressWarnings("javadoc")
+    private final int mask;
+
+    @SuppressWarnings("javadoc")
+    private final AtomicReferenceArray<E> elements;
+
+    /**
+     * The sequence number of each slot. A slot at position <code>p</code> is
+     * free to be written when its sequence is <code>2p</code>, and holds an
+     * element to be taken when its sequence is <code>2p + 1</code>. Doubling
+     * the positions keeps the two states apart even with a single slot,
+     * where the next lap of a slot is the next position.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * The position of the next element to be taken.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The position of the next element to be written. Only touched by the
+     * producer.
+     */
+    private long tail;
+
+    /**
+     * Creates a new buffer.
+     * 
+     * @param capacity The minimum capacity. It is rounded up to a power of
+     *            two.
+     */
+    public RingBuffer(int capacity) {
+	Preconditions.checkArgument(
+		capacity > 0 && capacity <= 1 << 30,
+		"Parameter 'capacity' must be between 1 and 2^30"
+	);
+	int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+	this.mask = size - 1;
+	this.elements = new AtomicReferenceArray<>(size);
+	this.sequences = new AtomicLongArray(size);
+	for (int i = 0; i < size; i++) {
+	    sequences.set(i, 2L * i);
+	}
+    }
+
+    /**
+     * Appends an element, if there is room for it. It must be called by one
+     * thread at a time.
+     * 
+     * @param element The element.
+     * 
+     * @return <code>true</code> if the element was appended,
+     *         <code>false</code> if the buffer is full.
+     */
+    public boolean offer(E element) {
+	Preconditions.checkNotNull(element, "Parameter 'element' cannot be null");
+	long position = tail;
+	int slot = (int) position & mask;
+	if (sequences.get(slot) != 2 * position) {
+	    // the slot still holds the element written one lap ago
+	    return false;
+	}
+	elements.lazySet(slot, element);
+	// a volatile write: a consumer that announces it is about to block and
+	// then finds the buffer empty is seen by the producer after this offer
+	sequences.set(slot, 2 * position + 1);
+	tail = position + 1;
+	return true;
+    }
+
+    /**
+     * Takes the oldest element.
+     * 
+     * @return The element, or <code>null</code> if the buffer is empty.
+     */
+    public E poll() {
+	while (true) {
+	    long position = head.get();
+	    int slot = (int) position & mask;
+	    long sequence = sequences.get(slot);
+	    if (sequence < 2 * position + 1) {
+		return null;
+	    }
+	    if (sequence == 2 * position + 1 && head.compareAndSet(position, position + 1)) {
+		E element = elements.get(slot);
+		elements.lazySet(slot, null);
+		// frees the slot for the next lap of the producer
+		sequences.lazySet(slot, 2 * (position + mask + 1));
+		return element;
+	    }
+	    // another consumer took the element; tries the next one
+	}
+    }
+
+    /**
+     * Retrieves the number of slots of this buffer.
+     * 
+     * @return The capacity.
+     */
+    public int capacity() {
+	return mask + 1;
+    }
+
+    /**
+     * Indicates if the buffer has no elements. The result is a snapshot, and
+     * may be outdated as soon as it is returned.
+     * 
+     * @return <code>true</code> if the buffer is empty.
+     */
+    public boolean isEmpty() {
+	long position = head.get();
+	return sequences.get((int) position & mask) < 2 * position + 1;
+    }
+}
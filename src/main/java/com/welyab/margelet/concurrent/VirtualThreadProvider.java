@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads. The implementation lives in the Java 21 section of
+ * the multi-release jar.
+ * 
+ * @author Welyab Paula
+ * 
+ * @see VirtualThreads
+ */
+interface VirtualThreadProvider {
+
+    @SuppressWarnings("javadoc")
+    boolean isVirtual(Thread thread);
+
+    @SuppressWarnings("javadoc")
+    Thread newThread(Runnable task);
+
+    @SuppressWarnings("javadoc")
+    ThreadFactory threadFactory(String namePrefix);
+
+    @SuppressWarnings("javadoc")
+    ExecutorService newThreadPerTaskExecutor(String namePrefix);
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.base.Preconditions;
+
+import com.welyab.margelet.MargeletException;
+
+/**
+ * Access to the virtual threads of Java 21, from code compiled for Java 8.
+ * 
+ * <p>
+ * Virtual threads are cheap to create and to block: a blocking call, like
+ * {@link com.welyab.margelet.Margelet#callMethod(String, com.google.common.collect.ImmutableMap, Class, com.welyab.margelet.Configuration)},
+ * parks the virtual thread and releases its carrier thread. So tens of
+ * thousands of handlers may wait for Telegram services at the same time,
+ * without tuning thread pools.
+ * 
+ * <p>
+ * The implementation is only available in Java 21 or later, from the
+ * multi-release section of the Margelet jar. In older versions
+ * {@link #isSupported()} returns <code>false</code>, and the methods that
+ * create virtual threads throw <code>MargeletException</code>.
+ * 
+ * @author Welyab Paula
+ */
+public final class VirtualThreads {
+
+    /**
+     * The provider backed by the virtual threads of Java 21.
+     */
+    private static final String PROVIDER_CLASS = "com.welyab.margelet.concurrent.JdkVirtualThreadProvider";
+
+    /**
+     * The provider; <code>null</code> if virtual threads are not supported.
+     */
+    private static final VirtualThreadProvider PROVIDER = loadProvider();
+
+    @SuppressWarnings("javadoc")
+    private VirtualThreads() {
+    }
+
+    /**
+     * Indicates if virtual threads are supported by the running Java version.
+     * 
+     * @return <code>true</code> if virtual threads are supported.
+     */
+    public static boolean isSupported() {
+	return PROVIDER != null;
+    }
+
+    /**
+     * Indicates if the given thread is a virtual thread.
+     * 
+     * @param thread The thread.
+     * 
+     * @return <code>true</code> if the thread is virtual; always
+     *         <code>false</code> if virtual threads are not supported.
+     */
+    public static boolean isVirtual(Thread thread) {
+	Preconditions.checkNotNull(thread, "Parameter 'thread' cannot be null");
+	return PROVIDER != null && PROVIDER.isVirtual(thread);
+    }
+
+    /**
+     * Creates an unstarted virtual thread.
+     * 
+     * @param task The task run by the thread.
+     * 
+     * @return The thread.
+     * 
+     * @throws MargeletException If virtual threads are not supported.
+     */
+    public static Thread newThread(Runnable task) {
+	Preconditions.checkNotNull(task, "Parameter 'task' cannot be null");
+	return provider().newThread(task);
+    }
+
+    /**
+     * Creates a factory of virtual threads.
+     * 
+     * @param namePrefix The prefix of the thread names, followed by a
+     *            counter.
+     * 
+     * @return The thread factory.
+     * 
+     * @throws MargeletException If virtual threads are not supported.
+     */
+    public static ThreadFactory threadFactory(String namePrefix) {
+	Preconditions.checkNotNull(namePrefix, "Parameter 'namePrefix' cannot be null");
+	return provider().threadFactory(namePrefix);
+    }
+
+    /**
+     * Creates an executor that runs each task in a new virtual thread. It
+     * can be given, for instance, as the dispatch executor of a
+     * {@link com.welyab.margelet.webhook.WebhookServer}.
+     * 
+     * @param namePrefix The prefix of the thread names, followed by a
+     *            counter.
+     * 
+     * @return The executor.
+     * 
+     * @throws MargeletException If virtual threads are not supported.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+	Preconditions.checkNotNull(namePrefix, "Parameter 'namePrefix' cannot be null");
+	return provider().newThreadPerTaskExecutor(namePrefix);
+    }
+
+    @SuppressWarnings("javadoc")
+    private static VirtualThreadProvider provider() {
+	if (PROVIDER == null) {
+	    throw new MargeletException("Virtual threads require Java 21 or later");
+	}
+	return PROVIDER;
+    }
+
+    @SuppressWarnings("javadoc")
+    private static VirtualThreadProvider loadProvider() {
+	try {
+	    return (VirtualThreadProvider) Class.forName(PROVIDER_CLASS).getDeclaredConstructor().newInstance();
+	} catch (ReflectiveOperationException | LinkageError e) {
+	    return null;
+	}
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for a condition that is checked again after each wait,
+ * like a {@link RingBuffer} having elements or room. Strategies trade CPU
+ * usage for latency.
+ * 
+ * @author Welyab Paula
+ */
+public enum WaitStrategy {
+
+    /**
+     * Keeps the thread running. It has the lowest latency, but takes a whole
+     * core for each waiting thread; only suitable with dedicated cores.
+     */
+    BUSY_SPIN {
+
+	@Override
+	public void idle() {
+	    // checks the condition again right away
+	}
+    },
+
+    /**
+     * Gives the core to other threads before checking the condition again.
+     * Low latency while threads are not more than cores, but still keeps the
+     * cores busy.
+     */
+    YIELD {
+
+	@Override
+	public void idle() {
+	    Thread.yield();
+	}
+    },
+
+    /**
+     * Parks the thread for a short time. Uses little CPU while idle, at the
+     * cost of some tens of microseconds of latency, but an idle thread still
+     * wakes up about twenty thousand times per second.
+     */
+    PARK {
+
+	@Override
+	public void idle() {
+	    LockSupport.parkNanos(PARK_NANOS);
+	}
+    },
+
+    /**
+     * Parks the thread until it is signalled with
+     * <code>LockSupport.unpark</code> by the thread that makes the condition
+     * true. It uses no CPU while idle, at the cost of a wake up system call
+     * for the signalling thread. The waiting thread must announce that it is
+     * about to block, and check the condition again, before it calls
+     * {@link #idle()}, so the signalling thread knows whom to wake up.
+     */
+    BLOCK {
+
+	@Override
+	public void idle() {
+	    LockSupport.park(this);
+	}
+
+	@Override
+	public boolean isSignalled() {
+	    return true;
+	}
+    };
+
+    /**
+     * How long a parked thread waits before checking the condition again.
+     */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Waits once, before the condition is checked again.
+     */
+    public abstract void idle();
+
+    /**
+     * Indicates if a thread waiting with this strategy must be woken up by
+     * the thread that makes the condition true.
+     * 
+     * @return <code>true</code> if waiting threads must be signalled.
+     */
+    public boolean isSignalled() {
+	return false;
+    }
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.dispatch;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.welyab.margelet.MargeletException;
+import com.welyab.margelet.types.CallbackQuery;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.UpdateType;
+import com.welyab.margelet.types.User;
+
+/**
+ * Dispatches updates to a handler, keeping the order of the updates of each
+ * chat while handling different chats in parallel.
+ * 
+ * <p>
+ * Updates are spread over a fixed number of stripes by their key, the chat
+ * they belong to (see {@link #chatKey(Update)}). Each stripe is a bounded
+ * queue drained by a single thread, so updates with the same key are handled
+ * one at a time, in the order they were dispatched, and a slow chat only
+ * delays the chats that share its stripe. There is no lock shared among
+ * stripes.
+ * 
+ * <p>
+ * When the queue of a stripe is full, {@link #dispatch(Update)} blocks, which
+ * slows down the source of updates instead of buffering without limit. A
+ * blocked dispatch ends with an exception if the dispatching thread is
+ * interrupted, so the source can still be stopped. The handler may dispatch
+ * updates itself, but not into the full queue of its own stripe: that thread
+ * would wait for itself forever, so the dispatch is rejected instead.
+ * 
+ * <p>
+ * The dispatcher is a consumer of updates, and plugs into the update sources
+ * of Margelet:
+ * 
+ * <pre>
+ * ChatOrderedDispatcher dispatcher = ChatOrderedDispatcher.builder(update -&gt; ...).build();
+ * dispatcher.start();
+ * UpdatePoller poller = UpdatePoller.builder(margelet, dispatcher::dispatchAll).build();
+ * </pre>
+ * 
+ * <p>
+ * Note that updates are handed over as soon as they are queued, so an
+ * {@link com.welyab.margelet.polling.UpdatePoller} confirms them to Telegram
+ * services before they are handled.
+ * 
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Welyab Paula
+ */
+public class ChatOrderedDispatcher implements Consumer<Update>, Closeable {
+
+    @SuppressWarnings("javadoc")
+    private static final Logger LOGGER = Logger.getLogger(ChatOrderedDispatcher.class.getName());
+
+    @SuppressWarnings("javadoc")
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY = new ThreadFactoryBuilder()
+	    .setNameFormat("margelet-dispatcher-%d")
+	    .build();
+
+    /**
+     * Wakes a stripe waiting for updates when the dispatcher is closed.
+     */
+    private static final Update END_OF_UPDATES = new Update();
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Update> handler;
+
+    @SuppressWarnings("javadoc")
+    private final ToLongFunction<? super Update> keyFunction;
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Throwable> errorHandler;
+
+    @SuppressWarnings("javadoc")
+    private final Stripe[] stripes;
+
+    @SuppressWarnings("javadoc")
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @SuppressWarnings("javadoc")
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    @SuppressWarnings("javadoc")
+    private ChatOrderedDispatcher(Builder builder, ThreadFactory threadFactory) {
+	this.handler = builder.handler;
+	this.keyFunction = builder.keyFunction;
+	this.errorHandler = builder.errorHandler;
+	this.stripes = new Stripe[builder.stripes];
+	for (int i = 0; i < stripes.length; i++) {
+	    stripes[i] = new Stripe(builder.queueCapacity, threadFactory);
+	}
+    }
+
+    /**
+     * Starts the threads of the stripes. Updates dispatched before are queued.
+     * 
+     * @throws IllegalStateException If the dispatcher was already started.
+     */
+    public void start() {
+	Preconditions.checkState(started.compareAndSet(false, true), "The dispatcher was already started");
+	for (Stripe stripe : stripes) {
+	    stripe.thread.start();
+	}
+    }
+
+    /**
+     * Dispatches an update, blocking while the queue of its stripe is full.
+     * 
+     * @param update The update.
+     * 
+     * @throws IllegalStateException If the dispatcher is closed, or if called
+     *             by the handler and the queue of its own stripe is full.
+     * @throws MargeletException If the calling thread is interrupted while
+     *             blocked. The interrupt flag of the thread is restored.
+     */
+    public void dispatch(Update update) {
+	Preconditions.checkNotNull(update, "Parameter 'update' cannot be null");
+	Preconditions.checkState(!closed.get(), "The dispatcher is closed");
+	stripeOf(update).put(update);
+    }
+
+    /**
+     * Dispatches a batch of updates, in order.
+     * 
+     * @param updates The updates.
+     * 
+     * @throws IllegalStateException If the dispatcher is closed, or if called
+     *             by the handler and the queue of its own stripe is full.
+     * @throws MargeletException If the calling thread is interrupted while
+     *             blocked. The interrupt flag of the thread is restored. The
+     *             updates before the failed one were dispatched.
+     */
+    public void dispatchAll(List<? extends Update> updates) {
+	Preconditions.checkNotNull(updates, "Parameter 'updates' cannot be null");
+	for (Update update : updates) {
+	    dispatch(update);
+	}
+    }
+
+    /**
+     * Same as {@link #dispatch(Update)}.
+     */
+    @Override
+    public void accept(Update update) {
+	dispatch(update);
+    }
+
+    /**
+     * Stops accepting updates and waits for the queued ones to be handled.
+     * Updates must not be dispatched concurrently with this method. If called
+     * by the handler, it does not wait.
+     */
+    @Override
+    public void close() {
+	if (!closed.compareAndSet(false, true)) {
+	    return;
+	}
+	for (Stripe stripe : stripes) {
+	    // a full queue needs no wake up: the stripe sees the closed flag once
+	    // it drains the queue
+	    stripe.queue.offer(END_OF_UPDATES);
+	}
+	if (!started.get()) {
+	    return;
+	}
+	for (Stripe stripe : stripes) {
+	    if (stripe.thread != Thread.currentThread()) {
+		joinUninterruptibly(stripe.thread);
+	    }
+	}
+    }
+
+    /**
+     * Retrieves the number of stripes, that is, of updates that may be handled
+     * at the same time.
+     * 
+     * @return The number of stripes.
+     */
+    public int getStripes() {
+	return stripes.length;
+    }
+
+    @SuppressWarnings("javadoc")
+    private Stripe stripeOf(Update update) {
+	long key = keyFunction.applyAsLong(update);
+	// spreads sequential keys, like consecutive chat ids, over the stripes
+	int hash = Long.hashCode(key) * 0x9E3779B9;
+	return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    @SuppressWarnings("javadoc")
+    private void handle(Update update) {
+	try {
+	    handler.accept(update);
+	} catch (RuntimeException e) {
+	    report(e);
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private void report(Throwable failure) {
+	try {
+	    errorHandler.accept(failure);
+	} catch (RuntimeException e) {
+	    LOGGER.log(Level.WARNING, "The error handler of the dispatcher failed", e);
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private static void joinUninterruptibly(Thread thread) {
+	boolean interrupted = false;
+	while (true) {
+	    try {
+		thread.join();
+		break;
+	    } catch (InterruptedException e) {
+		interrupted = true;
+	    }
+	}
+	if (interrupted) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    /**
+     * Retrieves the key that orders an update: the id of the chat it belongs
+     * to.
+     * 
+     * <ul>
+     * <li>messages and channel posts, new or edited, use the id of their
+     * chat;</li>
+     * <li>callback queries use the id of the chat of the message with the
+     * callback button, or the id of the user when the message was sent in
+     * inline mode;</li>
+     * <li>inline queries use the id of the user;</li>
+     * <li>other updates have no chat, and use their own id, so they are not
+     * ordered among themselves.</li>
+     * </ul>
+     * 
+     * <p>
+     * The key is read from the payload of the update, so with
+     * {@link com.welyab.margelet.Constants#CONFIG_LAZY_DECODING} the payloads
+     * of messages, callback queries and inline queries are decoded in the
+     * dispatching thread, not in the threads of the stripes. To keep decoding
+     * in the stripes, use a key function that does not read payloads, like
+     * one that reads only {@link Update#getUpdateId()} or one that takes the
+     * ids from a source of its own.
+     * 
+     * @param update The update.
+     * 
+     * @return The key.
+     */
+    public static long chatKey(Update update) {
+	Preconditions.checkNotNull(update, "Parameter 'update' cannot be null");
+	UpdateType type = update.getType();
+	if (type == null) {
+	    return update.getUpdateId();
+	}
+	switch (type) {
+	case MESSAGE:
+	    return chatKey(update.getMessage(), update);
+	case EDITED_MESSAGE:
+	    return chatKey(update.getEditedMessage(), update);
+	case CHANNEL_POST:
+	    return chatKey(update.getChannelPost(), update);
+	case EDITED_CHANNEL_POST:
+	    return chatKey(update.getEditedChannelPost(), update);
+	case CALLBACK_QUERY:
+	    CallbackQuery callbackQuery = update.getCallbackQuery();
+	    if (callbackQuery != null && callbackQuery.getMessage() != null) {
+		return chatKey(callbackQuery.getMessage(), update);
+	    }
+	    return userKey(callbackQuery == null ? null : callbackQuery.getFrom(), update);
+	case INLINE_QUERY:
+	    return userKey(update.getInlineQuery() == null ? null : update.getInlineQuery().getFrom(), update);
+	default:
+	    return update.getUpdateId();
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private static long chatKey(Message message, Update update) {
+	return message != null && message.getChat() != null && message.getChat().hasId()
+		? message.getChat().getId()
+		: update.getUpdateId();
+    }
+
+    @SuppressWarnings("javadoc")
+    private static long userKey(User user, Update update) {
+	// private chats have the id of the user
+	return user != null && user.hasId() ? user.getId() : update.getUpdateId();
+    }
+
+    /**
+     * Creates a builder of dispatchers.
+     * 
+     * @param handler Handles the updates, in the threads of the stripes.
+     * 
+     * @return The builder.
+     */
+    public static Builder builder(Consumer<? super Update> handler) {
+	Preconditions.checkNotNull(handler, "Parameter 'handler' cannot be null");
+	return new Builder(handler);
+    }
+
+    /**
+     * A bounded queue of updates drained by a single thread.
+     * 
+     * @author Welyab Paula
+     */
+    private final class Stripe implements Runnable {
+
+	private final BlockingQueue<Update> queue;
+
+	private final Thread thread;
+
+	private Stripe(int capacity, ThreadFactory threadFactory) {
+	    this.queue = new ArrayBlockingQueue<>(capacity);
+	    this.thread = threadFactory.newThread(this);
+	}
+
+	private void put(Update update) {
+	    if (Thread.currentThread() == thread) {
+		// waiting for room would wait for this very thread to drain the queue
+		Preconditions.checkState(
+			queue.offer(update),
+			"The handler cannot dispatch into the full queue of its own stripe"
+		);
+		return;
+	    }
+	    try {
+		queue.put(update);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		throw new MargeletException("Interrupted while dispatching an update", e);
+	    }
+	}
+
+	@Override
+	public void run() {
+	    while (true) {
+		Update update = queue.poll();
+		if (update == null) {
+		    // the stripe only ends once closed and drained, so no update is
+		    // lost
+		    if (closed.get()) {
+			return;
+		    }
+		    try {
+			update = queue.take();
+		    } catch (InterruptedException e) {
+			continue;
+		    }
+		}
+		if (update != END_OF_UPDATES) {
+		    handle(update);
+		}
+	    }
+	}
+    }
+
+    /**
+     * A builder for <code>ChatOrderedDispatcher</code> objects.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	private final Consumer<? super Update> handler;
+
+	private ToLongFunction<? super Update> keyFunction = ChatOrderedDispatcher::chatKey;
+
+	private int stripes = Runtime.getRuntime().availableProcessors();
+
+	private int queueCapacity = 1024;
+
+	private Consumer<? super Throwable> errorHandler = failure -> LOGGER.log(
+		Level.WARNING,
+		"Update handling failed",
+		failure
+	);
+
+	private ThreadFactory threadFactory;
+
+	private Builder(Consumer<? super Update> handler) {
+	    this.handler = handler;
+	}
+
+	/**
+	 * Adjusts the key that orders updates. Updates with the same key are
+	 * handled in order, one at a time. Default:
+	 * {@link ChatOrderedDispatcher#chatKey(Update)}.
+	 * 
+	 * @param keyFunction The key function.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder keyFunction(ToLongFunction<? super Update> keyFunction) {
+	    Preconditions.checkNotNull(keyFunction, "Parameter 'keyFunction' cannot be null");
+	    this.keyFunction = keyFunction;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the number of stripes, each one with its own thread. Default:
+	 * the number of available processors.
+	 * 
+	 * @param stripes The number of stripes.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder stripes(int stripes) {
+	    Preconditions.checkArgument(stripes > 0, "Parameter 'stripes' must be positive");
+	    this.stripes = stripes;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the capacity of the queue of each stripe. Default:
+	 * <code>1024</code>.
+	 * 
+	 * @param queueCapacity The capacity.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder queueCapacity(int queueCapacity) {
+	    Preconditions.checkArgument(queueCapacity > 0, "Parameter 'queueCapacity' must be positive");
+	    this.queueCapacity = queueCapacity;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the handler of exceptions thrown by the update handler.
+	 * Default: logs the failure with <code>java.util.logging</code>.
+	 * 
+	 * @param errorHandler The error handler. It runs in the thread of the
+	 *            stripe.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder errorHandler(Consumer<? super Throwable> errorHandler) {
+	    Preconditions.checkNotNull(errorHandler, "Parameter 'errorHandler' cannot be null");
+	    this.errorHandler = errorHandler;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the factory of the threads of the stripes. Default: non daemon
+	 * threads named <code>"margelet-dispatcher-N"</code>.
+	 * 
+	 * @param threadFactory The thread factory.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder threadFactory(ThreadFactory threadFactory) {
+	    Preconditions.checkNotNull(threadFactory, "Parameter 'threadFactory' cannot be null");
+	    this.threadFactory = threadFactory;
+	    return this;
+	}
+
+	@SuppressWarnings("javadoc")
+	public ChatOrderedDispatcher build() {
+	    return new ChatOrderedDispatcher(
+		    this,
+		    threadFactory != null ? threadFactory : DEFAULT_THREAD_FACTORY
+	    );
+	}
+    }
+}
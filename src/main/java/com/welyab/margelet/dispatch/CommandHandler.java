@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.dispatch;
+
+import com.welyab.margelet.types.Message;
+
+/**
+ * Handles a bot command routed by a {@link CommandRouter}.
+ * 
+ * @author Welyab Paula
+ */
+@FunctionalInterface
+public interface CommandHandler {
+
+    /**
+     * Handles a command.
+     * 
+     * @param message The message that starts with the command.
+     * @param arguments The text after the command, trimmed. It is empty if
+     *            the command has no arguments.
+     */
+    void handle(Message message, String arguments);
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.dispatch;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import com.welyab.margelet.Margelet;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.MessageEntity;
+
+/**
+ * Routes messages that start with a bot command, like
+ * <code>"/start"</code>, to the handler of the command.
+ * 
+ * <p>
+ * The command is taken from the <code>"bot_command"</code> entity at the
+ * start of the message text, as marked by Telegram services, so the text is
+ * never split. Commands addressed to a bot (<code>"/start@my_bot"</code>) are
+ * only routed if the bot is this one; commands addressed to other bots are
+ * ignored.
+ * 
+ * <p>
+ * Handlers are looked up in a trie over the command names, walking the
+ * characters of the command in place, so the lookup takes time proportional
+ * to the command length, whatever the number of commands, and allocates
+ * nothing. Command names are matched case insensitively.
+ * 
+ * <pre>
+ * CommandRouter commands = CommandRouter.builder()
+ * 	.botUsername(margelet)
+ * 	.command("start", (message, arguments) -&gt; ...)
+ * 	.command("help", (message, arguments) -&gt; ...)
+ * 	.build();
+ * UpdateRouter router = UpdateRouter.builder()
+ * 	.onMessage(commands)
+ * 	.build();
+ * </pre>
+ * 
+ * <p>
+ * Instances of this class are immutable and thread safe, as long as the
+ * handlers are.
+ * 
+ * @author Welyab Paula
+ */
+public class CommandRouter implements Consumer<Message> {
+
+    /**
+     * The type of the entities that mark bot commands.
+     */
+    public static final String BOT_COMMAND = "bot_command";
+
+    /**
+     * The maximum length of a command name.
+     */
+    private static final int MAX_COMMAND_LENGTH = 32;
+
+    /**
+     * The number of characters allowed in command names: letters, digits and
+     * underscore.
+     */
+    private static final int ALPHABET_SIZE = 26 + 10 + 1;
+
+    /**
+     * The root of the trie of commands.
+     */
+    private final Node root;
+
+    /**
+     * The registered command names, in lower case.
+     */
+    private final ImmutableSet<String> commands;
+
+    /**
+     * Supplies the username of the bot; <code>null</code> if it is unknown,
+     * and commands addressed to any bot are routed.
+     */
+    private final Supplier<String> botUsername;
+
+    /**
+     * Handles the messages that are not commands of this router;
+     * <code>null</code> if they are ignored.
+     */
+    private final Consumer<? super Message> fallback;
+
+    @SuppressWarnings("javadoc")
+    private CommandRouter(Builder builder) {
+	this.root = builder.root.copy();
+	this.commands = builder.commands.build();
+	this.botUsername = builder.botUsername;
+	this.fallback = builder.fallback;
+    }
+
+    /**
+     * Hands a message to the handler of its command. Messages without a
+     * command, or with a command without handler, go to the fallback
+     * handler, if any. Commands addressed to other bots are ignored.
+     * 
+     * @param message The message.
+     * 
+     * @return <code>true</code> if a command handler handled the message.
+     */
+    public boolean route(Message message) {
+	Preconditions.checkNotNull(message, "Parameter 'message' cannot be null");
+	String text = message.getText();
+	MessageEntity command = text == null ? null : leadingCommand(message.getEntities());
+	if (command == null) {
+	    fallback(message);
+	    return false;
+	}
+	// skips the leading slash
+	int start = command.getOffset() + 1;
+	int end = Math.min(command.getOffset() + command.getLength(), text.length());
+	int nameEnd = start;
+	while (nameEnd < end && text.charAt(nameEnd) != '@') {
+	    nameEnd++;
+	}
+	if (nameEnd < end && !isThisBot(text, nameEnd + 1, end)) {
+	    return false;
+	}
+	CommandHandler handler = lookup(text, start, nameEnd);
+	if (handler == null) {
+	    fallback(message);
+	    return false;
+	}
+	handler.handle(message, text.substring(end).trim());
+	return true;
+    }
+
+    /**
+     * Same as {@link #route(Message)}.
+     */
+    @Override
+    public void accept(Message message) {
+	route(message);
+    }
+
+    /**
+     * Retrieves the registered command names, in lower case and without the
+     * leading slash. They may be given to <code>setMyCommands</code>.
+     * 
+     * @return The command names.
+     */
+    public ImmutableSet<String> getCommands() {
+	return commands;
+    }
+
+    @SuppressWarnings("javadoc")
+    private void fallback(Message message) {
+	if (fallback != null) {
+	    fallback.accept(message);
+	}
+    }
+
+    /**
+     * Finds the handler of the command in the given region of the text.
+     * 
+     * @param text The message text.
+     * @param start The start of the command name, inclusive.
+     * @param end The end of the command name, exclusive.
+     * 
+     * @return The handler, or <code>null</code> if the command has no
+     *         handler.
+     */
+    private CommandHandler lookup(String text, int start, int end) {
+	Node node = root;
+	for (int i = start; i < end && node != null; i++) {
+	    int index = indexOf(text.charAt(i));
+	    if (index < 0) {
+		return null;
+	    }
+	    node = node.children[index];
+	}
+	return node == null ? null : node.handler;
+    }
+
+    /**
+     * Checks if the bot username in the given region of the text, after the
+     * <code>'@'</code>, is the username of this bot.
+     * 
+     * @param text The message text.
+     * @param start The start of the username, inclusive.
+     * @param end The end of the username, exclusive.
+     * 
+     * @return <code>true</code> if the command is addressed to this bot, or
+     *         if the username of this bot is unknown.
+     */
+    private boolean isThisBot(String text, int start, int end) {
+	if (botUsername == null) {
+	    return true;
+	}
+	String username = botUsername.get();
+	return username != null
+		&& end - start == username.length()
+		&& text.regionMatches(true, start, username, 0, username.length());
+    }
+
+    /**
+     * Finds the command entity at the start of a message.
+     * 
+     * @param entities The message entities.
+     * 
+     * @return The entity, or <code>null</code> if the message does not start
+     *         with a command.
+     */
+    private static MessageEntity leadingCommand(List<MessageEntity> entities) {
+	if (entities == null) {
+	    return null;
+	}
+	for (int i = 0; i < entities.size(); i++) {
+	    MessageEntity entity = entities.get(i);
+	    if (entity.getOffset() == 0 && BOT_COMMAND.equals(entity.getType())) {
+		return entity;
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Retrieves the index of a character among the children of a trie node.
+     * 
+     * @param c The character.
+     * 
+     * @return The index, or <code>-1</code> if the character is not allowed
+     *         in command names.
+     */
+    private static int indexOf(char c) {
+	if (c >= 'a' && c <= 'z') {
+	    return c - 'a';
+	}
+	if (c >= 'A' && c <= 'Z') {
+	    return c - 'A';
+	}
+	if (c >= '0' && c <= '9') {
+	    return 26 + c - '0';
+	}
+	if (c == '_') {
+	    return 36;
+	}
+	return -1;
+    }
+
+    @SuppressWarnings("javadoc")
+    public static Builder builder() {
+	return new Builder();
+    }
+
+    /**
+     * A node of the trie of commands.
+     * 
+     * @author Welyab Paula
+     */
+    private static final class Node {
+
+	private final Node[] children = new Node[ALPHABET_SIZE];
+
+	private CommandHandler handler;
+
+	private Node copy() {
+	    Node copy = new Node();
+	    copy.handler = handler;
+	    for (int i = 0; i < children.length; i++) {
+		if (children[i] != null) {
+		    copy.children[i] = children[i].copy();
+		}
+	    }
+	    return copy;
+	}
+    }
+
+    /**
+     * A builder for <code>CommandRouter</code> objects.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	private final Node root = new Node();
+
+	private final ImmutableSet.Builder<String> commands = ImmutableSet.builder();
+
+	private Supplier<String> botUsername;
+
+	private Consumer<? super Message> fallback;
+
+	private Builder() {
+	}
+
+	/**
+	 * Registers the handler of a command.
+	 * 
+	 * @param name The command name, without the leading slash, like
+	 *            <code>"start"</code>. Up to 32 letters, digits and
+	 *            underscores.
+	 * @param handler The handler.
+	 * 
+	 * @return This builder.
+	 * 
+	 * @throws IllegalArgumentException If the name is invalid, or if the
+	 *             command already has a handler.
+	 */
+	public Builder command(String name, CommandHandler handler) {
+	    Preconditions.checkNotNull(name, "Parameter 'name' cannot be null");
+	    Preconditions.checkNotNull(handler, "Parameter 'handler' cannot be null");
+	    Preconditions.checkArgument(
+		    !name.isEmpty() && name.length() <= MAX_COMMAND_LENGTH,
+		    "Invalid command name: %s",
+		    name
+	    );
+	    Node node = root;
+	    for (int i = 0; i < name.length(); i++) {
+		int index = indexOf(name.charAt(i));
+		Preconditions.checkArgument(index >= 0, "Invalid command name: %s", name);
+		if (node.children[index] == null) {
+		    node.children[index] = new Node();
+		}
+		node = node.children[index];
+	    }
+	    Preconditions.checkArgument(node.handler == null, "Command already registered: %s", name);
+	    node.handler = handler;
+	    commands.add(name.toLowerCase(Locale.ROOT));
+	    return this;
+	}
+
+	/**
+	 * Adjusts the username of the bot, so commands addressed to other bots
+	 * are ignored. Without it, commands addressed to any bot are routed.
+	 * 
+	 * @param botUsername The bot username, without <code>'@'</code>.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder botUsername(String botUsername) {
+	    Preconditions.checkNotNull(botUsername, "Parameter 'botUsername' cannot be null");
+	    this.botUsername = () -> botUsername;
+	    return this;
+	}
+
+	/**
+	 * Takes the username of the bot from {@link Margelet#getBotUser()}. It
+	 * is only retrieved when the first command addressed to a bot is
+	 * routed, and is cached by <code>Margelet</code>.
+	 * 
+	 * @param margelet The client of the bot.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder botUsername(Margelet margelet) {
+	    Preconditions.checkNotNull(margelet, "Parameter 'margelet' cannot be null");
+	    this.botUsername = () -> margelet.getBotUser().getUsername();
+	    return this;
+	}
+
+	/**
+	 * Registers the handler of messages that are not commands of the
+	 * router. Without it, such messages are ignored.
+	 * 
+	 * @param fallback The fallback handler.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder otherwise(Consumer<? super Message> fallback) {
+	    Preconditions.checkNotNull(fallback, "Parameter 'fallback' cannot be null");
+	    this.fallback = fallback;
+	    return this;
+	}
+
+	@SuppressWarnings("javadoc")
+	public CommandRouter build() {
+	    return new CommandRouter(this);
+	}
+    }
+}
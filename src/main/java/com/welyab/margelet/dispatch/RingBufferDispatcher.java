@@ -0,0 +1,440 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.dispatch;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.welyab.margelet.concurrent.RingBuffer;
+import com.welyab.margelet.concurrent.WaitStrategy;
+import com.welyab.margelet.types.Update;
+
+/**
+ * Hands updates from one producer, like an
+ * {@link com.welyab.margelet.polling.UpdatePoller}, to a pool of handler
+ * threads through a pre-allocated {@link RingBuffer}.
+ * 
+ * <p>
+ * The buffer is bounded: when it is full, {@link #dispatch(Update)} waits for
+ * room, so a poller feeding this dispatcher stops polling until handlers
+ * catch up, and a burst of updates never grows the heap. Updates waiting in
+ * the buffer are held by Telegram services meanwhile.
+ * 
+ * <p>
+ * By default, idle handler threads block until an update is dispatched, so
+ * an idle dispatcher uses no CPU. For lower latency with dedicated cores,
+ * pick a spinning {@link WaitStrategy}:
+ * 
+ * <pre>
+ * RingBufferDispatcher dispatcher = RingBufferDispatcher.builder(update -&gt; ...)
+ * 	.waitStrategy(WaitStrategy.YIELD)
+ * 	.build();
+ * dispatcher.start();
+ * UpdatePoller poller = UpdatePoller.builder(margelet, dispatcher::dispatchAll).build();
+ * </pre>
+ * 
+ * <p>
+ * Updates are not ordered among handler threads; see
+ * {@link ChatOrderedDispatcher} for ordered dispatching.
+ * 
+ * <p>
+ * The dispatching methods must be called by one thread at a time. The other
+ * methods are thread safe.
+ * 
+ * @author Welyab Paula
+ */
+public class RingBufferDispatcher implements Consumer<Update>, Closeable {
+
+    @SuppressWarnings("javadoc")
+    private static final Logger LOGGER = Logger.getLogger(RingBufferDispatcher.class.getName());
+
+    @SuppressWarnings("javadoc")
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY = new ThreadFactoryBuilder()
+	    .setNameFormat("margelet-ring-dispatcher-%d")
+	    .build();
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Update> handler;
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Throwable> errorHandler;
+
+    @SuppressWarnings("javadoc")
+    private final RingBuffer<Update> buffer;
+
+    /**
+     * How handler threads wait for updates.
+     */
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * How the producer waits for room. It parks unless handlers spin, so a
+     * paused poller does not burn a core.
+     */
+    private final WaitStrategy producerWaitStrategy;
+
+    /**
+     * Indicates, for each handler thread, by its index, that it is blocked
+     * waiting for updates, with a signalled wait strategy: <code>1</code> if
+     * blocked, <code>0</code> otherwise.
+     */
+    private final AtomicIntegerArray blockedThreads;
+
+    @SuppressWarnings("javadoc")
+    private final Thread[] threads;
+
+    @SuppressWarnings("javadoc")
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * Indicates that no more updates will be dispatched; handler threads end
+     * once the buffer is empty.
+     */
+    private volatile boolean closed;
+
+    @SuppressWarnings("javadoc")
+    private RingBufferDispatcher(Builder builder, ThreadFactory threadFactory) {
+	this.handler = builder.handler;
+	this.errorHandler = builder.errorHandler;
+	this.buffer = new RingBuffer<>(builder.capacity);
+	this.waitStrategy = builder.waitStrategy;
+	this.producerWaitStrategy = builder.waitStrategy == WaitStrategy.BUSY_SPIN
+		? WaitStrategy.BUSY_SPIN
+		: WaitStrategy.PARK;
+	this.blockedThreads = new AtomicIntegerArray(builder.threads);
+	this.threads = new Thread[builder.threads];
+	for (int i = 0; i < threads.length; i++) {
+	    int index = i;
+	    threads[i] = threadFactory.newThread(() -> run(index));
+	}
+    }
+
+    /**
+     * Starts the handler threads. Updates dispatched before are buffered.
+     * 
+     * @throws IllegalStateException If the dispatcher was already started.
+     */
+    public void start() {
+	Preconditions.checkState(started.compareAndSet(false, true), "The dispatcher was already started");
+	for (Thread thread : threads) {
+	    thread.start();
+	}
+    }
+
+    /**
+     * Dispatches an update, waiting while the buffer is full.
+     * 
+     * @param update The update.
+     * 
+     * @throws IllegalStateException If the dispatcher is closed.
+     */
+    public void dispatch(Update update) {
+	while (!tryDispatch(update)) {
+	    producerWaitStrategy.idle();
+	}
+    }
+
+    /**
+     * Dispatches an update, if there is room for it in the buffer.
+     * 
+     * @param update The update.
+     * 
+     * @return <code>true</code> if the update was dispatched,
+     *         <code>false</code> if the buffer is full.
+     * 
+     * @throws IllegalStateException If the dispatcher is closed.
+     */
+    public boolean tryDispatch(Update update) {
+	Preconditions.checkNotNull(update, "Parameter 'update' cannot be null");
+	Preconditions.checkState(!closed, "The dispatcher is closed");
+	if (!buffer.offer(update)) {
+	    return false;
+	}
+	if (waitStrategy.isSignalled()) {
+	    wakeUpOne();
+	}
+	return true;
+    }
+
+    /**
+     * Dispatches a batch of updates, waiting for room as needed.
+     * 
+     * @param updates The updates.
+     * 
+     * @throws IllegalStateException If the dispatcher is closed.
+     */
+    public void dispatchAll(List<? extends Update> updates) {
+	Preconditions.checkNotNull(updates, "Parameter 'updates' cannot be null");
+	for (Update update : updates) {
+	    dispatch(update);
+	}
+    }
+
+    /**
+     * Same as {@link #dispatch(Update)}.
+     */
+    @Override
+    public void accept(Update update) {
+	dispatch(update);
+    }
+
+    /**
+     * Stops accepting updates and waits for the buffered ones to be handled.
+     * It must be called by the producer, or after it stops dispatching, and
+     * not by a handler.
+     */
+    @Override
+    public void close() {
+	closed = true;
+	if (!started.get()) {
+	    return;
+	}
+	for (Thread thread : threads) {
+	    LockSupport.unpark(thread);
+	}
+	for (Thread thread : threads) {
+	    joinUninterruptibly(thread);
+	}
+    }
+
+    /**
+     * Retrieves the maximum number of updates the buffer holds.
+     * 
+     * @return The capacity.
+     */
+    public int getCapacity() {
+	return buffer.capacity();
+    }
+
+    /**
+     * The loop of a handler thread.
+     * 
+     * @param index The index of the thread.
+     */
+    private void run(int index) {
+	while (true) {
+	    Update update = buffer.poll();
+	    if (update == null) {
+		if (closed) {
+		    // updates dispatched before closing are visible now
+		    update = buffer.poll();
+		    if (update == null) {
+			return;
+		    }
+		} else {
+		    idle(index);
+		    continue;
+		}
+	    }
+	    handle(update);
+	}
+    }
+
+    /**
+     * Waits for updates. With a signalled wait strategy, the thread announces
+     * it is blocking before checking the buffer again, so an update
+     * dispatched meanwhile either is seen or wakes it up.
+     * 
+     * @param index The index of the thread.
+     */
+    private void idle(int index) {
+	if (!waitStrategy.isSignalled()) {
+	    waitStrategy.idle();
+	    return;
+	}
+	blockedThreads.set(index, 1);
+	if (buffer.isEmpty() && !closed) {
+	    waitStrategy.idle();
+	}
+	blockedThreads.set(index, 0);
+    }
+
+    /**
+     * Wakes up one of the blocked handler threads, if any. A thread woken up
+     * after it stopped waiting just checks the buffer once more.
+     */
+    private void wakeUpOne() {
+	for (int i = 0; i < threads.length; i++) {
+	    if (blockedThreads.get(i) == 1 && blockedThreads.getAndSet(i, 0) == 1) {
+		LockSupport.unpark(threads[i]);
+		return;
+	    }
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private void handle(Update update) {
+	try {
+	    handler.accept(update);
+	} catch (RuntimeException e) {
+	    report(e);
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private void report(Throwable failure) {
+	try {
+	    errorHandler.accept(failure);
+	} catch (RuntimeException e) {
+	    LOGGER.log(Level.WARNING, "The error handler of the dispatcher failed", e);
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private static void joinUninterruptibly(Thread thread) {
+	boolean interrupted = false;
+	while (true) {
+	    try {
+		thread.join();
+		break;
+	    } catch (InterruptedException e) {
+		interrupted = true;
+	    }
+	}
+	if (interrupted) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    /**
+     * Creates a builder of dispatchers.
+     * 
+     * @param handler Handles the updates, in the handler threads.
+     * 
+     * @return The builder.
+     */
+    public static Builder builder(Consumer<? super Update> handler) {
+	Preconditions.checkNotNull(handler, "Parameter 'handler' cannot be null");
+	return new Builder(handler);
+    }
+
+    /**
+     * A builder for <code>RingBufferDispatcher</code> objects.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	private final Consumer<? super Update> handler;
+
+	private int capacity = 1024;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private WaitStrategy waitStrategy = WaitStrategy.BLOCK;
+
+	private Consumer<? super Throwable> errorHandler = failure -> LOGGER.log(
+		Level.WARNING,
+		"Update handling failed",
+		failure
+	);
+
+	private ThreadFactory threadFactory;
+
+	private Builder(Consumer<? super Update> handler) {
+	    this.handler = handler;
+	}
+
+	/**
+	 * Adjusts the number of updates the buffer holds. It is rounded up to a
+	 * power of two. Default: <code>1024</code>.
+	 * 
+	 * @param capacity The capacity.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder capacity(int capacity) {
+	    Preconditions.checkArgument(capacity > 0, "Parameter 'capacity' must be positive");
+	    this.capacity = capacity;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the number of handler threads. Default: the number of
+	 * available processors.
+	 * 
+	 * @param threads The number of threads.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder threads(int threads) {
+	    Preconditions.checkArgument(threads > 0, "Parameter 'threads' must be positive");
+	    this.threads = threads;
+	    return this;
+	}
+
+	/**
+	 * Adjusts how handler threads wait for updates. Default:
+	 * {@link WaitStrategy#BLOCK}, which uses no CPU while idle.
+	 * {@link WaitStrategy#PARK} polls the buffer in short sleeps instead.
+	 * 
+	 * @param waitStrategy The wait strategy.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder waitStrategy(WaitStrategy waitStrategy) {
+	    Preconditions.checkNotNull(waitStrategy, "Parameter 'waitStrategy' cannot be null");
+	    this.waitStrategy = waitStrategy;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the handler of exceptions thrown by the update handler.
+	 * Default: logs the failure with <code>java.util.logging</code>.
+	 * 
+	 * @param errorHandler The error handler. It runs in the handler thread.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder errorHandler(Consumer<? super Throwable> errorHandler) {
+	    Preconditions.checkNotNull(errorHandler, "Parameter 'errorHandler' cannot be null");
+	    this.errorHandler = errorHandler;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the factory of the handler threads. Default: non daemon
+	 * threads named <code>"margelet-ring-dispatcher-N"</code>.
+	 * 
+	 * @param threadFactory The thread factory.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder threadFactory(ThreadFactory threadFactory) {
+	    Preconditions.checkNotNull(threadFactory, "Parameter 'threadFactory' cannot be null");
+	    this.threadFactory = threadFactory;
+	    return this;
+	}
+
+	@SuppressWarnings("javadoc")
+	public RingBufferDispatcher build() {
+	    return new RingBufferDispatcher(
+		    this,
+		    threadFactory != null ? threadFactory : DEFAULT_THREAD_FACTORY
+	    );
+	}
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.dispatch;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.welyab.margelet.concurrent.VirtualThreads;
+import com.welyab.margelet.types.Update;
+
+/**
+ * Dispatches each update to a handler in a thread of its own, a virtual
+ * thread when the running Java version supports them (Java 21 or later).
+ * 
+ * <p>
+ * With virtual threads, handlers may block freely, for instance, calling
+ * {@link com.welyab.margelet.Margelet#callMethod(String, com.google.common.collect.ImmutableMap, Class, com.welyab.margelet.Configuration)}:
+ * a blocked handler parks its virtual thread and releases the carrier thread,
+ * so tens of thousands of conversations may be in progress at the same time.
+ * In older Java versions, platform threads are used, and the maximum
+ * concurrency defaults to a much lower value.
+ * 
+ * <p>
+ * Updates are not ordered: updates of the same chat may be handled at the
+ * same time. See {@link ChatOrderedDispatcher} for ordered dispatching. When
+ * the maximum concurrency is reached, {@link #dispatch(Update)} blocks until
+ * some handler returns.
+ * 
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Welyab Paula
+ */
+public class ThreadPerUpdateDispatcher implements Consumer<Update>, Closeable {
+
+    @SuppressWarnings("javadoc")
+    private static final Logger LOGGER = Logger.getLogger(ThreadPerUpdateDispatcher.class.getName());
+
+    /**
+     * The default maximum concurrency with virtual threads.
+     */
+    private static final int VIRTUAL_MAX_CONCURRENCY = 10_000;
+
+    /**
+     * The default maximum concurrency with platform threads.
+     */
+    private static final int PLATFORM_MAX_CONCURRENCY = 256;
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Update> handler;
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Throwable> errorHandler;
+
+    @SuppressWarnings("javadoc")
+    private final ThreadFactory threadFactory;
+
+    @SuppressWarnings("javadoc")
+    private final int maxConcurrency;
+
+    /**
+     * One permit for each update that may be handled at the same time.
+     */
+    private final Semaphore permits;
+
+    @SuppressWarnings("javadoc")
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    @SuppressWarnings("javadoc")
+    private ThreadPerUpdateDispatcher(Builder builder) {
+	this.handler = builder.handler;
+	this.errorHandler = builder.errorHandler;
+	if (builder.threadFactory != null) {
+	    this.threadFactory = builder.threadFactory;
+	} else if (VirtualThreads.isSupported()) {
+	    this.threadFactory = VirtualThreads.threadFactory("margelet-update-");
+	} else {
+	    this.threadFactory = new ThreadFactoryBuilder()
+		    .setNameFormat("margelet-update-%d")
+		    .setDaemon(true)
+		    .build();
+	}
+	if (builder.maxConcurrency > 0) {
+	    this.maxConcurrency = builder.maxConcurrency;
+	} else {
+	    this.maxConcurrency = VirtualThreads.isSupported() ? VIRTUAL_MAX_CONCURRENCY : PLATFORM_MAX_CONCURRENCY;
+	}
+	this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Dispatches an update, blocking while the maximum concurrency is
+     * reached.
+     * 
+     * @param update The update.
+     * 
+     * @throws IllegalStateException If the dispatcher is closed.
+     */
+    public void dispatch(Update update) {
+	Preconditions.checkNotNull(update, "Parameter 'update' cannot be null");
+	Preconditions.checkState(!closed.get(), "The dispatcher is closed");
+	permits.acquireUninterruptibly();
+	try {
+	    threadFactory.newThread(() -> handle(update)).start();
+	} catch (RuntimeException | Error e) {
+	    permits.release();
+	    throw e;
+	}
+    }
+
+    /**
+     * Dispatches a batch of updates.
+     * 
+     * @param updates The updates.
+     * 
+     * @throws IllegalStateException If the dispatcher is closed.
+     */
+    public void dispatchAll(List<? extends Update> updates) {
+	Preconditions.checkNotNull(updates, "Parameter 'updates' cannot be null");
+	for (Update update : updates) {
+	    dispatch(update);
+	}
+    }
+
+    /**
+     * Same as {@link #dispatch(Update)}.
+     */
+    @Override
+    public void accept(Update update) {
+	dispatch(update);
+    }
+
+    /**
+     * Stops accepting updates and waits for the running handlers to return.
+     * It must not be called by a handler.
+     */
+    @Override
+    public void close() {
+	if (closed.compareAndSet(false, true)) {
+	    permits.acquireUninterruptibly(maxConcurrency);
+	    permits.release(maxConcurrency);
+	}
+    }
+
+    /**
+     * Retrieves the maximum number of updates handled at the same time.
+     * 
+     * @return The maximum concurrency.
+     */
+    public int getMaxConcurrency() {
+	return maxConcurrency;
+    }
+
+    /**
+     * Retrieves the number of updates being handled.
+     * 
+     * @return The number of running handlers.
+     */
+    public int getActiveCount() {
+	return maxConcurrency - permits.availablePermits();
+    }
+
+    @SuppressWarnings("javadoc")
+    private void handle(Update update) {
+	try {
+	    handler.accept(update);
+	} catch (RuntimeException e) {
+	    report(e);
+	} finally {
+	    permits.release();
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private void report(Throwable failure) {
+	try {
+	    errorHandler.accept(failure);
+	} catch (RuntimeException e) {
+	    LOGGER.log(Level.WARNING, "The error handler of the dispatcher failed", e);
+	}
+    }
+
+    /**
+     * Creates a builder of dispatchers.
+     * 
+     * @param handler Handles the updates, each one in a new thread.
+     * 
+     * @return The builder.
+     */
+    public static Builder builder(Consumer<? super Update> handler) {
+	Preconditions.checkNotNull(handler, "Parameter 'handler' cannot be null");
+	return new Builder(handler);
+    }
+
+    /**
+     * A builder for <code>ThreadPerUpdateDispatcher</code> objects.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	private final Consumer<? super Update> handler;
+
+	private int maxConcurrency;
+
+	private Consumer<? super Throwable> errorHandler = failure -> LOGGER.log(
+		Level.WARNING,
+		"Update handling failed",
+		failure
+	);
+
+	private ThreadFactory threadFactory;
+
+	private Builder(Consumer<? super Update> handler) {
+	    this.handler = handler;
+	}
+
+	/**
+	 * Adjusts the maximum number of updates handled at the same time.
+	 * Default: <code>10000</code> with virtual threads, <code>256</code>
+	 * with platform threads.
+	 * 
+	 * @param maxConcurrency The maximum concurrency.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder maxConcurrency(int maxConcurrency) {
+	    Preconditions.checkArgument(maxConcurrency > 0, "Parameter 'maxConcurrency' must be positive");
+	    this.maxConcurrency = maxConcurrency;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the handler of exceptions thrown by the update handler.
+	 * Default: logs the failure with <code>java.util.logging</code>.
+	 * 
+	 * @param errorHandler The error handler. It runs in the thread of the
+	 *            update.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder errorHandler(Consumer<? super Throwable> errorHandler) {
+	    Preconditions.checkNotNull(errorHandler, "Parameter 'errorHandler' cannot be null");
+	    this.errorHandler = errorHandler;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the factory of the threads of the updates. Default: virtual
+	 * threads named <code>"margelet-update-N"</code> when supported,
+	 * otherwise daemon platform threads.
+	 * 
+	 * @param threadFactory The thread factory.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder threadFactory(ThreadFactory threadFactory) {
+	    Preconditions.checkNotNull(threadFactory, "Parameter 'threadFactory' cannot be null");
+	    this.threadFactory = threadFactory;
+	    return this;
+	}
+
+	@SuppressWarnings("javadoc")
+	public ThreadPerUpdateDispatcher build() {
+	    return new ThreadPerUpdateDispatcher(this);
+	}
+    }
+}
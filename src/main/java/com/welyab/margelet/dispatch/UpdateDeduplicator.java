@@ -0,0 +1,255 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.dispatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+
+import com.welyab.margelet.types.Update;
+
+/**
+ * Drops updates already seen, by their <code>update_id</code>, so an update
+ * delivered twice, like after a webhook retry or a poller restart, is only
+ * handled once.
+ * 
+ * <p>
+ * Seen ids are kept in a bitset over a sliding window of the most recent ids:
+ * one bit per id, whatever the throughput, and no object per id. Telegram
+ * services number updates sequentially, so the window moves forward with the
+ * highest id seen, and each bit is cleared once per lap, making each check
+ * constant time on average.
+ * 
+ * <p>
+ * Ids further back than the window are not tracked, and are dropped as late
+ * duplicates: a retry is older than the updates after it, not newer. Telegram
+ * services choose a new random starting id after a week without updates, so
+ * an id more than {@link #RESTART_DISTANCE} behind the highest id seen is
+ * taken as a restart of the numbering instead: it is accepted, and the
+ * window starts again from it.
+ * 
+ * <pre>
+ * UpdateDeduplicator deduplicator = new UpdateDeduplicator();
+ * WebhookServer server = WebhookServer.builder(deduplicator.filter(update -&gt; ...)).build();
+ * </pre>
+ * 
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Welyab Paula
+ */
+public class UpdateDeduplicator {
+
+    /**
+     * The default number of recent ids tracked.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 16;
+
+    /**
+     * How far behind the highest id seen an id must be to be taken as a
+     * restart of the numbering, rather than as a late duplicate. It is
+     * raised to twice the window size for larger windows.
+     */
+    public static final int RESTART_DISTANCE = 1 << 24;
+
+    /**
+     * The bits of the ids in the window, indexed by the id modulo the window
+     * size.
+     */
+    private final long[] words;
+
+    @SuppressWarnings("javadoc")
+    private final long mask;
+
+    @SuppressWarnings("javadoc")
+    private final long restartDistance;
+
+    /**
+     * The highest id seen.
+     */
+    private long highest;
+
+    /**
+     * Indicates that no id was seen yet.
+     */
+    private boolean empty = true;
+
+    /**
+     * The number of duplicates dropped.
+     */
+    private long duplicates;
+
+    /**
+     * Creates a deduplicator that tracks the last
+     * {@link #DEFAULT_WINDOW_SIZE} ids.
+     */
+    public UpdateDeduplicator() {
+	this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a deduplicator.
+     * 
+     * @param windowSize The minimum number of recent ids tracked. It is
+     *            rounded up to a power of two, of at least <code>64</code>.
+     *            It takes one bit per id.
+     */
+    public UpdateDeduplicator(int windowSize) {
+	Preconditions.checkArgument(
+		windowSize > 0 && windowSize <= 1 << 30,
+		"Parameter 'windowSize' must be between 1 and 2^30"
+	);
+	int size = Math.max(Long.SIZE, windowSize == 1 ? 1 : Integer.highestOneBit(windowSize - 1) << 1);
+	this.words = new long[size / Long.SIZE];
+	this.mask = size - 1;
+	this.restartDistance = Math.max(RESTART_DISTANCE, 2L * size);
+    }
+
+    /**
+     * Records an update id.
+     * 
+     * @param updateId The update id.
+     * 
+     * @return <code>true</code> if the id was not seen before,
+     *         <code>false</code> if it is a duplicate, or too old to tell.
+     */
+    public synchronized boolean add(int updateId) {
+	long id = updateId;
+	if (empty || id < highest - restartDistance) {
+	    Arrays.fill(words, 0L);
+	    highest = id;
+	    empty = false;
+	} else if (id > highest) {
+	    advance(id);
+	} else if (id < highest - mask || isSet(id)) {
+	    duplicates++;
+	    return false;
+	}
+	set(id);
+	return true;
+    }
+
+    /**
+     * Records the id of an update. Updates without id are never taken as
+     * duplicates.
+     * 
+     * @param update The update.
+     * 
+     * @return <code>true</code> if the update was not seen before,
+     *         <code>false</code> if it is a duplicate.
+     */
+    public boolean add(Update update) {
+	Preconditions.checkNotNull(update, "Parameter 'update' cannot be null");
+	return !update.hasUpdateId() || add(update.getUpdateId());
+    }
+
+    /**
+     * Wraps a consumer of updates, so it does not receive duplicates.
+     * 
+     * @param consumer The consumer.
+     * 
+     * @return The filtering consumer.
+     */
+    public Consumer<Update> filter(Consumer<? super Update> consumer) {
+	Preconditions.checkNotNull(consumer, "Parameter 'consumer' cannot be null");
+	return update -> {
+	    if (add(update)) {
+		consumer.accept(update);
+	    }
+	};
+    }
+
+    /**
+     * Wraps a consumer of batches of updates, like the consumer of an
+     * {@link com.welyab.margelet.polling.UpdatePoller}, so its batches have no
+     * duplicates. Batches without duplicates are handed over as they are;
+     * batches with only duplicates are not handed over.
+     * 
+     * @param consumer The consumer.
+     * 
+     * @return The filtering consumer.
+     */
+    public Consumer<List<Update>> filterBatches(Consumer<? super List<Update>> consumer) {
+	Preconditions.checkNotNull(consumer, "Parameter 'consumer' cannot be null");
+	return updates -> {
+	    List<Update> unique = removeDuplicates(updates);
+	    if (!unique.isEmpty() || updates.isEmpty()) {
+		consumer.accept(unique);
+	    }
+	};
+    }
+
+    /**
+     * Retrieves the number of duplicates found so far.
+     * 
+     * @return The number of duplicates.
+     */
+    public synchronized long getDuplicates() {
+	return duplicates;
+    }
+
+    /**
+     * Records the ids of a batch of updates.
+     * 
+     * @param updates The updates.
+     * 
+     * @return The given list, if it has no duplicates, or a new list without
+     *         them.
+     */
+    private List<Update> removeDuplicates(List<Update> updates) {
+	List<Update> unique = null;
+	for (int i = 0; i < updates.size(); i++) {
+	    Update update = updates.get(i);
+	    boolean added = add(update);
+	    if (!added && unique == null) {
+		unique = new ArrayList<>(updates.subList(0, i));
+	    } else if (added && unique != null) {
+		unique.add(update);
+	    }
+	}
+	return unique == null ? updates : unique;
+    }
+
+    /**
+     * Moves the window forward to end at the given id, clearing the bits of
+     * the ids that enter it.
+     * 
+     * @param id The new highest id.
+     */
+    private void advance(long id) {
+	if (id - highest > mask) {
+	    Arrays.fill(words, 0L);
+	} else {
+	    for (long i = highest + 1; i <= id; i++) {
+		words[(int) ((i & mask) >>> 6)] &= ~(1L << i);
+	    }
+	}
+	highest = id;
+    }
+
+    @SuppressWarnings("javadoc")
+    private boolean isSet(long id) {
+	return (words[(int) ((id & mask) >>> 6)] & 1L << id) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    private void set(long id) {
+	words[(int) ((id & mask) >>> 6)] |= 1L << id;
+    }
+}
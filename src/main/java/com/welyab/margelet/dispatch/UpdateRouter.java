@@ -0,0 +1,315 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.dispatch;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.types.CallbackQuery;
+import com.welyab.margelet.types.ChosenInlineResult;
+import com.welyab.margelet.types.InlineQuery;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.PreCheckoutQuery;
+import com.welyab.margelet.types.ShippingQuery;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.UpdateType;
+
+/**
+ * Routes updates to handlers by their kind.
+ * 
+ * <p>
+ * The kind of an update ({@link Update#getType()}) is set once, while the
+ * update is decoded, and the router looks its handler up in a table indexed
+ * by the kind, instead of probing each payload field of the update. Typed
+ * handlers receive the payload itself:
+ * 
+ * <pre>
+ * UpdateRouter router = UpdateRouter.builder()
+ * 	.onMessage(message -&gt; ...)
+ * 	.onCallbackQuery(callbackQuery -&gt; ...)
+ * 	.build();
+ * UpdatePoller poller = UpdatePoller.builder(margelet, router::routeAll)
+ * 	.projection(router.getProjection())
+ * 	.build();
+ * </pre>
+ * 
+ * <p>
+ * The kinds with handlers are known by the router, so it tells which updates
+ * to ask Telegram services for ({@link #getAllowedUpdates()}) and which
+ * payloads to decode ({@link #getProjection()}). Updates of other kinds go to
+ * the fallback handler, if any, and are ignored otherwise.
+ * 
+ * <p>
+ * Instances of this class are immutable and thread safe, as long as the
+ * handlers are.
+ * 
+ * @author Welyab Paula
+ */
+public class UpdateRouter implements Consumer<Update> {
+
+    /**
+     * The handlers, indexed by the ordinal of the update kind.
+     */
+    private final Consumer<? super Update>[] handlers;
+
+    /**
+     * Handles updates of kinds without handlers; <code>null</code> if they
+     * are ignored.
+     */
+    private final Consumer<? super Update> fallback;
+
+    @SuppressWarnings("javadoc")
+    private final ImmutableSet<UpdateType> updateTypes;
+
+    @SuppressWarnings("javadoc")
+    private UpdateRouter(Builder builder) {
+	this.handlers = builder.handlers.clone();
+	this.fallback = builder.fallback;
+	EnumSet<UpdateType> types = EnumSet.noneOf(UpdateType.class);
+	for (UpdateType type : UpdateType.values()) {
+	    if (handlers[type.ordinal()] != null) {
+		types.add(type);
+	    }
+	}
+	this.updateTypes = Sets.immutableEnumSet(types);
+    }
+
+    /**
+     * Hands an update to the handler of its kind.
+     * 
+     * @param update The update.
+     */
+    public void route(Update update) {
+	Preconditions.checkNotNull(update, "Parameter 'update' cannot be null");
+	UpdateType type = update.getType();
+	Consumer<? super Update> handler = type == null ? null : handlers[type.ordinal()];
+	if (handler != null) {
+	    handler.accept(update);
+	} else if (fallback != null) {
+	    fallback.accept(update);
+	}
+    }
+
+    /**
+     * Routes a batch of updates, in order.
+     * 
+     * @param updates The updates.
+     */
+    public void routeAll(List<? extends Update> updates) {
+	Preconditions.checkNotNull(updates, "Parameter 'updates' cannot be null");
+	for (Update update : updates) {
+	    route(update);
+	}
+    }
+
+    /**
+     * Same as {@link #route(Update)}.
+     */
+    @Override
+    public void accept(Update update) {
+	route(update);
+    }
+
+    /**
+     * Retrieves the update kinds with handlers.
+     * 
+     * @return The update kinds.
+     */
+    public ImmutableSet<UpdateType> getUpdateTypes() {
+	return updateTypes;
+    }
+
+    /**
+     * Retrieves the value of the <code>"allowed_updates"</code> parameter of
+     * <code>getUpdates</code> and <code>setWebhook</code> that asks only for
+     * the updates this router handles. With a fallback handler, all kinds are
+     * handled.
+     * 
+     * @return The field names of the handled update kinds.
+     */
+    public ImmutableList<String> getAllowedUpdates() {
+	ImmutableList.Builder<String> names = ImmutableList.builder();
+	for (UpdateType type : fallback != null ? EnumSet.allOf(UpdateType.class) : updateTypes) {
+	    names.add(type.getFieldName());
+	}
+	return names.build();
+    }
+
+    /**
+     * Retrieves the projection that decodes only the payloads this router
+     * handles. With a fallback handler, all payloads are decoded.
+     * 
+     * @return The projection.
+     */
+    public UpdateProjection getProjection() {
+	if (fallback != null) {
+	    return UpdateProjection.all();
+	}
+	return UpdateProjection.builder()
+		.updateTypes(updateTypes.toArray(new UpdateType[0]))
+		.build();
+    }
+
+    @SuppressWarnings("javadoc")
+    public static Builder builder() {
+	return new Builder();
+    }
+
+    /**
+     * A builder for <code>UpdateRouter</code> objects.
+     * 
+     * <p>
+     * Registering many handlers for the same kind runs all of them, in the
+     * order they were registered.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private final Consumer<? super Update>[] handlers = new Consumer[UpdateType.values().length];
+
+	private Consumer<? super Update> fallback;
+
+	private Builder() {
+	}
+
+	/**
+	 * Registers the handler of an update kind.
+	 * 
+	 * @param type The update kind.
+	 * @param handler The handler. It receives the whole update.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder on(UpdateType type, Consumer<? super Update> handler) {
+	    Preconditions.checkNotNull(type, "Parameter 'type' cannot be null");
+	    Preconditions.checkNotNull(handler, "Parameter 'handler' cannot be null");
+	    Consumer<? super Update> previous = handlers[type.ordinal()];
+	    handlers[type.ordinal()] = previous == null ? handler : chain(previous, handler);
+	    return this;
+	}
+
+	@SuppressWarnings("javadoc")
+	public Builder onMessage(Consumer<? super Message> handler) {
+	    return on(UpdateType.MESSAGE, Update::getMessage, handler);
+	}
+
+	@SuppressWarnings("javadoc")
+	public Builder onEditedMessage(Consumer<? super Message> handler) {
+	    return on(UpdateType.EDITED_MESSAGE, Update::getEditedMessage, handler);
+	}
+
+	@SuppressWarnings("javadoc")
+	public Builder onChannelPost(Consumer<? super Message> handler) {
+	    return on(UpdateType.CHANNEL_POST, Update::getChannelPost, handler);
+	}
+
+	@SuppressWarnings("javadoc")
+	public Builder onEditedChannelPost(Consumer<? super Message> handler) {
+	    return on(UpdateType.EDITED_CHANNEL_POST, Update::getEditedChannelPost, handler);
+	}
+
+	@SuppressWarnings("javadoc")
+	public Builder onInlineQuery(Consumer<? super InlineQuery> handler) {
+	    return on(UpdateType.INLINE_QUERY, Update::getInlineQuery, handler);
+	}
+
+	@SuppressWarnings("javadoc")
+	public Builder onChosenInlineResult(Consumer<? super ChosenInlineResult> handler) {
+	    return on(UpdateType.CHOSEN_INLINE_RESULT, Update::getChosenInlineResult, handler);
+	}
+
+	@SuppressWarnings("javadoc")
+	public Builder onCallbackQuery(Consumer<? super CallbackQuery> handler) {
+	    return on(UpdateType.CALLBACK_QUERY, Update::getCallbackQuery, handler);
+	}
+
+	@SuppressWarnings("javadoc")
+	public Builder onShippingQuery(Consumer<? super ShippingQuery> handler) {
+	    return on(UpdateType.SHIPPING_QUERY, Update::getShippingQuery, handler);
+	}
+
+	@SuppressWarnings("javadoc")
+	public Builder onPreCheckoutQuery(Consumer<? super PreCheckoutQuery> handler) {
+	    return on(UpdateType.PRE_CHECKOUT_QUERY, Update::getPreCheckoutQuery, handler);
+	}
+
+	/**
+	 * Registers the handler of updates of kinds without handlers. Without
+	 * it, such updates are ignored.
+	 * 
+	 * @param fallback The fallback handler.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder otherwise(Consumer<? super Update> fallback) {
+	    Preconditions.checkNotNull(fallback, "Parameter 'fallback' cannot be null");
+	    this.fallback = fallback;
+	    return this;
+	}
+
+	/**
+	 * Creates the router.
+	 * 
+	 * @return The router.
+	 * 
+	 * @throws IllegalStateException If no handler nor fallback handler was
+	 *             registered. Such a router would ignore every update, while
+	 *             its empty {@link UpdateRouter#getAllowedUpdates() allowed
+	 *             updates} would ask Telegram services for all of them.
+	 */
+	public UpdateRouter build() {
+	    Preconditions.checkState(
+		    fallback != null || Arrays.stream(handlers).anyMatch(Objects::nonNull),
+		    "The router has no handler"
+	    );
+	    return new UpdateRouter(this);
+	}
+
+	/**
+	 * Registers a typed handler, which receives the payload of the update.
+	 * 
+	 * @param type The update kind.
+	 * @param payload Extracts the payload of the update kind.
+	 * @param handler The typed handler.
+	 * 
+	 * @return This builder.
+	 */
+	private <T> Builder on(UpdateType type, Function<Update, T> payload, Consumer<? super T> handler) {
+	    Preconditions.checkNotNull(handler, "Parameter 'handler' cannot be null");
+	    return on(type, update -> handler.accept(payload.apply(update)));
+	}
+
+	@SuppressWarnings("javadoc")
+	private static Consumer<Update> chain(Consumer<? super Update> first, Consumer<? super Update> second) {
+	    return update -> {
+		first.accept(update);
+		second.accept(update);
+	    };
+	}
+    }
+}
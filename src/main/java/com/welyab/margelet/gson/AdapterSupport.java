@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Helpers shared by the streaming adapters of Telegram Bot API types.
+ * 
+ * @author Welyab Paula
+ */
+final class AdapterSupport {
+
+    @SuppressWarnings("javadoc")
+    private AdapterSupport() {
+    }
+
+    /**
+     * Reads a JSON array of elements.
+     * 
+     * @param in The JSON reader, positioned at the array.
+     * @param elementAdapter The element adapter.
+     * 
+     * @return The list of elements.
+     * 
+     * @throws IOException If the JSON document cannot be read.
+     */
+    static <E> List<E> readList(JsonReader in, TypeAdapter<E> elementAdapter) throws IOException {
+	List<E> list = new ArrayList<>();
+	in.beginArray();
+	while (in.hasNext()) {
+	    list.add(elementAdapter.read(in));
+	}
+	in.endArray();
+	return list;
+    }
+
+    /**
+     * Writes a list of elements as a JSON array.
+     * 
+     * @param out The JSON writer.
+     * @param elementAdapter The element adapter.
+     * @param list The list of elements, may be <code>null</code>.
+     * 
+     * @throws IOException If the JSON document cannot be written.
+     */
+    static <E> void writeList(JsonWriter out, TypeAdapter<E> elementAdapter, List<E> list) throws IOException {
+	if (list == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginArray();
+	for (E element : list) {
+	    elementAdapter.write(out, element);
+	}
+	out.endArray();
+    }
+
+    /**
+     * Skips a JSON object, or <code>null</code>, of which no field is mapped.
+     * 
+     * @param in The JSON reader, positioned at the object.
+     * 
+     * @return <code>true</code> if an object was skipped, <code>false</code>
+     *         if the value was <code>null</code>.
+     * 
+     * @throws IOException If the JSON document cannot be read.
+     */
+    static boolean skipObject(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return false;
+	}
+	in.skipValue();
+	return true;
+    }
+
+    /**
+     * Creates a function that decodes raw JSON documents with the given
+     * adapter.
+     * 
+     * @param adapter The adapter.
+     * 
+     * @return The decoder.
+     */
+    static <T> Function<String, T> decoder(TypeAdapter<T> adapter) {
+	return json -> {
+	    try {
+		return adapter.fromJson(json);
+	    } catch (IOException e) {
+		throw new JsonSyntaxException(e);
+	    }
+	};
+    }
+}
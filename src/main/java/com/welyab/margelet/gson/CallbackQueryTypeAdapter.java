@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.types.CallbackQuery;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.User;
+
+/**
+ * Streaming JSON adapter for {@link CallbackQuery}.
+ * 
+ * <p>
+ * Fields are matched by name in a <code>switch</code> and set through
+ * accessors, without reflection. This class is written by hand and must be
+ * kept in sync with the <code>@SerializedName</code> fields of
+ * <code>CallbackQuery</code>.
+ * 
+ * @author Welyab Paula
+ */
+final class CallbackQueryTypeAdapter extends TypeAdapter<CallbackQuery> {
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<User> userAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Message> messageAdapter;
+
+    @SuppressWarnings("javadoc")
+    CallbackQueryTypeAdapter(Gson gson) {
+	userAdapter = gson.getAdapter(User.class);
+	messageAdapter = gson.getAdapter(Message.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, CallbackQuery value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	out.name("id").value(value.getId());
+	out.name("from");
+	userAdapter.write(out, value.getFrom());
+	out.name("message");
+	messageAdapter.write(out, value.getMessage());
+	out.name("inline_message_id").value(value.getInlineMessageId());
+	out.name("chat_instance").value(value.getChatInstance());
+	out.name("data").value(value.getData());
+	out.name("game_short_name").value(value.getGameShortName());
+	out.endObject();
+    }
+
+    @Override
+    public CallbackQuery read(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return null;
+	}
+	CallbackQuery value = new CallbackQuery();
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "id":
+		value.setId(in.nextString());
+		break;
+	    case "from":
+		value.setFrom(userAdapter.read(in));
+		break;
+	    case "message":
+		value.setMessage(messageAdapter.read(in));
+		break;
+	    case "inline_message_id":
+		value.setInlineMessageId(in.nextString());
+		break;
+	    case "chat_instance":
+		value.setChatInstance(in.nextString());
+		break;
+	    case "data":
+		value.setData(in.nextString());
+		break;
+	    case "game_short_name":
+		value.setGameShortName(in.nextString());
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	return value;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.types.Chat;
+
+/**
+ * Streaming JSON adapter for {@link Chat}.
+ * 
+ * <p>
+ * Fields are matched by name in a <code>switch</code> and set through
+ * accessors, without reflection. This class is written by hand and must be
+ * kept in sync with the <code>@SerializedName</code> fields of
+ * <code>Chat</code>.
+ * 
+ * <p>
+ * Decoded chats are interned when the adapter has an interner.
+ * 
+ * @author Welyab Paula
+ */
+final class ChatTypeAdapter extends TypeAdapter<Chat> {
+
+    /**
+     * Shares equal chats; <code>null</code> if interning is disabled.
+     */
+    private final TypesInterner interner;
+
+    @SuppressWarnings("javadoc")
+    ChatTypeAdapter(TypesInterner interner) {
+	this.interner = interner;
+    }
+
+    @Override
+    public void write(JsonWriter out, Chat value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	if (value.hasId()) {
+	    out.name("id").value(value.getId());
+	}
+	out.name("type").value(value.getType());
+	out.name("title").value(value.getTitle());
+	out.name("username").value(value.getUsername());
+	out.name("first_name").value(value.getFirstName());
+	out.name("last_name").value(value.getLastName());
+	if (value.getAllMembersAreAdministrators()) {
+	    out.name("all_members_are_administrators").value(true);
+	}
+	out.endObject();
+    }
+
+    @Override
+    public Chat read(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return null;
+	}
+	Chat value = new Chat();
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "id":
+		value.setId(in.nextLong());
+		break;
+	    case "type":
+		value.setType(in.nextString());
+		break;
+	    case "title":
+		value.setTitle(in.nextString());
+		break;
+	    case "username":
+		value.setUsername(in.nextString());
+		break;
+	    case "first_name":
+		value.setFirstName(in.nextString());
+		break;
+	    case "last_name":
+		value.setLastName(in.nextString());
+		break;
+	    case "all_members_are_administrators":
+		value.setAllMembersAreAdministrators(in.nextBoolean());
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	return interner == null ? value : interner.intern(value);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.types.Document;
+import com.welyab.margelet.types.PhotoSize;
+
+/**
+ * Streaming JSON adapter for {@link Document}.
+ * 
+ * <p>
+ * Fields are matched by name in a <code>switch</code> and set through
+ * accessors, without reflection. This class is written by hand and must be
+ * kept in sync with the <code>@SerializedName</code> fields of
+ * <code>Document</code>.
+ * 
+ * @author Welyab Paula
+ */
+final class DocumentTypeAdapter extends TypeAdapter<Document> {
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<PhotoSize> photoSizeAdapter;
+
+    @SuppressWarnings("javadoc")
+    DocumentTypeAdapter(Gson gson) {
+	photoSizeAdapter = gson.getAdapter(PhotoSize.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, Document value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	out.name("file_id").value(value.getFileId());
+	out.name("thumb");
+	photoSizeAdapter.write(out, value.getThumb());
+	out.name("file_name").value(value.getFileName());
+	out.name("mime_type").value(value.getMimeType());
+	out.name("file_size").value(value.getFileSize());
+	out.endObject();
+    }
+
+    @Override
+    public Document read(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return null;
+	}
+	Document value = new Document();
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "file_id":
+		value.setFileId(in.nextString());
+		break;
+	    case "thumb":
+		value.setThumb(photoSizeAdapter.read(in));
+		break;
+	    case "file_name":
+		value.setFileName(in.nextString());
+		break;
+	    case "mime_type":
+		value.setMimeType(in.nextString());
+		break;
+	    case "file_size":
+		value.setFileSize(in.nextInt());
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	return value;
+    }
+}
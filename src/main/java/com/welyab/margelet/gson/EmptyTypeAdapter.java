@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Streaming JSON adapter for Telegram Bot API types that still have no mapped
+ * fields. The JSON object is skipped and an empty instance is created.
+ * 
+ * @author Welyab Paula
+ * 
+ * @param <T> The adapted type.
+ */
+final class EmptyTypeAdapter<T> extends TypeAdapter<T> {
+
+    @SuppressWarnings("javadoc")
+    private final Supplier<T> constructor;
+
+    @SuppressWarnings("javadoc")
+    EmptyTypeAdapter(Supplier<T> constructor) {
+	this.constructor = constructor;
+    }
+
+    @Override
+    public void write(JsonWriter out, T value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	out.endObject();
+    }
+
+    @Override
+    public T read(JsonReader in) throws IOException {
+	return AdapterSupport.skipObject(in) ? constructor.get() : null;
+    }
+}
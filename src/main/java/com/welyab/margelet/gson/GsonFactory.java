@@ -13,17 +13,242 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.welyab.margelet.gson;
 
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.MalformedJsonException;
 
 import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.types.Audio;
+import com.welyab.margelet.types.CallbackQuery;
+import com.welyab.margelet.types.Chat;
+import com.welyab.margelet.types.ChosenInlineResult;
+import com.welyab.margelet.types.Contact;
+import com.welyab.margelet.types.Document;
+import com.welyab.margelet.types.File;
+import com.welyab.margelet.types.Game;
+import com.welyab.margelet.types.InlineQuery;
+import com.welyab.margelet.types.Invoice;
+import com.welyab.margelet.types.Location;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.MessageEntity;
+import com.welyab.margelet.types.PhotoSize;
+import com.welyab.margelet.types.PreCheckoutQuery;
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.ResponseParameters;
+import com.welyab.margelet.types.ShippingQuery;
+import com.welyab.margelet.types.Sticker;
+import com.welyab.margelet.types.SuccessfulPayment;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.User;
+import com.welyab.margelet.types.Venue;
+import com.welyab.margelet.types.Video;
+import com.welyab.margelet.types.VideoNote;
+import com.welyab.margelet.types.Voice;
 
+/**
+ * Provides the <code>Gson</code> instances used by Margelet to JSON processing.
+ * 
+ * <p>
+ * <code>Gson</code> instances are thread safe and cache the type adapters
+ * they create, so a single instance is shared for each distinct set of JSON
+ * related configuration properties. Telegram Bot API types of the package
+ * <code>com.welyab.margelet.types</code> are decoded by the streaming
+ * adapters of {@link TypesTypeAdapterFactory}, resolved when the instance is
+ * created, so decoding performs no reflection.
+ * 
+ * @author Welyab Paula
+ */
 public class GsonFactory {
 
+    /**
+     * The Telegram Bot API types which adapters are resolved when a
+     * <code>Gson</code> instance is created.
+     */
+    private static final ImmutableList<Class<?>> TYPES = ImmutableList.of(
+	    Audio.class,
+	    CallbackQuery.class,
+	    Chat.class,
+	    ChosenInlineResult.class,
+	    Contact.class,
+	    Document.class,
+	    File.class,
+	    Game.class,
+	    InlineQuery.class,
+	    Invoice.class,
+	    Location.class,
+	    Message.class,
+	    MessageEntity.class,
+	    PhotoSize.class,
+	    PreCheckoutQuery.class,
+	    ResponseParameters.class,
+	    ShippingQuery.class,
+	    Sticker.class,
+	    SuccessfulPayment.class,
+	    Update.class,
+	    User.class,
+	    Venue.class,
+	    Video.class,
+	    VideoNote.class,
+	    Voice.class
+    );
+
+    /**
+     * The shared instances, keyed by the values of JSON related configuration
+     * properties.
+     */
+    private static final ConcurrentMap<ImmutableList<Object>, Gson> INSTANCES = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("javadoc")
+    private GsonFactory() {
+    }
+
+    /**
+     * Retrieves the shared <code>Gson</code> instance for the given
+     * configuration, creating it if needed.
+     * 
+     * <p>
+     * This method is thread safe.
+     * 
+     * @param configuration The configuration.
+     * 
+     * @return The <code>Gson</code> instance.
+     */
     public static Gson create(Configuration configuration) {
-	return new GsonBuilder().create();
+	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	return INSTANCES.computeIfAbsent(gsonKey(configuration), key -> newGson(configuration));
+    }
+
+    /**
+     * Creates an adapter that decodes only the parts of {@link Update} objects
+     * selected by the given projection.
+     * 
+     * <p>
+     * The created adapter is thread safe and should be reused.
+     * 
+     * @param configuration The configuration.
+     * @param projection The projection.
+     * 
+     * @return The adapter.
+     */
+    public static TypeAdapter<Update> updateAdapter(Configuration configuration, UpdateProjection projection) {
+	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	Preconditions.checkNotNull(projection, "Parameter 'projection' cannot be null");
+	Gson gson = create(configuration);
+	if (projection.isAll()) {
+	    return gson.getAdapter(Update.class);
+	}
+	return new UpdateTypeAdapter(
+		gson,
+		configuration.getBoolean(Constants.CONFIG_LAZY_DECODING, Constants.CONFIG_LAZY_DECODING_DEFAULT),
+		projection
+	);
+    }
+
+    /**
+     * Decodes an update from its JSON document.
+     * 
+     * <p>
+     * With an adapter created with lazy decoding (see
+     * {@link Constants#CONFIG_LAZY_DECODING}), the payload of the update is
+     * located in the document without being tokenized, and kept as raw JSON
+     * to be decoded on first access. Otherwise, the update is fully decoded.
+     * 
+     * @param updateAdapter The update adapter, like the ones created by
+     *            {@link #updateAdapter(Configuration, UpdateProjection)}.
+     * @param json The JSON document.
+     * 
+     * @return The update.
+     * 
+     * @throws IOException If the JSON document cannot be read.
+     */
+    public static Update decodeUpdate(TypeAdapter<Update> updateAdapter, String json) throws IOException {
+	Preconditions.checkNotNull(updateAdapter, "Parameter 'updateAdapter' cannot be null");
+	Preconditions.checkNotNull(json, "Parameter 'json' cannot be null");
+	UpdateTypeAdapter lazyAdapter = lazyAdapter(updateAdapter);
+	if (lazyAdapter == null) {
+	    return updateAdapter.fromJson(json);
+	}
+	JsonScanner in = new JsonScanner(json);
+	Update update = lazyAdapter.readLazily(in);
+	if (!in.isExhausted()) {
+	    throw new MalformedJsonException("Unexpected content after the update at position " + in.getPosition());
+	}
+	return update;
+    }
+
+    /**
+     * Retrieves the given adapter as an adapter with lazy decoding enabled.
+     * 
+     * @param updateAdapter The update adapter.
+     * 
+     * @return The adapter, or <code>null</code> if it does not decode lazily.
+     */
+    static UpdateTypeAdapter lazyAdapter(TypeAdapter<Update> updateAdapter) {
+	if (updateAdapter instanceof UpdateTypeAdapter && ((UpdateTypeAdapter) updateAdapter).isLazyDecoding()) {
+	    return (UpdateTypeAdapter) updateAdapter;
+	}
+	return null;
+    }
+
+    /**
+     * Creates the key that identifies a distinct JSON configuration.
+     * 
+     * @param configuration The configuration.
+     * 
+     * @return The key.
+     */
+    private static ImmutableList<Object> gsonKey(Configuration configuration) {
+	return ImmutableList.of(
+		formatJson(configuration),
+		configuration.getBoolean(Constants.CONFIG_LAZY_DECODING, Constants.CONFIG_LAZY_DECODING_DEFAULT),
+		configuration.getBoolean(Constants.CONFIG_INTERNING, Constants.CONFIG_INTERNING_DEFAULT),
+		configuration.getLong(Constants.CONFIG_INTERNING_MAXIMUM_SIZE, Constants.CONFIG_INTERNING_MAXIMUM_SIZE_DEFAULT)
+	);
+    }
+
+    /**
+     * Creates a new <code>Gson</code> instance and resolves the adapters of
+     * Telegram Bot API types.
+     * 
+     * @param configuration The configuration.
+     * 
+     * @return The <code>Gson</code> instance.
+     */
+    private static Gson newGson(Configuration configuration) {
+	GsonBuilder builder = new GsonBuilder()
+		.registerTypeAdapterFactory(new TypesTypeAdapterFactory(configuration));
+	if (formatJson(configuration)) {
+	    builder.setPrettyPrinting();
+	}
+	Gson gson = builder.create();
+	for (Class<?> type : TYPES) {
+	    gson.getAdapter(type);
+	    gson.getAdapter(TypeToken.getParameterized(Response.class, type));
+	}
+	Type updateList = TypeToken.getParameterized(List.class, Update.class).getType();
+	gson.getAdapter(TypeToken.getParameterized(Response.class, updateList));
+	return gson;
+    }
+
+    @SuppressWarnings("javadoc")
+    private static boolean formatJson(Configuration configuration) {
+	return configuration.getBoolean(
+		Constants.CONFIG_FORMAT_JSON,
+		Constants.CONFIG_FORMAT_JSON_DEFAULT
+	);
     }
 }
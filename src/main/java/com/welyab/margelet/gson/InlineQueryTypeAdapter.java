@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.types.InlineQuery;
+import com.welyab.margelet.types.Location;
+import com.welyab.margelet.types.User;
+
+/**
+ * Streaming JSON adapter for {@link InlineQuery}.
+ * 
+ * <p>
+ * Fields are matched by name in a <code>switch</code> and set through
+ * accessors, without reflection. This class is written by hand and must be
+ * kept in sync with the <code>@SerializedName</code> fields of
+ * <code>InlineQuery</code>.
+ * 
+ * @author Welyab Paula
+ */
+final class InlineQueryTypeAdapter extends TypeAdapter<InlineQuery> {
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<User> userAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Location> locationAdapter;
+
+    @SuppressWarnings("javadoc")
+    InlineQueryTypeAdapter(Gson gson) {
+	userAdapter = gson.getAdapter(User.class);
+	locationAdapter = gson.getAdapter(Location.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, InlineQuery value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	out.name("id").value(value.getId());
+	out.name("from");
+	userAdapter.write(out, value.getFrom());
+	out.name("location");
+	locationAdapter.write(out, value.getLocation());
+	out.name("query").value(value.getQuery());
+	out.name("offset").value(value.getOffset());
+	out.endObject();
+    }
+
+    @Override
+    public InlineQuery read(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return null;
+	}
+	InlineQuery value = new InlineQuery();
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "id":
+		value.setId(in.nextString());
+		break;
+	    case "from":
+		value.setFrom(userAdapter.read(in));
+		break;
+	    case "location":
+		value.setLocation(locationAdapter.read(in));
+		break;
+	    case "query":
+		value.setQuery(in.nextString());
+		break;
+	    case "offset":
+		value.setOffset(in.nextString());
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	return value;
+    }
+}
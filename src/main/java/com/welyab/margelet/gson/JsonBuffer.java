@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.concurrent.VirtualThreads;
+import com.welyab.margelet.http.ByteArrayRequestBody;
+import com.welyab.margelet.http.RequestBody;
+
+/**
+ * A growable byte buffer that receives JSON documents encoded straight to
+ * UTF-8, without the intermediate <code>String</code> of
+ * <code>Gson.toJson(Object)</code> and its <code>getBytes</code> copy.
+ * 
+ * <p>
+ * Buffers can be borrowed from a per thread pool, with {@link #acquire()}, to
+ * avoid allocating a new array for each request. A borrowed buffer must be
+ * given back with {@link #release()} once its content is no longer used.
+ * 
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Welyab Paula
+ */
+public final class JsonBuffer extends ByteArrayOutputStream {
+
+    /**
+     * Buffers grown beyond this capacity are not kept in the pool, so a single
+     * huge request does not hold memory for the lifetime of the thread.
+     */
+    private static final int MAX_POOLED_CAPACITY = 1024 * 1024;
+
+    @SuppressWarnings("javadoc")
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @SuppressWarnings("javadoc")
+    private static final ThreadLocal<JsonBuffer> POOL = ThreadLocal.withInitial(() -> new JsonBuffer(true));
+
+    /**
+     * Encodes characters into this buffer. It keeps its own encoding buffer,
+     * so it is reused along with this object.
+     */
+    private final Writer writer;
+
+    /**
+     * Indicates that this buffer belongs to the pool of its thread.
+     */
+    private final boolean pooled;
+
+    /**
+     * Indicates that this buffer is borrowed from the pool.
+     */
+    private boolean inUse;
+
+    /**
+     * Creates a new buffer that is not pooled.
+     */
+    public JsonBuffer() {
+	this(false);
+    }
+
+    @SuppressWarnings("javadoc")
+    private JsonBuffer(boolean pooled) {
+	super(INITIAL_CAPACITY);
+	this.writer = new OutputStreamWriter(this, StandardCharsets.UTF_8);
+	this.pooled = pooled;
+    }
+
+    /**
+     * Borrows the buffer of the current thread. If it is already borrowed,
+     * for instance, by a request made from inside a response reader, a new
+     * buffer is created. Virtual threads are short lived and numerous, so
+     * they get a new buffer instead of holding one each.
+     * 
+     * @return An empty buffer.
+     */
+    public static JsonBuffer acquire() {
+	if (VirtualThreads.isVirtual(Thread.currentThread())) {
+	    return new JsonBuffer();
+	}
+	JsonBuffer buffer = POOL.get();
+	if (buffer.inUse) {
+	    return new JsonBuffer();
+	}
+	buffer.inUse = true;
+	return buffer;
+    }
+
+    /**
+     * Gives this buffer back to the pool of its thread, discarding its
+     * content. It has no effect on buffers that are not pooled.
+     */
+    public void release() {
+	if (!pooled) {
+	    return;
+	}
+	inUse = false;
+	if (buf.length > MAX_POOLED_CAPACITY) {
+	    POOL.remove();
+	} else {
+	    reset();
+	}
+    }
+
+    /**
+     * Appends the JSON document of the given value to this buffer, encoded as
+     * UTF-8.
+     * 
+     * @param gson The JSON processor.
+     * @param value The value. Its runtime type defines how it is encoded.
+     * 
+     * @return This buffer.
+     */
+    public JsonBuffer write(Gson gson, Object value) {
+	Preconditions.checkNotNull(gson, "Parameter 'gson' cannot be null");
+	Preconditions.checkNotNull(value, "Parameter 'value' cannot be null");
+	try {
+	    JsonWriter jsonWriter = gson.newJsonWriter(writer);
+	    gson.toJson(value, value.getClass(), jsonWriter);
+	    jsonWriter.flush();
+	} catch (IOException e) {
+	    throw new JsonIOException(e);
+	}
+	return this;
+    }
+
+    /**
+     * Creates a request body over the current content of this buffer, without
+     * copying it. The body is valid until this buffer is modified or
+     * released.
+     * 
+     * @return The request body.
+     */
+    public RequestBody toRequestBody() {
+	return new ByteArrayRequestBody(buf, 0, count);
+    }
+}
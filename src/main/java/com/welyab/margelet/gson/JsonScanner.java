@@ -0,0 +1,370 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.gson;
+
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * Walks the structure of a JSON document held in memory, without decoding
+ * the values it skips.
+ * 
+ * <p>
+ * Unlike <code>JsonReader</code>, which buffers ahead and does not tell where
+ * a value starts or ends, this scanner works on the characters of the whole
+ * document and exposes its position. A value is located with
+ * {@link #skipValue()} and taken as a range of the document, so its raw JSON is
+ * kept exactly as received, without being tokenized and written again. Only
+ * string delimiters and brackets are inspected while skipping.
+ * 
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Welyab Paula
+ */
+final class JsonScanner {
+
+    @SuppressWarnings("javadoc")
+    private final String json;
+
+    @SuppressWarnings("javadoc")
+    private int position;
+
+    /**
+     * Creates a new scanner positioned at the start of the document.
+     * 
+     * @param json The JSON document.
+     */
+    JsonScanner(String json) {
+	this.json = json;
+    }
+
+    /**
+     * Retrieves the scanned document.
+     * 
+     * @return The JSON document.
+     */
+    String getJson() {
+	return json;
+    }
+
+    /**
+     * Retrieves the position of the next character to scan.
+     * 
+     * @return The position.
+     */
+    int getPosition() {
+	return position;
+    }
+
+    /**
+     * Checks if only whitespace remains in the document.
+     * 
+     * @return <code>true</code> if the document is exhausted.
+     */
+    boolean isExhausted() {
+	skipWhitespace();
+	return position == json.length();
+    }
+
+    /**
+     * Retrieves, without consuming it, the first character of the next token.
+     * 
+     * @return The character.
+     * 
+     * @throws MalformedJsonException If the document ends.
+     */
+    char peek() throws MalformedJsonException {
+	skipWhitespace();
+	if (position == json.length()) {
+	    throw syntaxError("Unexpected end of JSON document");
+	}
+	return json.charAt(position);
+    }
+
+    /**
+     * Consumes the next token, that must be the given structural character.
+     * 
+     * @param c The expected character, one of <code>{}[]:,</code>.
+     * 
+     * @throws MalformedJsonException If the next token is another one.
+     */
+    void expect(char c) throws MalformedJsonException {
+	if (peek() != c) {
+	    throw syntaxError("Expected '" + c + "'");
+	}
+	position++;
+    }
+
+    /**
+     * Consumes the comma between two members or elements, or tells that the
+     * enclosing object or array ends, consuming its closing character.
+     * 
+     * @param first Indicates that no member or element was consumed yet.
+     * @param close The closing character, <code>}</code> or <code>]</code>.
+     * 
+     * @return <code>true</code> if another member or element follows.
+     * 
+     * @throws MalformedJsonException If the next token is neither.
+     */
+    boolean hasNext(boolean first, char close) throws MalformedJsonException {
+	char c = peek();
+	if (c == close) {
+	    position++;
+	    return false;
+	}
+	if (!first) {
+	    expect(',');
+	}
+	return true;
+    }
+
+    /**
+     * Consumes a member name and the colon that follows it.
+     * 
+     * @return The name.
+     * 
+     * @throws MalformedJsonException If the next token is not a name.
+     */
+    String nextName() throws MalformedJsonException {
+	String name = nextString();
+	expect(':');
+	return name;
+    }
+
+    /**
+     * Consumes a <code>null</code> literal, if it is the next token.
+     * 
+     * @return <code>true</code> if a <code>null</code> was consumed.
+     * 
+     * @throws MalformedJsonException If the document ends.
+     */
+    boolean nextNullIfPresent() throws MalformedJsonException {
+	if (peek() == 'n' && json.startsWith("null", position)) {
+	    position += 4;
+	    return true;
+	}
+	return false;
+    }
+
+    /**
+     * Consumes a string, decoding its escape sequences.
+     * 
+     * @return The string.
+     * 
+     * @throws MalformedJsonException If the next token is not a string.
+     */
+    String nextString() throws MalformedJsonException {
+	expect('"');
+	StringBuilder builder = null;
+	int start = position;
+	while (position < json.length()) {
+	    char c = json.charAt(position++);
+	    if (c == '"') {
+		if (builder == null) {
+		    return json.substring(start, position - 1);
+		}
+		return builder.append(json, start, position - 1).toString();
+	    }
+	    if (c == '\\') {
+		if (builder == null) {
+		    builder = new StringBuilder();
+		}
+		builder.append(json, start, position - 1).append(readEscape());
+		start = position;
+	    }
+	}
+	throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * Consumes a boolean literal.
+     * 
+     * @return The boolean value.
+     * 
+     * @throws MalformedJsonException If the next token is not a boolean.
+     */
+    boolean nextBoolean() throws MalformedJsonException {
+	String literal = nextLiteral();
+	if ("true".equals(literal)) {
+	    return true;
+	}
+	if ("false".equals(literal)) {
+	    return false;
+	}
+	throw syntaxError("Expected a boolean but was '" + literal + "'");
+    }
+
+    /**
+     * Consumes an integer number literal.
+     * 
+     * @return The number.
+     * 
+     * @throws MalformedJsonException If the next token is not an integer.
+     */
+    int nextInt() throws MalformedJsonException {
+	String literal = nextLiteral();
+	try {
+	    return Integer.parseInt(literal);
+	} catch (NumberFormatException e) {
+	    throw syntaxError("Expected an int but was '" + literal + "'");
+	}
+    }
+
+    /**
+     * Skips the next value, checking only that its strings are terminated and
+     * its brackets are balanced.
+     * 
+     * @return The position where the value starts. The value ends at the
+     *         {@link #getPosition() current position}.
+     * 
+     * @throws MalformedJsonException If the value is malformed.
+     */
+    int skipValue() throws MalformedJsonException {
+	char c = peek();
+	int start = position;
+	if (c != '{' && c != '[') {
+	    if (c == '"') {
+		skipString();
+	    } else {
+		nextLiteral();
+	    }
+	    return start;
+	}
+	int depth = 0;
+	while (position < json.length()) {
+	    c = json.charAt(position);
+	    switch (c) {
+	    case '"':
+		skipString();
+		continue;
+	    case '{':
+	    case '[':
+		depth++;
+		break;
+	    case '}':
+	    case ']':
+		depth--;
+		break;
+	    default:
+		break;
+	    }
+	    position++;
+	    if (depth == 0) {
+		return start;
+	    }
+	}
+	throw syntaxError("Unterminated object or array");
+    }
+
+    @SuppressWarnings("javadoc")
+    private void skipString() throws MalformedJsonException {
+	position++;
+	while (position < json.length()) {
+	    char c = json.charAt(position++);
+	    if (c == '"') {
+		return;
+	    }
+	    if (c == '\\') {
+		position++;
+	    }
+	}
+	throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * Consumes a literal: a number, <code>true</code>, <code>false</code> or
+     * <code>null</code>.
+     * 
+     * @return The literal.
+     * 
+     * @throws MalformedJsonException If the next token is not a literal.
+     */
+    private String nextLiteral() throws MalformedJsonException {
+	peek();
+	int start = position;
+	while (position < json.length()) {
+	    char c = json.charAt(position);
+	    if (c == ',' || c == '}' || c == ']' || c == ':' || c == '"' || c == '{' || c == '['
+		    || Character.isWhitespace(c)) {
+		break;
+	    }
+	    position++;
+	}
+	if (position == start) {
+	    throw syntaxError("Expected a value");
+	}
+	return json.substring(start, position);
+    }
+
+    /**
+     * Reads an escape sequence, after its backslash.
+     * 
+     * @return The escaped character.
+     * 
+     * @throws MalformedJsonException If the escape sequence is invalid.
+     */
+    private char readEscape() throws MalformedJsonException {
+	if (position == json.length()) {
+	    throw syntaxError("Unterminated escape sequence");
+	}
+	char c = json.charAt(position++);
+	switch (c) {
+	case 'u':
+	    if (position + 4 > json.length()) {
+		throw syntaxError("Unterminated escape sequence");
+	    }
+	    try {
+		char unicode = (char) Integer.parseInt(json.substring(position, position + 4), 16);
+		position += 4;
+		return unicode;
+	    } catch (NumberFormatException e) {
+		throw syntaxError("Invalid unicode escape sequence");
+	    }
+	case 'b':
+	    return '\b';
+	case 'f':
+	    return '\f';
+	case 'n':
+	    return '\n';
+	case 'r':
+	    return '\r';
+	case 't':
+	    return '\t';
+	case '"':
+	case '\\':
+	case '/':
+	    return c;
+	default:
+	    throw syntaxError("Invalid escape sequence");
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private void skipWhitespace() {
+	while (position < json.length()) {
+	    char c = json.charAt(position);
+	    if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+		return;
+	    }
+	    position++;
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private MalformedJsonException syntaxError(String message) {
+	return new MalformedJsonException(message + " at position " + position);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.types.MessageEntity;
+import com.welyab.margelet.types.User;
+
+/**
+ * Streaming JSON adapter for {@link MessageEntity}.
+ * 
+ * <p>
+ * Fields are matched by name in a <code>switch</code> and set through
+ * accessors, without reflection. This class is written by hand and must be
+ * kept in sync with the <code>@SerializedName</code> fields of
+ * <code>MessageEntity</code>.
+ * 
+ * @author Welyab Paula
+ */
+final class MessageEntityTypeAdapter extends TypeAdapter<MessageEntity> {
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<User> userAdapter;
+
+    @SuppressWarnings("javadoc")
+    MessageEntityTypeAdapter(Gson gson) {
+	userAdapter = gson.getAdapter(User.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, MessageEntity value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	out.name("type").value(value.getType());
+	out.name("offset").value(value.getOffset());
+	out.name("length").value(value.getLength());
+	out.name("url").value(value.getUrl());
+	out.name("user");
+	userAdapter.write(out, value.getUser());
+	out.endObject();
+    }
+
+    @Override
+    public MessageEntity read(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return null;
+	}
+	MessageEntity value = new MessageEntity();
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "type":
+		value.setType(in.nextString());
+		break;
+	    case "offset":
+		value.setOffset(in.nextInt());
+		break;
+	    case "length":
+		value.setLength(in.nextInt());
+		break;
+	    case "url":
+		value.setUrl(in.nextString());
+		break;
+	    case "user":
+		value.setUser(userAdapter.read(in));
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	return value;
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.types.Audio;
+import com.welyab.margelet.types.Chat;
+import com.welyab.margelet.types.Contact;
+import com.welyab.margelet.types.Document;
+import com.welyab.margelet.types.Game;
+import com.welyab.margelet.types.Invoice;
+import com.welyab.margelet.types.Location;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.MessageEntity;
+import com.welyab.margelet.types.PhotoSize;
+import com.welyab.margelet.types.Sticker;
+import com.welyab.margelet.types.SuccessfulPayment;
+import com.welyab.margelet.types.User;
+import com.welyab.margelet.types.Venue;
+import com.welyab.margelet.types.Video;
+import com.welyab.margelet.types.VideoNote;
+import com.welyab.margelet.types.Voice;
+
+/**
+ * Streaming JSON adapter for {@link Message}.
+ * 
+ * <p>
+ * Fields are matched by name in a <code>switch</code> and set through
+ * accessors, without reflection. This class is written by hand and must be
+ * kept in sync with the <code>@SerializedName</code> fields of
+ * <code>Message</code>.
+ * 
+ * <p>
+ * Fields not selected by the {@link UpdateProjection} of the adapter are
+ * skipped without decoding.
+ * 
+ * @author Welyab Paula
+ */
+final class MessageTypeAdapter extends TypeAdapter<Message> {
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<User> userAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Chat> chatAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Message> messageAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<MessageEntity> messageEntityAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Audio> audioAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Document> documentAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Game> gameAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<PhotoSize> photoSizeAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Sticker> stickerAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Video> videoAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Voice> voiceAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<VideoNote> videoNoteAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Contact> contactAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Location> locationAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Venue> venueAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Invoice> invoiceAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<SuccessfulPayment> successfulPaymentAdapter;
+
+    /**
+     * Selects the decoded fields.
+     */
+    private final UpdateProjection projection;
+
+    @SuppressWarnings("javadoc")
+    MessageTypeAdapter(Gson gson) {
+	this(gson, UpdateProjection.all());
+    }
+
+    @SuppressWarnings("javadoc")
+    MessageTypeAdapter(Gson gson, UpdateProjection projection) {
+	this.projection = projection;
+	userAdapter = gson.getAdapter(User.class);
+	chatAdapter = gson.getAdapter(Chat.class);
+	messageAdapter = gson.getAdapter(Message.class);
+	messageEntityAdapter = gson.getAdapter(MessageEntity.class);
+	audioAdapter = gson.getAdapter(Audio.class);
+	documentAdapter = gson.getAdapter(Document.class);
+	gameAdapter = gson.getAdapter(Game.class);
+	photoSizeAdapter = gson.getAdapter(PhotoSize.class);
+	stickerAdapter = gson.getAdapter(Sticker.class);
+	videoAdapter = gson.getAdapter(Video.class);
+	voiceAdapter = gson.getAdapter(Voice.class);
+	videoNoteAdapter = gson.getAdapter(VideoNote.class);
+	contactAdapter = gson.getAdapter(Contact.class);
+	locationAdapter = gson.getAdapter(Location.class);
+	venueAdapter = gson.getAdapter(Venue.class);
+	invoiceAdapter = gson.getAdapter(Invoice.class);
+	successfulPaymentAdapter = gson.getAdapter(SuccessfulPayment.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, Message value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	if (value.hasMessageId()) {
+	    out.name("message_id").value(value.getMessageId());
+	}
+	out.name("from");
+	userAdapter.write(out, value.getFrom());
+	if (value.hasDate()) {
+	    out.name("date").value(value.getDate());
+	}
+	out.name("chat");
+	chatAdapter.write(out, value.getChat());
+	out.name("forward_from");
+	userAdapter.write(out, value.getForwardFrom());
+	out.name("forward_from_chat");
+	chatAdapter.write(out, value.getForwardFromChat());
+	if (value.hasForwardFromMessageId()) {
+	    out.name("forward_from_message_id").value(value.getForwardFromMessageId());
+	}
+	out.name("forward_signature").value(value.getForwardSignature());
+	if (value.hasForwardDate()) {
+	    out.name("forward_date").value(value.getForwardDate());
+	}
+	out.name("reply_to_message");
+	messageAdapter.write(out, value.getReplyToMessage());
+	if (value.hasEditDate()) {
+	    out.name("edit_date").value(value.getEditDate());
+	}
+	out.name("media_group_id").value(value.getMediaGroupId());
+	out.name("author_signature").value(value.getAuthorSignature());
+	out.name("text").value(value.getText());
+	out.name("entities");
+	AdapterSupport.writeList(out, messageEntityAdapter, value.getEntities());
+	out.name("caption_entities");
+	AdapterSupport.writeList(out, messageEntityAdapter, value.getCaptionEntities());
+	out.name("audio");
+	audioAdapter.write(out, value.getAudio());
+	out.name("document");
+	documentAdapter.write(out, value.getDocument());
+	out.name("game");
+	gameAdapter.write(out, value.getGame());
+	out.name("photo");
+	AdapterSupport.writeList(out, photoSizeAdapter, value.getPhoto());
+	out.name("sticker");
+	stickerAdapter.write(out, value.getSticker());
+	out.name("video");
+	videoAdapter.write(out, value.getVideo());
+	out.name("voice");
+	voiceAdapter.write(out, value.getVoice());
+	out.name("video_note");
+	videoNoteAdapter.write(out, value.getVideoNote());
+	out.name("caption").value(value.getCaption());
+	out.name("contact");
+	contactAdapter.write(out, value.getContact());
+	out.name("location");
+	locationAdapter.write(out, value.getLocation());
+	out.name("venue");
+	venueAdapter.write(out, value.getVenue());
+	out.name("new_chat_members");
+	AdapterSupport.writeList(out, userAdapter, value.getNewChatMembers());
+	out.name("left_chat_member");
+	userAdapter.write(out, value.getLeftChatMember());
+	out.name("new_chat_title").value(value.getNewChat_title());
+	out.name("new_chat_photo");
+	AdapterSupport.writeList(out, photoSizeAdapter, value.getNew_chat_photo());
+	if (value.getDeleteChatPhoto()) {
+	    out.name("delete_chat_photo").value(true);
+	}
+	if (value.getGroupChatCreated()) {
+	    out.name("group_chat_created").value(true);
+	}
+	if (value.getSupergroupChatCreated()) {
+	    out.name("supergroup_chat_created").value(true);
+	}
+	if (value.getChannel_chat_created()) {
+	    out.name("channel_chat_created").value(true);
+	}
+	if (value.hasMigrateToChatId()) {
+	    out.name("migrate_to_chat_id").value(value.getMigrateToChatId());
+	}
+	if (value.hasMigrateFromChatId()) {
+	    out.name("migrate_from_chat_id").value(value.getMigrateFromChatId());
+	}
+	out.name("pinned_message");
+	messageAdapter.write(out, value.getPinnedMessage());
+	out.name("invoice");
+	invoiceAdapter.write(out, value.getInvoice());
+	out.name("successful_payment");
+	successfulPaymentAdapter.write(out, value.getSuccessfulPayment());
+	out.name("connected_website").value(value.getConnectedWebsite());
+	out.endObject();
+    }
+
+    @Override
+    public Message read(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return null;
+	}
+	Message value = new Message();
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (!projection.includes(name)) {
+		in.skipValue();
+		continue;
+	    }
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "message_id":
+		value.setMessageId(in.nextInt());
+		break;
+	    case "from":
+		value.setFrom(userAdapter.read(in));
+		break;
+	    case "date":
+		value.setDate(in.nextInt());
+		break;
+	    case "chat":
+		value.setChat(chatAdapter.read(in));
+		break;
+	    case "forward_from":
+		value.setForwardFrom(userAdapter.read(in));
+		break;
+	    case "forward_from_chat":
+		value.setForwardFromChat(chatAdapter.read(in));
+		break;
+	    case "forward_from_message_id":
+		value.setForwardFromMessageId(in.nextInt());
+		break;
+	    case "forward_signature":
+		value.setForwardSignature(in.nextString());
+		break;
+	    case "forward_date":
+		value.setForwardDate(in.nextInt());
+		break;
+	    case "reply_to_message":
+		value.setReplyToMessage(messageAdapter.read(in));
+		break;
+	    case "edit_date":
+		value.setEditDate(in.nextInt());
+		break;
+	    case "media_group_id":
+		value.setMediaGroupId(in.nextString());
+		break;
+	    case "author_signature":
+		value.setAuthorSignature(in.nextString());
+		break;
+	    case "text":
+		value.setText(in.nextString());
+		break;
+	    case "entities":
+		value.setEntities(AdapterSupport.readList(in, messageEntityAdapter));
+		break;
+	    case "caption_entities":
+		value.setCaptionEntities(AdapterSupport.readList(in, messageEntityAdapter));
+		break;
+	    case "audio":
+		value.setAudio(audioAdapter.read(in));
+		break;
+	    case "document":
+		value.setDocument(documentAdapter.read(in));
+		break;
+	    case "game":
+		value.setGame(gameAdapter.read(in));
+		break;
+	    case "photo":
+		value.setPhoto(AdapterSupport.readList(in, photoSizeAdapter));
+		break;
+	    case "sticker":
+		value.setSticker(stickerAdapter.read(in));
+		break;
+	    case "video":
+		value.setVideo(videoAdapter.read(in));
+		break;
+	    case "voice":
+		value.setVoice(voiceAdapter.read(in));
+		break;
+	    case "video_note":
+		value.setVideoNote(videoNoteAdapter.read(in));
+		break;
+	    case "caption":
+		value.setCaption(in.nextString());
+		break;
+	    case "contact":
+		value.setContact(contactAdapter.read(in));
+		break;
+	    case "location":
+		value.setLocation(locationAdapter.read(in));
+		break;
+	    case "venue":
+		value.setVenue(venueAdapter.read(in));
+		break;
+	    case "new_chat_members":
+		value.setNewChatMembers(AdapterSupport.readList(in, userAdapter));
+		break;
+	    case "left_chat_member":
+		value.setLeftChatMember(userAdapter.read(in));
+		break;
+	    case "new_chat_title":
+		value.setNewChat_title(in.nextString());
+		break;
+	    case "new_chat_photo":
+		value.setNew_chat_photo(AdapterSupport.readList(in, photoSizeAdapter));
+		break;
+	    case "delete_chat_photo":
+		value.setDeleteChatPhoto(in.nextBoolean());
+		break;
+	    case "group_chat_created":
+		value.setGroupChatCreated(in.nextBoolean());
+		break;
+	    case "supergroup_chat_created":
+		value.setSupergroupChatCreated(in.nextBoolean());
+		break;
+	    case "channel_chat_created":
+		value.setChannel_chat_created(in.nextBoolean());
+		break;
+	    case "migrate_to_chat_id":
+		value.setMigrateToChatId(in.nextLong());
+		break;
+	    case "migrate_from_chat_id":
+		value.setMigrateFromChatId(in.nextLong());
+		break;
+	    case "pinned_message":
+		value.setPinnedMessage(messageAdapter.read(in));
+		break;
+	    case "invoice":
+		value.setInvoice(invoiceAdapter.read(in));
+		break;
+	    case "successful_payment":
+		value.setSuccessfulPayment(successfulPaymentAdapter.read(in));
+		break;
+	    case "connected_website":
+		value.setConnectedWebsite(in.nextString());
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	return value;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.ResponseParameters;
+
+/**
+ * Streaming JSON adapter for {@link Response}.
+ * 
+ * <p>
+ * Fields are matched by name in a <code>switch</code> and set through
+ * accessors, without reflection. The <code>"result"</code> field is delegated
+ * to the adapter of the response type argument.
+ * 
+ * <p>
+ * Telegram writes the envelope fields first, so once <code>"ok"</code> is read
+ * as <code>false</code>, the <code>"result"</code> field is skipped without
+ * decoding.
+ * 
+ * @author Welyab Paula
+ * 
+ * @param <T> The type of underlying method result.
+ */
+final class ResponseTypeAdapter<T> extends TypeAdapter<Response<T>> {
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<ResponseParameters> responseParametersAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<T> resultAdapter;
+
+    @SuppressWarnings("javadoc")
+    ResponseTypeAdapter(Gson gson, TypeAdapter<T> resultAdapter) {
+	this.responseParametersAdapter = gson.getAdapter(ResponseParameters.class);
+	this.resultAdapter = resultAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, Response<T> value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	out.name("ok").value(value.isOk());
+	out.name("description").value(value.getDescription());
+	out.name("error_code").value(value.getErrorCode());
+	out.name("parameters");
+	responseParametersAdapter.write(out, value.getParameters());
+	out.name("result");
+	resultAdapter.write(out, value.getResult());
+	out.endObject();
+    }
+
+    @Override
+    public Response<T> read(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return null;
+	}
+	Response<T> value = new Response<>();
+	boolean failed = false;
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "ok":
+		value.setOk(in.nextBoolean());
+		failed = !value.isOk();
+		break;
+	    case "description":
+		value.setDescription(in.nextString());
+		break;
+	    case "error_code":
+		value.setErrorCode(in.nextInt());
+		break;
+	    case "parameters":
+		value.setParameters(responseParametersAdapter.read(in));
+		break;
+	    case "result":
+		if (failed) {
+		    // unsuccessful responses have no meaningful result
+		    in.skipValue();
+		} else {
+		    value.setResult(resultAdapter.read(in));
+		}
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	return value;
+    }
+}
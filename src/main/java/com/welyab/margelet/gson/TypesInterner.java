@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.gson;
+
+import java.util.Objects;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.types.Chat;
+import com.welyab.margelet.types.User;
+
+/**
+ * A bounded cache of decoded {@link User} and {@link Chat} objects, so equal
+ * objects received in many updates share a single, frozen, instance.
+ * 
+ * <p>
+ * Objects are keyed by id and content: a user that changed its name or
+ * username is a new entry, and the previous one is evicted when the cache is
+ * full. See {@link Constants#CONFIG_INTERNING}.
+ * 
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Welyab Paula
+ */
+final class TypesInterner {
+
+    /**
+     * The shared objects, keyed by its content.
+     */
+    private final Cache<Key, Object> cache;
+
+    @SuppressWarnings("javadoc")
+    TypesInterner(long maximumSize) {
+	this.cache = CacheBuilder.newBuilder()
+		.maximumSize(maximumSize)
+		.build();
+    }
+
+    /**
+     * Retrieves the shared instance equal to the given user. If there is
+     * none, the given user is frozen and becomes the shared instance.
+     * 
+     * @param user The decoded user.
+     * 
+     * @return The shared instance.
+     */
+    User intern(User user) {
+	int hash = 31 * Long.hashCode(user.getId()) + Objects.hash(
+		user.getBot(),
+		user.getFirstName(),
+		user.getLastName(),
+		user.getUsername(),
+		user.getLanguageCode()
+	);
+	return (User) intern(new Key(user, hash));
+    }
+
+    /**
+     * Retrieves the shared instance equal to the given chat. If there is
+     * none, the given chat is frozen and becomes the shared instance.
+     * 
+     * @param chat The decoded chat.
+     * 
+     * @return The shared instance.
+     */
+    Chat intern(Chat chat) {
+	int hash = 31 * Long.hashCode(chat.getId()) + Objects.hash(
+		chat.getType(),
+		chat.getTitle(),
+		chat.getUsername(),
+		chat.getFirstName(),
+		chat.getLastName(),
+		chat.getAllMembersAreAdministrators()
+	);
+	return (Chat) intern(new Key(chat, hash));
+    }
+
+    @SuppressWarnings("javadoc")
+    private Object intern(Key key) {
+	Object shared = cache.getIfPresent(key);
+	if (shared != null) {
+	    return shared;
+	}
+	if (key.value instanceof User) {
+	    ((User) key.value).freeze();
+	} else {
+	    ((Chat) key.value).freeze();
+	}
+	shared = cache.asMap().putIfAbsent(key, key.value);
+	return shared == null ? key.value : shared;
+    }
+
+    /**
+     * Compares users and chats by content, instead of by id only as their
+     * own <code>equals</code> methods do.
+     * 
+     * @author Welyab Paula
+     */
+    private static final class Key {
+
+	private final Object value;
+
+	private final int hash;
+
+	private Key(Object value, int hash) {
+	    this.value = value;
+	    this.hash = hash;
+	}
+
+	@Override
+	public int hashCode() {
+	    return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (this == obj)
+		return true;
+	    if (!(obj instanceof Key))
+		return false;
+	    Key other = (Key) obj;
+	    if (hash != other.hash || value.getClass() != other.value.getClass())
+		return false;
+	    if (value instanceof User)
+		return equalUsers((User) value, (User) other.value);
+	    return equalChats((Chat) value, (Chat) other.value);
+	}
+
+	private static boolean equalUsers(User a, User b) {
+	    return a.getId() == b.getId()
+		    && a.hasId() == b.hasId()
+		    && a.getBot() == b.getBot()
+		    && Objects.equals(a.getFirstName(), b.getFirstName())
+		    && Objects.equals(a.getLastName(), b.getLastName())
+		    && Objects.equals(a.getUsername(), b.getUsername())
+		    && Objects.equals(a.getLanguageCode(), b.getLanguageCode());
+	}
+
+	private static boolean equalChats(Chat a, Chat b) {
+	    return a.getId() == b.getId()
+		    && a.hasId() == b.hasId()
+		    && a.getAllMembersAreAdministrators() == b.getAllMembersAreAdministrators()
+		    && Objects.equals(a.getType(), b.getType())
+		    && Objects.equals(a.getTitle(), b.getTitle())
+		    && Objects.equals(a.getUsername(), b.getUsername())
+		    && Objects.equals(a.getFirstName(), b.getFirstName())
+		    && Objects.equals(a.getLastName(), b.getLastName());
+	}
+    }
+}
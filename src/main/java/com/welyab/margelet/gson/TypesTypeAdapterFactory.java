@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.gson;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.types.Audio;
+import com.welyab.margelet.types.CallbackQuery;
+import com.welyab.margelet.types.Chat;
+import com.welyab.margelet.types.ChosenInlineResult;
+import com.welyab.margelet.types.Contact;
+import com.welyab.margelet.types.Document;
+import com.welyab.margelet.types.File;
+import com.welyab.margelet.types.Game;
+import com.welyab.margelet.types.InlineQuery;
+import com.welyab.margelet.types.Invoice;
+import com.welyab.margelet.types.Location;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.MessageEntity;
+import com.welyab.margelet.types.PhotoSize;
+import com.welyab.margelet.types.PreCheckoutQuery;
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.ResponseParameters;
+import com.welyab.margelet.types.ShippingQuery;
+import com.welyab.margelet.types.Sticker;
+import com.welyab.margelet.types.SuccessfulPayment;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.User;
+import com.welyab.margelet.types.Venue;
+import com.welyab.margelet.types.Video;
+import com.welyab.margelet.types.VideoNote;
+import com.welyab.margelet.types.Voice;
+
+/**
+ * Provides the streaming adapters of all Telegram Bot API types of the package
+ * <code>com.welyab.margelet.types</code>, so Gson never falls back to its
+ * reflective adapter for them.
+ * 
+ * @author Welyab Paula
+ */
+public class TypesTypeAdapterFactory implements TypeAdapterFactory {
+
+    /**
+     * Indicates that update payloads are kept as raw JSON and decoded on first
+     * access.
+     */
+    private final boolean lazyDecoding;
+
+    /**
+     * Shares equal users and chats among decoded objects; <code>null</code>
+     * if interning is disabled.
+     */
+    private final TypesInterner interner;
+
+    /**
+     * Creates a new factory.
+     * 
+     * @param configuration The configuration. See
+     *            {@link Constants#CONFIG_LAZY_DECODING} and
+     *            {@link Constants#CONFIG_INTERNING}.
+     */
+    public TypesTypeAdapterFactory(Configuration configuration) {
+	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	this.lazyDecoding = configuration.getBoolean(
+		Constants.CONFIG_LAZY_DECODING,
+		Constants.CONFIG_LAZY_DECODING_DEFAULT
+	);
+	this.interner = configuration.getBoolean(Constants.CONFIG_INTERNING, Constants.CONFIG_INTERNING_DEFAULT)
+		? new TypesInterner(configuration.getLong(
+			Constants.CONFIG_INTERNING_MAXIMUM_SIZE,
+			Constants.CONFIG_INTERNING_MAXIMUM_SIZE_DEFAULT
+		))
+		: null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+	return (TypeAdapter<T>) createAdapter(gson, typeToken);
+    }
+
+    /**
+     * Creates the adapter of the given type.
+     * 
+     * @param gson The Gson instance that requested the adapter.
+     * @param typeToken The type.
+     * 
+     * @return The adapter, or <code>null</code> if the type is not a Telegram
+     *         Bot API type.
+     */
+    private TypeAdapter<?> createAdapter(Gson gson, TypeToken<?> typeToken) {
+	Class<?> rawType = typeToken.getRawType();
+	if (rawType == Response.class) {
+	    return createResponseAdapter(gson, typeToken.getType());
+	}
+	if (rawType == Update.class) {
+	    return new UpdateTypeAdapter(gson, lazyDecoding, UpdateProjection.all());
+	}
+	if (rawType == Message.class) {
+	    return new MessageTypeAdapter(gson);
+	}
+	if (rawType == User.class) {
+	    return new UserTypeAdapter(interner);
+	}
+	if (rawType == Document.class) {
+	    return new DocumentTypeAdapter(gson);
+	}
+	if (rawType == File.class) {
+	    return new FileTypeAdapter();
+	}
+	if (rawType == ResponseParameters.class) {
+	    return new ResponseParametersTypeAdapter();
+	}
+	if (rawType == Audio.class) {
+	    return new EmptyTypeAdapter<>(Audio::new);
+	}
+	if (rawType == CallbackQuery.class) {
+	    return new CallbackQueryTypeAdapter(gson);
+	}
+	if (rawType == Chat.class) {
+	    return new ChatTypeAdapter(interner);
+	}
+	if (rawType == ChosenInlineResult.class) {
+	    return new EmptyTypeAdapter<>(ChosenInlineResult::new);
+	}
+	if (rawType == Contact.class) {
+	    return new EmptyTypeAdapter<>(Contact::new);
+	}
+	if (rawType == Game.class) {
+	    return new EmptyTypeAdapter<>(Game::new);
+	}
+	if (rawType == InlineQuery.class) {
+	    return new InlineQueryTypeAdapter(gson);
+	}
+	if (rawType == Invoice.class) {
+	    return new EmptyTypeAdapter<>(Invoice::new);
+	}
+	if (rawType == Location.class) {
+	    return new EmptyTypeAdapter<>(Location::new);
+	}
+	if (rawType == MessageEntity.class) {
+	    return new MessageEntityTypeAdapter(gson);
+	}
+	if (rawType == PhotoSize.class) {
+	    return new EmptyTypeAdapter<>(PhotoSize::new);
+	}
+	if (rawType == PreCheckoutQuery.class) {
+	    return new EmptyTypeAdapter<>(PreCheckoutQuery::new);
+	}
+	if (rawType == ShippingQuery.class) {
+	    return new EmptyTypeAdapter<>(ShippingQuery::new);
+	}
+	if (rawType == Sticker.class) {
+	    return new EmptyTypeAdapter<>(Sticker::new);
+	}
+	if (rawType == SuccessfulPayment.class) {
+	    return new EmptyTypeAdapter<>(SuccessfulPayment::new);
+	}
+	if (rawType == Venue.class) {
+	    return new EmptyTypeAdapter<>(Venue::new);
+	}
+	if (rawType == Video.class) {
+	    return new EmptyTypeAdapter<>(Video::new);
+	}
+	if (rawType == VideoNote.class) {
+	    return new EmptyTypeAdapter<>(VideoNote::new);
+	}
+	if (rawType == Voice.class) {
+	    return new EmptyTypeAdapter<>(Voice::new);
+	}
+	return null;
+    }
+
+    /**
+     * Creates the adapter of a <code>Response</code> type, delegating the
+     * <code>"result"</code> field to the adapter of its type argument.
+     * 
+     * @param gson The Gson instance that requested the adapter.
+     * @param type The <code>Response</code> type.
+     * 
+     * @return The adapter.
+     */
+    private static TypeAdapter<?> createResponseAdapter(Gson gson, Type type) {
+	Type resultType = type instanceof ParameterizedType
+		? ((ParameterizedType) type).getActualTypeArguments()[0]
+		: Object.class;
+	return new ResponseTypeAdapter<>(gson, gson.getAdapter(TypeToken.get(resultType)));
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.gson;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.CharStreams;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import com.welyab.margelet.http.ResponseBodyReader;
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.ResponseParameters;
+import com.welyab.margelet.types.Update;
+
+/**
+ * Reads the response of the <code>getUpdates</code> method incrementally,
+ * handing each {@link Update} to a consumer as soon as it is decoded, instead
+ * of materializing the whole list of updates.
+ * 
+ * <p>
+ * The produced <code>Response</code> carries the envelope fields
+ * (<code>"ok"</code>, <code>"description"</code>, <code>"error_code"</code>
+ * and <code>"parameters"</code>) and, as result, the number of updates handed
+ * to the consumer. Updates of unsuccessful responses are skipped.
+ * 
+ * <p>
+ * With an update adapter that decodes lazily (see
+ * {@link com.welyab.margelet.Constants#CONFIG_LAZY_DECODING}), or when the raw
+ * JSON of each update is kept, the body is read into memory and its structure
+ * is walked without tokenizing the updates. The raw JSON of an update is the
+ * range of the body it occupies, and each update is decoded once, from that
+ * range; lazy payloads are decoded only on first access.
+ * 
+ * <p>
+ * An empty body, or a body that is not a JSON document along with a HTTP
+ * status other than <code>200</code>, like the HTML page of a proxy failing
+ * with <code>502</code>, produces an unsuccessful response with the HTTP
+ * status as error code.
+ * 
+ * @author Welyab Paula
+ */
+public class UpdateStreamReader implements ResponseBodyReader<Response<Integer>> {
+
+    @SuppressWarnings("javadoc")
+    private static final int HTTP_OK = 200;
+
+    @SuppressWarnings("javadoc")
+    private final Gson gson;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Update> updateAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<ResponseParameters> responseParametersAdapter;
+
+    /**
+     * The update adapter, if it decodes lazily; <code>null</code> otherwise.
+     */
+    private final UpdateTypeAdapter lazyAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Update> consumer;
+
+    /**
+     * Receives each update along with its raw JSON; <code>null</code> when
+     * the raw JSON is not kept.
+     */
+    private final BiConsumer<? super Update, ? super String> rawJsonConsumer;
+
+    /**
+     * Creates a new reader.
+     * 
+     * @param gson The JSON processor.
+     * @param consumer Receives each update, in the order they are received.
+     */
+    public UpdateStreamReader(Gson gson, Consumer<? super Update> consumer) {
+	this(gson, gson.getAdapter(Update.class), consumer);
+    }
+
+    /**
+     * Creates a new reader that decodes updates with the given adapter, like
+     * the ones created by
+     * {@link GsonFactory#updateAdapter(com.welyab.margelet.Configuration, com.welyab.margelet.UpdateProjection)}.
+     * 
+     * @param gson The JSON processor.
+     * @param updateAdapter Decodes each update.
+     * @param consumer Receives each update, in the order they are received.
+     */
+    public UpdateStreamReader(Gson gson, TypeAdapter<Update> updateAdapter, Consumer<? super Update> consumer) {
+	Preconditions.checkNotNull(gson, "Parameter 'gson' cannot be null");
+	Preconditions.checkNotNull(updateAdapter, "Parameter 'updateAdapter' cannot be null");
+	Preconditions.checkNotNull(consumer, "Parameter 'consumer' cannot be null");
+	this.gson = gson;
+	this.updateAdapter = updateAdapter;
+	this.lazyAdapter = GsonFactory.lazyAdapter(updateAdapter);
+	this.responseParametersAdapter = gson.getAdapter(ResponseParameters.class);
+	this.consumer = consumer;
+	this.rawJsonConsumer = null;
+    }
+
+    @SuppressWarnings("javadoc")
+    private UpdateStreamReader(
+	    Gson gson,
+	    TypeAdapter<Update> updateAdapter,
+	    BiConsumer<? super Update, ? super String> rawJsonConsumer
+    ) {
+	this.gson = gson;
+	this.updateAdapter = updateAdapter;
+	this.lazyAdapter = GsonFactory.lazyAdapter(updateAdapter);
+	this.responseParametersAdapter = gson.getAdapter(ResponseParameters.class);
+	this.consumer = null;
+	this.rawJsonConsumer = rawJsonConsumer;
+    }
+
+    /**
+     * Creates a new reader that also hands the raw JSON of each update to the
+     * consumer, like a journal that records updates as received. The JSON is
+     * the text of the update exactly as received, whitespace included.
+     * 
+     * @param gson The JSON processor.
+     * @param updateAdapter Decodes each update.
+     * @param consumer Receives each update and its raw JSON, in the order
+     *            they are received.
+     * 
+     * @return The reader.
+     */
+    public static UpdateStreamReader withRawJson(
+	    Gson gson,
+	    TypeAdapter<Update> updateAdapter,
+	    BiConsumer<? super Update, ? super String> consumer
+    ) {
+	Preconditions.checkNotNull(gson, "Parameter 'gson' cannot be null");
+	Preconditions.checkNotNull(updateAdapter, "Parameter 'updateAdapter' cannot be null");
+	Preconditions.checkNotNull(consumer, "Parameter 'consumer' cannot be null");
+	return new UpdateStreamReader(gson, updateAdapter, consumer);
+    }
+
+    @Override
+    public Response<Integer> read(int statusCode, InputStream content) throws IOException {
+	if (lazyAdapter != null || rawJsonConsumer != null) {
+	    return scan(statusCode, CharStreams.toString(new InputStreamReader(content, StandardCharsets.UTF_8)));
+	}
+	JsonReader in = gson.newJsonReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+	if (statusCode != HTTP_OK) {
+	    try {
+		return read(in);
+	    } catch (IOException | IllegalStateException | JsonParseException e) {
+		return httpFailure(statusCode);
+	    }
+	}
+	try {
+	    in.peek();
+	} catch (EOFException e) {
+	    return httpFailure(statusCode);
+	}
+	return read(in);
+    }
+
+    /**
+     * Reads the response document.
+     * 
+     * @param in The JSON reader, positioned at the document.
+     * 
+     * @return The response.
+     * 
+     * @throws IOException If the JSON document cannot be read.
+     */
+    private Response<Integer> read(JsonReader in) throws IOException {
+	Response<Integer> response = new Response<>();
+	int count = 0;
+	boolean failed = false;
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "ok":
+		response.setOk(in.nextBoolean());
+		failed = !response.isOk();
+		break;
+	    case "description":
+		response.setDescription(in.nextString());
+		break;
+	    case "error_code":
+		response.setErrorCode(in.nextInt());
+		break;
+	    case "parameters":
+		response.setParameters(responseParametersAdapter.read(in));
+		break;
+	    case "result":
+		if (failed) {
+		    in.skipValue();
+		    break;
+		}
+		in.beginArray();
+		while (in.hasNext()) {
+		    consumer.accept(updateAdapter.read(in));
+		    count++;
+		}
+		in.endArray();
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	response.setResult(count);
+	return response;
+    }
+
+    /**
+     * Reads a response body held in memory, walking its structure with a
+     * {@link JsonScanner}, when updates are decoded lazily or their raw JSON
+     * is kept.
+     * 
+     * @param statusCode The HTTP status code.
+     * @param body The response body.
+     * 
+     * @return The response.
+     * 
+     * @throws IOException If the JSON document is malformed.
+     */
+    private Response<Integer> scan(int statusCode, String body) throws IOException {
+	JsonScanner in = new JsonScanner(body);
+	if (statusCode != HTTP_OK) {
+	    try {
+		return scan(in);
+	    } catch (IOException | IllegalStateException | JsonParseException e) {
+		return httpFailure(statusCode);
+	    }
+	}
+	if (in.isExhausted()) {
+	    return httpFailure(statusCode);
+	}
+	return scan(in);
+    }
+
+    /**
+     * Reads the response document held in memory.
+     * 
+     * @param in The scanner, positioned at the document.
+     * 
+     * @return The response.
+     * 
+     * @throws IOException If the JSON document is malformed.
+     */
+    private Response<Integer> scan(JsonScanner in) throws IOException {
+	Response<Integer> response = new Response<>();
+	int count = 0;
+	boolean failed = false;
+	in.expect('{');
+	for (boolean first = true; in.hasNext(first, '}'); first = false) {
+	    String name = in.nextName();
+	    if (in.nextNullIfPresent()) {
+		continue;
+	    }
+	    switch (name) {
+	    case "ok":
+		response.setOk(in.nextBoolean());
+		failed = !response.isOk();
+		break;
+	    case "description":
+		response.setDescription(in.nextString());
+		break;
+	    case "error_code":
+		response.setErrorCode(in.nextInt());
+		break;
+	    case "parameters":
+		int start = in.skipValue();
+		response.setParameters(responseParametersAdapter.fromJson(
+			in.getJson().substring(start, in.getPosition())
+		));
+		break;
+	    case "result":
+		if (failed) {
+		    in.skipValue();
+		    break;
+		}
+		in.expect('[');
+		for (boolean firstUpdate = true; in.hasNext(firstUpdate, ']'); firstUpdate = false) {
+		    scanUpdate(in);
+		    count++;
+		}
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	response.setResult(count);
+	return response;
+    }
+
+    /**
+     * Reads an update of the response document held in memory and hands it
+     * to the consumer.
+     * 
+     * @param in The scanner, positioned at the update.
+     * 
+     * @throws IOException If the JSON document is malformed.
+     */
+    private void scanUpdate(JsonScanner in) throws IOException {
+	if (lazyAdapter == null) {
+	    int start = in.skipValue();
+	    String json = in.getJson().substring(start, in.getPosition());
+	    rawJsonConsumer.accept(updateAdapter.fromJson(json), json);
+	    return;
+	}
+	in.peek();
+	int start = in.getPosition();
+	Update update = lazyAdapter.readLazily(in);
+	if (rawJsonConsumer == null) {
+	    consumer.accept(update);
+	} else {
+	    rawJsonConsumer.accept(update, in.getJson().substring(start, in.getPosition()));
+	}
+    }
+
+    /**
+     * Creates an unsuccessful response for a HTTP failure without a Telegram
+     * JSON document.
+     * 
+     * @param statusCode The HTTP status code.
+     * 
+     * @return The response.
+     */
+    private static Response<Integer> httpFailure(int statusCode) {
+	Response<Integer> response = new Response<>();
+	response.setOk(false);
+	response.setErrorCode(statusCode);
+	response.setDescription(String.format("HTTP status %d", statusCode));
+	response.setResult(0);
+	return response;
+    }
+}
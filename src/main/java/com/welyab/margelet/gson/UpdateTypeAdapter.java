@@ -0,0 +1,316 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.types.CallbackQuery;
+import com.welyab.margelet.types.ChosenInlineResult;
+import com.welyab.margelet.types.InlineQuery;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.PreCheckoutQuery;
+import com.welyab.margelet.types.ShippingQuery;
+import com.welyab.margelet.types.LazyValue;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.UpdateType;
+
+/**
+ * Streaming JSON adapter for {@link Update}.
+ * 
+ * <p>
+ * Fields are matched by name in a <code>switch</code> and set through
+ * accessors, without reflection. This class is written by hand and must be
+ * kept in sync with the <code>@SerializedName</code> fields of
+ * <code>Update</code>.
+ * 
+ * <p>
+ * The update kind is set while decoding. Payloads of kinds not selected by the
+ * {@link UpdateProjection} of the adapter are skipped without decoding them.
+ * 
+ * <p>
+ * With lazy decoding, updates held in memory as a JSON document are read by
+ * {@link #readLazily(JsonScanner)}: the payload is located by a
+ * {@link JsonScanner}, without being tokenized, kept as the range of the
+ * document it occupies and decoded only when its getter is first called.
+ * Updates read from a <code>JsonReader</code>, like those of generic
+ * <code>Gson</code> calls, are always decoded eagerly, as a
+ * <code>JsonReader</code> does not tell where a value starts or ends.
+ * 
+ * @author Welyab Paula
+ */
+final class UpdateTypeAdapter extends TypeAdapter<Update> {
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Message> messageAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<InlineQuery> inlineQueryAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<ChosenInlineResult> chosenInlineResultAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<CallbackQuery> callbackQueryAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<ShippingQuery> shippingQueryAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<PreCheckoutQuery> preCheckoutQueryAdapter;
+
+    /**
+     * Indicates that payloads are kept as raw JSON and decoded on first
+     * access, when read by {@link #readLazily(JsonScanner)}.
+     */
+    private final boolean lazyDecoding;
+
+    /**
+     * Selects the decoded payloads.
+     */
+    private final UpdateProjection projection;
+
+    @SuppressWarnings("javadoc")
+    UpdateTypeAdapter(Gson gson, boolean lazyDecoding, UpdateProjection projection) {
+	this.lazyDecoding = lazyDecoding;
+	this.projection = projection;
+	messageAdapter = projection.getMessageFields().isEmpty()
+		? gson.getAdapter(Message.class)
+		: new MessageTypeAdapter(gson, projection);
+	inlineQueryAdapter = gson.getAdapter(InlineQuery.class);
+	chosenInlineResultAdapter = gson.getAdapter(ChosenInlineResult.class);
+	callbackQueryAdapter = gson.getAdapter(CallbackQuery.class);
+	shippingQueryAdapter = gson.getAdapter(ShippingQuery.class);
+	preCheckoutQueryAdapter = gson.getAdapter(PreCheckoutQuery.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, Update value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	if (value.hasUpdateId()) {
+	    out.name("update_id").value(value.getUpdateId());
+	}
+	out.name("message");
+	messageAdapter.write(out, value.getMessage());
+	out.name("edited_message");
+	messageAdapter.write(out, value.getEditedMessage());
+	out.name("channel_post");
+	messageAdapter.write(out, value.getChannelPost());
+	out.name("edited_channel_post");
+	messageAdapter.write(out, value.getEditedChannelPost());
+	out.name("inline_query");
+	inlineQueryAdapter.write(out, value.getInlineQuery());
+	out.name("chosen_inline_result");
+	chosenInlineResultAdapter.write(out, value.getChosenInlineResult());
+	out.name("callback_query");
+	callbackQueryAdapter.write(out, value.getCallbackQuery());
+	out.name("shipping_query");
+	shippingQueryAdapter.write(out, value.getShippingQuery());
+	out.name("pre_checkout_query");
+	preCheckoutQueryAdapter.write(out, value.getPreCheckoutQuery());
+	out.endObject();
+    }
+
+    @Override
+    public Update read(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return null;
+	}
+	Update value = new Update();
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "update_id":
+		value.setUpdateId(in.nextInt());
+		break;
+	    case "message":
+		value.setMessage(readPayload(in, value, UpdateType.MESSAGE, messageAdapter));
+		break;
+	    case "edited_message":
+		value.setEditedMessage(readPayload(in, value, UpdateType.EDITED_MESSAGE, messageAdapter));
+		break;
+	    case "channel_post":
+		value.setChannelPost(readPayload(in, value, UpdateType.CHANNEL_POST, messageAdapter));
+		break;
+	    case "edited_channel_post":
+		value.setEditedChannelPost(readPayload(in, value, UpdateType.EDITED_CHANNEL_POST, messageAdapter));
+		break;
+	    case "inline_query":
+		value.setInlineQuery(readPayload(in, value, UpdateType.INLINE_QUERY, inlineQueryAdapter));
+		break;
+	    case "chosen_inline_result":
+		value.setChosenInlineResult(readPayload(in, value, UpdateType.CHOSEN_INLINE_RESULT, chosenInlineResultAdapter));
+		break;
+	    case "callback_query":
+		value.setCallbackQuery(readPayload(in, value, UpdateType.CALLBACK_QUERY, callbackQueryAdapter));
+		break;
+	    case "shipping_query":
+		value.setShippingQuery(readPayload(in, value, UpdateType.SHIPPING_QUERY, shippingQueryAdapter));
+		break;
+	    case "pre_checkout_query":
+		value.setPreCheckoutQuery(readPayload(in, value, UpdateType.PRE_CHECKOUT_QUERY, preCheckoutQueryAdapter));
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	return value;
+    }
+
+    /**
+     * Indicates that payloads are kept as raw JSON and decoded on first
+     * access, when read by {@link #readLazily(JsonScanner)}.
+     * 
+     * @return <code>true</code> if lazy decoding is enabled.
+     */
+    boolean isLazyDecoding() {
+	return lazyDecoding;
+    }
+
+    /**
+     * Reads an update of a JSON document held in memory, keeping its payload
+     * as raw JSON to be decoded on first access.
+     * 
+     * @param in The scanner, positioned at the update.
+     * 
+     * @return The update.
+     * 
+     * @throws IOException If the JSON document is malformed.
+     */
+    Update readLazily(JsonScanner in) throws IOException {
+	if (in.nextNullIfPresent()) {
+	    return null;
+	}
+	Update value = new Update();
+	in.expect('{');
+	for (boolean first = true; in.hasNext(first, '}'); first = false) {
+	    String name = in.nextName();
+	    if (in.nextNullIfPresent()) {
+		continue;
+	    }
+	    switch (name) {
+	    case "update_id":
+		value.setUpdateId(in.nextInt());
+		break;
+	    case "message":
+		scanPayload(in, value, UpdateType.MESSAGE, messageAdapter);
+		break;
+	    case "edited_message":
+		scanPayload(in, value, UpdateType.EDITED_MESSAGE, messageAdapter);
+		break;
+	    case "channel_post":
+		scanPayload(in, value, UpdateType.CHANNEL_POST, messageAdapter);
+		break;
+	    case "edited_channel_post":
+		scanPayload(in, value, UpdateType.EDITED_CHANNEL_POST, messageAdapter);
+		break;
+	    case "inline_query":
+		scanPayload(in, value, UpdateType.INLINE_QUERY, inlineQueryAdapter);
+		break;
+	    case "chosen_inline_result":
+		scanPayload(in, value, UpdateType.CHOSEN_INLINE_RESULT, chosenInlineResultAdapter);
+		break;
+	    case "callback_query":
+		scanPayload(in, value, UpdateType.CALLBACK_QUERY, callbackQueryAdapter);
+		break;
+	    case "shipping_query":
+		scanPayload(in, value, UpdateType.SHIPPING_QUERY, shippingQueryAdapter);
+		break;
+	    case "pre_checkout_query":
+		scanPayload(in, value, UpdateType.PRE_CHECKOUT_QUERY, preCheckoutQueryAdapter);
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	return value;
+    }
+
+    /**
+     * Reads the payload of an update, setting the update kind.
+     * 
+     * @param in The JSON reader, positioned at the payload.
+     * @param update The update being decoded.
+     * @param type The payload kind.
+     * @param adapter The payload adapter.
+     * 
+     * @return The decoded payload, or <code>null</code> if the payload was
+     *         skipped.
+     * 
+     * @throws IOException If the JSON document cannot be read.
+     */
+    private <T> T readPayload(
+	    JsonReader in,
+	    Update update,
+	    UpdateType type,
+	    TypeAdapter<T> adapter
+    ) throws IOException {
+	update.setType(type);
+	if (!projection.includes(type)) {
+	    in.skipValue();
+	    return null;
+	}
+	return adapter.read(in);
+    }
+
+    /**
+     * Locates the payload of an update, setting the update kind and keeping
+     * the payload as raw JSON to be decoded on first access.
+     * 
+     * @param in The scanner, positioned at the payload.
+     * @param update The update being decoded.
+     * @param type The payload kind.
+     * @param adapter The payload adapter.
+     * 
+     * @throws IOException If the JSON document is malformed.
+     */
+    private <T> void scanPayload(
+	    JsonScanner in,
+	    Update update,
+	    UpdateType type,
+	    TypeAdapter<T> adapter
+    ) throws IOException {
+	int start = in.skipValue();
+	if (!projection.includes(type)) {
+	    update.setType(type);
+	    return;
+	}
+	update.setLazyPayload(
+		type,
+		new LazyValue<>(in.getJson().substring(start, in.getPosition()), AdapterSupport.decoder(adapter))
+	);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.welyab.margelet.types.User;
+
+/**
+ * Streaming JSON adapter for {@link User}.
+ * 
+ * <p>
+ * Fields are matched by name in a <code>switch</code> and set through
+ * accessors, without reflection. This class is written by hand and must be
+ * kept in sync with the <code>@SerializedName</code> fields of
+ * <code>User</code>.
+ * 
+ * <p>
+ * Decoded users are interned when the adapter has an interner.
+ * 
+ * @author Welyab Paula
+ */
+final class UserTypeAdapter extends TypeAdapter<User> {
+
+    /**
+     * Shares equal users; <code>null</code> if interning is disabled.
+     */
+    private final TypesInterner interner;
+
+    @SuppressWarnings("javadoc")
+    UserTypeAdapter(TypesInterner interner) {
+	this.interner = interner;
+    }
+
+    @Override
+    public void write(JsonWriter out, User value) throws IOException {
+	if (value == null) {
+	    out.nullValue();
+	    return;
+	}
+	out.beginObject();
+	if (value.hasId()) {
+	    out.name("id").value(value.getId());
+	}
+	out.name("is_bot").value(value.getBot());
+	out.name("first_name").value(value.getFirstName());
+	out.name("last_name").value(value.getLastName());
+	out.name("username").value(value.getUsername());
+	out.name("language_code").value(value.getLanguageCode());
+	out.endObject();
+    }
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+	if (in.peek() == JsonToken.NULL) {
+	    in.nextNull();
+	    return null;
+	}
+	User value = new User();
+	in.beginObject();
+	while (in.hasNext()) {
+	    String name = in.nextName();
+	    if (in.peek() == JsonToken.NULL) {
+		in.nextNull();
+		continue;
+	    }
+	    switch (name) {
+	    case "id":
+		value.setId(in.nextLong());
+		break;
+	    case "is_bot":
+		value.setBot(in.nextBoolean());
+		break;
+	    case "first_name":
+		value.setFirstName(in.nextString());
+		break;
+	    case "last_name":
+		value.setLastName(in.nextString());
+		break;
+	    case "username":
+		value.setUsername(in.nextString());
+		break;
+	    case "language_code":
+		value.setLanguageCode(in.nextString());
+		break;
+	    default:
+		in.skipValue();
+		break;
+	    }
+	}
+	in.endObject();
+	return interner == null ? value : interner.intern(value);
+    }
+}
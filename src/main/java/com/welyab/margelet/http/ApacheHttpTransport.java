@@ -0,0 +1,404 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.MargeletException;
+
+/**
+ * A {@link HttpTransport} backed by Apache HttpComponents.
+ * 
+ * <p>
+ * Blocking requests are served by a HttpClient with a pooling connection
+ * manager. Non blocking requests are served by a HttpAsyncClient, driven by a
+ * small number of NIO I/O threads (see {@link Constants#CONFIG_HTTP_IO_THREADS}),
+ * which is only started on the first non blocking request.
+ * 
+ * <p>
+ * This transport speaks HTTP/1.1, so each pooled connection serves one request
+ * at a time.
+ * 
+ * @author Welyab Paula
+ */
+public class ApacheHttpTransport implements HttpTransport {
+
+    /**
+     * The name of this transport, as used in the configuration property
+     * {@link Constants#CONFIG_HTTP_TRANSPORT}.
+     */
+    public static final String NAME = "apache";
+
+    /**
+     * The configuration.
+     */
+    private final Configuration configuration;
+
+    /**
+     * The blocking client.
+     */
+    private final CloseableHttpClient client;
+
+    /**
+     * The non blocking client. Created on the first non blocking request.
+     */
+    private CloseableHttpAsyncClient asyncClient;
+
+    /**
+     * Evicts idle connections of the non blocking client, that has no built
+     * in eviction.
+     */
+    private ScheduledExecutorService asyncEvictor;
+
+    /**
+     * Indicates that this transport was closed. Guarded by <code>this</code>,
+     * like the non blocking client, so no client is created after closing.
+     */
+    private boolean closed;
+
+    /**
+     * Creates a new transport.
+     * 
+     * @param configuration The configuration.
+     */
+    public ApacheHttpTransport(Configuration configuration) {
+	this.configuration = configuration;
+	this.client = createClient(configuration);
+    }
+
+    @Override
+    public <T> T execute(HttpTransportRequest request, ResponseBodyReader<T> reader) throws IOException {
+	try (CloseableHttpResponse httpResponse = client.execute(toHttpRequest(request))) {
+	    return read(httpResponse, reader);
+	}
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeAsync(HttpTransportRequest request, ResponseBodyReader<T> reader) {
+	CompletableFuture<T> result = new CompletableFuture<>();
+	CloseableHttpAsyncClient asyncClient = getAsyncClient();
+	if (asyncClient == null) {
+	    result.completeExceptionally(new MargeletException("The HTTP transport is closed"));
+	    return result;
+	}
+	Future<HttpResponse> httpFuture;
+	try {
+	    httpFuture = asyncClient.execute(
+		    toHttpRequest(request),
+		    new FutureCallback<HttpResponse>() {
+
+			@Override
+			public void completed(HttpResponse httpResponse) {
+			    try {
+				result.complete(read(httpResponse, reader));
+			    } catch (IOException | RuntimeException e) {
+				result.completeExceptionally(e);
+			    }
+			}
+
+			@Override
+			public void failed(Exception e) {
+			    result.completeExceptionally(e);
+			}
+
+			@Override
+			public void cancelled() {
+			    result.cancel(false);
+			}
+		    }
+	    );
+	} catch (IllegalStateException e) {
+	    // the reactor was stopped by a concurrent close
+	    result.completeExceptionally(new MargeletException("The HTTP transport is closed", e));
+	    return result;
+	}
+	result.whenComplete((value, throwable) -> {
+	    if (result.isCancelled()) {
+		httpFuture.cancel(true);
+	    }
+	});
+	return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+	CloseableHttpAsyncClient asyncClient;
+	synchronized (this) {
+	    if (closed) {
+		return;
+	    }
+	    closed = true;
+	    asyncClient = this.asyncClient;
+	    if (asyncEvictor != null) {
+		asyncEvictor.shutdownNow();
+	    }
+	}
+	try {
+	    client.close();
+	} finally {
+	    if (asyncClient != null) {
+		asyncClient.close();
+	    }
+	}
+    }
+
+    /**
+     * Reads the response body with the given reader.
+     * 
+     * @param httpResponse The response.
+     * @param reader The response body reader.
+     * 
+     * @return The value produced by the reader.
+     * 
+     * @throws IOException If the response body cannot be read.
+     */
+    private static <T> T read(HttpResponse httpResponse, ResponseBodyReader<T> reader) throws IOException {
+	HttpEntity httpEntity = httpResponse.getEntity();
+	int statusCode = httpResponse.getStatusLine().getStatusCode();
+	// closing the content stream releases the connection back to the pool
+	try (InputStream content = httpEntity.getContent()) {
+	    return reader.read(statusCode, content);
+	}
+    }
+
+    /**
+     * Converts a transport request into a HttpComponents request.
+     * 
+     * @param request The transport request.
+     * 
+     * @return The HttpComponents request.
+     */
+    private static HttpUriRequest toHttpRequest(HttpTransportRequest request) {
+	switch (request.getMethod()) {
+	case GET:
+	    return new HttpGet(request.getUrl());
+	case POST:
+	    HttpPost httpPost = new HttpPost(request.getUrl());
+	    if (request.getBody() != null) {
+		httpPost.setHeader(HttpHeaders.CONTENT_TYPE, request.getContentType());
+		httpPost.setEntity(toHttpEntity(request.getBody()));
+	    }
+	    return httpPost;
+	default:
+	    throw new IllegalArgumentException("Unsupported HTTP method: " + request.getMethod());
+	}
+    }
+
+    /**
+     * Converts a request body into a HttpComponents entity. Array backed
+     * bodies are sent without copying; other bodies are written straight to
+     * the connection.
+     * 
+     * @param body The request body.
+     * 
+     * @return The HttpComponents entity.
+     */
+    private static HttpEntity toHttpEntity(RequestBody body) {
+	if (body instanceof ByteArrayRequestBody) {
+	    ByteArrayRequestBody arrayBody = (ByteArrayRequestBody) body;
+	    return new ByteArrayEntity(
+		    arrayBody.getArray(),
+		    arrayBody.getOffset(),
+		    (int) arrayBody.getContentLength()
+	    );
+	}
+	return new RequestBodyEntity(body);
+    }
+
+    /**
+     * Retrieves the non blocking client, creating and starting it if needed.
+     * 
+     * @return The non blocking client, or <code>null</code> if this transport
+     *         is closed.
+     */
+    private synchronized CloseableHttpAsyncClient getAsyncClient() {
+	if (closed) {
+	    return null;
+	}
+	if (asyncClient == null) {
+	    asyncClient = createAsyncClient();
+	}
+	return asyncClient;
+    }
+
+    /**
+     * Creates a new HTTP client backed by a pooling connection manager.
+     * 
+     * @param configuration The configuration.
+     * 
+     * @return The HTTP client.
+     */
+    private static CloseableHttpClient createClient(Configuration configuration) {
+	PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+	connectionManager.setMaxTotal(maxConnectionsTotal(configuration));
+	connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute(configuration));
+
+	return HttpClients.custom()
+		.setConnectionManager(connectionManager)
+		.setKeepAliveStrategy(keepAliveStrategy(configuration))
+		.evictExpiredConnections()
+		.evictIdleConnections(idleConnectionTimeout(configuration), TimeUnit.MILLISECONDS)
+		.build();
+    }
+
+    /**
+     * Creates and starts a new non blocking HTTP client backed by a pooling
+     * connection manager.
+     * 
+     * @return The non blocking HTTP client.
+     */
+    private CloseableHttpAsyncClient createAsyncClient() {
+	IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+		.setIoThreadCount(ioThreads(configuration))
+		.build();
+	PoolingNHttpClientConnectionManager connectionManager;
+	try {
+	    connectionManager = new PoolingNHttpClientConnectionManager(
+		    new DefaultConnectingIOReactor(ioReactorConfig)
+	    );
+	} catch (IOReactorException e) {
+	    throw new MargeletException("Fail to create the HTTP I/O reactor", e);
+	}
+	connectionManager.setMaxTotal(maxConnectionsTotal(configuration));
+	connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute(configuration));
+
+	CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+		.setConnectionManager(connectionManager)
+		.setKeepAliveStrategy(keepAliveStrategy(configuration))
+		.build();
+	client.start();
+
+	long idleConnectionTimeout = idleConnectionTimeout(configuration);
+	asyncEvictor = Executors.newSingleThreadScheduledExecutor(
+		new ThreadFactoryBuilder()
+			.setNameFormat("margelet-connection-evictor-%d")
+			.setDaemon(true)
+			.build()
+	);
+	asyncEvictor.scheduleWithFixedDelay(
+		() -> {
+		    connectionManager.closeExpiredConnections();
+		    connectionManager.closeIdleConnections(idleConnectionTimeout, TimeUnit.MILLISECONDS);
+		},
+		idleConnectionTimeout,
+		idleConnectionTimeout,
+		TimeUnit.MILLISECONDS
+	);
+
+	return client;
+    }
+
+    /**
+     * Creates a keep-alive strategy that honors the server keep-alive header,
+     * falling back to the configured keep-alive.
+     * 
+     * @param configuration The configuration.
+     * 
+     * @return The keep-alive strategy.
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(Configuration configuration) {
+	long keepAlive = configuration.getLong(
+		Constants.CONFIG_HTTP_KEEP_ALIVE,
+		Constants.CONFIG_HTTP_KEEP_ALIVE_DEFAULT
+	);
+	return (response, context) -> {
+	    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+	    return duration > 0 ? duration : keepAlive;
+	};
+    }
+
+    @SuppressWarnings("javadoc")
+    private static int maxConnectionsTotal(Configuration configuration) {
+	return configuration.getInt(
+		Constants.CONFIG_HTTP_MAX_CONNECTIONS_TOTAL,
+		Constants.CONFIG_HTTP_MAX_CONNECTIONS_TOTAL_DEFAULT
+	);
+    }
+
+    @SuppressWarnings("javadoc")
+    private static int maxConnectionsPerRoute(Configuration configuration) {
+	return configuration.getInt(
+		Constants.CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE,
+		Constants.CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE_DEFAULT
+	);
+    }
+
+    @SuppressWarnings("javadoc")
+    private static long idleConnectionTimeout(Configuration configuration) {
+	return configuration.getLong(
+		Constants.CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT,
+		Constants.CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT_DEFAULT
+	);
+    }
+
+    @SuppressWarnings("javadoc")
+    private static int ioThreads(Configuration configuration) {
+	return configuration.getInt(
+		Constants.CONFIG_HTTP_IO_THREADS,
+		Constants.CONFIG_HTTP_IO_THREADS_DEFAULT
+	);
+    }
+
+    /**
+     * Creates {@link ApacheHttpTransport} instances. This is the default
+     * transport.
+     * 
+     * @author Welyab Paula
+     */
+    public static class Factory implements HttpTransportFactory {
+
+	@Override
+	public String getName() {
+	    return NAME;
+	}
+
+	@Override
+	public HttpTransport create(Configuration configuration) {
+	    return new ApacheHttpTransport(configuration);
+	}
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A request body backed by a region of a byte array. Transports send the region
+ * as is, without copying it.
+ * 
+ * @author Welyab Paula
+ */
+public class ByteArrayRequestBody implements RequestBody {
+
+    @SuppressWarnings("javadoc")
+    private final byte[] array;
+
+    @SuppressWarnings("javadoc")
+    private final int offset;
+
+    @SuppressWarnings("javadoc")
+    private final int length;
+
+    /**
+     * Creates a new body.
+     * 
+     * @param array The array. The region must not be modified while the
+     *            request is in progress.
+     * @param offset The region start.
+     * @param length The region length.
+     */
+    public ByteArrayRequestBody(byte[] array, int offset, int length) {
+	Preconditions.checkNotNull(array, "Parameter 'array' cannot be null");
+	Preconditions.checkPositionIndexes(offset, offset + length, array.length);
+	this.array = array;
+	this.offset = offset;
+	this.length = length;
+    }
+
+    @SuppressWarnings("javadoc")
+    public byte[] getArray() {
+	return array;
+    }
+
+    @SuppressWarnings("javadoc")
+    public int getOffset() {
+	return offset;
+    }
+
+    @Override
+    public long getContentLength() {
+	return length;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+	out.write(array, offset, length);
+    }
+}
@@ -13,17 +13,235 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.welyab.margelet.http;
 
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
 import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.MargeletException;
+
+/**
+ * A pool of long-lived HTTP transports.
+ * 
+ * <p>
+ * One transport is kept for each distinct set of HTTP transport configuration
+ * properties (the constants starting with <code>"CONFIG_HTTP_"</code> in the
+ * {@link Constants} class), so connections to Telegram services are reused
+ * across requests.
+ * 
+ * <p>
+ * The transport implementation is selected by the configuration property
+ * {@link Constants#CONFIG_HTTP_TRANSPORT}:
+ * <ul>
+ * <li><code>"apache"</code>, the default, uses Apache HttpComponents with
+ * pooled HTTP/1.1 connections ({@link ApacheHttpTransport});</li>
+ * <li><code>"jdk"</code> uses <code>java.net.http.HttpClient</code>,
+ * multiplexing concurrent requests over HTTP/2 connections. This transport
+ * requires Java 11 or later;</li>
+ * <li>any other name is looked up among the {@link HttpTransportFactory}
+ * implementations available through <code>java.util.ServiceLoader</code>.</li>
+ * </ul>
+ * 
+ * <p>
+ * Transports returned by this pool are shared and must not be closed by
+ * callers; they are released when the pool is closed.
+ * 
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Welyab Paula
+ */
+public class HttpClientPool implements Closeable {
+
+    /**
+     * The name of the transport backed by <code>java.net.http.HttpClient</code>.
+     */
+    public static final String JDK_TRANSPORT_NAME = "jdk";
+
+    /**
+     * The factory of the transport backed by
+     * <code>java.net.http.HttpClient</code>. This class is only available in
+     * Java 11 or later, from the multi-release section of the Margelet jar.
+     */
+    private static final String JDK_TRANSPORT_FACTORY_CLASS = "com.welyab.margelet.http.JdkHttpTransport$Factory";
+
+    /**
+     * The transports, keyed by the values of HTTP transport configuration
+     * properties.
+     */
+    private final ConcurrentMap<ImmutableList<Object>, HttpTransport> transports = new ConcurrentHashMap<>();
+
+    /**
+     * Indicates that this pool was closed. It is set, and checked before a
+     * transport is created, while holding the lock of this pool, so no
+     * transport is created after the pool is closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Retrieves the pool shared by the <code>TelegramMethod</code> objects
+     * created without a pool of their own. The shared pool lives as long as
+     * the application and must not be closed.
+     * 
+     * @return The shared pool.
+     */
+    public static HttpClientPool shared() {
+	return SharedPoolHolder.POOL;
+    }
+
+    /**
+     * Retrieves the HTTP transport for the given configuration, creating it if
+     * needed.
+     * 
+     * @param configuration The configuration.
+     * 
+     * @return The shared HTTP transport.
+     * 
+     * @throws MargeletException If this pool is closed, or if the configured
+     *             transport is not available.
+     */
+    public HttpTransport getTransport(Configuration configuration) {
+	Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	ImmutableList<Object> key = transportKey(configuration);
+	HttpTransport transport = transports.get(key);
+	if (transport == null) {
+	    synchronized (this) {
+		checkNotClosed();
+		transport = transports.computeIfAbsent(
+			key,
+			k -> findFactory(transportName(configuration)).create(configuration)
+		);
+	    }
+	}
+	checkNotClosed();
+	return transport;
+    }
+
+    /**
+     * Closes all HTTP transports of this pool, releasing its connections.
+     * 
+     * @throws IOException If some transport fails to close.
+     */
+    @Override
+    public void close() throws IOException {
+	List<HttpTransport> closing;
+	synchronized (this) {
+	    closed = true;
+	    closing = new ArrayList<>(transports.values());
+	    transports.clear();
+	}
+	IOException failure = null;
+	for (HttpTransport transport : closing) {
+	    try {
+		transport.close();
+	    } catch (IOException e) {
+		if (failure == null) {
+		    failure = e;
+		} else {
+		    failure.addSuppressed(e);
+		}
+	    }
+	}
+	if (failure != null) {
+	    throw failure;
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private void checkNotClosed() {
+	if (closed) {
+	    throw new MargeletException("The HTTP client pool is closed");
+	}
+    }
+
+    /**
+     * Finds the factory of the transport with the given name.
+     * 
+     * @param name The transport name.
+     * 
+     * @return The factory.
+     * 
+     * @throws MargeletException If no transport with the given name is
+     *             available.
+     */
+    private static HttpTransportFactory findFactory(String name) {
+	if (ApacheHttpTransport.NAME.equals(name)) {
+	    return new ApacheHttpTransport.Factory();
+	}
+	if (JDK_TRANSPORT_NAME.equals(name)) {
+	    try {
+		return (HttpTransportFactory) Class.forName(JDK_TRANSPORT_FACTORY_CLASS).getDeclaredConstructor().newInstance();
+	    } catch (ReflectiveOperationException | LinkageError e) {
+		throw new MargeletException("The 'jdk' HTTP transport requires Java 11 or later", e);
+	    }
+	}
+	for (HttpTransportFactory factory : ServiceLoader.load(HttpTransportFactory.class)) {
+	    if (factory.getName().equals(name)) {
+		return factory;
+	    }
+	}
+	throw new MargeletException(String.format("HTTP transport not available: %s", name));
+    }
+
+    /**
+     * Creates the key that identifies a distinct HTTP transport configuration.
+     * 
+     * @param configuration The configuration.
+     * 
+     * @return The key.
+     */
+    private static ImmutableList<Object> transportKey(Configuration configuration) {
+	return ImmutableList.of(
+		transportName(configuration),
+		configuration.getInt(
+			Constants.CONFIG_HTTP_MAX_CONNECTIONS_TOTAL,
+			Constants.CONFIG_HTTP_MAX_CONNECTIONS_TOTAL_DEFAULT
+		),
+		configuration.getInt(
+			Constants.CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE,
+			Constants.CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE_DEFAULT
+		),
+		configuration.getLong(
+			Constants.CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT,
+			Constants.CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT_DEFAULT
+		),
+		configuration.getLong(
+			Constants.CONFIG_HTTP_KEEP_ALIVE,
+			Constants.CONFIG_HTTP_KEEP_ALIVE_DEFAULT
+		),
+		configuration.getInt(
+			Constants.CONFIG_HTTP_IO_THREADS,
+			Constants.CONFIG_HTTP_IO_THREADS_DEFAULT
+		)
+	);
+    }
+
+    @SuppressWarnings("javadoc")
+    private static String transportName(Configuration configuration) {
+	return configuration.get(
+		Constants.CONFIG_HTTP_TRANSPORT,
+		Constants.CONFIG_HTTP_TRANSPORT_DEFAULT
+	).toString();
+    }
 
-public class HttpClientPool {
+    /**
+     * Holds the shared pool, created on first use.
+     * 
+     * @author Welyab Paula
+     */
+    private static final class SharedPoolHolder {
 
-    public static CloseableHttpClient getClient(Configuration configuration) {
-	return HttpClientBuilder.create().build();
+	@SuppressWarnings("javadoc")
+	private static final HttpClientPool POOL = new HttpClientPool();
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The HTTP transport used to communicate with Telegram services.
+ * 
+ * <p>
+ * Implementations are created by a {@link HttpTransportFactory} and are kept
+ * by {@link HttpClientPool}, one per distinct transport configuration, until
+ * the pool is closed. Implementations must be thread safe.
+ * 
+ * @author Welyab Paula
+ * 
+ * @see HttpTransportFactory
+ * @see HttpClientPool
+ */
+public interface HttpTransport extends Closeable {
+
+    /**
+     * Performs a HTTP request, blocking the calling thread until the response
+     * body is read.
+     * 
+     * @param request The request.
+     * @param reader Reads the response body. The content stream is only valid
+     *            during the reader invocation.
+     * 
+     * @return The value produced by the reader.
+     * 
+     * @throws IOException If the communication fails.
+     */
+    <T> T execute(HttpTransportRequest request, ResponseBodyReader<T> reader) throws IOException;
+
+    /**
+     * Performs a HTTP request without blocking the calling thread.
+     * 
+     * <p>
+     * Cancelling the returned future aborts the request, when supported by
+     * the implementation.
+     * 
+     * @param request The request.
+     * @param reader Reads the response body. The content stream is only valid
+     *            during the reader invocation.
+     * 
+     * @return A future that completes with the value produced by the reader,
+     *         or exceptionally if the communication fails.
+     */
+    <T> CompletableFuture<T> executeAsync(HttpTransportRequest request, ResponseBodyReader<T> reader);
+}
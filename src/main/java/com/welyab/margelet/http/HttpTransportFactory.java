@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.http;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+
+/**
+ * Creates {@link HttpTransport} instances.
+ * 
+ * <p>
+ * The transport is selected by the configuration property
+ * {@link Constants#CONFIG_HTTP_TRANSPORT}, which is matched against
+ * {@link #getName()}. Besides the built in transports, factories may be
+ * provided by other libraries through the <code>java.util.ServiceLoader</code>
+ * mechanism, by listing the factory class name in a
+ * <code>META-INF/services/com.welyab.margelet.http.HttpTransportFactory</code>
+ * resource.
+ * 
+ * @author Welyab Paula
+ * 
+ * @see HttpClientPool
+ */
+public interface HttpTransportFactory {
+
+    /**
+     * Retrieves the transport name, as used in the configuration property
+     * {@link Constants#CONFIG_HTTP_TRANSPORT}.
+     * 
+     * @return The transport name.
+     */
+    String getName();
+
+    /**
+     * Creates a new transport.
+     * 
+     * @param configuration The configuration. Only the properties starting
+     *            with <code>"CONFIG_HTTP_"</code> are meaningful to the
+     *            transport.
+     * 
+     * @return The transport.
+     */
+    HttpTransport create(Configuration configuration);
+}
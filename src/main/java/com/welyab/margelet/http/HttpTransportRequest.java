@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.http;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A HTTP request to be performed by a {@link HttpTransport}.
+ * 
+ * <p>
+ * Instances of this class are immutable.
+ * 
+ * @author Welyab Paula
+ */
+public final class HttpTransportRequest {
+
+    /**
+     * The HTTP methods used to communicate with Telegram services.
+     * 
+     * @author Welyab Paula
+     */
+    public enum Method {
+	@SuppressWarnings("javadoc")
+	GET,
+
+	@SuppressWarnings("javadoc")
+	POST
+    }
+
+    @SuppressWarnings("javadoc")
+    private final Method method;
+
+    @SuppressWarnings("javadoc")
+    private final String url;
+
+    @SuppressWarnings("javadoc")
+    private final String contentType;
+
+    @SuppressWarnings("javadoc")
+    private final RequestBody body;
+
+    @SuppressWarnings("javadoc")
+    private HttpTransportRequest(Method method, String url, String contentType, RequestBody body) {
+	this.method = method;
+	this.url = url;
+	this.contentType = contentType;
+	this.body = body;
+    }
+
+    /**
+     * Creates a <code>GET</code> request.
+     * 
+     * @param url The target URL.
+     * 
+     * @return The request.
+     */
+    public static HttpTransportRequest get(String url) {
+	Preconditions.checkNotNull(url, "Parameter 'url' cannot be null");
+	return new HttpTransportRequest(Method.GET, url, null, null);
+    }
+
+    /**
+     * Creates a <code>POST</code> request without body.
+     * 
+     * @param url The target URL.
+     * 
+     * @return The request.
+     */
+    public static HttpTransportRequest post(String url) {
+	Preconditions.checkNotNull(url, "Parameter 'url' cannot be null");
+	return new HttpTransportRequest(Method.POST, url, null, null);
+    }
+
+    /**
+     * Creates a <code>POST</code> request.
+     * 
+     * @param url The target URL.
+     * @param contentType The body content type.
+     * @param body The body.
+     * 
+     * @return The request.
+     */
+    public static HttpTransportRequest post(String url, String contentType, byte[] body) {
+	Preconditions.checkNotNull(body, "Parameter 'body' cannot be null");
+	return post(url, contentType, RequestBody.of(body));
+    }
+
+    /**
+     * Creates a <code>POST</code> request with a body written straight to the
+     * connection.
+     * 
+     * @param url The target URL.
+     * @param contentType The body content type.
+     * @param body The body.
+     * 
+     * @return The request.
+     */
+    public static HttpTransportRequest post(String url, String contentType, RequestBody body) {
+	Preconditions.checkNotNull(url, "Parameter 'url' cannot be null");
+	Preconditions.checkNotNull(contentType, "Parameter 'contentType' cannot be null");
+	Preconditions.checkNotNull(body, "Parameter 'body' cannot be null");
+	return new HttpTransportRequest(Method.POST, url, contentType, body);
+    }
+
+    @SuppressWarnings("javadoc")
+    public Method getMethod() {
+	return method;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getUrl() {
+	return url;
+    }
+
+    /**
+     * Retrieves the body content type.
+     * 
+     * @return The content type, or <code>null</code> if the request has no
+     *         body.
+     */
+    public String getContentType() {
+	return contentType;
+    }
+
+    /**
+     * Retrieves the body.
+     * 
+     * @return The body, or <code>null</code> if the request has no body.
+     */
+    public RequestBody getBody() {
+	return body;
+    }
+
+    @Override
+    public String toString() {
+	return "HttpTransportRequest [method=" + method + "]";
+    }
+}
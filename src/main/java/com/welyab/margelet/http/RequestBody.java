@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The body of a {@link HttpTransportRequest}, written by the transport
+ * straight to the connection output.
+ * 
+ * <p>
+ * Implementations must be repeatable: the body can be written more than once,
+ * for instance, when a request is retried on a new connection.
+ * 
+ * @author Welyab Paula
+ */
+public interface RequestBody {
+
+    /**
+     * Retrieves the body length, in bytes.
+     * 
+     * @return The body length, or <code>-1</code> if it is not known in
+     *         advance; in that case, the body is sent with chunked transfer
+     *         encoding.
+     */
+    long getContentLength();
+
+    /**
+     * Writes the body.
+     * 
+     * @param out The connection output. It must not be closed.
+     * 
+     * @throws IOException If the body cannot be written.
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Creates a body backed by the given array.
+     * 
+     * @param body The body. The array must not be modified after this call.
+     * 
+     * @return The request body.
+     */
+    static RequestBody of(byte[] body) {
+	return new ByteArrayRequestBody(body, 0, body.length);
+    }
+}
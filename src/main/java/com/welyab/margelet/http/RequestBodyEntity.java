@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * A HttpComponents entity that writes a {@link RequestBody} straight to the
+ * connection output.
+ * 
+ * @author Welyab Paula
+ */
+class RequestBodyEntity extends AbstractHttpEntity {
+
+    @SuppressWarnings("javadoc")
+    private final RequestBody body;
+
+    @SuppressWarnings("javadoc")
+    RequestBodyEntity(RequestBody body) {
+	this.body = body;
+	setChunked(body.getContentLength() < 0);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+	return true;
+    }
+
+    @Override
+    public long getContentLength() {
+	return body.getContentLength();
+    }
+
+    /**
+     * Buffers the body in memory. It is only used by the non blocking client,
+     * which reads entities as streams; the blocking client uses
+     * {@link #writeTo(OutputStream)}.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+	ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	body.writeTo(buffer);
+	return new ByteArrayInputStream(buffer.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+	body.writeTo(out);
+    }
+
+    @Override
+    public boolean isStreaming() {
+	return false;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the body of a HTTP response produced by a {@link HttpTransport}.
+ * 
+ * @author Welyab Paula
+ * 
+ * @param <T> The type of the value produced from the response body.
+ */
+@FunctionalInterface
+public interface ResponseBodyReader<T> {
+
+    /**
+     * Reads the response body.
+     * 
+     * @param statusCode The HTTP response status code.
+     * @param content The response body. The stream is closed by the transport
+     *            after this method returns.
+     * 
+     * @return The value produced from the response body.
+     * 
+     * @throws IOException If the response body cannot be read.
+     */
+    T read(int statusCode, InputStream content) throws IOException;
+}
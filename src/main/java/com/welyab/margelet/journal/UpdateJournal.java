@@ -0,0 +1,838 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.TypeAdapter;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.MargeletException;
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.gson.GsonFactory;
+import com.welyab.margelet.types.Update;
+
+/**
+ * A durable, append-only journal of received updates, which keeps the raw
+ * JSON of each update until it is processed. Updates journaled by the
+ * {@link com.welyab.margelet.polling.UpdatePoller update poller} are stored
+ * as the text of the update in the <code>getUpdates</code> response, exactly
+ * as received.
+ * 
+ * <p>
+ * Updates are {@link #append(int, String) appended} as they are received,
+ * before they are confirmed to Telegram services, and a separate
+ * {@link #checkpoint(int) checkpoint} records up to which entry they were
+ * processed. After a crash, {@link #replay(UpdateProjection, int, Consumer)}
+ * hands the entries after the checkpoint to a consumer again, so updates
+ * confirmed to Telegram services but not processed are not lost. The
+ * {@link com.welyab.margelet.polling.UpdatePoller update poller} does all of
+ * this when {@link com.welyab.margelet.polling.UpdatePoller.Builder#journal(UpdateJournal)
+ * configured} with a journal.
+ * 
+ * <p>
+ * The journal is a directory of segment files of fixed size. The segment
+ * being written is memory mapped, so appending an entry is a memory copy
+ * with no system call. Each entry carries its length, a CRC32 checksum and
+ * the update id, and the length is written last: an entry torn by a crash
+ * fails the checksum and is discarded, along with anything after it, when
+ * the journal is opened. When an entry does not fit the current segment, a
+ * new one is started, and segments whose entries were all processed are
+ * deleted when the checkpoint moves past them, so the journal only grows
+ * while processing falls behind.
+ * 
+ * <p>
+ * The checkpoint is kept in a small file with two slots, written
+ * alternately, each protected by a checksum: a torn checkpoint write leaves
+ * the previous one in place.
+ * 
+ * <p>
+ * Entries and checkpoints reach the operating system as soon as they are
+ * written, so they survive a crash of the process. To also survive a crash
+ * of the operating system or a power failure, enable
+ * {@link Builder#force(boolean) force}, which flushes each write to the
+ * storage device, at the cost of one synchronous disk write per operation.
+ * 
+ * <pre>
+ * UpdateJournal journal = UpdateJournal.builder(Paths.get("journal")).build();
+ * UpdatePoller poller = UpdatePoller.builder(margelet, updates -&gt; ...)
+ * 	.journal(journal)
+ * 	.build();
+ * </pre>
+ * 
+ * <p>
+ * This class is thread safe. A journal directory must not be opened by more
+ * than one journal at a time.
+ * 
+ * @author Welyab Paula
+ */
+public class UpdateJournal implements Closeable {
+
+    /**
+     * The extension of segment file names.
+     */
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    /**
+     * The name of the checkpoint file.
+     */
+    private static final String CHECKPOINT_FILE_NAME = "checkpoint";
+
+    /**
+     * The first bytes of every segment: <code>"MGJ1"</code>.
+     */
+    private static final int SEGMENT_MAGIC = 0x4D474A31;
+
+    /**
+     * The size of the segment header: the magic number and a reserved int.
+     */
+    private static final int SEGMENT_HEADER_SIZE = 8;
+
+    /**
+     * The size of the entry header: the length of the JSON, the checksum and
+     * the update id.
+     */
+    private static final int ENTRY_HEADER_SIZE = 12;
+
+    /**
+     * The size of a checkpoint slot: the generation, the segment, the offset
+     * in the segment and the checksum.
+     */
+    private static final int CHECKPOINT_SLOT_SIZE = 24;
+
+    @SuppressWarnings("javadoc")
+    private final Path directory;
+
+    @SuppressWarnings("javadoc")
+    private final int segmentSize;
+
+    @SuppressWarnings("javadoc")
+    private final boolean force;
+
+    /**
+     * Decodes the updates replayed from the journal.
+     */
+    private final Configuration configuration;
+
+    /**
+     * The segments, by sequence number. The last one is being written.
+     */
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    @SuppressWarnings("javadoc")
+    private final CRC32 crc = new CRC32();
+
+    @SuppressWarnings("javadoc")
+    private final MappedByteBuffer checkpointBuffer;
+
+    @SuppressWarnings("javadoc")
+    private Segment active;
+
+    /**
+     * The generation of the last written checkpoint.
+     */
+    private long checkpointGeneration;
+
+    /**
+     * The segment of the first unprocessed entry.
+     */
+    private long cursorSegment;
+
+    /**
+     * The offset of the first unprocessed entry in its segment.
+     */
+    private int cursorOffset;
+
+    /**
+     * The id of the last appended update, or <code>0</code>.
+     */
+    private int lastUpdateId;
+
+    @SuppressWarnings("javadoc")
+    private boolean closed;
+
+    /**
+     * Opens the journal, recovering its segments and its checkpoint.
+     * 
+     * @param builder The builder.
+     * 
+     * @throws IOException If the journal cannot be opened.
+     */
+    private UpdateJournal(Builder builder) throws IOException {
+	this.directory = builder.directory;
+	this.segmentSize = builder.segmentSize;
+	this.force = builder.force;
+	this.configuration = builder.configuration;
+	Files.createDirectories(directory);
+	recoverSegments();
+	this.checkpointBuffer = map(directory.resolve(CHECKPOINT_FILE_NAME), 2 * CHECKPOINT_SLOT_SIZE, true);
+	recoverCheckpoint();
+    }
+
+    /**
+     * Appends the raw JSON of an update to the journal.
+     * 
+     * @param updateId The update id.
+     * @param json The raw JSON of the update.
+     * 
+     * @throws MargeletException If the entry is larger than a segment, if
+     *             the journal is closed, or if a new segment cannot be
+     *             created.
+     */
+    public synchronized void append(int updateId, String json) {
+	Preconditions.checkNotNull(json, "Parameter 'json' cannot be null");
+	checkNotClosed();
+	byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+	int size = ENTRY_HEADER_SIZE + bytes.length;
+	if (size > segmentSize - SEGMENT_HEADER_SIZE) {
+	    throw new MargeletException(String.format(
+		    "The update %d does not fit a journal segment: %d bytes",
+		    updateId,
+		    bytes.length
+	    ));
+	}
+	if (active.end + size > active.buffer.capacity()) {
+	    roll();
+	}
+	MappedByteBuffer buffer = active.buffer;
+	int position = active.end;
+	buffer.putInt(position + 8, updateId);
+	ByteBuffer payload = buffer.duplicate();
+	payload.position(position + ENTRY_HEADER_SIZE);
+	payload.put(bytes);
+	buffer.putInt(position + 4, checksum(crc, buffer, position + 8, 4 + bytes.length));
+	// the length is written last: it makes the entry visible
+	buffer.putInt(position, bytes.length);
+	active.end = position + size;
+	lastUpdateId = updateId;
+	if (force) {
+	    buffer.force();
+	}
+    }
+
+    /**
+     * Appends the raw JSON of an update to the journal.
+     * 
+     * @param update The update.
+     * @param json The raw JSON of the update.
+     * 
+     * @throws MargeletException If the entry is larger than a segment, if
+     *             the journal is closed, or if a new segment cannot be
+     *             created.
+     */
+    public void append(Update update, String json) {
+	Preconditions.checkNotNull(update, "Parameter 'update' cannot be null");
+	append(update.getUpdateId(), json);
+    }
+
+    /**
+     * Records that the unprocessed entries up to the entry of the given
+     * update, inclusive, were processed, and deletes the segments whose
+     * entries were all processed.
+     * 
+     * @param updateId The id of the last processed update.
+     * 
+     * @return <code>true</code> if the checkpoint moved, <code>false</code>
+     *         if no unprocessed entry has the given update id.
+     * 
+     * @throws MargeletException If the journal is closed.
+     */
+    public synchronized boolean checkpoint(int updateId) {
+	checkNotClosed();
+	Segment segment = segments.get(cursorSegment);
+	int position = cursorOffset;
+	while (segment != null) {
+	    while (position < segment.end) {
+		int id = segment.buffer.getInt(position + 8);
+		position += ENTRY_HEADER_SIZE + segment.buffer.getInt(position);
+		if (id == updateId) {
+		    writeCheckpoint(segment.sequence, position);
+		    return true;
+		}
+	    }
+	    segment = next(segment);
+	    position = SEGMENT_HEADER_SIZE;
+	}
+	return false;
+    }
+
+    /**
+     * Hands the unprocessed entries to a consumer, in batches, in the order
+     * they were appended. The checkpoint moves past each batch once the
+     * consumer returns, so the entries of a batch whose consumer throws an
+     * exception are replayed again the next time.
+     * 
+     * @param projection Selects the decoded update kinds and message fields.
+     * @param batchSize The maximum number of updates of a batch.
+     * @param consumer Receives each batch of updates.
+     * 
+     * @return The number of replayed updates.
+     * 
+     * @throws MargeletException If the journal is closed, or if an entry
+     *             cannot be decoded.
+     */
+    public synchronized int replay(
+	    UpdateProjection projection,
+	    int batchSize,
+	    Consumer<? super List<Update>> consumer
+    ) {
+	Preconditions.checkNotNull(projection, "Parameter 'projection' cannot be null");
+	Preconditions.checkArgument(batchSize > 0, "Parameter 'batchSize' must be positive");
+	Preconditions.checkNotNull(consumer, "Parameter 'consumer' cannot be null");
+	checkNotClosed();
+	TypeAdapter<Update> updateAdapter = GsonFactory.updateAdapter(configuration, projection);
+	int count = 0;
+	List<Update> batch = new ArrayList<>();
+	Segment segment = segments.get(cursorSegment);
+	int position = cursorOffset;
+	while (segment != null) {
+	    while (position < segment.end) {
+		int length = segment.buffer.getInt(position);
+		batch.add(decode(updateAdapter, segment.buffer, position + ENTRY_HEADER_SIZE, length));
+		position += ENTRY_HEADER_SIZE + length;
+		if (batch.size() == batchSize) {
+		    consumer.accept(Collections.unmodifiableList(batch));
+		    count += batch.size();
+		    batch = new ArrayList<>();
+		    writeCheckpoint(segment.sequence, position);
+		}
+	    }
+	    if (!batch.isEmpty() && next(segment) == null) {
+		consumer.accept(Collections.unmodifiableList(batch));
+		count += batch.size();
+		batch = new ArrayList<>();
+		writeCheckpoint(segment.sequence, position);
+	    }
+	    segment = next(segment);
+	    position = SEGMENT_HEADER_SIZE;
+	}
+	return count;
+    }
+
+    /**
+     * Retrieves the id of the last appended update, including the ones
+     * recovered when the journal was opened.
+     * 
+     * @return The update id, or <code>0</code> if the journal is empty.
+     */
+    public synchronized int getLastUpdateId() {
+	return lastUpdateId;
+    }
+
+    /**
+     * Indicates if the journal has unprocessed entries.
+     * 
+     * @return <code>true</code> if some entry was not processed.
+     */
+    public synchronized boolean hasUnprocessed() {
+	Segment segment = segments.get(cursorSegment);
+	return segment != null && (cursorOffset < segment.end || segment != active);
+    }
+
+    /**
+     * Retrieves the number of segment files of the journal.
+     * 
+     * @return The number of segments.
+     */
+    public synchronized int getSegmentCount() {
+	return segments.size();
+    }
+
+    /**
+     * Closes the journal, flushing its files to the storage device. The
+     * journal can be opened again with a new builder.
+     */
+    @Override
+    public synchronized void close() {
+	if (closed) {
+	    return;
+	}
+	closed = true;
+	active.buffer.force();
+	checkpointBuffer.force();
+	segments.clear();
+    }
+
+    @SuppressWarnings("javadoc")
+    private void checkNotClosed() {
+	if (closed) {
+	    throw new MargeletException("The update journal is closed");
+	}
+    }
+
+    /**
+     * Starts a new segment after the active one.
+     * 
+     * @throws MargeletException If the segment cannot be created.
+     */
+    private void roll() {
+	active.buffer.force();
+	try {
+	    active = createSegment(active.sequence + 1);
+	} catch (IOException e) {
+	    throw new MargeletException("Failed to create a journal segment", e);
+	}
+	segments.put(active.sequence, active);
+    }
+
+    /**
+     * Writes the checkpoint, and deletes the segments whose entries were all
+     * processed.
+     * 
+     * @param sequence The segment of the first unprocessed entry.
+     * @param offset The offset of the first unprocessed entry.
+     */
+    private void writeCheckpoint(long sequence, int offset) {
+	Segment segment = segments.get(sequence);
+	while (segment != active && offset >= segment.end) {
+	    segment = next(segment);
+	    offset = SEGMENT_HEADER_SIZE;
+	}
+	cursorSegment = segment.sequence;
+	cursorOffset = offset;
+	checkpointGeneration++;
+	int slot = (int) (checkpointGeneration & 1) * CHECKPOINT_SLOT_SIZE;
+	checkpointBuffer.putLong(slot, checkpointGeneration);
+	checkpointBuffer.putLong(slot + 8, cursorSegment);
+	checkpointBuffer.putInt(slot + 16, cursorOffset);
+	checkpointBuffer.putInt(slot + 20, checksum(crc, checkpointBuffer, slot, 20));
+	if (force) {
+	    checkpointBuffer.force();
+	}
+	compact();
+    }
+
+    /**
+     * Deletes the segments before the one of the first unprocessed entry. A
+     * segment that cannot be deleted is kept, and deleted by a later
+     * compaction.
+     */
+    private void compact() {
+	while (segments.firstKey() < cursorSegment) {
+	    Segment segment = segments.firstEntry().getValue();
+	    try {
+		Files.deleteIfExists(segment.path);
+	    } catch (IOException e) {
+		return;
+	    }
+	    segments.pollFirstEntry();
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private Segment next(Segment segment) {
+	Map.Entry<Long, Segment> entry = segments.higherEntry(segment.sequence);
+	return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * Opens the existing segments, finding the valid entries of each one,
+     * and maps the last one for writing.
+     * 
+     * @throws IOException If a segment cannot be read.
+     */
+    private void recoverSegments() throws IOException {
+	List<Path> paths = segmentPaths(directory);
+	for (int i = 0; i < paths.size(); i++) {
+	    Path path = paths.get(i);
+	    boolean last = i == paths.size() - 1;
+	    MappedByteBuffer buffer = map(path, last ? Math.max(segmentSize, Files.size(path)) : Files.size(path), last);
+	    if (last && buffer.getInt(0) == 0) {
+		// a crash interrupted the creation of the segment
+		buffer.putInt(0, SEGMENT_MAGIC);
+	    }
+	    if (buffer.capacity() < SEGMENT_HEADER_SIZE || buffer.getInt(0) != SEGMENT_MAGIC) {
+		throw new MargeletException(String.format("Not a journal segment: %s", path));
+	    }
+	    Segment segment = new Segment(sequence(path), path, buffer);
+	    segment.end = scan(crc, buffer);
+	    if (segment.end > SEGMENT_HEADER_SIZE) {
+		lastUpdateId = buffer.getInt(lastEntry(buffer, segment.end) + 8);
+	    }
+	    segments.put(segment.sequence, segment);
+	}
+	if (segments.isEmpty()) {
+	    active = createSegment(0);
+	    segments.put(active.sequence, active);
+	} else {
+	    active = segments.lastEntry().getValue();
+	    if (active.end + 4 <= active.buffer.capacity()) {
+		// clears what a torn entry left behind
+		active.buffer.putInt(active.end, 0);
+	    }
+	}
+    }
+
+    /**
+     * Finds the end of the valid entries of a segment.
+     * 
+     * @param crc Computes the checksums.
+     * @param buffer The segment content.
+     * 
+     * @return The offset after the last valid entry.
+     */
+    private static int scan(CRC32 crc, ByteBuffer buffer) {
+	int position = SEGMENT_HEADER_SIZE;
+	while (position + ENTRY_HEADER_SIZE <= buffer.capacity()) {
+	    int length = buffer.getInt(position);
+	    if (length <= 0
+		    || length > buffer.capacity() - position - ENTRY_HEADER_SIZE
+		    || buffer.getInt(position + 4) != checksum(crc, buffer, position + 8, 4 + length)) {
+		break;
+	    }
+	    position += ENTRY_HEADER_SIZE + length;
+	}
+	return position;
+    }
+
+    /**
+     * Finds the offset of the last entry of a segment.
+     * 
+     * @param buffer The segment content.
+     * @param end The offset after the last valid entry.
+     * 
+     * @return The offset of the last entry.
+     */
+    private static int lastEntry(ByteBuffer buffer, int end) {
+	int position = SEGMENT_HEADER_SIZE;
+	int last = position;
+	while (position < end) {
+	    last = position;
+	    position += ENTRY_HEADER_SIZE + buffer.getInt(position);
+	}
+	return last;
+    }
+
+    /**
+     * Reads the newest valid checkpoint slot. Without a checkpoint, every
+     * entry is unprocessed.
+     */
+    private void recoverCheckpoint() {
+	cursorSegment = segments.firstKey();
+	cursorOffset = SEGMENT_HEADER_SIZE;
+	for (int slot = 0; slot < 2 * CHECKPOINT_SLOT_SIZE; slot += CHECKPOINT_SLOT_SIZE) {
+	    long generation = checkpointBuffer.getLong(slot);
+	    if (generation <= checkpointGeneration
+		    || checkpointBuffer.getInt(slot + 20) != checksum(crc, checkpointBuffer, slot, 20)) {
+		continue;
+	    }
+	    checkpointGeneration = generation;
+	    long sequence = checkpointBuffer.getLong(slot + 8);
+	    int offset = checkpointBuffer.getInt(slot + 16);
+	    if (sequence < segments.firstKey()) {
+		cursorSegment = segments.firstKey();
+		cursorOffset = SEGMENT_HEADER_SIZE;
+	    } else if (segments.containsKey(sequence)) {
+		cursorSegment = sequence;
+		cursorOffset = Math.min(offset, segments.get(sequence).end);
+	    } else {
+		// the checkpoint is past the recovered entries
+		cursorSegment = active.sequence;
+		cursorOffset = active.end;
+	    }
+	}
+    }
+
+    /**
+     * Creates an empty segment, mapped for writing.
+     * 
+     * @param sequence The segment sequence number.
+     * 
+     * @return The segment.
+     * 
+     * @throws IOException If the segment file cannot be created.
+     */
+    private Segment createSegment(long sequence) throws IOException {
+	Path path = directory.resolve(String.format("%020d%s", sequence, SEGMENT_SUFFIX));
+	MappedByteBuffer buffer = map(path, segmentSize, true);
+	buffer.putInt(0, SEGMENT_MAGIC);
+	buffer.putInt(4, 0);
+	Segment segment = new Segment(sequence, path, buffer);
+	segment.end = SEGMENT_HEADER_SIZE;
+	return segment;
+    }
+
+    /**
+     * Computes the CRC32 checksum of a region of a buffer.
+     * 
+     * @param crc Computes the checksum.
+     * @param buffer The buffer.
+     * @param offset The region offset.
+     * @param length The region length.
+     * 
+     * @return The checksum.
+     */
+    private static int checksum(CRC32 crc, ByteBuffer buffer, int offset, int length) {
+	ByteBuffer region = buffer.duplicate();
+	region.limit(offset + length).position(offset);
+	crc.reset();
+	crc.update(region);
+	return (int) crc.getValue();
+    }
+
+    /**
+     * Decodes the update of an entry.
+     * 
+     * @param updateAdapter The update adapter.
+     * @param buffer The segment content.
+     * @param offset The offset of the JSON.
+     * @param length The length of the JSON.
+     * 
+     * @return The update.
+     * 
+     * @throws MargeletException If the JSON cannot be decoded.
+     */
+    private static Update decode(TypeAdapter<Update> updateAdapter, ByteBuffer buffer, int offset, int length) {
+	byte[] bytes = new byte[length];
+	ByteBuffer region = buffer.duplicate();
+	region.position(offset);
+	region.get(bytes);
+	try {
+	    return GsonFactory.decodeUpdate(updateAdapter, new String(bytes, StandardCharsets.UTF_8));
+	} catch (IOException | RuntimeException e) {
+	    throw new MargeletException("Failed to decode a journal entry", e);
+	}
+    }
+
+    /**
+     * Maps a file into memory. The mapping stays valid after the channel is
+     * closed.
+     * 
+     * @param path The file.
+     * @param size The mapped size; the file grows to it if needed.
+     * @param writable Indicates if the mapping is writable.
+     * 
+     * @return The mapped buffer.
+     * 
+     * @throws IOException If the file cannot be mapped.
+     */
+    private static MappedByteBuffer map(Path path, long size, boolean writable) throws IOException {
+	try (FileChannel channel = writable
+		? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+		: FileChannel.open(path, StandardOpenOption.READ)) {
+	    return channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, size);
+	}
+    }
+
+    /**
+     * Lists the segment files of a journal directory, in order.
+     * 
+     * @param directory The journal directory.
+     * 
+     * @return The segment files.
+     * 
+     * @throws IOException If the directory cannot be listed.
+     */
+    private static List<Path> segmentPaths(Path directory) throws IOException {
+	List<Path> paths = new ArrayList<>();
+	try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+	    for (Path path : stream) {
+		paths.add(path);
+	    }
+	}
+	Collections.sort(paths);
+	return paths;
+    }
+
+    @SuppressWarnings("javadoc")
+    private static long sequence(Path path) {
+	String name = path.getFileName().toString();
+	try {
+	    return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+	} catch (NumberFormatException e) {
+	    throw new MargeletException(String.format("Not a journal segment: %s", path), e);
+	}
+    }
+
+    /**
+     * Reads the raw JSON of every valid entry of a journal directory, in the
+     * order they were appended, processed or not. The journal is not opened,
+     * and its checkpoint is ignored, so this method can read a copy of the
+     * journal of a running bot, like a replay tool does.
+     * 
+     * @param directory The journal directory.
+     * @param consumer Receives the raw JSON of each entry.
+     * 
+     * @return The number of read entries.
+     * 
+     * @throws IOException If the journal files cannot be read.
+     * @throws MargeletException If some segment file is not a journal
+     *             segment.
+     */
+    public static int read(Path directory, Consumer<? super String> consumer) throws IOException {
+	Preconditions.checkNotNull(directory, "Parameter 'directory' cannot be null");
+	Preconditions.checkNotNull(consumer, "Parameter 'consumer' cannot be null");
+	CRC32 crc = new CRC32();
+	int count = 0;
+	for (Path path : segmentPaths(directory)) {
+	    MappedByteBuffer buffer = map(path, Files.size(path), false);
+	    if (buffer.capacity() < SEGMENT_HEADER_SIZE || buffer.getInt(0) != SEGMENT_MAGIC) {
+		continue;
+	    }
+	    int end = scan(crc, buffer);
+	    for (int position = SEGMENT_HEADER_SIZE; position < end; count++) {
+		int length = buffer.getInt(position);
+		byte[] bytes = new byte[length];
+		ByteBuffer region = buffer.duplicate();
+		region.position(position + ENTRY_HEADER_SIZE);
+		region.get(bytes);
+		consumer.accept(new String(bytes, StandardCharsets.UTF_8));
+		position += ENTRY_HEADER_SIZE + length;
+	    }
+	}
+	return count;
+    }
+
+    /**
+     * Creates a builder of a journal kept in the given directory.
+     * 
+     * @param directory The journal directory. It is created if needed.
+     * 
+     * @return The builder.
+     */
+    public static Builder builder(Path directory) {
+	Preconditions.checkNotNull(directory, "Parameter 'directory' cannot be null");
+	return new Builder(directory);
+    }
+
+    /**
+     * A segment file of the journal.
+     * 
+     * @author Welyab Paula
+     */
+    private static final class Segment {
+
+	@SuppressWarnings("javadoc")
+	private final long sequence;
+
+	@SuppressWarnings("javadoc")
+	private final Path path;
+
+	@SuppressWarnings("javadoc")
+	private final MappedByteBuffer buffer;
+
+	/**
+	 * The offset after the last entry.
+	 */
+	private int end;
+
+	@SuppressWarnings("javadoc")
+	private Segment(long sequence, Path path, MappedByteBuffer buffer) {
+	    this.sequence = sequence;
+	    this.path = path;
+	    this.buffer = buffer;
+	}
+    }
+
+    /**
+     * A builder for <code>UpdateJournal</code> objects.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	private final Path directory;
+
+	private int segmentSize = 16 * 1024 * 1024;
+
+	private boolean force;
+
+	private Configuration configuration = Configuration.empty();
+
+	private Builder(Path directory) {
+	    this.directory = directory;
+	}
+
+	/**
+	 * Adjusts the size of segment files. A larger segment holds more
+	 * entries before a new one is created; a segment is deleted only
+	 * when all its entries were processed. Default: 16 MiB.
+	 * 
+	 * @param segmentSize The segment size, in bytes.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder segmentSize(int segmentSize) {
+	    Preconditions.checkArgument(
+		    segmentSize >= 4096,
+		    "Parameter 'segmentSize' must be at least 4096"
+	    );
+	    this.segmentSize = segmentSize;
+	    return this;
+	}
+
+	/**
+	 * Indicates if each write is flushed to the storage device, so the
+	 * journal survives a crash of the operating system. Default:
+	 * <code>false</code>, the journal survives a crash of the process.
+	 * 
+	 * @param force <code>true</code> to flush each write.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder force(boolean force) {
+	    this.force = force;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the configuration used to decode replayed updates.
+	 * Default: the empty configuration.
+	 * 
+	 * @param configuration The configuration.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder configuration(Configuration configuration) {
+	    Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	    this.configuration = configuration;
+	    return this;
+	}
+
+	/**
+	 * Opens the journal, recovering the entries and the checkpoint of a
+	 * previous run.
+	 * 
+	 * @return The journal.
+	 * 
+	 * @throws IOException If the journal files cannot be read or
+	 *             created.
+	 * @throws MargeletException If some file of the journal directory is
+	 *             not a journal segment.
+	 */
+	public UpdateJournal build() throws IOException {
+	    return new UpdateJournal(this);
+	}
+    }
+}
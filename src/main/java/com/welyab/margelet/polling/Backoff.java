@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.polling;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter, used to space retries after transient
+ * failures.
+ * 
+ * <p>
+ * Each delay doubles the previous one, up to a maximum. Delays are randomized
+ * to the range <code>[delay / 2, delay]</code>, so many clients failing at
+ * the same time do not retry in lockstep.
+ * 
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Welyab Paula
+ */
+final class Backoff {
+
+    @SuppressWarnings("javadoc")
+    private final long minDelay;
+
+    @SuppressWarnings("javadoc")
+    private final long maxDelay;
+
+    /**
+     * The delay, before randomization, of the next retry.
+     */
+    private long delay;
+
+    /**
+     * Creates a new backoff.
+     * 
+     * @param minDelay The delay of the first retry, in milliseconds.
+     * @param maxDelay The maximum delay, in milliseconds.
+     */
+    Backoff(long minDelay, long maxDelay) {
+	this.minDelay = minDelay;
+	this.maxDelay = maxDelay;
+	this.delay = minDelay;
+    }
+
+    /**
+     * Computes the delay of the next retry, and doubles the following one.
+     * 
+     * @param atLeast The minimum delay, in milliseconds, like the one required
+     *            by the flood control of Telegram services.
+     * 
+     * @return The delay, in milliseconds.
+     */
+    long next(long atLeast) {
+	long current = delay;
+	delay = Math.min(maxDelay, delay * 2);
+	long jittered = current / 2 + ThreadLocalRandom.current().nextLong(current / 2 + 1);
+	return Math.max(jittered, atLeast);
+    }
+
+    /**
+     * Restarts from the minimum delay, after a successful attempt.
+     */
+    void reset() {
+	delay = minDelay;
+    }
+}
@@ -0,0 +1,892 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.polling;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.welyab.margelet.Margelet;
+import com.welyab.margelet.TelegramApiException;
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.journal.UpdateJournal;
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.UpdateType;
+
+/**
+ * A long polling engine built on {@link Margelet#getUpdates(ImmutableMap)}.
+ * 
+ * <p>
+ * The poller runs a dedicated thread that repeatedly calls
+ * <code>getUpdates</code> and hands each non empty batch of updates to a
+ * consumer, in the order they are received. It takes care of:
+ * <ul>
+ * <li>offset tracking: once a batch is handled, the next request confirms it
+ * by sending <code>max(update_id) + 1</code> as offset. Updates are confirmed
+ * only after the consumer returns, so an update is lost only if the consumer
+ * itself loses it. When the poller is closed, the last batch is confirmed
+ * before the thread ends;</li>
+ * <li>transient failures: network errors, server errors and flood control
+ * are reported to the error handler and retried with exponential backoff,
+ * honoring the <code>retry_after</code> informed by Telegram services;</li>
+ * <li>prompt shutdown: {@link #close()} aborts the in-flight long poll
+ * instead of waiting for its timeout.</li>
+ * </ul>
+ * 
+ * <p>
+ * A batch whose consumer throws an exception is reported to the error
+ * handler and considered handled, so a single bad update does not stop the
+ * bot.
+ * 
+ * <p>
+ * <b>Pipelining.</b> By default, the next <code>getUpdates</code> request is
+ * only issued after the consumer handles the current batch, so handler
+ * latency caps the ingest throughput. With a
+ * {@link Builder#pipelineDepth(int) pipeline depth} greater than one, batches
+ * are handed to the consumer by a second thread, and the polling thread keeps
+ * fetching, with the offset advanced past the batches already fetched, while
+ * up to <code>depth</code> batches are fetched but not yet handled. The
+ * delivery contract is:
+ * <ul>
+ * <li>while the poller runs, every received update is handed to the consumer
+ * once, in order. On {@link #close()}, fetched batches are handed to the
+ * consumer before the thread ends;</li>
+ * <li>Telegram services forget an update once a request with a greater offset
+ * is sent. Without pipelining, that happens only after the consumer returned,
+ * so updates are delivered at least once even if the process crashes. With
+ * pipelining, it happens while earlier batches may still be waiting or being
+ * handled: if the process crashes, the updates with ids between
+ * {@link #getCommittedOffset()} (inclusive) and {@link #getOffset()}
+ * (exclusive) are lost, unless the consumer records them before they are
+ * fetched past.</li>
+ * </ul>
+ * 
+ * <p>
+ * <b>Journaling.</b> With an {@link Builder#journal(UpdateJournal) update
+ * journal}, the raw JSON of each update is appended to the journal as it is
+ * received, before the next request confirms it, and the journal checkpoint
+ * moves past each batch once the consumer returns. When started, the poller
+ * first hands the unprocessed entries of the journal, left by a crash, to the
+ * consumer, and then resumes polling after the last journaled update. This
+ * closes the crash window of pipelining, and of consumers that hand updates
+ * to other threads, as long as they return only once the updates are
+ * processed.
+ * 
+ * <pre>
+ * UpdatePoller poller = UpdatePoller.builder(margelet, updates -&gt; ...)
+ * 	.allowedUpdates(UpdateType.MESSAGE, UpdateType.CALLBACK_QUERY)
+ * 	.build();
+ * poller.start();
+ * ...
+ * poller.close();
+ * </pre>
+ * 
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Welyab Paula
+ */
+public class UpdatePoller implements Closeable {
+
+    @SuppressWarnings("javadoc")
+    private static final Logger LOGGER = Logger.getLogger(UpdatePoller.class.getName());
+
+    @SuppressWarnings("javadoc")
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY = new ThreadFactoryBuilder()
+	    .setNameFormat("margelet-update-poller-%d")
+	    .build();
+
+    /**
+     * Marks the end of the queued batches.
+     */
+    private static final List<Update> END_OF_BATCHES = new ArrayList<>();
+
+    @SuppressWarnings("javadoc")
+    private final Margelet margelet;
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super List<Update>> consumer;
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Throwable> errorHandler;
+
+    @SuppressWarnings("javadoc")
+    private final UpdateProjection projection;
+
+    /**
+     * The long polling timeout, in seconds.
+     */
+    private final int timeout;
+
+    /**
+     * The maximum number of updates of each batch.
+     */
+    private final int limit;
+
+    /**
+     * The update kinds to be received; <code>null</code> keeps the setting
+     * of the previous <code>getUpdates</code> call.
+     */
+    private final ImmutableList<String> allowedUpdates;
+
+    @SuppressWarnings("javadoc")
+    private final Backoff backoff;
+
+    @SuppressWarnings("javadoc")
+    private final Thread thread;
+
+    /**
+     * Hands batches to the consumer when pipelining; <code>null</code>
+     * otherwise.
+     */
+    private final Thread dispatcherThread;
+
+    /**
+     * The maximum number of batches fetched but not yet handled.
+     */
+    private final int pipelineDepth;
+
+    /**
+     * Records the received updates; <code>null</code> without journaling.
+     */
+    private final UpdateJournal journal;
+
+    /**
+     * One permit for each batch that can still be fetched without exceeding
+     * the pipeline depth.
+     */
+    private final Semaphore pipelinePermits;
+
+    /**
+     * The batches fetched but not yet handed to the consumer, when
+     * pipelining.
+     */
+    private final BlockingQueue<List<Update>> batches = new LinkedBlockingQueue<>();
+
+    @SuppressWarnings("javadoc")
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * Released when the poller is asked to stop; retry delays wait on it.
+     */
+    private final CountDownLatch stopSignal = new CountDownLatch(1);
+
+    /**
+     * Released when the polling thread ends.
+     */
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    /**
+     * The offset of the next request: every update with a lower id was
+     * handed to the consumer.
+     */
+    private volatile int offset;
+
+    /**
+     * The offset sent in the last successful request. Telegram services
+     * forgot every update with a lower id.
+     */
+    private volatile int requestedOffset;
+
+    /**
+     * Every update with a lower id was handled by the consumer.
+     */
+    private volatile int committedOffset;
+
+    /**
+     * The <code>getUpdates</code> request in progress.
+     */
+    private volatile CompletableFuture<?> inFlight;
+
+    @SuppressWarnings("javadoc")
+    private UpdatePoller(Builder builder, ThreadFactory threadFactory) {
+	this.margelet = builder.margelet;
+	this.consumer = builder.consumer;
+	this.errorHandler = builder.errorHandler;
+	this.projection = builder.projection;
+	this.timeout = builder.timeout;
+	this.limit = builder.limit;
+	this.allowedUpdates = allowedUpdates(builder);
+	this.backoff = new Backoff(builder.minBackoff, builder.maxBackoff);
+	this.journal = builder.journal;
+	int offset = builder.offset;
+	if (journal != null && offset == 0 && journal.getLastUpdateId() != 0) {
+	    offset = journal.getLastUpdateId() + 1;
+	}
+	this.offset = offset;
+	this.requestedOffset = offset;
+	this.committedOffset = offset;
+	this.pipelineDepth = builder.pipelineDepth;
+	this.pipelinePermits = new Semaphore(builder.pipelineDepth);
+	this.thread = threadFactory.newThread(this::run);
+	this.dispatcherThread = builder.pipelineDepth > 1 ? threadFactory.newThread(this::dispatchBatches) : null;
+    }
+
+    /**
+     * Starts the polling thread.
+     * 
+     * @throws IllegalStateException If the poller was already started.
+     */
+    public void start() {
+	Preconditions.checkState(started.compareAndSet(false, true), "The poller was already started");
+	if (dispatcherThread != null) {
+	    dispatcherThread.start();
+	}
+	thread.start();
+    }
+
+    /**
+     * Asks the poller to stop, without waiting for it. The in-flight long
+     * poll is aborted; batches already fetched are still handed to the
+     * consumer.
+     */
+    public void stop() {
+	stopSignal.countDown();
+	// wakes the polling thread if it waits for the pipeline
+	pipelinePermits.release(pipelineDepth);
+	CompletableFuture<?> request = inFlight;
+	if (request != null) {
+	    request.cancel(true);
+	}
+	if (!started.getAndSet(true)) {
+	    terminated.countDown();
+	}
+    }
+
+    /**
+     * Waits for the polling thread to end.
+     * 
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * 
+     * @return <code>true</code> if the thread ended, <code>false</code> if
+     *         the timeout elapsed.
+     * 
+     * @throws InterruptedException If the calling thread is interrupted.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+	return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Stops the poller and waits for the polling thread to end, confirming
+     * the handled updates to Telegram services. If called by the consumer,
+     * from the polling thread or, with pipelining, from the dispatcher
+     * thread, it does not wait.
+     */
+    @Override
+    public void close() {
+	stop();
+	Thread current = Thread.currentThread();
+	if (current == thread || current == dispatcherThread) {
+	    return;
+	}
+	boolean interrupted = false;
+	while (true) {
+	    try {
+		terminated.await();
+		break;
+	    } catch (InterruptedException e) {
+		interrupted = true;
+	    }
+	}
+	if (interrupted) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    /**
+     * Indicates if the poller is running: it was started and not stopped.
+     * 
+     * @return <code>true</code> if the poller is running.
+     */
+    public boolean isRunning() {
+	return started.get() && stopSignal.getCount() > 0;
+    }
+
+    /**
+     * Retrieves the offset of the next request. Every update with a lower id
+     * was fetched; without pipelining, it was also handled by the consumer.
+     * 
+     * @return The offset, or <code>0</code> if no update was received yet.
+     */
+    public int getOffset() {
+	return offset;
+    }
+
+    /**
+     * Retrieves the offset below which every update was handled by the
+     * consumer. Without pipelining, it is the same as {@link #getOffset()}.
+     * 
+     * @return The committed offset, or <code>0</code> if no update was
+     *         handled yet.
+     */
+    public int getCommittedOffset() {
+	return committedOffset;
+    }
+
+    /**
+     * The polling loop.
+     */
+    private void run() {
+	try {
+	    if (journal != null) {
+		replay();
+	    }
+	    if (dispatcherThread == null) {
+		pollAndDispatch();
+	    } else {
+		pollAndEnqueue();
+	    }
+	    if (offset != requestedOffset) {
+		confirm();
+	    }
+	} finally {
+	    terminated.countDown();
+	}
+    }
+
+    /**
+     * Hands the unprocessed entries of the journal to the consumer.
+     */
+    private void replay() {
+	try {
+	    journal.replay(projection, limit, this::deliver);
+	} catch (RuntimeException e) {
+	    report(e);
+	}
+    }
+
+    /**
+     * Polls and hands each batch to the consumer in the polling thread.
+     */
+    private void pollAndDispatch() {
+	while (isRunning()) {
+	    List<Update> updates = poll();
+	    if (updates != null && !updates.isEmpty()) {
+		dispatch(updates);
+		offset = nextOffset(updates, offset);
+		committedOffset = offset;
+	    }
+	}
+    }
+
+    /**
+     * Polls and queues each batch to the dispatcher thread, while the
+     * pipeline is not full. Returns once every queued batch was handled.
+     */
+    private void pollAndEnqueue() {
+	try {
+	    while (isRunning()) {
+		pipelinePermits.acquireUninterruptibly();
+		if (!isRunning()) {
+		    break;
+		}
+		List<Update> updates = poll();
+		if (updates == null || updates.isEmpty()) {
+		    pipelinePermits.release();
+		    continue;
+		}
+		offset = nextOffset(updates, offset);
+		batches.add(updates);
+	    }
+	} finally {
+	    batches.add(END_OF_BATCHES);
+	    joinUninterruptibly(dispatcherThread);
+	}
+    }
+
+    /**
+     * The dispatcher loop: hands queued batches to the consumer until the end
+     * marker.
+     */
+    private void dispatchBatches() {
+	while (true) {
+	    List<Update> updates;
+	    try {
+		updates = batches.take();
+	    } catch (InterruptedException e) {
+		// only the end marker stops the dispatcher, so no batch is lost
+		continue;
+	    }
+	    if (updates == END_OF_BATCHES) {
+		return;
+	    }
+	    dispatch(updates);
+	    committedOffset = nextOffset(updates, committedOffset);
+	    pipelinePermits.release();
+	}
+    }
+
+    /**
+     * Performs a <code>getUpdates</code> request.
+     * 
+     * @return The received updates, or <code>null</code> if the request
+     *         failed or was aborted.
+     */
+    private List<Update> poll() {
+	Response<List<Update>> response;
+	int requested = offset;
+	try {
+	    CompletableFuture<Response<List<Update>>> request = journal == null
+		    ? margelet.getUpdatesAsync(parameters(requested, timeout, limit), projection)
+		    : margelet.getUpdatesAsync(
+			    parameters(requested, timeout, limit),
+			    projection,
+			    (update, json) -> journal(update, json, requested)
+		    );
+	    inFlight = request;
+	    if (!isRunning()) {
+		request.cancel(true);
+		return null;
+	    }
+	    response = request.get();
+	    if (response.isOk()) {
+		requestedOffset = requested;
+	    }
+	} catch (CancellationException e) {
+	    return null;
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    stop();
+	    return null;
+	} catch (ExecutionException e) {
+	    failed(e.getCause());
+	    return null;
+	} catch (RuntimeException e) {
+	    failed(e);
+	    return null;
+	} finally {
+	    inFlight = null;
+	}
+	if (!response.isOk()) {
+	    failed(new TelegramApiException(response));
+	    return null;
+	}
+	backoff.reset();
+	return response.getResult();
+    }
+
+    /**
+     * Appends a received update to the journal, unless it was already
+     * appended by a request that failed or was aborted: Telegram services
+     * send such updates again.
+     * 
+     * @param update The update.
+     * @param json The raw JSON of the update.
+     * @param requested The offset of the request.
+     */
+    private void journal(Update update, String json, int requested) {
+	int updateId = update.getUpdateId();
+	if (updateId < requested || updateId > journal.getLastUpdateId()) {
+	    journal.append(update, json);
+	}
+    }
+
+    /**
+     * Hands a batch of updates to the consumer and, with journaling, moves
+     * the journal checkpoint past it.
+     * 
+     * @param updates The updates.
+     */
+    private void dispatch(List<Update> updates) {
+	deliver(updates);
+	if (journal != null) {
+	    try {
+		journal.checkpoint(updates.get(updates.size() - 1).getUpdateId());
+	    } catch (RuntimeException e) {
+		report(e);
+	    }
+	}
+    }
+
+    /**
+     * Hands a batch of updates to the consumer.
+     * 
+     * @param updates The updates.
+     */
+    private void deliver(List<Update> updates) {
+	try {
+	    consumer.accept(Collections.unmodifiableList(updates));
+	} catch (RuntimeException e) {
+	    report(e);
+	}
+    }
+
+    /**
+     * Confirms the handled updates, with a request that returns immediately.
+     */
+    private void confirm() {
+	try {
+	    Response<List<Update>> response = margelet.getUpdates(parameters(offset, 0, 1), projection);
+	    if (!response.isOk()) {
+		report(new TelegramApiException(response));
+	    }
+	} catch (RuntimeException e) {
+	    report(e);
+	}
+    }
+
+    /**
+     * Reports a failed request and waits before the next one.
+     * 
+     * @param failure The failure.
+     */
+    private void failed(Throwable failure) {
+	report(failure);
+	long atLeast = failure instanceof TelegramApiException
+		? TimeUnit.SECONDS.toMillis(((TelegramApiException) failure).getRetryAfter())
+		: 0;
+	try {
+	    stopSignal.await(backoff.next(atLeast), TimeUnit.MILLISECONDS);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    stop();
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private void report(Throwable failure) {
+	try {
+	    errorHandler.accept(failure);
+	} catch (RuntimeException e) {
+	    LOGGER.log(Level.WARNING, "The error handler of the update poller failed", e);
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private static void joinUninterruptibly(Thread thread) {
+	boolean interrupted = false;
+	while (true) {
+	    try {
+		thread.join();
+		break;
+	    } catch (InterruptedException e) {
+		interrupted = true;
+	    }
+	}
+	if (interrupted) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    /**
+     * Creates the parameters of a <code>getUpdates</code> request.
+     * 
+     * @param offset The offset.
+     * @param timeout The long polling timeout, in seconds.
+     * @param limit The maximum number of updates.
+     * 
+     * @return The parameters.
+     */
+    private ImmutableMap<String, Object> parameters(int offset, int timeout, int limit) {
+	ImmutableMap.Builder<String, Object> parameters = ImmutableMap.builder();
+	if (offset != 0) {
+	    parameters.put("offset", offset);
+	}
+	parameters.put("timeout", timeout);
+	parameters.put("limit", limit);
+	if (allowedUpdates != null) {
+	    parameters.put("allowed_updates", allowedUpdates);
+	}
+	return parameters.build();
+    }
+
+    /**
+     * Computes the offset that confirms the given updates.
+     * 
+     * @param updates The updates.
+     * @param offset The current offset.
+     * 
+     * @return The offset.
+     */
+    static int nextOffset(List<Update> updates, int offset) {
+	int next = offset;
+	for (Update update : updates) {
+	    if (update.hasUpdateId() && update.getUpdateId() >= next) {
+		next = update.getUpdateId() + 1;
+	    }
+	}
+	return next;
+    }
+
+    /**
+     * Resolves the update kinds to be received: the ones set in the builder
+     * or, if none, the ones selected by the projection.
+     * 
+     * @param builder The builder.
+     * 
+     * @return The field names of the update kinds, or <code>null</code>.
+     */
+    private static ImmutableList<String> allowedUpdates(Builder builder) {
+	List<UpdateType> types = builder.allowedUpdates != null
+		? builder.allowedUpdates
+		: builder.projection.getUpdateTypes().asList();
+	if (types.isEmpty()) {
+	    return builder.allowedUpdates != null ? ImmutableList.of() : null;
+	}
+	ImmutableList.Builder<String> names = ImmutableList.builder();
+	for (UpdateType type : types) {
+	    names.add(type.getFieldName());
+	}
+	return names.build();
+    }
+
+    /**
+     * Creates a builder of pollers.
+     * 
+     * @param margelet The client used to call <code>getUpdates</code>.
+     * @param consumer Receives each batch of updates, in the polling thread
+     *            or, with {@link Builder#pipelineDepth(int) pipelining}, in
+     *            the dispatcher thread.
+     * 
+     * @return The builder.
+     */
+    public static Builder builder(Margelet margelet, Consumer<? super List<Update>> consumer) {
+	Preconditions.checkNotNull(margelet, "Parameter 'margelet' cannot be null");
+	Preconditions.checkNotNull(consumer, "Parameter 'consumer' cannot be null");
+	return new Builder(margelet, consumer);
+    }
+
+    /**
+     * A builder for <code>UpdatePoller</code> objects.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	private final Margelet margelet;
+
+	private final Consumer<? super List<Update>> consumer;
+
+	private Consumer<? super Throwable> errorHandler = failure -> LOGGER.log(
+		Level.WARNING,
+		"Update polling failed",
+		failure
+	);
+
+	private UpdateProjection projection = UpdateProjection.all();
+
+	private ImmutableList<UpdateType> allowedUpdates;
+
+	private int timeout = 30;
+
+	private int limit = 100;
+
+	private int offset;
+
+	private long minBackoff = 500;
+
+	private long maxBackoff = 30_000;
+
+	private int pipelineDepth = 1;
+
+	private UpdateJournal journal;
+
+	private ThreadFactory threadFactory;
+
+	private Builder(Margelet margelet, Consumer<? super List<Update>> consumer) {
+	    this.margelet = margelet;
+	    this.consumer = consumer;
+	}
+
+	/**
+	 * Adjusts the long polling timeout. Default: 30 seconds.
+	 * 
+	 * @param timeout The timeout, in seconds. Zero means short polling,
+	 *            which should be used for tests only.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder timeout(int timeout) {
+	    Preconditions.checkArgument(timeout >= 0, "Parameter 'timeout' cannot be negative");
+	    this.timeout = timeout;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the maximum number of updates of each batch. Default: 100.
+	 * 
+	 * @param limit The limit, between 1 and 100.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder limit(int limit) {
+	    Preconditions.checkArgument(limit >= 1 && limit <= 100, "Parameter 'limit' must be between 1 and 100");
+	    this.limit = limit;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the update kinds to be received. By default, the kinds
+	 * selected by the {@link #projection(UpdateProjection) projection} are
+	 * requested; if it selects all kinds, the setting of the previous
+	 * <code>getUpdates</code> call is kept, as documented by Telegram. An
+	 * empty list requests all kinds.
+	 * 
+	 * @param allowedUpdates The update kinds.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder allowedUpdates(UpdateType... allowedUpdates) {
+	    Preconditions.checkNotNull(allowedUpdates, "Parameter 'allowedUpdates' cannot be null");
+	    this.allowedUpdates = ImmutableList.copyOf(Arrays.asList(allowedUpdates));
+	    return this;
+	}
+
+	/**
+	 * Adjusts the parts of the updates that are decoded. Default:
+	 * {@link UpdateProjection#all()}.
+	 * 
+	 * @param projection The projection.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder projection(UpdateProjection projection) {
+	    Preconditions.checkNotNull(projection, "Parameter 'projection' cannot be null");
+	    this.projection = projection;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the offset of the first request, like one saved by a previous
+	 * run with {@link UpdatePoller#getOffset()}. Default: <code>0</code>,
+	 * which receives the oldest unconfirmed update or, with a journal, the
+	 * update after the last journaled one.
+	 * 
+	 * @param offset The offset.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder offset(int offset) {
+	    this.offset = offset;
+	    return this;
+	}
+
+	/**
+	 * Enables journaling: received updates are recorded in the given journal
+	 * before they are confirmed, and the unprocessed ones are handed to the
+	 * consumer again when the poller starts. The poller does not close the
+	 * journal. Default: no journal.
+	 * 
+	 * @param journal The update journal.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder journal(UpdateJournal journal) {
+	    Preconditions.checkNotNull(journal, "Parameter 'journal' cannot be null");
+	    this.journal = journal;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the delays between retries after failures. Default: from 500
+	 * milliseconds up to 30 seconds.
+	 * 
+	 * @param minBackoff The delay of the first retry.
+	 * @param maxBackoff The maximum delay.
+	 * @param unit The unit of the delays.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder backoff(long minBackoff, long maxBackoff, TimeUnit unit) {
+	    Preconditions.checkNotNull(unit, "Parameter 'unit' cannot be null");
+	    Preconditions.checkArgument(minBackoff > 0, "Parameter 'minBackoff' must be positive");
+	    Preconditions.checkArgument(maxBackoff >= minBackoff, "Parameter 'maxBackoff' cannot be less than 'minBackoff'");
+	    this.minBackoff = unit.toMillis(minBackoff);
+	    this.maxBackoff = unit.toMillis(maxBackoff);
+	    return this;
+	}
+
+	/**
+	 * Adjusts the maximum number of batches fetched but not yet handled by
+	 * the consumer. With a depth greater than one, the next
+	 * <code>getUpdates</code> request is issued while earlier batches are
+	 * handled; see the delivery contract in {@link UpdatePoller}. Default:
+	 * <code>1</code>, no pipelining.
+	 * 
+	 * @param pipelineDepth The pipeline depth.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder pipelineDepth(int pipelineDepth) {
+	    Preconditions.checkArgument(pipelineDepth >= 1, "Parameter 'pipelineDepth' must be positive");
+	    this.pipelineDepth = pipelineDepth;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the handler of failures: failed requests and exceptions thrown
+	 * by the consumer. Default: logs the failure with
+	 * <code>java.util.logging</code>.
+	 * 
+	 * @param errorHandler The error handler. It runs in the polling thread,
+	 *            except for exceptions thrown by the consumer with
+	 *            pipelining, which are reported in the dispatcher thread.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder errorHandler(Consumer<? super Throwable> errorHandler) {
+	    Preconditions.checkNotNull(errorHandler, "Parameter 'errorHandler' cannot be null");
+	    this.errorHandler = errorHandler;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the factory of the polling thread and, with pipelining, of the
+	 * dispatcher thread. Default: non daemon threads
+	 * named <code>"margelet-update-poller-N"</code>.
+	 * 
+	 * @param threadFactory The thread factory.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder threadFactory(ThreadFactory threadFactory) {
+	    Preconditions.checkNotNull(threadFactory, "Parameter 'threadFactory' cannot be null");
+	    this.threadFactory = threadFactory;
+	    return this;
+	}
+
+	@SuppressWarnings("javadoc")
+	public UpdatePoller build() {
+	    return new UpdatePoller(
+		    this,
+		    threadFactory != null ? threadFactory : DEFAULT_THREAD_FACTORY
+	    );
+	}
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.replay;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A histogram of latencies, in nanoseconds, with a fixed memory footprint.
+ * 
+ * <p>
+ * Values are counted in log-linear buckets: each power of two is split in 32
+ * buckets, so a percentile is reported with a relative error below 1/32
+ * (about 3%), from nanoseconds up to hundreds of years, in 1888 counters.
+ * Recording a value is a few arithmetic instructions and an atomic
+ * increment, with no allocation, so handlers can be measured while they run
+ * at full speed.
+ * 
+ * <p>
+ * This class is thread safe. Percentiles read while values are recorded
+ * may not account for the values being recorded.
+ * 
+ * @author Welyab Paula
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits of a value, after its highest one bit, that select
+     * its bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * The number of buckets of each power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of buckets: values below {@link #SUB_BUCKETS} are counted
+     * exactly, followed by the buckets of the powers of two up to
+     * <code>2<sup>62</sup></code>.
+     */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    @SuppressWarnings("javadoc")
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    @SuppressWarnings("javadoc")
+    private final AtomicLong count = new AtomicLong();
+
+    @SuppressWarnings("javadoc")
+    private final AtomicLong total = new AtomicLong();
+
+    @SuppressWarnings("javadoc")
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency.
+     * 
+     * @param nanos The latency, in nanoseconds. Negative values are recorded
+     *            as zero.
+     */
+    public void record(long nanos) {
+	long value = Math.max(nanos, 0);
+	counts.incrementAndGet(bucket(value));
+	count.incrementAndGet();
+	total.addAndGet(value);
+	long current;
+	while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+	    // retries until the maximum is not lower than the value
+	}
+    }
+
+    /**
+     * Retrieves the number of recorded latencies.
+     * 
+     * @return The number of latencies.
+     */
+    public long getCount() {
+	return count.get();
+    }
+
+    /**
+     * Retrieves the highest recorded latency.
+     * 
+     * @return The highest latency, in nanoseconds, or <code>0</code> if no
+     *         latency was recorded.
+     */
+    public long getMax() {
+	return max.get();
+    }
+
+    /**
+     * Retrieves the mean of the recorded latencies.
+     * 
+     * @return The mean latency, in nanoseconds, or <code>0</code> if no
+     *         latency was recorded.
+     */
+    public double getMean() {
+	long n = count.get();
+	return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * Retrieves a percentile of the recorded latencies: the latency that the
+     * given percentage of the recorded latencies do not exceed.
+     * 
+     * @param percentile The percentile, from <code>0</code> to
+     *            <code>100</code>, like <code>99.9</code>.
+     * 
+     * @return The latency, in nanoseconds, rounded up to the end of its
+     *         bucket, or <code>0</code> if no latency was recorded.
+     */
+    public long getPercentile(double percentile) {
+	Preconditions.checkArgument(
+		percentile >= 0 && percentile <= 100,
+		"Parameter 'percentile' must be between 0 and 100"
+	);
+	long n = count.get();
+	if (n == 0) {
+	    return 0;
+	}
+	long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+	long seen = 0;
+	for (int i = 0; i < BUCKETS; i++) {
+	    seen += counts.get(i);
+	    if (seen >= rank) {
+		return Math.min(highestValue(i), max.get());
+	    }
+	}
+	return max.get();
+    }
+
+    @Override
+    public String toString() {
+	return String.format(
+		"count=%d mean=%s p50=%s p90=%s p99=%s p99.9=%s max=%s",
+		getCount(),
+		format((long) getMean()),
+		format(getPercentile(50)),
+		format(getPercentile(90)),
+		format(getPercentile(99)),
+		format(getPercentile(99.9)),
+		format(getMax())
+	);
+    }
+
+    /**
+     * Formats a latency in microseconds.
+     * 
+     * @param nanos The latency, in nanoseconds.
+     * 
+     * @return The formatted latency.
+     */
+    private static String format(long nanos) {
+	return String.format("%.1fus", nanos / (double) TimeUnit.MICROSECONDS.toNanos(1));
+    }
+
+    /**
+     * Finds the bucket of a value.
+     * 
+     * @param value The value, not negative.
+     * 
+     * @return The bucket index.
+     */
+    private static int bucket(long value) {
+	if (value < SUB_BUCKETS) {
+	    return (int) value;
+	}
+	int exponent = 63 - Long.numberOfLeadingZeros(value);
+	int shift = exponent - SUB_BUCKET_BITS;
+	return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Finds the highest value counted by a bucket.
+     * 
+     * @param bucket The bucket index.
+     * 
+     * @return The highest value.
+     */
+    private static long highestValue(int bucket) {
+	if (bucket < SUB_BUCKETS) {
+	    return bucket;
+	}
+	int shift = bucket / SUB_BUCKETS - 1;
+	long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+	return lowest + (1L << shift) - 1;
+    }
+}
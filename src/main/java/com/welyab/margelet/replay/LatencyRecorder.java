@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.replay;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import com.welyab.margelet.dispatch.CommandHandler;
+
+/**
+ * A set of named {@link LatencyHistogram latency histograms}, one for each
+ * measured handler.
+ * 
+ * <p>
+ * Handlers are measured by wrapping them before they are registered in a
+ * router:
+ * 
+ * <pre>
+ * LatencyRecorder latencies = new LatencyRecorder();
+ * UpdateRouter router = UpdateRouter.builder()
+ * 	.onMessage(latencies.wrap("message", message -&gt; ...))
+ * 	.onCallbackQuery(latencies.wrap("callback", query -&gt; ...))
+ * 	.build();
+ * </pre>
+ * 
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Welyab Paula
+ */
+public class LatencyRecorder {
+
+    /**
+     * The histograms, by name.
+     */
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+    /**
+     * Retrieves the histogram with the given name, creating it if needed.
+     * 
+     * @param name The histogram name.
+     * 
+     * @return The histogram.
+     */
+    public LatencyHistogram getHistogram(String name) {
+	Preconditions.checkNotNull(name, "Parameter 'name' cannot be null");
+	return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Retrieves all histograms, sorted by name.
+     * 
+     * @return The histograms, by name.
+     */
+    public ImmutableMap<String, LatencyHistogram> getHistograms() {
+	return ImmutableMap.copyOf(histograms);
+    }
+
+    /**
+     * Records a latency in the histogram with the given name.
+     * 
+     * @param name The histogram name.
+     * @param nanos The latency, in nanoseconds.
+     */
+    public void record(String name, long nanos) {
+	getHistogram(name).record(nanos);
+    }
+
+    /**
+     * Wraps a handler, recording the latency of each call in the histogram
+     * with the given name, even if the handler throws an exception.
+     * 
+     * @param name The histogram name.
+     * @param handler The handler.
+     * 
+     * @return The measured handler.
+     */
+    public <T> Consumer<T> wrap(String name, Consumer<T> handler) {
+	Preconditions.checkNotNull(handler, "Parameter 'handler' cannot be null");
+	LatencyHistogram histogram = getHistogram(name);
+	return value -> {
+	    long start = System.nanoTime();
+	    try {
+		handler.accept(value);
+	    } finally {
+		histogram.record(System.nanoTime() - start);
+	    }
+	};
+    }
+
+    /**
+     * Wraps a command handler, recording the latency of each call in the
+     * histogram with the given name, even if the handler throws an
+     * exception.
+     * 
+     * @param name The histogram name.
+     * @param handler The command handler.
+     * 
+     * @return The measured command handler.
+     */
+    public CommandHandler wrap(String name, CommandHandler handler) {
+	Preconditions.checkNotNull(handler, "Parameter 'handler' cannot be null");
+	LatencyHistogram histogram = getHistogram(name);
+	return (message, arguments) -> {
+	    long start = System.nanoTime();
+	    try {
+		handler.handle(message, arguments);
+	    } finally {
+		histogram.record(System.nanoTime() - start);
+	    }
+	};
+    }
+
+    @Override
+    public String toString() {
+	StringBuilder builder = new StringBuilder();
+	for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+	    builder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+	}
+	return builder.toString();
+    }
+}
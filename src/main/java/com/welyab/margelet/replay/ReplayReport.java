@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.replay;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The outcome of a replay by {@link UpdateReplayer}.
+ * 
+ * <p>
+ * The latencies are read from the latency recorder when requested: with a
+ * consumer that hands updates to other threads, like a dispatcher, close it
+ * before reading them, so every handler call is accounted for.
+ * 
+ * @author Welyab Paula
+ */
+public class ReplayReport {
+
+    @SuppressWarnings("javadoc")
+    private final long updates;
+
+    @SuppressWarnings("javadoc")
+    private final long batches;
+
+    @SuppressWarnings("javadoc")
+    private final long failures;
+
+    @SuppressWarnings("javadoc")
+    private final long elapsedNanos;
+
+    @SuppressWarnings("javadoc")
+    private final LatencyRecorder latencyRecorder;
+
+    @SuppressWarnings("javadoc")
+    ReplayReport(long updates, long batches, long failures, long elapsedNanos, LatencyRecorder latencyRecorder) {
+	this.updates = updates;
+	this.batches = batches;
+	this.failures = failures;
+	this.elapsedNanos = elapsedNanos;
+	this.latencyRecorder = latencyRecorder;
+    }
+
+    /**
+     * Retrieves the number of replayed updates.
+     * 
+     * @return The number of updates.
+     */
+    public long getUpdates() {
+	return updates;
+    }
+
+    /**
+     * Retrieves the number of batches handed to the consumer.
+     * 
+     * @return The number of batches.
+     */
+    public long getBatches() {
+	return batches;
+    }
+
+    /**
+     * Retrieves the number of batches whose consumer threw an exception.
+     * 
+     * @return The number of failed batches.
+     */
+    public long getFailures() {
+	return failures;
+    }
+
+    /**
+     * Retrieves the duration of the replay, including reading and decoding
+     * the updates.
+     * 
+     * @param unit The unit of the duration.
+     * 
+     * @return The duration.
+     */
+    public long getElapsed(TimeUnit unit) {
+	return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Retrieves the replay throughput.
+     * 
+     * @return The number of updates per second.
+     */
+    public double getThroughput() {
+	return elapsedNanos == 0 ? 0 : updates * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Retrieves the latency histograms of the recorder, including the
+     * {@link UpdateReplayer#BATCH_LATENCY batch latency}.
+     * 
+     * @return The histograms, by name.
+     */
+    public ImmutableMap<String, LatencyHistogram> getLatencies() {
+	return latencyRecorder.getHistograms();
+    }
+
+    @Override
+    public String toString() {
+	StringBuilder builder = new StringBuilder(String.format(
+		"%d updates in %d batches (%d failed) in %d ms: %.0f updates/s\n",
+		updates,
+		batches,
+		failures,
+		getElapsed(TimeUnit.MILLISECONDS),
+		getThroughput()
+	));
+	for (Map.Entry<String, LatencyHistogram> entry : getLatencies().entrySet()) {
+	    builder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+	}
+	return builder.toString();
+    }
+}
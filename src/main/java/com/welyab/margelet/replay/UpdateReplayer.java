@@ -0,0 +1,575 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.MargeletException;
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.gson.GsonFactory;
+import com.welyab.margelet.journal.UpdateJournal;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.Update;
+
+/**
+ * Replays recorded updates through a consumer, without contacting Telegram
+ * services, to load test handlers or check a new version of them against
+ * real traffic.
+ * 
+ * <p>
+ * Updates are read from an {@link UpdateJournal update journal} directory, or
+ * from a file of JSON lines, each one holding a <code>getUpdates</code>
+ * response, as returned by Telegram services, or a single update. They are
+ * decoded with the same adapters used by
+ * {@link com.welyab.margelet.Margelet#getUpdates(com.google.common.collect.ImmutableMap, UpdateProjection)
+ * getUpdates}, and handed to the consumer in batches, like the
+ * {@link com.welyab.margelet.polling.UpdatePoller update poller} does, so the
+ * consumer can be the same router or dispatcher used in production.
+ * 
+ * <p>
+ * By default, updates are replayed as fast as the consumer takes them. With a
+ * {@link Builder#speedUp(double) speed-up}, they are replayed at the pace
+ * they were sent, given by the date of their messages, divided by the
+ * speed-up. Updates without a date, like inline queries, are replayed along
+ * with the preceding ones.
+ * 
+ * <p>
+ * The time the consumer takes with each batch is recorded in the
+ * {@link #BATCH_LATENCY} histogram of the {@link Builder#latencyRecorder(LatencyRecorder)
+ * latency recorder}, along with the histograms of the handlers measured by
+ * the same recorder. Without a recorder, each replay records the batch
+ * latencies in a recorder of its own.
+ * 
+ * <pre>
+ * LatencyRecorder latencies = new LatencyRecorder();
+ * UpdateRouter router = UpdateRouter.builder()
+ * 	.onMessage(latencies.wrap("message", message -&gt; ...))
+ * 	.build();
+ * ReplayReport report = UpdateReplayer.builder(router::routeAll)
+ * 	.latencyRecorder(latencies)
+ * 	.build()
+ * 	.replayJournal(Paths.get("journal"));
+ * System.out.println(report);
+ * </pre>
+ * 
+ * <p>
+ * This class is thread safe: each replay runs in the calling thread, with its
+ * own state.
+ * 
+ * @author Welyab Paula
+ */
+public class UpdateReplayer {
+
+    /**
+     * The name of the histogram of the time the consumer takes with each
+     * batch.
+     */
+    public static final String BATCH_LATENCY = "batch";
+
+    @SuppressWarnings("javadoc")
+    private static final Logger LOGGER = Logger.getLogger(UpdateReplayer.class.getName());
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super List<Update>> consumer;
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Throwable> errorHandler;
+
+    @SuppressWarnings("javadoc")
+    private final Configuration configuration;
+
+    @SuppressWarnings("javadoc")
+    private final UpdateProjection projection;
+
+    @SuppressWarnings("javadoc")
+    private final int batchSize;
+
+    /**
+     * The replay speed relative to the recorded pace; <code>0</code> replays
+     * as fast as possible.
+     */
+    private final double speedUp;
+
+    /**
+     * The recorder shared by all replays; <code>null</code> if each replay
+     * creates its own.
+     */
+    private final LatencyRecorder latencyRecorder;
+
+    @SuppressWarnings("javadoc")
+    private UpdateReplayer(Builder builder) {
+	this.consumer = builder.consumer;
+	this.errorHandler = builder.errorHandler;
+	this.configuration = builder.configuration;
+	this.projection = builder.projection;
+	this.batchSize = builder.batchSize;
+	this.speedUp = builder.speedUp;
+	this.latencyRecorder = builder.latencyRecorder;
+    }
+
+    /**
+     * Replays every entry of an update journal directory, processed or not.
+     * The journal may be a copy of the journal of a running bot.
+     * 
+     * @param directory The journal directory.
+     * 
+     * @return The replay report.
+     * 
+     * @throws IOException If the journal cannot be read.
+     * @throws MargeletException If an entry cannot be decoded, or if the
+     *             calling thread is interrupted.
+     * 
+     * @see UpdateJournal#read(Path, Consumer)
+     */
+    public ReplayReport replayJournal(Path directory) throws IOException {
+	Preconditions.checkNotNull(directory, "Parameter 'directory' cannot be null");
+	TypeAdapter<Update> updateAdapter = GsonFactory.updateAdapter(configuration, projection);
+	Replay replay = new Replay();
+	UpdateJournal.read(directory, json -> replay.add(decode(updateAdapter, json)));
+	return replay.finish();
+    }
+
+    /**
+     * Replays a file of JSON lines. Each line holds a <code>getUpdates</code>
+     * response, as returned by Telegram services, or a single update. A line
+     * is taken as a response when its object has an <code>"ok"</code> field,
+     * wherever the field is. Blank lines and unsuccessful responses are
+     * skipped.
+     * 
+     * @param file The file.
+     * 
+     * @return The replay report.
+     * 
+     * @throws IOException If the file cannot be read.
+     * @throws MargeletException If a line cannot be decoded, or if the
+     *             calling thread is interrupted.
+     */
+    public ReplayReport replayJsonLines(Path file) throws IOException {
+	Preconditions.checkNotNull(file, "Parameter 'file' cannot be null");
+	Gson gson = GsonFactory.create(configuration);
+	TypeAdapter<Update> updateAdapter = GsonFactory.updateAdapter(configuration, projection);
+	Replay replay = new Replay();
+	try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+	    String line;
+	    while ((line = reader.readLine()) != null) {
+		String json = line.trim();
+		if (json.isEmpty()) {
+		    continue;
+		}
+		JsonObject object = parse(gson, json);
+		if (!object.has("ok")) {
+		    replay.add(decode(updateAdapter, object));
+		} else if (isSuccessful(object)) {
+		    for (JsonElement update : object.getAsJsonArray("result")) {
+			replay.add(decode(updateAdapter, update));
+		    }
+		}
+	    }
+	}
+	return replay.finish();
+    }
+
+    @SuppressWarnings("javadoc")
+    private void report(Throwable failure) {
+	try {
+	    errorHandler.accept(failure);
+	} catch (RuntimeException e) {
+	    LOGGER.log(Level.WARNING, "The error handler of the update replayer failed", e);
+	}
+    }
+
+    /**
+     * Decodes a recorded update.
+     * 
+     * @param updateAdapter The update adapter.
+     * @param json The raw JSON of the update.
+     * 
+     * @return The update.
+     * 
+     * @throws MargeletException If the JSON cannot be decoded.
+     */
+    private static Update decode(TypeAdapter<Update> updateAdapter, String json) {
+	try {
+	    return GsonFactory.decodeUpdate(updateAdapter, json);
+	} catch (IOException | RuntimeException e) {
+	    throw new MargeletException("Failed to decode a recorded update", e);
+	}
+    }
+
+    /**
+     * Decodes a recorded update from its JSON tree.
+     * 
+     * @param updateAdapter The update adapter.
+     * @param json The JSON tree of the update.
+     * 
+     * @return The update.
+     * 
+     * @throws MargeletException If the JSON cannot be decoded.
+     */
+    private static Update decode(TypeAdapter<Update> updateAdapter, JsonElement json) {
+	try {
+	    return updateAdapter.fromJsonTree(json);
+	} catch (RuntimeException e) {
+	    throw new MargeletException("Failed to decode a recorded update", e);
+	}
+    }
+
+    /**
+     * Parses a JSON line into its object.
+     * 
+     * @param gson The JSON processor.
+     * @param json The JSON line.
+     * 
+     * @return The JSON object.
+     * 
+     * @throws MargeletException If the line is not a JSON object.
+     */
+    private static JsonObject parse(Gson gson, String json) {
+	try {
+	    JsonObject object = gson.fromJson(json, JsonObject.class);
+	    if (object == null) {
+		throw new MargeletException("A recorded line is not a JSON object");
+	    }
+	    return object;
+	} catch (JsonParseException e) {
+	    throw new MargeletException("A recorded line is not a JSON object", e);
+	}
+    }
+
+    /**
+     * Indicates if a <code>getUpdates</code> response is successful and
+     * carries a list of updates.
+     * 
+     * @param response The JSON object of the response.
+     * 
+     * @return <code>true</code> if the updates of the response must be
+     *         replayed.
+     */
+    private static boolean isSuccessful(JsonObject response) {
+	JsonElement ok = response.get("ok");
+	JsonElement result = response.get("result");
+	return ok.isJsonPrimitive()
+		&& ok.getAsJsonPrimitive().isBoolean()
+		&& ok.getAsBoolean()
+		&& result != null
+		&& result.isJsonArray();
+    }
+
+    /**
+     * Retrieves the date an update was sent, from its message.
+     * 
+     * @param update The update.
+     * 
+     * @return The Unix time of the update, or <code>0</code> if unknown.
+     */
+    private static long timestamp(Update update) {
+	Message message = update.getMessage();
+	if (message == null) {
+	    message = update.getEditedMessage();
+	}
+	if (message == null) {
+	    message = update.getChannelPost();
+	}
+	if (message == null) {
+	    message = update.getEditedChannelPost();
+	}
+	if (message == null) {
+	    return 0;
+	}
+	return message.getEditDate() != 0 ? message.getEditDate() : message.getDate();
+    }
+
+    /**
+     * Creates a builder of a replayer that hands the updates to the given
+     * consumer.
+     * 
+     * @param consumer Receives each batch of updates, in the replaying
+     *            thread.
+     * 
+     * @return The builder.
+     */
+    public static Builder builder(Consumer<? super List<Update>> consumer) {
+	Preconditions.checkNotNull(consumer, "Parameter 'consumer' cannot be null");
+	return new Builder(consumer);
+    }
+
+    /**
+     * The state of a replay.
+     * 
+     * @author Welyab Paula
+     */
+    private final class Replay {
+
+	@SuppressWarnings("javadoc")
+	private final LatencyRecorder recorder = latencyRecorder != null ? latencyRecorder : new LatencyRecorder();
+
+	@SuppressWarnings("javadoc")
+	private final LatencyHistogram batchLatency = recorder.getHistogram(BATCH_LATENCY);
+
+	@SuppressWarnings("javadoc")
+	private final long start = System.nanoTime();
+
+	@SuppressWarnings("javadoc")
+	private List<Update> batch = new ArrayList<>();
+
+	/**
+	 * The Unix time of the updates of the batch.
+	 */
+	private long batchTime;
+
+	/**
+	 * The Unix time of the first dated update, which is replayed at the
+	 * start.
+	 */
+	private long firstTime;
+
+	@SuppressWarnings("javadoc")
+	private long updates;
+
+	@SuppressWarnings("javadoc")
+	private long batches;
+
+	@SuppressWarnings("javadoc")
+	private long failures;
+
+	/**
+	 * Adds an update to the batch, handing the batch to the consumer
+	 * when it is full or, with a speed-up, when the update was sent
+	 * later than the batch.
+	 * 
+	 * @param update The update.
+	 */
+	private void add(Update update) {
+	    if (speedUp > 0) {
+		long time = timestamp(update);
+		if (time != 0 && time != batchTime) {
+		    flush();
+		    if (firstTime == 0) {
+			firstTime = time;
+		    }
+		    batchTime = time;
+		    waitUntil(start + (long) (TimeUnit.SECONDS.toNanos(time - firstTime) / speedUp));
+		}
+	    }
+	    batch.add(update);
+	    if (batch.size() == batchSize) {
+		flush();
+	    }
+	}
+
+	/**
+	 * Hands the batch to the consumer, measuring the time it takes.
+	 */
+	private void flush() {
+	    if (batch.isEmpty()) {
+		return;
+	    }
+	    long begin = System.nanoTime();
+	    try {
+		consumer.accept(Collections.unmodifiableList(batch));
+	    } catch (RuntimeException e) {
+		failures++;
+		report(e);
+	    } finally {
+		batchLatency.record(System.nanoTime() - begin);
+	    }
+	    updates += batch.size();
+	    batches++;
+	    batch = new ArrayList<>();
+	}
+
+	/**
+	 * Waits for the moment to replay the next batch.
+	 * 
+	 * @param deadline The moment, as given by {@link System#nanoTime()}.
+	 * 
+	 * @throws MargeletException If the calling thread is interrupted.
+	 */
+	private void waitUntil(long deadline) {
+	    long delay;
+	    while ((delay = deadline - System.nanoTime()) > 0) {
+		LockSupport.parkNanos(delay);
+		if (Thread.currentThread().isInterrupted()) {
+		    throw new MargeletException("The replay was interrupted");
+		}
+	    }
+	}
+
+	/**
+	 * Hands the last batch to the consumer and creates the report.
+	 * 
+	 * @return The report.
+	 */
+	private ReplayReport finish() {
+	    flush();
+	    return new ReplayReport(updates, batches, failures, System.nanoTime() - start, recorder);
+	}
+    }
+
+    /**
+     * A builder for <code>UpdateReplayer</code> objects.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	private final Consumer<? super List<Update>> consumer;
+
+	private Consumer<? super Throwable> errorHandler = failure -> LOGGER.log(
+		Level.WARNING,
+		"Replayed update handling failed",
+		failure
+	);
+
+	private Configuration configuration = Configuration.empty();
+
+	private UpdateProjection projection = UpdateProjection.all();
+
+	private int batchSize = 100;
+
+	private double speedUp;
+
+	private LatencyRecorder latencyRecorder;
+
+	private Builder(Consumer<? super List<Update>> consumer) {
+	    this.consumer = consumer;
+	}
+
+	/**
+	 * Adjusts the configuration used to decode updates. Default: the
+	 * empty configuration.
+	 * 
+	 * @param configuration The configuration.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder configuration(Configuration configuration) {
+	    Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	    this.configuration = configuration;
+	    return this;
+	}
+
+	/**
+	 * Selects the decoded update kinds and message fields. Default: all
+	 * fields of all update kinds.
+	 * 
+	 * @param projection The projection.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder projection(UpdateProjection projection) {
+	    Preconditions.checkNotNull(projection, "Parameter 'projection' cannot be null");
+	    this.projection = projection;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the maximum number of updates of a batch. Default: 100, the
+	 * maximum of a <code>getUpdates</code> response.
+	 * 
+	 * @param batchSize The batch size.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder batchSize(int batchSize) {
+	    Preconditions.checkArgument(batchSize > 0, "Parameter 'batchSize' must be positive");
+	    this.batchSize = batchSize;
+	    return this;
+	}
+
+	/**
+	 * Replays updates at the recorded pace divided by the given factor,
+	 * like <code>10</code> for ten times faster. Default: as fast as
+	 * possible.
+	 * 
+	 * @param speedUp The speed-up factor.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder speedUp(double speedUp) {
+	    Preconditions.checkArgument(speedUp > 0, "Parameter 'speedUp' must be positive");
+	    this.speedUp = speedUp;
+	    return this;
+	}
+
+	/**
+	 * Replays updates as fast as the consumer takes them. This is the
+	 * default.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder maxThroughput() {
+	    this.speedUp = 0;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the recorder of the batch latencies, which should also
+	 * measure the handlers. It is shared by all replays of the replayer,
+	 * so its histograms add up the replays. Default: a new recorder for
+	 * each replay.
+	 * 
+	 * @param latencyRecorder The latency recorder.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder latencyRecorder(LatencyRecorder latencyRecorder) {
+	    Preconditions.checkNotNull(latencyRecorder, "Parameter 'latencyRecorder' cannot be null");
+	    this.latencyRecorder = latencyRecorder;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the handler of consumer failures. Default: logs the failure
+	 * with <code>java.util.logging</code>.
+	 * 
+	 * @param errorHandler The error handler.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder errorHandler(Consumer<? super Throwable> errorHandler) {
+	    Preconditions.checkNotNull(errorHandler, "Parameter 'errorHandler' cannot be null");
+	    this.errorHandler = errorHandler;
+	    return this;
+	}
+
+	@SuppressWarnings("javadoc")
+	public UpdateReplayer build() {
+	    return new UpdateReplayer(this);
+	}
+    }
+}
@@ -16,6 +16,126 @@
 
 package com.welyab.margelet.types;
 
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * This object represents an incoming callback query from a callback button
+ * in an inline keyboard.
+ * 
+ * <p>
+ * Telegram docs: <a
+ * href="https://core.telegram.org/bots/api#callbackquery">https://core.telegram.org/bots/api#callbackquery</a>.
+ * 
+ * @author Welyab Paula
+ */
 public class CallbackQuery {
 
+    @SerializedName("id")
+    @SuppressWarnings("javadoc")
+    private String id;
+
+    @SerializedName("from")
+    @SuppressWarnings("javadoc")
+    private User from;
+
+    @SerializedName("message")
+    @SuppressWarnings("javadoc")
+    private Message message;
+
+    @SerializedName("inline_message_id")
+    @SuppressWarnings("javadoc")
+    private String inlineMessageId;
+
+    @SerializedName("chat_instance")
+    @SuppressWarnings("javadoc")
+    private String chatInstance;
+
+    @SerializedName("data")
+    @SuppressWarnings("javadoc")
+    private String data;
+
+    @SerializedName("game_short_name")
+    @SuppressWarnings("javadoc")
+    private String gameShortName;
+
+    @SuppressWarnings("javadoc")
+    public String getId() {
+	return id;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setId(String id) {
+	this.id = id;
+    }
+
+    @SuppressWarnings("javadoc")
+    public User getFrom() {
+	return from;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setFrom(User from) {
+	this.from = from;
+    }
+
+    /**
+     * Retrieves the message with the callback button that originated the
+     * query. It is not present if the message was sent by the bot in inline
+     * mode, or if it is too old.
+     * 
+     * @return The message, or <code>null</code>.
+     */
+    public Message getMessage() {
+	return message;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setMessage(Message message) {
+	this.message = message;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getInlineMessageId() {
+	return inlineMessageId;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setInlineMessageId(String inlineMessageId) {
+	this.inlineMessageId = inlineMessageId;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getChatInstance() {
+	return chatInstance;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setChatInstance(String chatInstance) {
+	this.chatInstance = chatInstance;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getData() {
+	return data;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setData(String data) {
+	this.data = data;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getGameShortName() {
+	return gameShortName;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setGameShortName(String gameShortName) {
+	this.gameShortName = gameShortName;
+    }
+
+    @Override
+    public String toString() {
+	return "CallbackQuery [id=" + id + "]";
+    }
 }
@@ -1,4 +1,215 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
 package com.welyab.margelet.types;
 
+import com.google.common.base.Preconditions;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * This object represents a chat.
+ * 
+ * <p>
+ * Chats decoded with interning enabled (see
+ * {@link com.welyab.margelet.Constants#CONFIG_INTERNING}) are shared by many
+ * updates and are {@link #isFrozen() frozen}.
+ * 
+ * <p>
+ * Telegram docs: <a
+ * href="https://core.telegram.org/bots/api#chat">https://core.telegram.org/bots/api#chat</a>.
+ * 
+ * @author Welyab Paula
+ */
 public class Chat {
+
+    @SuppressWarnings("javadoc")
+    private static final int ID = 1 << 0;
+
+    /**
+     * The bits of the numeric fields that are present. Numeric fields are kept
+     * as primitives, so absent values are told apart from zeros by this mask.
+     */
+    private transient int presence;
+
+    /**
+     * Indicates that this object is shared and can no longer be modified.
+     */
+    private transient boolean frozen;
+
+    @SerializedName("id")
+    @SuppressWarnings("javadoc")
+    private long id;
+
+    @SerializedName("type")
+    @SuppressWarnings("javadoc")
+    private String type;
+
+    @SerializedName("title")
+    @SuppressWarnings("javadoc")
+    private String title;
+
+    @SerializedName("username")
+    @SuppressWarnings("javadoc")
+    private String username;
+
+    @SerializedName("first_name")
+    @SuppressWarnings("javadoc")
+    private String firstName;
+
+    @SerializedName("last_name")
+    @SuppressWarnings("javadoc")
+    private String lastName;
+
+    @SerializedName("all_members_are_administrators")
+    @SuppressWarnings("javadoc")
+    private boolean allMembersAreAdministrators;
+
+    /**
+     * Retrieves the <code>id</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasId()}.
+     */
+    public long getId() {
+	return id;
+    }
+
+    @SuppressWarnings("javadoc")
+    public boolean hasId() {
+	return (presence & ID) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setId(long id) {
+	checkNotFrozen();
+	this.id = id;
+	presence |= ID;
+    }
+
+    /**
+     * Retrieves the type of chat: <code>"private"</code>,
+     * <code>"group"</code>, <code>"supergroup"</code> or
+     * <code>"channel"</code>.
+     * 
+     * @return The chat type.
+     */
+    public String getType() {
+	return type;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setType(String type) {
+	checkNotFrozen();
+	this.type = type;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getTitle() {
+	return title;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setTitle(String title) {
+	checkNotFrozen();
+	this.title = title;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getUsername() {
+	return username;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setUsername(String username) {
+	checkNotFrozen();
+	this.username = username;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getFirstName() {
+	return firstName;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setFirstName(String firstName) {
+	checkNotFrozen();
+	this.firstName = firstName;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getLastName() {
+	return lastName;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setLastName(String lastName) {
+	checkNotFrozen();
+	this.lastName = lastName;
+    }
+
+    @SuppressWarnings("javadoc")
+    public boolean getAllMembersAreAdministrators() {
+	return allMembersAreAdministrators;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setAllMembersAreAdministrators(boolean allMembersAreAdministrators) {
+	checkNotFrozen();
+	this.allMembersAreAdministrators = allMembersAreAdministrators;
+    }
+
+    /**
+     * Makes this object unmodifiable: its setters will throw
+     * <code>IllegalStateException</code>.
+     */
+    public void freeze() {
+	frozen = true;
+    }
+
+    @SuppressWarnings("javadoc")
+    public boolean isFrozen() {
+	return frozen;
+    }
+
+    @SuppressWarnings("javadoc")
+    private void checkNotFrozen() {
+	Preconditions.checkState(!frozen, "This chat is frozen and cannot be modified");
+    }
+
+    @Override
+    public int hashCode() {
+	final int prime = 31;
+	int result = 1;
+	result = prime * result + Long.hashCode(id);
+	return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+	if (this == obj)
+	    return true;
+	if (obj == null)
+	    return false;
+	if (getClass() != obj.getClass())
+	    return false;
+	Chat other = (Chat) obj;
+	return id == other.id;
+    }
+
+    @Override
+    public String toString() {
+	return "Chat [id=" + id + ", type=" + type + "]";
+    }
 }
@@ -16,6 +16,91 @@
 
 package com.welyab.margelet.types;
 
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * This object represents an incoming inline query.
+ * 
+ * <p>
+ * Telegram docs: <a
+ * href="https://core.telegram.org/bots/api#inlinequery">https://core.telegram.org/bots/api#inlinequery</a>.
+ * 
+ * @author Welyab Paula
+ */
 public class InlineQuery {
 
+    @SerializedName("id")
+    @SuppressWarnings("javadoc")
+    private String id;
+
+    @SerializedName("from")
+    @SuppressWarnings("javadoc")
+    private User from;
+
+    @SerializedName("location")
+    @SuppressWarnings("javadoc")
+    private Location location;
+
+    @SerializedName("query")
+    @SuppressWarnings("javadoc")
+    private String query;
+
+    @SerializedName("offset")
+    @SuppressWarnings("javadoc")
+    private String offset;
+
+    @SuppressWarnings("javadoc")
+    public String getId() {
+	return id;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setId(String id) {
+	this.id = id;
+    }
+
+    @SuppressWarnings("javadoc")
+    public User getFrom() {
+	return from;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setFrom(User from) {
+	this.from = from;
+    }
+
+    @SuppressWarnings("javadoc")
+    public Location getLocation() {
+	return location;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setLocation(Location location) {
+	this.location = location;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getQuery() {
+	return query;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setQuery(String query) {
+	this.query = query;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getOffset() {
+	return offset;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setOffset(String offset) {
+	this.offset = offset;
+    }
+
+    @Override
+    public String toString() {
+	return "InlineQuery [id=" + id + "]";
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.types;
+
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A value kept as its raw JSON document and decoded on first access.
+ * 
+ * <p>
+ * This class is thread safe. The JSON document is decoded at most once, and
+ * released after decoding.
+ * 
+ * @author Welyab Paula
+ * 
+ * @param <T> The type of the decoded value.
+ */
+public final class LazyValue<T> {
+
+    /**
+     * The raw JSON document; <code>null</code> after decoding.
+     */
+    private String json;
+
+    /**
+     * The decoder; <code>null</code> after decoding.
+     */
+    private Function<String, T> decoder;
+
+    /**
+     * The decoded value.
+     */
+    private volatile T value;
+
+    /**
+     * Creates a new lazy value.
+     * 
+     * @param json The raw JSON document.
+     * @param decoder Decodes the JSON document.
+     */
+    public LazyValue(String json, Function<String, T> decoder) {
+	Preconditions.checkNotNull(json, "Parameter 'json' cannot be null");
+	Preconditions.checkNotNull(decoder, "Parameter 'decoder' cannot be null");
+	this.json = json;
+	this.decoder = decoder;
+    }
+
+    /**
+     * Retrieves the value, decoding it on the first call.
+     * 
+     * @return The decoded value.
+     */
+    public T get() {
+	T result = value;
+	if (result == null) {
+	    synchronized (this) {
+		result = value;
+		if (result == null) {
+		    result = decoder.apply(json);
+		    value = result;
+		    json = null;
+		    decoder = null;
+		}
+	    }
+	}
+	return result;
+    }
+
+    /**
+     * Indicates if the value was already decoded.
+     * 
+     * @return <code>true</code> if the value was decoded.
+     */
+    public boolean isDecoded() {
+	return value != null;
+    }
+}
@@ -31,9 +31,36 @@ import com.google.gson.annotations.SerializedName;
  */
 public class Message {
 
+    @SuppressWarnings("javadoc")
+    private static final int MESSAGE_ID = 1 << 0;
+
+    @SuppressWarnings("javadoc")
+    private static final int DATE = 1 << 1;
+
+    @SuppressWarnings("javadoc")
+    private static final int FORWARD_FROM_MESSAGE_ID = 1 << 2;
+
+    @SuppressWarnings("javadoc")
+    private static final int FORWARD_DATE = 1 << 3;
+
+    @SuppressWarnings("javadoc")
+    private static final int EDIT_DATE = 1 << 4;
+
+    @SuppressWarnings("javadoc")
+    private static final int MIGRATE_TO_CHAT_ID = 1 << 5;
+
+    @SuppressWarnings("javadoc")
+    private static final int MIGRATE_FROM_CHAT_ID = 1 << 6;
+
+    /**
+     * The bits of the numeric fields that are present. Numeric fields are kept
+     * as primitives, so absent values are told apart from zeros by this mask.
+     */
+    private transient int presence;
+
     @SerializedName("message_id")
     @SuppressWarnings("javadoc")
-    private Integer messageId;
+    private int messageId;
 
     @SerializedName("from")
     @SuppressWarnings("javadoc")
@@ -41,7 +68,7 @@ public class Message {
 
     @SerializedName("date")
     @SuppressWarnings("javadoc")
-    private Integer date;
+    private int date;
 
     @SerializedName("chat")
     @SuppressWarnings("javadoc")
@@ -57,7 +84,7 @@ public class Message {
 
     @SerializedName("forward_from_message_id")
     @SuppressWarnings("javadoc")
-    private Integer forwardFromMessageId;
+    private int forwardFromMessageId;
 
     @SerializedName("forward_signature")
     @SuppressWarnings("javadoc")
@@ -65,7 +92,7 @@ public class Message {
 
     @SerializedName("forward_date")
     @SuppressWarnings("javadoc")
-    private Integer forwardDate;
+    private int forwardDate;
 
     @SerializedName("reply_to_message")
     @SuppressWarnings("javadoc")
@@ -73,7 +100,7 @@ public class Message {
 
     @SerializedName("edit_date")
     @SuppressWarnings("javadoc")
-    private Integer editDate;
+    private int editDate;
 
     @SerializedName("media_group_id")
     @SuppressWarnings("javadoc")
@@ -161,27 +188,27 @@ public class Message {
 
     @SerializedName("delete_chat_photo")
     @SuppressWarnings("javadoc")
-    private Boolean deleteChatPhoto;
+    private boolean deleteChatPhoto;
 
     @SerializedName("group_chat_created")
     @SuppressWarnings("javadoc")
-    private Boolean groupChatCreated;
+    private boolean groupChatCreated;
 
     @SerializedName("supergroup_chat_created")
     @SuppressWarnings("javadoc")
-    private Boolean supergroupChatCreated;
+    private boolean supergroupChatCreated;
 
     @SerializedName("channel_chat_created")
     @SuppressWarnings("javadoc")
-    private Boolean channel_chat_created;
+    private boolean channel_chat_created;
 
     @SerializedName("migrate_to_chat_id")
     @SuppressWarnings("javadoc")
-    private Integer migrateToChatId;
+    private long migrateToChatId;
 
     @SerializedName("migrate_from_chat_id")
     @SuppressWarnings("javadoc")
-    private Integer migrateFromChatId;
+    private long migrateFromChatId;
 
     @SerializedName("pinned_message")
     @SuppressWarnings("javadoc")
@@ -199,14 +226,25 @@ public class Message {
     @SuppressWarnings("javadoc")
     private String connectedWebsite;
 
-    @SuppressWarnings("javadoc")
-    public Integer getMessageId() {
+    /**
+     * Retrieves the <code>messageId</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasMessageId()}.
+     */
+    public int getMessageId() {
 	return messageId;
     }
 
     @SuppressWarnings("javadoc")
-    public void setMessageId(Integer messageId) {
+    public boolean hasMessageId() {
+	return (presence & MESSAGE_ID) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setMessageId(int messageId) {
 	this.messageId = messageId;
+	presence |= MESSAGE_ID;
     }
 
     @SuppressWarnings("javadoc")
@@ -219,14 +257,25 @@ public class Message {
 	this.from = from;
     }
 
-    @SuppressWarnings("javadoc")
-    public Integer getDate() {
+    /**
+     * Retrieves the <code>date</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasDate()}.
+     */
+    public int getDate() {
 	return date;
     }
 
     @SuppressWarnings("javadoc")
-    public void setDate(Integer date) {
+    public boolean hasDate() {
+	return (presence & DATE) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setDate(int date) {
 	this.date = date;
+	presence |= DATE;
     }
 
     @SuppressWarnings("javadoc")
@@ -259,14 +308,25 @@ public class Message {
 	this.forwardFromChat = forwardFromChat;
     }
 
-    @SuppressWarnings("javadoc")
-    public Integer getForwardFromMessageId() {
+    /**
+     * Retrieves the <code>forwardFromMessageId</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasForwardFromMessageId()}.
+     */
+    public int getForwardFromMessageId() {
 	return forwardFromMessageId;
     }
 
     @SuppressWarnings("javadoc")
-    public void setForwardFromMessageId(Integer forwardFromMessageId) {
+    public boolean hasForwardFromMessageId() {
+	return (presence & FORWARD_FROM_MESSAGE_ID) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setForwardFromMessageId(int forwardFromMessageId) {
 	this.forwardFromMessageId = forwardFromMessageId;
+	presence |= FORWARD_FROM_MESSAGE_ID;
     }
 
     @SuppressWarnings("javadoc")
@@ -279,14 +339,25 @@ public class Message {
 	this.forwardSignature = forwardSignature;
     }
 
-    @SuppressWarnings("javadoc")
-    public Integer getForwardDate() {
+    /**
+     * Retrieves the <code>forwardDate</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasForwardDate()}.
+     */
+    public int getForwardDate() {
 	return forwardDate;
     }
 
     @SuppressWarnings("javadoc")
-    public void setForwardDate(Integer forwardDate) {
+    public boolean hasForwardDate() {
+	return (presence & FORWARD_DATE) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setForwardDate(int forwardDate) {
 	this.forwardDate = forwardDate;
+	presence |= FORWARD_DATE;
     }
 
     @SuppressWarnings("javadoc")
@@ -299,14 +370,25 @@ public class Message {
 	this.replyToMessage = replyToMessage;
     }
 
-    @SuppressWarnings("javadoc")
-    public Integer getEditDate() {
+    /**
+     * Retrieves the <code>editDate</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasEditDate()}.
+     */
+    public int getEditDate() {
 	return editDate;
     }
 
     @SuppressWarnings("javadoc")
-    public void setEditDate(Integer editDate) {
+    public boolean hasEditDate() {
+	return (presence & EDIT_DATE) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setEditDate(int editDate) {
 	this.editDate = editDate;
+	presence |= EDIT_DATE;
     }
 
     @SuppressWarnings("javadoc")
@@ -520,63 +602,85 @@ public class Message {
     }
 
     @SuppressWarnings("javadoc")
-    public Boolean getDeleteChatPhoto() {
+    public boolean getDeleteChatPhoto() {
 	return deleteChatPhoto;
     }
 
     @SuppressWarnings("javadoc")
-    public void setDeleteChatPhoto(Boolean deleteChatPhoto) {
+    public void setDeleteChatPhoto(boolean deleteChatPhoto) {
 	this.deleteChatPhoto = deleteChatPhoto;
     }
 
     @SuppressWarnings("javadoc")
-    public Boolean getGroupChatCreated() {
+    public boolean getGroupChatCreated() {
 	return groupChatCreated;
     }
 
     @SuppressWarnings("javadoc")
-    public void setGroupChatCreated(Boolean groupChatCreated) {
+    public void setGroupChatCreated(boolean groupChatCreated) {
 	this.groupChatCreated = groupChatCreated;
     }
 
     @SuppressWarnings("javadoc")
-    public Boolean getSupergroupChatCreated() {
+    public boolean getSupergroupChatCreated() {
 	return supergroupChatCreated;
     }
 
     @SuppressWarnings("javadoc")
-    public void setSupergroupChatCreated(Boolean supergroupChatCreated) {
+    public void setSupergroupChatCreated(boolean supergroupChatCreated) {
 	this.supergroupChatCreated = supergroupChatCreated;
     }
 
     @SuppressWarnings("javadoc")
-    public Boolean getChannel_chat_created() {
+    public boolean getChannel_chat_created() {
 	return channel_chat_created;
     }
 
     @SuppressWarnings("javadoc")
-    public void setChannel_chat_created(Boolean channel_chat_created) {
+    public void setChannel_chat_created(boolean channel_chat_created) {
 	this.channel_chat_created = channel_chat_created;
     }
 
-    @SuppressWarnings("javadoc")
-    public Integer getMigrateToChatId() {
+    /**
+     * Retrieves the <code>migrateToChatId</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasMigrateToChatId()}.
+     */
+    public long getMigrateToChatId() {
 	return migrateToChatId;
     }
 
     @SuppressWarnings("javadoc")
-    public void setMigrateToChatId(Integer migrateToChatId) {
-	this.migrateToChatId = migrateToChatId;
+    public boolean hasMigrateToChatId() {
+	return (presence & MIGRATE_TO_CHAT_ID) != 0;
     }
 
     @SuppressWarnings("javadoc")
-    public Integer getMigrateFromChatId() {
+    public void setMigrateToChatId(long migrateToChatId) {
+	this.migrateToChatId = migrateToChatId;
+	presence |= MIGRATE_TO_CHAT_ID;
+    }
+
+    /**
+     * Retrieves the <code>migrateFromChatId</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasMigrateFromChatId()}.
+     */
+    public long getMigrateFromChatId() {
 	return migrateFromChatId;
     }
 
     @SuppressWarnings("javadoc")
-    public void setMigrateFromChatId(Integer migrateFromChatId) {
+    public boolean hasMigrateFromChatId() {
+	return (presence & MIGRATE_FROM_CHAT_ID) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setMigrateFromChatId(long migrateFromChatId) {
 	this.migrateFromChatId = migrateFromChatId;
+	presence |= MIGRATE_FROM_CHAT_ID;
     }
 
     @SuppressWarnings("javadoc")
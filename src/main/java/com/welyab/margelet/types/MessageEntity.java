@@ -1,4 +1,122 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
 package com.welyab.margelet.types;
 
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * This object represents one special entity in a text message, like a
+ * hashtag, a username, an URL or a bot command.
+ * 
+ * <p>
+ * Telegram docs: <a
+ * href="https://core.telegram.org/bots/api#messageentity">https://core.telegram.org/bots/api#messageentity</a>.
+ * 
+ * @author Welyab Paula
+ */
 public class MessageEntity {
+
+    @SerializedName("type")
+    @SuppressWarnings("javadoc")
+    private String type;
+
+    @SerializedName("offset")
+    @SuppressWarnings("javadoc")
+    private int offset;
+
+    @SerializedName("length")
+    @SuppressWarnings("javadoc")
+    private int length;
+
+    @SerializedName("url")
+    @SuppressWarnings("javadoc")
+    private String url;
+
+    @SerializedName("user")
+    @SuppressWarnings("javadoc")
+    private User user;
+
+    /**
+     * Retrieves the type of the entity, like <code>"mention"</code>,
+     * <code>"hashtag"</code>, <code>"bot_command"</code> or
+     * <code>"url"</code>.
+     * 
+     * @return The entity type.
+     */
+    public String getType() {
+	return type;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setType(String type) {
+	this.type = type;
+    }
+
+    /**
+     * Retrieves the offset of the entity in the text, in UTF-16 code units,
+     * so it indexes Java strings directly.
+     * 
+     * @return The offset.
+     */
+    public int getOffset() {
+	return offset;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setOffset(int offset) {
+	this.offset = offset;
+    }
+
+    /**
+     * Retrieves the length of the entity, in UTF-16 code units.
+     * 
+     * @return The length.
+     */
+    public int getLength() {
+	return length;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setLength(int length) {
+	this.length = length;
+    }
+
+    @SuppressWarnings("javadoc")
+    public String getUrl() {
+	return url;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setUrl(String url) {
+	this.url = url;
+    }
+
+    @SuppressWarnings("javadoc")
+    public User getUser() {
+	return user;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setUser(User user) {
+	this.user = user;
+    }
+
+    @Override
+    public String toString() {
+	return "MessageEntity [type=" + type + ", offset=" + offset + ", length=" + length + "]";
+    }
 }
@@ -19,6 +19,7 @@ package com.welyab.margelet.types;
 import com.google.gson.annotations.SerializedName;
 
 import com.welyab.margelet.Margelet;
+import com.welyab.margelet.TelegramApiException;
 
 /**
  * All requests to Telegram API will return a <code>Response</code> object.
@@ -48,6 +49,11 @@ import com.welyab.margelet.Margelet;
  * returns the bot information into a <code>User</code> object.
  * 
  * <p>
+ * Unsuccessful responses carry no result: its <code>"result"</code> field is
+ * skipped while decoding. Use {@link #getResultOrThrow()} to handle them as
+ * {@link TelegramApiException}s.
+ * 
+ * <p>
  * Telegram docs: <a
  * href="https://core.telegram.org/bots/api#making-requests">https://core.telegram.org/bots/api#making-requests</a>.
  * 
@@ -142,6 +148,20 @@ public class Response<T> {
 	return result;
     }
 
+    /**
+     * Retrieves the result of a successful response.
+     * 
+     * @return The result.
+     * 
+     * @throws TelegramApiException If the response is unsuccessful.
+     */
+    public T getResultOrThrow() {
+	if (!ok) {
+	    throw new TelegramApiException(this);
+	}
+	return result;
+    }
+
     /**
      * Adjusts the result.
      * 
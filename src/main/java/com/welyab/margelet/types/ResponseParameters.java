@@ -31,19 +31,19 @@ public class ResponseParameters {
 
     @SerializedName("migrate_to_chat_id")
     @SuppressWarnings("javadoc")
-    private Integer migrateToChatId;
+    private Long migrateToChatId;
 
     @SerializedName("retry_after")
     @SuppressWarnings("javadoc")
     private Integer retryAfter;
 
     @SuppressWarnings("javadoc")
-    public Integer getMigrateToChatId() {
+    public Long getMigrateToChatId() {
 	return migrateToChatId;
     }
 
     @SuppressWarnings("javadoc")
-    public void setMigrateToChatId(Integer migrateToChatId) {
+    public void setMigrateToChatId(Long migrateToChatId) {
 	this.migrateToChatId = migrateToChatId;
     }
 
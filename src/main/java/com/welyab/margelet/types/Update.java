@@ -22,6 +22,13 @@ import com.google.gson.annotations.SerializedName;
  * This object represents an incoming update.
  * 
  * <p>
+ * When decoded with lazy decoding enabled (see
+ * {@link com.welyab.margelet.Constants#CONFIG_LAZY_DECODING}), the payload of
+ * the update is kept as a copy of its raw JSON, as received, and only decoded
+ * when its getter is first called. The update id and its {@link #getType() type}
+ * are always available without decoding the payload.
+ * 
+ * <p>
  * Telegram docs: <a
  * href="https://core.telegram.org/bots/api#update">https://core.telegram.org/bots/api#update</a>.
  * 
@@ -29,9 +36,18 @@ import com.google.gson.annotations.SerializedName;
  */
 public class Update {
 
+    @SuppressWarnings("javadoc")
+    private static final int UPDATE_ID = 1 << 0;
+
+    /**
+     * The bits of the numeric fields that are present. Numeric fields are kept
+     * as primitives, so absent values are told apart from zeros by this mask.
+     */
+    private transient int presence;
+
     @SerializedName("update_id")
     @SuppressWarnings("javadoc")
-    private Integer updateId;
+    private int updateId;
 
     @SerializedName("message")
     @SuppressWarnings("javadoc")
@@ -69,18 +85,43 @@ public class Update {
     @SuppressWarnings("javadoc")
     private PreCheckoutQuery preCheckoutQuery;
 
-    @SuppressWarnings("javadoc")
-    public Integer getUpdateId() {
+    /**
+     * The kind of this update, as defined by the present payload field.
+     */
+    private transient UpdateType type;
+
+    /**
+     * The payload of this update not decoded yet, when decoded with lazy
+     * decoding.
+     */
+    private transient LazyValue<?> lazyPayload;
+
+    /**
+     * Retrieves the <code>updateId</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasUpdateId()}.
+     */
+    public int getUpdateId() {
 	return updateId;
     }
 
     @SuppressWarnings("javadoc")
-    public void setUpdateId(Integer updateId) {
+    public boolean hasUpdateId() {
+	return (presence & UPDATE_ID) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setUpdateId(int updateId) {
 	this.updateId = updateId;
+	presence |= UPDATE_ID;
     }
 
     @SuppressWarnings("javadoc")
     public Message getMessage() {
+	if (message == null) {
+	    message = lazyPayload(UpdateType.MESSAGE);
+	}
 	return message;
     }
 
@@ -91,6 +132,9 @@ public class Update {
 
     @SuppressWarnings("javadoc")
     public Message getEditedMessage() {
+	if (editedMessage == null) {
+	    editedMessage = lazyPayload(UpdateType.EDITED_MESSAGE);
+	}
 	return editedMessage;
     }
 
@@ -101,6 +145,9 @@ public class Update {
 
     @SuppressWarnings("javadoc")
     public Message getChannelPost() {
+	if (channelPost == null) {
+	    channelPost = lazyPayload(UpdateType.CHANNEL_POST);
+	}
 	return channelPost;
     }
 
@@ -111,6 +158,9 @@ public class Update {
 
     @SuppressWarnings("javadoc")
     public Message getEditedChannelPost() {
+	if (editedChannelPost == null) {
+	    editedChannelPost = lazyPayload(UpdateType.EDITED_CHANNEL_POST);
+	}
 	return editedChannelPost;
     }
 
@@ -121,6 +171,9 @@ public class Update {
 
     @SuppressWarnings("javadoc")
     public InlineQuery getInlineQuery() {
+	if (inlineQuery == null) {
+	    inlineQuery = lazyPayload(UpdateType.INLINE_QUERY);
+	}
 	return inlineQuery;
     }
 
@@ -131,6 +184,9 @@ public class Update {
 
     @SuppressWarnings("javadoc")
     public ChosenInlineResult getChosenInlineResult() {
+	if (chosenInlineResult == null) {
+	    chosenInlineResult = lazyPayload(UpdateType.CHOSEN_INLINE_RESULT);
+	}
 	return chosenInlineResult;
     }
 
@@ -141,6 +197,9 @@ public class Update {
 
     @SuppressWarnings("javadoc")
     public CallbackQuery getCallbackQuery() {
+	if (callbackQuery == null) {
+	    callbackQuery = lazyPayload(UpdateType.CALLBACK_QUERY);
+	}
 	return callbackQuery;
     }
 
@@ -151,6 +210,9 @@ public class Update {
 
     @SuppressWarnings("javadoc")
     public ShippingQuery getShippingQuery() {
+	if (shippingQuery == null) {
+	    shippingQuery = lazyPayload(UpdateType.SHIPPING_QUERY);
+	}
 	return shippingQuery;
     }
 
@@ -161,6 +223,9 @@ public class Update {
 
     @SuppressWarnings("javadoc")
     public PreCheckoutQuery getPreCheckoutQuery() {
+	if (preCheckoutQuery == null) {
+	    preCheckoutQuery = lazyPayload(UpdateType.PRE_CHECKOUT_QUERY);
+	}
 	return preCheckoutQuery;
     }
 
@@ -169,6 +234,96 @@ public class Update {
 	this.preCheckoutQuery = preCheckoutQuery;
     }
 
+    /**
+     * Retrieves the kind of this update, as defined by its present payload
+     * field. This method never decodes a lazy payload.
+     * 
+     * @return The update kind, or <code>null</code> if the update has no
+     *         known payload.
+     */
+    public UpdateType getType() {
+	if (type == null) {
+	    type = detectType();
+	}
+	return type;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setType(UpdateType type) {
+	this.type = type;
+    }
+
+    /**
+     * Retrieves the payload not decoded yet.
+     * 
+     * @return The lazy payload, or <code>null</code> if the update was not
+     *         decoded with lazy decoding.
+     */
+    public LazyValue<?> getLazyPayload() {
+	return lazyPayload;
+    }
+
+    /**
+     * Adjusts the payload to be decoded on first access of the getter that
+     * corresponds to the given kind.
+     * 
+     * @param type The payload kind.
+     * @param lazyPayload The payload.
+     */
+    public void setLazyPayload(UpdateType type, LazyValue<?> lazyPayload) {
+	this.type = type;
+	this.lazyPayload = lazyPayload;
+    }
+
+    /**
+     * Decodes the lazy payload, if it is of the given kind.
+     * 
+     * @param payloadType The payload kind expected by the caller.
+     * 
+     * @return The decoded payload, or <code>null</code>.
+     */
+    private <T> T lazyPayload(UpdateType payloadType) {
+	LazyValue<?> lazy = lazyPayload;
+	if (lazy == null || type != payloadType) {
+	    return null;
+	}
+	@SuppressWarnings("unchecked")
+	T payload = (T) lazy.get();
+	return payload;
+    }
+
+    @SuppressWarnings("javadoc")
+    private UpdateType detectType() {
+	if (message != null) {
+	    return UpdateType.MESSAGE;
+	}
+	if (editedMessage != null) {
+	    return UpdateType.EDITED_MESSAGE;
+	}
+	if (channelPost != null) {
+	    return UpdateType.CHANNEL_POST;
+	}
+	if (editedChannelPost != null) {
+	    return UpdateType.EDITED_CHANNEL_POST;
+	}
+	if (inlineQuery != null) {
+	    return UpdateType.INLINE_QUERY;
+	}
+	if (chosenInlineResult != null) {
+	    return UpdateType.CHOSEN_INLINE_RESULT;
+	}
+	if (callbackQuery != null) {
+	    return UpdateType.CALLBACK_QUERY;
+	}
+	if (shippingQuery != null) {
+	    return UpdateType.SHIPPING_QUERY;
+	}
+	if (preCheckoutQuery != null) {
+	    return UpdateType.PRE_CHECKOUT_QUERY;
+	}
+	return null;
+    }
+
     @Override
     public String toString() {
 	return "Update [updateId=" + updateId + "]";
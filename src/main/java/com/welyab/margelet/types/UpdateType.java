@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.types;
+
+/**
+ * The kinds of {@link Update}. Each kind corresponds to one of the optional
+ * payload fields of an update; at most one of them is present in any given
+ * update.
+ * 
+ * <p>
+ * Telegram docs: <a
+ * href="https://core.telegram.org/bots/api#update">https://core.telegram.org/bots/api#update</a>.
+ * 
+ * @author Welyab Paula
+ */
+public enum UpdateType {
+
+    @SuppressWarnings("javadoc")
+    MESSAGE("message"),
+
+    @SuppressWarnings("javadoc")
+    EDITED_MESSAGE("edited_message"),
+
+    @SuppressWarnings("javadoc")
+    CHANNEL_POST("channel_post"),
+
+    @SuppressWarnings("javadoc")
+    EDITED_CHANNEL_POST("edited_channel_post"),
+
+    @SuppressWarnings("javadoc")
+    INLINE_QUERY("inline_query"),
+
+    @SuppressWarnings("javadoc")
+    CHOSEN_INLINE_RESULT("chosen_inline_result"),
+
+    @SuppressWarnings("javadoc")
+    CALLBACK_QUERY("callback_query"),
+
+    @SuppressWarnings("javadoc")
+    SHIPPING_QUERY("shipping_query"),
+
+    @SuppressWarnings("javadoc")
+    PRE_CHECKOUT_QUERY("pre_checkout_query");
+
+    /**
+     * The name of the update field that holds the payload of this kind.
+     */
+    private final String fieldName;
+
+    @SuppressWarnings("javadoc")
+    private UpdateType(String fieldName) {
+	this.fieldName = fieldName;
+    }
+
+    /**
+     * Retrieves the name of the update field that holds the payload of this
+     * kind, as used by Telegram Bot API (for example, in the
+     * <code>"allowed_updates"</code> parameter of <code>getUpdates</code>).
+     * 
+     * @return The field name.
+     */
+    public String getFieldName() {
+	return fieldName;
+    }
+}
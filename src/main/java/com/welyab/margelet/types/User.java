@@ -16,12 +16,18 @@
 
 package com.welyab.margelet.types;
 
+import com.google.common.base.Preconditions;
 import com.google.gson.annotations.SerializedName;
 
 /**
  * This object represents a Telegram user or bot.
  * 
  * <p>
+ * Users decoded with interning enabled (see
+ * {@link com.welyab.margelet.Constants#CONFIG_INTERNING}) are shared by many
+ * updates and are {@link #isFrozen() frozen}.
+ * 
+ * <p>
  * Telegram docs: <a
  * href="https://core.telegram.org/bots/api#user">https://core.telegram.org/bots/api#user</a>
  * 
@@ -29,13 +35,27 @@ import com.google.gson.annotations.SerializedName;
  */
 public class User {
 
-    @SerializedName("ok")
     @SuppressWarnings("javadoc")
-    private Integer id;
+    private static final int ID = 1 << 0;
+
+    /**
+     * The bits of the numeric fields that are present. Numeric fields are kept
+     * as primitives, so absent values are told apart from zeros by this mask.
+     */
+    private transient int presence;
+
+    /**
+     * Indicates that this object is shared and can no longer be modified.
+     */
+    private transient boolean frozen;
+
+    @SerializedName("id")
+    @SuppressWarnings("javadoc")
+    private long id;
 
     @SerializedName("is_bot")
     @SuppressWarnings("javadoc")
-    private Boolean bot;
+    private boolean bot;
 
     @SerializedName("first_name")
     @SuppressWarnings("javadoc")
@@ -53,23 +73,36 @@ public class User {
     @SuppressWarnings("javadoc")
     private String languageCode;
 
-    @SuppressWarnings("javadoc")
-    public Integer getId() {
+    /**
+     * Retrieves the <code>id</code> value.
+     * 
+     * @return The value, or <code>0</code> if it is not present. See
+     *         {@link #hasId()}.
+     */
+    public long getId() {
 	return id;
     }
 
     @SuppressWarnings("javadoc")
-    public void setId(Integer id) {
+    public boolean hasId() {
+	return (presence & ID) != 0;
+    }
+
+    @SuppressWarnings("javadoc")
+    public void setId(long id) {
+	checkNotFrozen();
 	this.id = id;
+	presence |= ID;
     }
 
     @SuppressWarnings("javadoc")
-    public Boolean getBot() {
+    public boolean getBot() {
 	return bot;
     }
 
     @SuppressWarnings("javadoc")
-    public void setBot(Boolean bot) {
+    public void setBot(boolean bot) {
+	checkNotFrozen();
 	this.bot = bot;
     }
 
@@ -80,6 +113,7 @@ public class User {
 
     @SuppressWarnings("javadoc")
     public void setFirstName(String firstName) {
+	checkNotFrozen();
 	this.firstName = firstName;
     }
 
@@ -90,6 +124,7 @@ public class User {
 
     @SuppressWarnings("javadoc")
     public void setLastName(String lastName) {
+	checkNotFrozen();
 	this.lastName = lastName;
     }
 
@@ -100,6 +135,7 @@ public class User {
 
     @SuppressWarnings("javadoc")
     public void setUsername(String username) {
+	checkNotFrozen();
 	this.username = username;
     }
 
@@ -110,14 +146,33 @@ public class User {
 
     @SuppressWarnings("javadoc")
     public void setLanguageCode(String languageCode) {
+	checkNotFrozen();
 	this.languageCode = languageCode;
     }
 
+    /**
+     * Makes this object unmodifiable: its setters will throw
+     * <code>IllegalStateException</code>.
+     */
+    public void freeze() {
+	frozen = true;
+    }
+
+    @SuppressWarnings("javadoc")
+    public boolean isFrozen() {
+	return frozen;
+    }
+
+    @SuppressWarnings("javadoc")
+    private void checkNotFrozen() {
+	Preconditions.checkState(!frozen, "This user is frozen and cannot be modified");
+    }
+
     @Override
     public int hashCode() {
 	final int prime = 31;
 	int result = 1;
-	result = prime * result + ((id == null) ? 0 : id.hashCode());
+	result = prime * result + Long.hashCode(id);
 	return result;
     }
 
@@ -130,12 +185,7 @@ public class User {
 	if (getClass() != obj.getClass())
 	    return false;
 	User other = (User) obj;
-	if (id == null) {
-	    if (other.id != null)
-		return false;
-	} else if (!id.equals(other.id))
-	    return false;
-	return true;
+	return id == other.id;
     }
 
     @Override
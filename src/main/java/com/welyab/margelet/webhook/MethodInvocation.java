@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.webhook;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A call to a Telegram Bot API method, made in reply to an update received by
+ * a webhook.
+ * 
+ * <p>
+ * Instances of this class are immutable and thread safe.
+ * 
+ * @author Welyab Paula
+ * 
+ * @see WebhookHandler
+ */
+public final class MethodInvocation {
+
+    @SuppressWarnings("javadoc")
+    private final String methodName;
+
+    @SuppressWarnings("javadoc")
+    private final ImmutableMap<String, Object> parameters;
+
+    @SuppressWarnings("javadoc")
+    private MethodInvocation(String methodName, ImmutableMap<String, Object> parameters) {
+	this.methodName = methodName;
+	this.parameters = parameters;
+    }
+
+    /**
+     * Retrieves the name of the called method. See the constants starting
+     * with <code>"METHOD_"</code> in the {@link com.welyab.margelet.Constants}
+     * class.
+     * 
+     * @return The method name.
+     */
+    public String getMethodName() {
+	return methodName;
+    }
+
+    /**
+     * Retrieves the method parameters. They are encoded as the parameters of
+     * {@link com.welyab.margelet.Margelet#callMethod(String, ImmutableMap, Class, com.welyab.margelet.Configuration)}.
+     * 
+     * @return The method parameters.
+     */
+    public ImmutableMap<String, Object> getParameters() {
+	return parameters;
+    }
+
+    @Override
+    public String toString() {
+	return "MethodInvocation [methodName=" + methodName + ", parameters=" + parameters + "]";
+    }
+
+    /**
+     * Creates a method invocation.
+     * 
+     * @param methodName The method name.
+     * @param parameters The method parameters.
+     * 
+     * @return The method invocation.
+     */
+    public static MethodInvocation of(String methodName, ImmutableMap<String, Object> parameters) {
+	Preconditions.checkNotNull(methodName, "Parameter 'methodName' cannot be null");
+	Preconditions.checkNotNull(parameters, "Parameter 'parameters' cannot be null");
+	return new MethodInvocation(methodName, parameters);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.webhook;
+
+import com.welyab.margelet.types.Update;
+
+/**
+ * Handles updates received by a {@link WebhookServer}, optionally replying
+ * with a Telegram Bot API method call.
+ * 
+ * <p>
+ * When the handler returns within the reply deadline of the server, the call
+ * is written in the body of the webhook response, and Telegram services
+ * perform it without an outbound request from the bot. Otherwise, the call is
+ * made through <code>Margelet</code> after the response is sent. In both
+ * cases, the result of the call is not available to the handler.
+ * 
+ * @author Welyab Paula
+ * 
+ * @see WebhookServer#builder(com.welyab.margelet.Margelet, WebhookHandler)
+ */
+@FunctionalInterface
+public interface WebhookHandler {
+
+    /**
+     * Handles an update.
+     * 
+     * @param update The update.
+     * 
+     * @return The method to call in reply to the update, or <code>null</code>
+     *         if there is no reply.
+     */
+    MethodInvocation handle(Update update);
+}
@@ -0,0 +1,818 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.webhook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Margelet;
+import com.welyab.margelet.MargeletException;
+import com.welyab.margelet.TelegramApiException;
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.gson.GsonFactory;
+import com.welyab.margelet.gson.JsonBuffer;
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.Update;
+
+/**
+ * An embedded HTTP server that receives updates pushed by Telegram services
+ * to a webhook, as an alternative to long polling.
+ * 
+ * <p>
+ * The server is built on the HTTP server of the JDK
+ * (<code>com.sun.net.httpserver</code>, driven by a NIO selector), so it
+ * adds no dependency. It speaks plain HTTP and is meant to run behind a TLS
+ * terminator, like a reverse proxy or a load balancer, that Telegram
+ * services reach through HTTPS.
+ * 
+ * <p>
+ * For each <code>POST</code> to the webhook path, the server:
+ * <ol>
+ * <li>validates the <code>X-Telegram-Bot-Api-Secret-Token</code> header
+ * against the secret token given to <code>setWebhook</code>, in constant
+ * time, before reading the body. Requests with a wrong token are answered
+ * with <code>401</code>;</li>
+ * <li>decodes the body, streamed, as an {@link Update};</li>
+ * <li>hands the update to the dispatcher, in the dispatch executor, and
+ * acknowledges it immediately with <code>200</code>, so Telegram services do
+ * not wait for handlers. If the executor rejects the update, like when the
+ * queue of the default executor is full, the server answers <code>503</code>
+ * and Telegram services deliver it again later.</li>
+ * </ol>
+ * 
+ * <p>
+ * Servers created with {@link #builder(Margelet, WebhookHandler)} let the
+ * handler reply to the update with a method call. The HTTP exchange waits for
+ * the handler up to the reply deadline: if the handler returns a method call
+ * in time, it is written in the body of the response, encoded like the
+ * parameters of {@link Margelet#callMethod(String, ImmutableMap, Type, Configuration)}
+ * plus the <code>"method"</code> field, saving an outbound request. Otherwise
+ * the update is acknowledged and the method is called through
+ * <code>Margelet</code> once the handler returns.
+ * 
+ * <pre>
+ * WebhookServer server = WebhookServer.builder(update -&gt; ...)
+ * 	.address(new InetSocketAddress("127.0.0.1", 8080))
+ * 	.secretToken(secret)
+ * 	.build();
+ * server.start();
+ * ...
+ * server.close();
+ * </pre>
+ * 
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Welyab Paula
+ */
+public class WebhookServer implements Closeable {
+
+    /**
+     * The header that carries the secret token of the webhook.
+     */
+    public static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    @SuppressWarnings("javadoc")
+    private static final Logger LOGGER = Logger.getLogger(WebhookServer.class.getName());
+
+    @SuppressWarnings("javadoc")
+    private static final int HTTP_OK = 200;
+
+    @SuppressWarnings("javadoc")
+    private static final int HTTP_BAD_REQUEST = 400;
+
+    @SuppressWarnings("javadoc")
+    private static final int HTTP_UNAUTHORIZED = 401;
+
+    @SuppressWarnings("javadoc")
+    private static final int HTTP_NOT_FOUND = 404;
+
+    @SuppressWarnings("javadoc")
+    private static final int HTTP_BAD_METHOD = 405;
+
+    @SuppressWarnings("javadoc")
+    private static final int HTTP_ENTITY_TOO_LARGE = 413;
+
+    @SuppressWarnings("javadoc")
+    private static final int HTTP_UNAVAILABLE = 503;
+
+    /**
+     * The result type of methods called in reply to updates. Results are
+     * discarded, so they are decoded generically.
+     */
+    private static final Type RESULT_TYPE = Object.class;
+
+    /**
+     * Indicates a response without body to
+     * <code>HttpExchange.sendResponseHeaders</code>.
+     */
+    private static final int NO_BODY = -1;
+
+    @SuppressWarnings("javadoc")
+    private final HttpServer server;
+
+    @SuppressWarnings("javadoc")
+    private final String path;
+
+    /**
+     * The UTF-8 bytes of the secret token; <code>null</code> if not
+     * validated.
+     */
+    private final byte[] secretToken;
+
+    @SuppressWarnings("javadoc")
+    private final int maxBodySize;
+
+    @SuppressWarnings("javadoc")
+    private final TypeAdapter<Update> updateAdapter;
+
+    @SuppressWarnings("javadoc")
+    private final WebhookHandler handler;
+
+    /**
+     * Calls the methods the handler replies with; <code>null</code> if the
+     * server does not reply to updates.
+     */
+    private final Margelet margelet;
+
+    /**
+     * How long an HTTP exchange waits for the reply of the handler, in
+     * nanoseconds.
+     */
+    private final long replyDeadline;
+
+    /**
+     * Encodes replies.
+     */
+    private final Gson gson;
+
+    @SuppressWarnings("javadoc")
+    private final Consumer<? super Throwable> errorHandler;
+
+    /**
+     * Runs the HTTP exchanges.
+     */
+    private final ExecutorService httpExecutor;
+
+    /**
+     * Runs the dispatcher.
+     */
+    private final ExecutorService dispatchExecutor;
+
+    /**
+     * Indicates that the dispatch executor was created by this server, and
+     * must be shut down with it.
+     */
+    private final boolean ownsDispatchExecutor;
+
+    @SuppressWarnings("javadoc")
+    private WebhookServer(Builder builder) {
+	try {
+	    this.server = HttpServer.create(builder.address, builder.backlog);
+	} catch (IOException e) {
+	    throw new MargeletException(String.format("Fail to bind the webhook server to %s", builder.address), e);
+	}
+	this.path = builder.path;
+	this.secretToken = builder.secretToken == null
+		? null
+		: builder.secretToken.getBytes(StandardCharsets.UTF_8);
+	this.maxBodySize = builder.maxBodySize;
+	this.updateAdapter = GsonFactory.updateAdapter(builder.configuration, builder.projection);
+	this.handler = builder.handler;
+	this.margelet = builder.margelet;
+	this.replyDeadline = builder.replyDeadline;
+	this.gson = GsonFactory.create(builder.configuration);
+	this.errorHandler = builder.errorHandler;
+	this.httpExecutor = Executors.newFixedThreadPool(builder.httpThreads, threadFactory("margelet-webhook-http-%d"));
+	this.ownsDispatchExecutor = builder.dispatchExecutor == null;
+	this.dispatchExecutor = ownsDispatchExecutor
+		? new ThreadPoolExecutor(
+			1,
+			1,
+			0L,
+			TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(builder.dispatchQueueSize),
+			threadFactory("margelet-webhook-dispatcher-%d"),
+			new ThreadPoolExecutor.AbortPolicy()
+		)
+		: builder.dispatchExecutor;
+	server.setExecutor(httpExecutor);
+	server.createContext(path, this::handle);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+	server.start();
+    }
+
+    /**
+     * Retrieves the address the server is bound to. When the server is
+     * created with port <code>0</code>, it carries the port chosen by the
+     * system.
+     * 
+     * @return The address.
+     */
+    public InetSocketAddress getAddress() {
+	return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and releases the server threads. Updates
+     * already handed to the default dispatch executor are still dispatched.
+     */
+    @Override
+    public void close() {
+	server.stop(0);
+	httpExecutor.shutdown();
+	if (ownsDispatchExecutor) {
+	    dispatchExecutor.shutdown();
+	}
+    }
+
+    /**
+     * Handles a request to the webhook path.
+     * 
+     * @param exchange The HTTP exchange.
+     * 
+     * @throws IOException If the exchange fails.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+	try {
+	    int status = receive(exchange);
+	    if (status != NO_BODY) {
+		exchange.sendResponseHeaders(status, NO_BODY);
+	    }
+	} catch (IOException | RuntimeException e) {
+	    report(e);
+	    throw e;
+	} finally {
+	    exchange.close();
+	}
+    }
+
+    /**
+     * Validates, decodes and dispatches the update of a request.
+     * 
+     * @param exchange The HTTP exchange.
+     * 
+     * @return The status code of the response, or {@link #NO_BODY} if the
+     *         response was already sent.
+     * 
+     * @throws IOException If the request cannot be read.
+     */
+    private int receive(HttpExchange exchange) throws IOException {
+	if (!path.equals(exchange.getRequestURI().getPath())) {
+	    return HTTP_NOT_FOUND;
+	}
+	if (!"POST".equals(exchange.getRequestMethod())) {
+	    return HTTP_BAD_METHOD;
+	}
+	if (!isAuthorized(exchange)) {
+	    return HTTP_UNAUTHORIZED;
+	}
+	String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+	if (contentLength != null && isTooLarge(contentLength)) {
+	    return HTTP_ENTITY_TOO_LARGE;
+	}
+	Update update;
+	try {
+	    update = decode(exchange);
+	} catch (BodyTooLargeException e) {
+	    return HTTP_ENTITY_TOO_LARGE;
+	}
+	if (update == null) {
+	    return HTTP_BAD_REQUEST;
+	}
+	CompletableFuture<MethodInvocation> reply = new CompletableFuture<>();
+	try {
+	    dispatchExecutor.execute(() -> dispatch(update, reply));
+	} catch (RejectedExecutionException e) {
+	    return HTTP_UNAVAILABLE;
+	}
+	if (margelet == null) {
+	    return HTTP_OK;
+	}
+	MethodInvocation invocation = awaitReply(reply);
+	if (invocation == null) {
+	    return HTTP_OK;
+	}
+	JsonBuffer buffer = JsonBuffer.acquire();
+	try {
+	    buffer.write(gson, toJson(invocation));
+	    exchange.getResponseHeaders().set("Content-Type", "application/json");
+	    exchange.sendResponseHeaders(HTTP_OK, buffer.size());
+	    buffer.writeTo(exchange.getResponseBody());
+	} finally {
+	    buffer.release();
+	}
+	return NO_BODY;
+    }
+
+    /**
+     * Waits for the reply of the handler up to the reply deadline.
+     * 
+     * <p>
+     * If the deadline expires, the reply future is completed with
+     * <code>null</code>, so the dispatch thread knows it must call the method
+     * itself.
+     * 
+     * @param reply The reply of the handler.
+     * 
+     * @return The method to write in the response, or <code>null</code> if
+     *         there is none, or if the handler did not reply in time.
+     */
+    private MethodInvocation awaitReply(CompletableFuture<MethodInvocation> reply) {
+	try {
+	    return reply.get(replyDeadline, TimeUnit.NANOSECONDS);
+	} catch (TimeoutException e) {
+	    // losing the race means the handler replied just in time
+	    return reply.complete(null) ? null : reply.join();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    return reply.complete(null) ? null : reply.join();
+	} catch (ExecutionException e) {
+	    return null;
+	}
+    }
+
+    /**
+     * Encodes a method invocation as a webhook response body: the method
+     * parameters plus the <code>"method"</code> field.
+     * 
+     * @param invocation The method invocation.
+     * 
+     * @return The JSON object.
+     */
+    private JsonObject toJson(MethodInvocation invocation) {
+	JsonObject json = new JsonObject();
+	json.addProperty("method", invocation.getMethodName());
+	JsonElement parameters = gson.toJsonTree(invocation.getParameters());
+	parameters.getAsJsonObject().entrySet().forEach(entry -> json.add(entry.getKey(), entry.getValue()));
+	return json;
+    }
+
+    /**
+     * Decodes the update of a request.
+     * 
+     * @param exchange The HTTP exchange.
+     * 
+     * @return The update, or <code>null</code> if the body cannot be read or
+     *         is not a valid update.
+     * 
+     * @throws IOException If the body is larger than the maximum body size,
+     *             which a chunked request only tells once it is read.
+     */
+    private Update decode(HttpExchange exchange) throws IOException {
+	byte[] body;
+	try {
+	    // one byte more than allowed, to tell a large body from a bad one
+	    body = ByteStreams.toByteArray(ByteStreams.limit(exchange.getRequestBody(), maxBodySize + 1L));
+	} catch (IOException e) {
+	    report(e);
+	    return null;
+	}
+	if (body.length > maxBodySize) {
+	    throw new BodyTooLargeException();
+	}
+	try {
+	    return GsonFactory.decodeUpdate(updateAdapter, new String(body, StandardCharsets.UTF_8));
+	} catch (IOException | JsonParseException | IllegalStateException e) {
+	    report(e);
+	    return null;
+	}
+    }
+
+    /**
+     * Checks the <code>Content-Length</code> header against the maximum body
+     * size.
+     * 
+     * @param contentLength The header value.
+     * 
+     * @return <code>true</code> if the body is larger than allowed.
+     */
+    private boolean isTooLarge(String contentLength) {
+	try {
+	    return Long.parseLong(contentLength) > maxBodySize;
+	} catch (NumberFormatException e) {
+	    return true;
+	}
+    }
+
+    /**
+     * Hands an update to the handler, and delivers its reply.
+     * 
+     * <p>
+     * The reply is handed to the waiting HTTP exchange through the reply
+     * future. If the exchange has already given up, the method is called
+     * through <code>Margelet</code>.
+     * 
+     * @param update The update.
+     * @param reply Receives the reply of the handler.
+     */
+    private void dispatch(Update update, CompletableFuture<MethodInvocation> reply) {
+	MethodInvocation invocation = null;
+	try {
+	    invocation = handler.handle(update);
+	} catch (RuntimeException e) {
+	    report(e);
+	}
+	if (!reply.complete(invocation) && invocation != null) {
+	    call(invocation);
+	}
+    }
+
+    /**
+     * Calls a method the handler replied with, reporting failures to the
+     * error handler.
+     * 
+     * @param invocation The method invocation.
+     */
+    private void call(MethodInvocation invocation) {
+	CompletableFuture<Response<?>> response;
+	try {
+	    response = margelet.callMethodAsync(
+		    invocation.getMethodName(),
+		    invocation.getParameters(),
+		    RESULT_TYPE,
+		    Configuration.empty()
+	    );
+	} catch (RuntimeException e) {
+	    report(e);
+	    return;
+	}
+	response.whenComplete((result, throwable) -> {
+	    if (throwable != null) {
+		report(throwable);
+	    } else if (!result.isOk()) {
+		report(new TelegramApiException(result));
+	    }
+	});
+    }
+
+    /**
+     * Reports a failure to the error handler.
+     * 
+     * @param failure The failure.
+     */
+    private void report(Throwable failure) {
+	try {
+	    errorHandler.accept(failure);
+	} catch (RuntimeException e) {
+	    LOGGER.log(Level.WARNING, "The error handler of the webhook server failed", e);
+	}
+    }
+
+    /**
+     * Checks the secret token header, comparing it in constant time.
+     * 
+     * @param exchange The HTTP exchange.
+     * 
+     * @return <code>true</code> if no secret token is required, or if the
+     *         header carries it.
+     */
+    private boolean isAuthorized(HttpExchange exchange) {
+	if (secretToken == null) {
+	    return true;
+	}
+	String header = exchange.getRequestHeaders().getFirst(SECRET_TOKEN_HEADER);
+	return header != null && MessageDigest.isEqual(secretToken, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("javadoc")
+    private static ThreadFactory threadFactory(String nameFormat) {
+	return new ThreadFactoryBuilder()
+		.setNameFormat(nameFormat)
+		.setDaemon(true)
+		.build();
+    }
+
+    /**
+     * Creates a builder of webhook servers.
+     * 
+     * @param dispatcher Receives each update, in the dispatch executor.
+     * 
+     * @return The builder.
+     */
+    public static Builder builder(Consumer<? super Update> dispatcher) {
+	Preconditions.checkNotNull(dispatcher, "Parameter 'dispatcher' cannot be null");
+	return new Builder(null, update -> {
+	    dispatcher.accept(update);
+	    return null;
+	});
+    }
+
+    /**
+     * Creates a builder of webhook servers whose handler may reply to updates
+     * with method calls. Updates are decoded with the configuration of the
+     * given <code>Margelet</code>, unless another one is given to the
+     * builder.
+     * 
+     * @param margelet Calls the methods the handler replies with after the
+     *            reply deadline.
+     * @param handler Receives each update, in the dispatch executor.
+     * 
+     * @return The builder.
+     */
+    public static Builder builder(Margelet margelet, WebhookHandler handler) {
+	Preconditions.checkNotNull(margelet, "Parameter 'margelet' cannot be null");
+	Preconditions.checkNotNull(handler, "Parameter 'handler' cannot be null");
+	return new Builder(margelet, handler);
+    }
+
+    /**
+     * Signals that a request body is larger than the maximum body size.
+     * 
+     * @author Welyab Paula
+     */
+    private static final class BodyTooLargeException extends IOException {
+
+	@SuppressWarnings("javadoc")
+	private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * A builder for <code>WebhookServer</code> objects.
+     * 
+     * @author Welyab Paula
+     */
+    public static final class Builder {
+
+	private final Margelet margelet;
+
+	private final WebhookHandler handler;
+
+	private InetSocketAddress address = new InetSocketAddress("127.0.0.1", 8080);
+
+	private String path = "/";
+
+	private String secretToken;
+
+	private Configuration configuration;
+
+	private UpdateProjection projection = UpdateProjection.all();
+
+	private ExecutorService dispatchExecutor;
+
+	private int dispatchQueueSize = 1024;
+
+	private int httpThreads = Runtime.getRuntime().availableProcessors();
+
+	private int backlog;
+
+	private int maxBodySize = 1024 * 1024;
+
+	private long replyDeadline = TimeUnit.SECONDS.toNanos(1);
+
+	private Consumer<? super Throwable> errorHandler = failure -> LOGGER.log(
+		Level.WARNING,
+		"Webhook request failed",
+		failure
+	);
+
+	private Builder(Margelet margelet, WebhookHandler handler) {
+	    this.margelet = margelet;
+	    this.handler = handler;
+	    this.configuration = margelet == null ? Configuration.empty() : margelet.getConfiguration();
+	}
+
+	/**
+	 * Adjusts the address the server binds to. Default:
+	 * <code>127.0.0.1:8080</code>.
+	 * 
+	 * @param address The address. Port <code>0</code> binds to a port
+	 *            chosen by the system.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder address(InetSocketAddress address) {
+	    Preconditions.checkNotNull(address, "Parameter 'address' cannot be null");
+	    this.address = address;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the path of the webhook URL. Default: <code>"/"</code>.
+	 * 
+	 * @param path The path, starting with <code>"/"</code>.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder path(String path) {
+	    Preconditions.checkNotNull(path, "Parameter 'path' cannot be null");
+	    Preconditions.checkArgument(path.startsWith("/"), "Parameter 'path' must start with '/'");
+	    this.path = path;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the secret token given to <code>setWebhook</code>. Requests
+	 * without it in the {@link WebhookServer#SECRET_TOKEN_HEADER} header are
+	 * rejected. By default, the header is not checked, which should only be
+	 * used when the TLS terminator checks it.
+	 * 
+	 * @param secretToken The secret token.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder secretToken(String secretToken) {
+	    Preconditions.checkNotNull(secretToken, "Parameter 'secretToken' cannot be null");
+	    this.secretToken = secretToken;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the configuration used to decode updates, like
+	 * {@link com.welyab.margelet.Constants#CONFIG_LAZY_DECODING}.
+	 * 
+	 * @param configuration The configuration.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder configuration(Configuration configuration) {
+	    Preconditions.checkNotNull(configuration, "Parameter 'configuration' cannot be null");
+	    this.configuration = configuration;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the parts of the updates that are decoded. Default:
+	 * {@link UpdateProjection#all()}.
+	 * 
+	 * @param projection The projection.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder projection(UpdateProjection projection) {
+	    Preconditions.checkNotNull(projection, "Parameter 'projection' cannot be null");
+	    this.projection = projection;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the executor that runs the dispatcher. It is not shut down
+	 * with the server. By default, a single thread runs the dispatcher, so
+	 * updates are dispatched in the order they are received, from a queue
+	 * of {@link #dispatchQueueSize(int)} updates. The executor should
+	 * reject updates when it is saturated, so Telegram services deliver
+	 * them again later instead of the server buffering them without bound.
+	 * 
+	 * @param dispatchExecutor The executor.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder dispatchExecutor(ExecutorService dispatchExecutor) {
+	    Preconditions.checkNotNull(dispatchExecutor, "Parameter 'dispatchExecutor' cannot be null");
+	    this.dispatchExecutor = dispatchExecutor;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the number of updates waiting for the default dispatch
+	 * executor. When the queue is full, updates are answered with
+	 * <code>503</code>. Default: 1024.
+	 * 
+	 * @param dispatchQueueSize The queue size.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder dispatchQueueSize(int dispatchQueueSize) {
+	    Preconditions.checkArgument(dispatchQueueSize > 0, "Parameter 'dispatchQueueSize' must be positive");
+	    this.dispatchQueueSize = dispatchQueueSize;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the number of threads that run HTTP exchanges. Default: the
+	 * number of available processors.
+	 * 
+	 * @param httpThreads The number of threads.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder httpThreads(int httpThreads) {
+	    Preconditions.checkArgument(httpThreads > 0, "Parameter 'httpThreads' must be positive");
+	    this.httpThreads = httpThreads;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the maximum number of pending connections. Default: the
+	 * system default.
+	 * 
+	 * @param backlog The backlog.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder backlog(int backlog) {
+	    this.backlog = backlog;
+	    return this;
+	}
+
+	/**
+	 * Adjusts the maximum size of request bodies. Larger requests are
+	 * rejected with <code>413</code>. Default: 1 MiB.
+	 * 
+	 * @param maxBodySize The maximum size, in bytes.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder maxBodySize(int maxBodySize) {
+	    Preconditions.checkArgument(maxBodySize > 0, "Parameter 'maxBodySize' must be positive");
+	    this.maxBodySize = maxBodySize;
+	    return this;
+	}
+
+	/**
+	 * Adjusts how long an HTTP exchange waits for the handler to reply with
+	 * a method call, to write it in the response. Only used by servers
+	 * created with {@link WebhookServer#builder(Margelet, WebhookHandler)}.
+	 * Default: 1 second.
+	 * 
+	 * <p>
+	 * The deadline holds an HTTP thread, and must be well below the time
+	 * Telegram services wait for the webhook response.
+	 * 
+	 * @param replyDeadline The deadline.
+	 * @param unit The unit of the deadline.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder replyDeadline(long replyDeadline, TimeUnit unit) {
+	    Preconditions.checkArgument(replyDeadline >= 0, "Parameter 'replyDeadline' cannot be negative");
+	    Preconditions.checkNotNull(unit, "Parameter 'unit' cannot be null");
+	    this.replyDeadline = unit.toNanos(replyDeadline);
+	    return this;
+	}
+
+	/**
+	 * Adjusts the handler of failures: invalid requests, exceptions thrown
+	 * by the handler and failed method calls. Default: logs the failure with
+	 * <code>java.util.logging</code>.
+	 * 
+	 * @param errorHandler The error handler.
+	 * 
+	 * @return This builder.
+	 */
+	public Builder errorHandler(Consumer<? super Throwable> errorHandler) {
+	    Preconditions.checkNotNull(errorHandler, "Parameter 'errorHandler' cannot be null");
+	    this.errorHandler = errorHandler;
+	    return this;
+	}
+
+	/**
+	 * Creates the server, bound to the configured address but not started.
+	 * 
+	 * @return The server.
+	 * 
+	 * @throws MargeletException If the server cannot be bound.
+	 */
+	public WebhookServer build() {
+	    return new WebhookServer(this);
+	}
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.http;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Releases the resources of <code>java.net.http.HttpClient</code> instances.
+ * 
+ * <p>
+ * This version is used by Java 11 to 20, where a client cannot be closed: its
+ * connections and selector thread are released when it becomes unreachable.
+ * Its executor is not shut down either, since requests still in flight are
+ * completed by it. Java 21 or later uses a version that shuts both down.
+ * 
+ * @author Welyab Paula
+ */
+final class JdkHttpClients {
+
+    @SuppressWarnings("javadoc")
+    private JdkHttpClients() {
+    }
+
+    /**
+     * Shuts a client and its executor down, aborting its requests in flight,
+     * if the running Java version supports it.
+     * 
+     * @param client The client.
+     * @param executor The executor of the client.
+     */
+    static void shutdownNow(HttpClient client, ExecutorService executor) {
+	// nothing to do before Java 21
+    }
+}
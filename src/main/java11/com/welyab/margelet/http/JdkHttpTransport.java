@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+
+/**
+ * A {@link HttpTransport} backed by <code>java.net.http.HttpClient</code>.
+ * 
+ * <p>
+ * The client negotiates HTTP/2 with Telegram services, so concurrent requests
+ * are multiplexed over a single connection instead of requiring one pooled
+ * connection per in flight request.
+ * 
+ * <p>
+ * The client manages its connections by itself, so this transport ignores
+ * the configuration properties
+ * {@link Constants#CONFIG_HTTP_MAX_CONNECTIONS_TOTAL},
+ * {@link Constants#CONFIG_HTTP_MAX_CONNECTIONS_PER_ROUTE},
+ * {@link Constants#CONFIG_HTTP_IDLE_CONNECTION_TIMEOUT},
+ * {@link Constants#CONFIG_HTTP_KEEP_ALIVE} and
+ * {@link Constants#CONFIG_HTTP_IO_THREADS}. How long idle connections are
+ * kept is set for the whole JVM by the system property
+ * <code>jdk.httpclient.keepalive.timeout</code>.
+ * 
+ * <p>
+ * On Java 21 or later, closing the transport shuts the client down, aborting
+ * the requests in flight, closing its connections and stopping its threads.
+ * Before Java 21, a client cannot be closed: requests in flight complete
+ * normally, its connections are closed when it becomes unreachable, and its
+ * idle threads end by themselves.
+ * 
+ * <p>
+ * This class requires Java 11 or later. It is selected by setting the
+ * configuration property {@link Constants#CONFIG_HTTP_TRANSPORT} to
+ * <code>"jdk"</code>.
+ * 
+ * @author Welyab Paula
+ */
+public class JdkHttpTransport implements HttpTransport {
+
+    /**
+     * The client.
+     */
+    private final HttpClient client;
+
+    /**
+     * Runs the asynchronous tasks of the client, like completing the futures
+     * of asynchronous requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Creates a new transport.
+     * 
+     * @param configuration The configuration.
+     */
+    public JdkHttpTransport(Configuration configuration) {
+	this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+		.setNameFormat("margelet-jdk-http-%d")
+		.setDaemon(true)
+		.build());
+	this.client = HttpClient.newBuilder()
+		.version(HttpClient.Version.HTTP_2)
+		.followRedirects(HttpClient.Redirect.NORMAL)
+		.executor(executor)
+		.build();
+    }
+
+    @Override
+    public <T> T execute(HttpTransportRequest request, ResponseBodyReader<T> reader) throws IOException {
+	HttpResponse<InputStream> response;
+	try {
+	    response = client.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    InterruptedIOException interruptedIOException = new InterruptedIOException("HTTP request interrupted");
+	    interruptedIOException.initCause(e);
+	    throw interruptedIOException;
+	}
+	try (InputStream content = response.body()) {
+	    return reader.read(response.statusCode(), content);
+	}
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeAsync(HttpTransportRequest request, ResponseBodyReader<T> reader) {
+	CompletableFuture<HttpResponse<byte[]>> httpFuture = client.sendAsync(
+		toHttpRequest(request),
+		HttpResponse.BodyHandlers.ofByteArray()
+	);
+	CompletableFuture<T> result = new CompletableFuture<>();
+	httpFuture.whenComplete((response, throwable) -> {
+	    if (throwable != null) {
+		result.completeExceptionally(throwable);
+		return;
+	    }
+	    try (InputStream content = new ByteArrayInputStream(response.body())) {
+		result.complete(reader.read(response.statusCode(), content));
+	    } catch (IOException | RuntimeException e) {
+		result.completeExceptionally(e);
+	    }
+	});
+	result.whenComplete((value, throwable) -> {
+	    if (result.isCancelled()) {
+		httpFuture.cancel(true);
+	    }
+	});
+	return result;
+    }
+
+    /**
+     * Shuts the client and its executor down, on Java 21 or later.
+     */
+    @Override
+    public void close() {
+	JdkHttpClients.shutdownNow(client, executor);
+    }
+
+    /**
+     * Converts a transport request into a <code>java.net.http</code> request.
+     * 
+     * @param request The transport request.
+     * 
+     * @return The <code>java.net.http</code> request.
+     */
+    private static HttpRequest toHttpRequest(HttpTransportRequest request) {
+	HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUrl()));
+	switch (request.getMethod()) {
+	case GET:
+	    return builder.GET().build();
+	case POST:
+	    if (request.getBody() == null) {
+		return builder.POST(HttpRequest.BodyPublishers.noBody()).build();
+	    }
+	    return builder
+		    .header("Content-Type", request.getContentType())
+		    .POST(toBodyPublisher(request.getBody()))
+		    .build();
+	default:
+	    throw new IllegalArgumentException("Unsupported HTTP method: " + request.getMethod());
+	}
+    }
+
+    /**
+     * Converts a request body into a body publisher. Array backed bodies are
+     * published without copying.
+     * 
+     * @param body The request body.
+     * 
+     * @return The body publisher.
+     */
+    private static HttpRequest.BodyPublisher toBodyPublisher(RequestBody body) {
+	if (body instanceof ByteArrayRequestBody) {
+	    ByteArrayRequestBody arrayBody = (ByteArrayRequestBody) body;
+	    return HttpRequest.BodyPublishers.ofByteArray(
+		    arrayBody.getArray(),
+		    arrayBody.getOffset(),
+		    (int) arrayBody.getContentLength()
+	    );
+	}
+	ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	try {
+	    body.writeTo(buffer);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+	return HttpRequest.BodyPublishers.ofByteArray(buffer.toByteArray());
+    }
+
+    /**
+     * Creates {@link JdkHttpTransport} instances.
+     * 
+     * @author Welyab Paula
+     */
+    public static class Factory implements HttpTransportFactory {
+
+	@Override
+	public String getName() {
+	    return HttpClientPool.JDK_TRANSPORT_NAME;
+	}
+
+	@Override
+	public HttpTransport create(Configuration configuration) {
+	    return new JdkHttpTransport(configuration);
+	}
+    }
+}
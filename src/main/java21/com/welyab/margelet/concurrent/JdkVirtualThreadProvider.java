@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.welyab.margelet.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@link VirtualThreadProvider} backed by the virtual threads of Java 21.
+ * 
+ * <p>
+ * This class requires Java 21 or later. It is loaded by
+ * {@link VirtualThreads}.
+ * 
+ * @author Welyab Paula
+ */
+final class JdkVirtualThreadProvider implements VirtualThreadProvider {
+
+    @Override
+    public boolean isVirtual(Thread thread) {
+	return thread.isVirtual();
+    }
+
+    @Override
+    public Thread newThread(Runnable task) {
+	return Thread.ofVirtual().unstarted(task);
+    }
+
+    @Override
+    public ThreadFactory threadFactory(String namePrefix) {
+	return Thread.ofVirtual().name(namePrefix, 0).factory();
+    }
+
+    @Override
+    public ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+	return Executors.newThreadPerTaskExecutor(threadFactory(namePrefix));
+    }
+}
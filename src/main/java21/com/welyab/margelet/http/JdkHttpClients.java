@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.http;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Releases the resources of <code>java.net.http.HttpClient</code> instances.
+ * 
+ * <p>
+ * This version requires Java 21 or later, where a client can be shut down,
+ * closing its connections and stopping its selector thread.
+ * 
+ * @author Welyab Paula
+ */
+final class JdkHttpClients {
+
+    /**
+     * How long the aborted requests of a client may take to complete before
+     * its executor is shut down.
+     */
+    private static final Duration TERMINATION_TIMEOUT = Duration.ofSeconds(5);
+
+    @SuppressWarnings("javadoc")
+    private JdkHttpClients() {
+    }
+
+    /**
+     * Shuts a client down, aborting its requests in flight, and shuts its
+     * executor down once the aborted requests are completed.
+     * 
+     * @param client The client.
+     * @param executor The executor of the client.
+     */
+    static void shutdownNow(HttpClient client, ExecutorService executor) {
+	client.shutdownNow();
+	try {
+	    client.awaitTermination(TERMINATION_TIMEOUT);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+	executor.shutdown();
+    }
+}
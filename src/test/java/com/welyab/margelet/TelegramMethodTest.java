@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.welyab.margelet.http.StubHttpTransport;
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.User;
+
+public class TelegramMethodTest {
+
+    private static final Configuration STUB = Configuration.builder()
+	    .property(Constants.CONFIG_HTTP_TRANSPORT, StubHttpTransport.NAME)
+	    .build();
+
+    @After
+    public void resetResponder() {
+	StubHttpTransport.responder = body -> "{\"ok\":true,\"result\":[]}";
+    }
+
+    @Test
+    public void callsThroughSharedPool() {
+	StubHttpTransport.responder = body -> "{\"ok\":true,\"result\":{\"id\":42,\"first_name\":\"Margelet\"}}";
+	TelegramMethod method = new TelegramMethod(Constants.METHOD_GET_ME, User.class, "token");
+	Response<?> response = method.call(STUB);
+	assertTrue(response.isOk());
+	User user = (User) response.getResult();
+	assertEquals(42, user.getId());
+	assertEquals("Margelet", user.getFirstName());
+    }
+}
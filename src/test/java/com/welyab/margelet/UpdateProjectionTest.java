@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.welyab.margelet.gson.GsonFactory;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.UpdateType;
+
+public class UpdateProjectionTest {
+
+    private static final String MESSAGE = "{\"message_id\":5,\"text\":\"hello\",\"chat\":{\"id\":9},"
+	    + "\"from\":{\"id\":3,\"first_name\":\"A\"},\"reply_to_message\":{\"message_id\":4,\"text\":\"hi\"}}";
+
+    @Test
+    public void rejectsUnknownMessageFields() {
+	try {
+	    UpdateProjection.builder().messageFields("text", "txt");
+	    fail("An unknown message field must be rejected");
+	} catch (IllegalArgumentException e) {
+	    assertTrue(e.getMessage().contains("'txt'"));
+	}
+    }
+
+    @Test
+    public void decodesOnlySelectedMessageFields() throws IOException {
+	Update update = decode(
+		UpdateProjection.builder().messageFields("text", "reply_to_message").build(),
+		"{\"update_id\":1,\"message\":" + MESSAGE + "}"
+	);
+	Message message = update.getMessage();
+	assertEquals("hello", message.getText());
+	assertFalse(message.hasMessageId());
+	assertNull(message.getChat());
+	assertNull(message.getFrom());
+	assertEquals("hi", message.getReplyToMessage().getText());
+	assertEquals(4, message.getReplyToMessage().getMessageId());
+    }
+
+    @Test
+    public void skipsPayloadsOfOtherKinds() throws IOException {
+	UpdateProjection projection = UpdateProjection.builder()
+		.updateTypes(UpdateType.CALLBACK_QUERY)
+		.build();
+	Update message = decode(projection, "{\"update_id\":2,\"message\":" + MESSAGE + "}");
+	assertEquals(2, message.getUpdateId());
+	assertEquals(UpdateType.MESSAGE, message.getType());
+	assertNull(message.getMessage());
+	Update callbackQuery = decode(projection, "{\"update_id\":3,\"callback_query\":{\"id\":\"q\",\"data\":\"d\"}}");
+	assertEquals(UpdateType.CALLBACK_QUERY, callbackQuery.getType());
+	assertEquals("d", callbackQuery.getCallbackQuery().getData());
+    }
+
+    @Test
+    public void selectsEverythingByDefault() throws IOException {
+	assertTrue(UpdateProjection.all().isAll());
+	assertTrue(UpdateProjection.builder().build().isAll());
+	Update update = decode(UpdateProjection.all(), "{\"update_id\":4,\"message\":" + MESSAGE + "}");
+	assertNotNull(update.getMessage().getChat());
+	assertEquals(3, update.getMessage().getFrom().getId());
+    }
+
+    private static Update decode(UpdateProjection projection, String json) throws IOException {
+	return GsonFactory.updateAdapter(Configuration.empty(), projection).fromJson(json);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class RingBufferTest {
+
+    private static final int ELEMENTS = 200_000;
+
+    private static final int CONSUMERS = 4;
+
+    @Test
+    public void roundsCapacityUpToPowerOfTwo() {
+	assertEquals(1, new RingBuffer<>(1).capacity());
+	assertEquals(2, new RingBuffer<>(2).capacity());
+	assertEquals(8, new RingBuffer<>(5).capacity());
+    }
+
+    @Test
+    public void rejectsOfferWhenFull() {
+	RingBuffer<Integer> buffer = new RingBuffer<>(4);
+	for (int i = 0; i < 4; i++) {
+	    assertTrue(buffer.offer(i));
+	}
+	assertFalse(buffer.offer(4));
+	assertEquals(Integer.valueOf(0), buffer.poll());
+	assertTrue(buffer.offer(4));
+	for (int i = 1; i <= 4; i++) {
+	    assertEquals(Integer.valueOf(i), buffer.poll());
+	}
+	assertNull(buffer.poll());
+	assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void wrapsAroundWithCapacityOne() {
+	wrapsAround(1);
+    }
+
+    @Test
+    public void wrapsAroundWithCapacityTwo() {
+	wrapsAround(2);
+    }
+
+    @Test
+    public void deliversEveryElementOnceToManyConsumers() throws InterruptedException {
+	RingBuffer<Integer> buffer = new RingBuffer<>(64);
+	AtomicIntegerArray deliveries = new AtomicIntegerArray(ELEMENTS);
+	AtomicBoolean produced = new AtomicBoolean();
+	AtomicReference<Throwable> failure = new AtomicReference<>();
+	List<Thread> consumers = new ArrayList<>();
+	for (int i = 0; i < CONSUMERS; i++) {
+	    Thread consumer = new Thread(() -> {
+		while (true) {
+		    Integer element = buffer.poll();
+		    if (element != null) {
+			deliveries.incrementAndGet(element);
+		    } else if (produced.get() && buffer.isEmpty()) {
+			return;
+		    } else {
+			Thread.yield();
+		    }
+		}
+	    });
+	    consumer.setUncaughtExceptionHandler((thread, e) -> failure.set(e));
+	    consumer.start();
+	    consumers.add(consumer);
+	}
+	for (int i = 0; i < ELEMENTS; i++) {
+	    while (!buffer.offer(i)) {
+		Thread.yield();
+	    }
+	}
+	produced.set(true);
+	for (Thread consumer : consumers) {
+	    consumer.join();
+	}
+	assertNull(failure.get());
+	for (int i = 0; i < ELEMENTS; i++) {
+	    assertEquals("deliveries of " + i, 1, deliveries.get(i));
+	}
+    }
+
+    private static void wrapsAround(int capacity) {
+	RingBuffer<Integer> buffer = new RingBuffer<>(capacity);
+	int next = 0;
+	int expected = 0;
+	for (int lap = 0; lap < 1000; lap++) {
+	    while (buffer.offer(next)) {
+		next++;
+	    }
+	    assertEquals(capacity, next - expected);
+	    // drains one element less than the capacity, when it can, so the
+	    // head and the tail cross the slots at different positions
+	    int drain = capacity > 1 && lap % 2 == 0 ? capacity - 1 : capacity;
+	    for (int i = 0; i < drain; i++) {
+		assertEquals(Integer.valueOf(expected++), buffer.poll());
+	    }
+	}
+	while (expected < next) {
+	    assertEquals(Integer.valueOf(expected++), buffer.poll());
+	}
+	assertNull(buffer.poll());
+	assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.concurrent;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class VirtualThreadsIT {
+
+    @Test
+    public void picksJdkProviderOfMultiReleaseJar() throws Exception {
+	assumeTrue(featureVersion() >= 21);
+	assertTrue(VirtualThreads.isSupported());
+	Class<?> provider = Class.forName("com.welyab.margelet.concurrent.JdkVirtualThreadProvider");
+	String location = provider.getProtectionDomain().getCodeSource().getLocation().getPath();
+	assertTrue("Loaded from " + location, location.endsWith(".jar"));
+	AtomicBoolean virtual = new AtomicBoolean();
+	Thread thread = VirtualThreads.newThread(() -> virtual.set(VirtualThreads.isVirtual(Thread.currentThread())));
+	thread.start();
+	thread.join();
+	assertTrue(virtual.get());
+    }
+
+    @Test
+    public void runsTasksInVirtualThreads() throws Exception {
+	assumeTrue(featureVersion() >= 21);
+	AtomicBoolean virtual = new AtomicBoolean();
+	ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("it-");
+	executor.submit(() -> virtual.set(VirtualThreads.isVirtual(Thread.currentThread()))).get();
+	executor.shutdown();
+	assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+	assertTrue(virtual.get());
+    }
+
+    private static int featureVersion() {
+	String version = System.getProperty("java.specification.version");
+	return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+}
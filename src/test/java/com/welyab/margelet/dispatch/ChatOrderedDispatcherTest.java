@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import com.welyab.margelet.MargeletException;
+import com.welyab.margelet.types.Update;
+
+public class ChatOrderedDispatcherTest {
+
+    @Test
+    public void keepsTheOrderOfEachKey() {
+	List<List<Integer>> handled = Arrays.asList(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+	ChatOrderedDispatcher dispatcher = ChatOrderedDispatcher.builder(update -> {
+	    List<Integer> ids = handled.get(update.getUpdateId() % 3);
+	    synchronized (ids) {
+		ids.add(update.getUpdateId());
+	    }
+	})
+		.keyFunction(update -> update.getUpdateId() % 3)
+		.stripes(2)
+		.queueCapacity(4)
+		.build();
+	dispatcher.start();
+	for (int i = 0; i < 3000; i++) {
+	    dispatcher.dispatch(update(i));
+	}
+	dispatcher.close();
+	for (int key = 0; key < 3; key++) {
+	    List<Integer> ids = handled.get(key);
+	    assertEquals(1000, ids.size());
+	    for (int i = 0; i < ids.size(); i++) {
+		assertEquals(key + 3 * i, (int) ids.get(i));
+	    }
+	}
+    }
+
+    @Test
+    public void interruptedDispatchFailsAndKeepsTheInterruptFlag() throws InterruptedException {
+	CountDownLatch handling = new CountDownLatch(1);
+	CountDownLatch release = new CountDownLatch(1);
+	ChatOrderedDispatcher dispatcher = singleSlotDispatcher(update -> {
+	    handling.countDown();
+	    awaitUninterruptibly(release);
+	});
+	dispatcher.start();
+	dispatcher.dispatch(update(1));
+	assertTrue(handling.await(5, TimeUnit.SECONDS));
+	// fills the queue while the stripe handles the first update
+	dispatcher.dispatch(update(2));
+	AtomicReference<Throwable> failure = new AtomicReference<>();
+	AtomicReference<Boolean> interrupted = new AtomicReference<>();
+	Thread producer = new Thread(() -> {
+	    try {
+		dispatcher.dispatch(update(3));
+	    } catch (RuntimeException e) {
+		failure.set(e);
+	    }
+	    interrupted.set(Thread.currentThread().isInterrupted());
+	});
+	producer.start();
+	awaitState(producer, Thread.State.WAITING);
+	producer.interrupt();
+	producer.join(TimeUnit.SECONDS.toMillis(5));
+	release.countDown();
+	dispatcher.close();
+	assertTrue(failure.get() instanceof MargeletException);
+	assertTrue(interrupted.get());
+    }
+
+    @Test
+    public void rejectsDispatchIntoTheFullQueueOfTheOwnStripe() throws InterruptedException {
+	CountDownLatch done = new CountDownLatch(1);
+	AtomicReference<ChatOrderedDispatcher> self = new AtomicReference<>();
+	AtomicReference<Throwable> failure = new AtomicReference<>();
+	List<Integer> handled = new ArrayList<>();
+	ChatOrderedDispatcher dispatcher = singleSlotDispatcher(update -> {
+	    handled.add(update.getUpdateId());
+	    if (update.getUpdateId() == 1) {
+		self.get().dispatch(update(2));
+		try {
+		    self.get().dispatch(update(3));
+		} catch (IllegalStateException e) {
+		    failure.set(e);
+		}
+		done.countDown();
+	    }
+	});
+	self.set(dispatcher);
+	dispatcher.start();
+	dispatcher.dispatch(update(1));
+	assertTrue(done.await(5, TimeUnit.SECONDS));
+	dispatcher.close();
+	assertTrue(failure.get() instanceof IllegalStateException);
+	assertEquals(Arrays.asList(1, 2), handled);
+    }
+
+    private static ChatOrderedDispatcher singleSlotDispatcher(Consumer<Update> handler) {
+	return ChatOrderedDispatcher.builder(handler)
+		.keyFunction(update -> 0)
+		.stripes(1)
+		.queueCapacity(1)
+		.build();
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+	long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+	while (thread.getState() != state && System.nanoTime() < deadline) {
+	    Thread.sleep(1);
+	}
+	assertEquals(state, thread.getState());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+	while (true) {
+	    try {
+		latch.await();
+		return;
+	    } catch (InterruptedException e) {
+		continue;
+	    }
+	}
+    }
+
+    private static Update update(int id) {
+	Update update = new Update();
+	update.setUpdateId(id);
+	return update;
+    }
+}
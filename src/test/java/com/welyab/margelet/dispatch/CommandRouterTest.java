@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.MessageEntity;
+
+public class CommandRouterTest {
+
+    private final List<String> received = new ArrayList<>();
+
+    private final List<Message> ignored = new ArrayList<>();
+
+    @Test
+    public void routesCommandWithArguments() {
+	CommandRouter router = router(CommandRouter.builder());
+	assertTrue(router.route(command("/start  some arguments ", 6)));
+	assertEquals(Arrays.asList("start:some arguments"), received);
+    }
+
+    @Test
+    public void foldsCaseOfCommandNames() {
+	CommandRouter router = CommandRouter.builder()
+		.command("Help", (message, arguments) -> received.add("help"))
+		.build();
+	assertEquals(ImmutableSet.of("help"), router.getCommands());
+	assertTrue(router.route(command("/HELP", 5)));
+	assertTrue(router.route(command("/help", 5)));
+	assertEquals(Arrays.asList("help", "help"), received);
+	try {
+	    CommandRouter.builder()
+		    .command("help", (message, arguments) -> {})
+		    .command("HELP", (message, arguments) -> {});
+	    fail("Command names differing only in case must be rejected");
+	} catch (IllegalArgumentException e) {
+	    // expected
+	}
+    }
+
+    @Test
+    public void routesCommandsAddressedToThisBot() {
+	CommandRouter router = router(CommandRouter.builder().botUsername("Margelet_Bot"));
+	assertTrue(router.route(command("/start@margelet_bot now", 19)));
+	assertEquals(Arrays.asList("start:now"), received);
+    }
+
+    @Test
+    public void ignoresCommandsAddressedToOtherBots() {
+	CommandRouter router = router(CommandRouter.builder().botUsername("margelet_bot"));
+	assertFalse(router.route(command("/start@other_bot", 16)));
+	assertFalse(router.route(command("/start@margelet_bot2", 20)));
+	assertTrue(received.isEmpty());
+	assertTrue(ignored.isEmpty());
+    }
+
+    @Test
+    public void routesCommandsAddressedToAnyBotWithoutUsername() {
+	CommandRouter router = router(CommandRouter.builder());
+	assertTrue(router.route(command("/start@any_bot", 14)));
+	assertEquals(Arrays.asList("start:"), received);
+    }
+
+    @Test
+    public void routesOnlyCommandsAtStartOfMessage() {
+	CommandRouter router = router(CommandRouter.builder());
+	Message message = new Message();
+	message.setText("say /start");
+	message.setEntities(Collections.singletonList(entity(CommandRouter.BOT_COMMAND, 4, 6)));
+	assertFalse(router.route(message));
+	Message mention = new Message();
+	mention.setText("/start");
+	mention.setEntities(Collections.singletonList(entity("mention", 0, 6)));
+	assertFalse(router.route(mention));
+	assertTrue(received.isEmpty());
+	assertEquals(Arrays.asList(message, mention), ignored);
+    }
+
+    @Test
+    public void handsUnknownCommandsToFallback() {
+	CommandRouter router = router(CommandRouter.builder());
+	Message prefix = command("/sta", 4);
+	Message longer = command("/starter", 8);
+	Message accented = command("/stárt", 6);
+	for (Message message : Arrays.asList(prefix, longer, accented)) {
+	    assertFalse(router.route(message));
+	}
+	assertTrue(received.isEmpty());
+	assertEquals(Arrays.asList(prefix, longer, accented), ignored);
+    }
+
+    @Test
+    public void acceptsOnlyCommandNameAlphabet() {
+	CommandRouter.builder().command("a_z_0_9", (message, arguments) -> {});
+	CommandRouter.builder().command(Strings.repeat("x", 32), (message, arguments) -> {});
+	for (String name : Arrays.asList("", "st-art", "stárt", "start now", "/start", Strings.repeat("x", 33))) {
+	    try {
+		CommandRouter.builder().command(name, (message, arguments) -> {});
+		fail("Invalid command name accepted: " + name);
+	    } catch (IllegalArgumentException e) {
+		// expected
+	    }
+	}
+    }
+
+    private CommandRouter router(CommandRouter.Builder builder) {
+	return builder
+		.command("start", (message, arguments) -> received.add("start:" + arguments))
+		.command("stop", (message, arguments) -> received.add("stop:" + arguments))
+		.otherwise(ignored::add)
+		.build();
+    }
+
+    private static Message command(String text, int length) {
+	Message message = new Message();
+	message.setText(text);
+	message.setEntities(Collections.singletonList(entity(CommandRouter.BOT_COMMAND, 0, length)));
+	return message;
+    }
+
+    private static MessageEntity entity(String type, int offset, int length) {
+	MessageEntity entity = new MessageEntity();
+	entity.setType(type);
+	entity.setOffset(offset);
+	entity.setLength(length);
+	return entity;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import com.welyab.margelet.concurrent.WaitStrategy;
+import com.welyab.margelet.types.Update;
+
+public class RingBufferDispatcherTest {
+
+    private static final int UPDATES = 50_000;
+
+    @Test
+    public void deliversEveryUpdateOnceWithSignalledWait() {
+	AtomicIntegerArray deliveries = new AtomicIntegerArray(UPDATES);
+	RingBufferDispatcher dispatcher = RingBufferDispatcher.builder(update -> deliveries.incrementAndGet(update.getUpdateId()))
+		.capacity(16)
+		.threads(3)
+		.build();
+	dispatcher.start();
+	for (int i = 0; i < UPDATES; i++) {
+	    dispatcher.dispatch(update(i));
+	    if (i % 1000 == 0) {
+		// lets the handler threads run out of updates and block
+		sleep(1);
+	    }
+	}
+	dispatcher.close();
+	for (int i = 0; i < UPDATES; i++) {
+	    assertEquals("deliveries of " + i, 1, deliveries.get(i));
+	}
+    }
+
+    @Test
+    public void idleHandlerThreadsBlockUntilSignalled() throws InterruptedException {
+	CountDownLatch handled = new CountDownLatch(1);
+	Thread[] handler = new Thread[1];
+	RingBufferDispatcher dispatcher = RingBufferDispatcher.builder(update -> {
+	    handler[0] = Thread.currentThread();
+	    handled.countDown();
+	})
+		.threads(1)
+		.waitStrategy(WaitStrategy.BLOCK)
+		.build();
+	dispatcher.start();
+	dispatcher.dispatch(update(1));
+	assertTrue(handled.await(5, TimeUnit.SECONDS));
+	long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+	while (handler[0].getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+	    sleep(1);
+	}
+	// parked without a timeout, not polling
+	assertEquals(Thread.State.WAITING, handler[0].getState());
+	dispatcher.close();
+	assertEquals(Thread.State.TERMINATED, handler[0].getState());
+    }
+
+    private static Update update(int id) {
+	Update update = new Update();
+	update.setUpdateId(id);
+	return update;
+    }
+
+    private static void sleep(long millis) {
+	try {
+	    Thread.sleep(millis);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.welyab.margelet.types.Update;
+
+public class UpdateDeduplicatorTest {
+
+    private static final int WINDOW = 64;
+
+    @Test
+    public void dropsRepeatedIds() {
+	UpdateDeduplicator deduplicator = new UpdateDeduplicator(WINDOW);
+	assertTrue(deduplicator.add(100));
+	assertTrue(deduplicator.add(102));
+	assertTrue(deduplicator.add(101));
+	assertFalse(deduplicator.add(100));
+	assertFalse(deduplicator.add(102));
+	assertEquals(2, deduplicator.getDuplicates());
+    }
+
+    @Test
+    public void advancesWindowOneLapAtATime() {
+	UpdateDeduplicator deduplicator = new UpdateDeduplicator(WINDOW);
+	for (int id = 1000; id < 1000 + 5 * WINDOW; id++) {
+	    assertTrue(deduplicator.add(id));
+	    // the oldest id still in the window
+	    assertFalse(deduplicator.add(Math.max(1000, id - WINDOW + 1)));
+	}
+	assertEquals(5 * WINDOW, deduplicator.getDuplicates());
+    }
+
+    @Test
+    public void clearsTheBitsOfAPreviousLap() {
+	UpdateDeduplicator deduplicator = new UpdateDeduplicator(WINDOW);
+	assertTrue(deduplicator.add(10));
+	// same bit as id 10, one lap later
+	assertTrue(deduplicator.add(10 + WINDOW));
+	assertTrue(deduplicator.add(11 + WINDOW));
+	assertFalse(deduplicator.add(11 + WINDOW));
+	// a jump of several laps clears the whole window
+	assertTrue(deduplicator.add(10 + 10 * WINDOW));
+	for (int id = 11 + 9 * WINDOW; id < 10 + 10 * WINDOW; id++) {
+	    assertTrue("id " + id, deduplicator.add(id));
+	}
+    }
+
+    @Test
+    public void dropsIdsOlderThanTheWindow() {
+	UpdateDeduplicator deduplicator = new UpdateDeduplicator(WINDOW);
+	for (int id = 1; id <= 3 * WINDOW; id++) {
+	    deduplicator.add(id);
+	}
+	// a late retry of an update handled long ago
+	assertFalse(deduplicator.add(5));
+	// the window was not rewound, so recent ids are still tracked
+	assertFalse(deduplicator.add(3 * WINDOW));
+	assertFalse(deduplicator.add(3 * WINDOW - 1));
+	assertTrue(deduplicator.add(3 * WINDOW + 1));
+	assertEquals(3, deduplicator.getDuplicates());
+    }
+
+    @Test
+    public void restartsWhenTheNumberingRestartsFarBehind() {
+	UpdateDeduplicator deduplicator = new UpdateDeduplicator(WINDOW);
+	int last = 2 * UpdateDeduplicator.RESTART_DISTANCE;
+	assertTrue(deduplicator.add(last));
+	// as far back as it can be and still be a late duplicate
+	assertFalse(deduplicator.add(last - UpdateDeduplicator.RESTART_DISTANCE));
+	int restart = 1000;
+	assertTrue(deduplicator.add(restart));
+	assertTrue(deduplicator.add(restart + 1));
+	assertFalse(deduplicator.add(restart));
+	// the ids of the old numbering are far ahead again
+	assertTrue(deduplicator.add(last + 1));
+    }
+
+    @Test
+    public void restartDistanceCoversLargeWindows() {
+	int window = 1 << 25;
+	UpdateDeduplicator deduplicator = new UpdateDeduplicator(window);
+	int last = 3 * window;
+	assertTrue(deduplicator.add(last));
+	// further back than the default restart distance, but within twice the
+	// window
+	assertFalse(deduplicator.add(last - window - 1));
+	assertFalse(deduplicator.add(last));
+	assertTrue(deduplicator.add(last - 2 * window - 1));
+    }
+
+    @Test
+    public void filtersBatches() {
+	UpdateDeduplicator deduplicator = new UpdateDeduplicator(WINDOW);
+	List<List<Update>> batches = new ArrayList<>();
+	Consumer<List<Update>> filter = deduplicator.filterBatches(batches::add);
+	List<Update> first = updates(1, 2, 3);
+	filter.accept(first);
+	filter.accept(updates(2, 3, 4, 5));
+	filter.accept(updates(4, 5));
+	filter.accept(updates());
+	assertEquals(3, batches.size());
+	assertSame(first, batches.get(0));
+	assertEquals(Arrays.asList(4, 5), ids(batches.get(1)));
+	assertTrue(batches.get(2).isEmpty());
+	assertTrue(deduplicator.add(new Update()));
+    }
+
+    private static List<Update> updates(int... ids) {
+	List<Update> updates = new ArrayList<>();
+	for (int id : ids) {
+	    Update update = new Update();
+	    update.setUpdateId(id);
+	    updates.add(update);
+	}
+	return updates;
+    }
+
+    private static List<Integer> ids(List<Update> updates) {
+	return updates.stream().map(Update::getUpdateId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.types.CallbackQuery;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.UpdateType;
+
+public class UpdateRouterTest {
+
+    private final List<Object> received = new ArrayList<>();
+
+    @Test
+    public void rejectsRouterWithoutHandlers() {
+	try {
+	    UpdateRouter.builder().build();
+	    fail("A router without handlers must be rejected");
+	} catch (IllegalStateException e) {
+	    // expected
+	}
+    }
+
+    @Test
+    public void routesPayloadsByKind() {
+	UpdateRouter router = UpdateRouter.builder()
+		.onMessage(received::add)
+		.onCallbackQuery(received::add)
+		.build();
+	Message message = new Message();
+	CallbackQuery callbackQuery = new CallbackQuery();
+	Update edited = new Update();
+	edited.setEditedMessage(new Message());
+	router.routeAll(Arrays.asList(messageUpdate(message), edited, callbackQueryUpdate(callbackQuery)));
+	assertEquals(Arrays.asList(message, callbackQuery), received);
+    }
+
+    @Test
+    public void chainsHandlersOfSameKindInOrder() {
+	UpdateRouter router = UpdateRouter.builder()
+		.onMessage(message -> received.add("first"))
+		.on(UpdateType.MESSAGE, update -> received.add("second"))
+		.onMessage(message -> received.add("third"))
+		.build();
+	router.route(messageUpdate(new Message()));
+	assertEquals(Arrays.asList("first", "second", "third"), received);
+    }
+
+    @Test
+    public void handsOtherKindsToFallback() {
+	UpdateRouter router = UpdateRouter.builder()
+		.onMessage(message -> received.add("message"))
+		.otherwise(received::add)
+		.build();
+	Update callbackQuery = callbackQueryUpdate(new CallbackQuery());
+	Update unknown = new Update();
+	router.routeAll(Arrays.asList(callbackQuery, messageUpdate(new Message()), unknown));
+	assertEquals(Arrays.asList(callbackQuery, "message", unknown), received);
+    }
+
+    @Test
+    public void asksOnlyForHandledKinds() {
+	UpdateRouter router = UpdateRouter.builder()
+		.onCallbackQuery(received::add)
+		.onMessage(received::add)
+		.build();
+	assertEquals(Arrays.asList("message", "callback_query"), router.getAllowedUpdates());
+	UpdateProjection projection = router.getProjection();
+	assertTrue(projection.includes(UpdateType.MESSAGE));
+	assertTrue(projection.includes(UpdateType.CALLBACK_QUERY));
+	assertEquals(2, projection.getUpdateTypes().size());
+    }
+
+    @Test
+    public void asksForAllKindsWithFallback() {
+	UpdateRouter router = UpdateRouter.builder()
+		.otherwise(received::add)
+		.build();
+	assertEquals(UpdateType.values().length, router.getAllowedUpdates().size());
+	assertSame(UpdateProjection.all(), router.getProjection());
+    }
+
+    private static Update messageUpdate(Message message) {
+	Update update = new Update();
+	update.setMessage(message);
+	return update;
+    }
+
+    private static Update callbackQueryUpdate(CallbackQuery callbackQuery) {
+	Update update = new Update();
+	update.setCallbackQuery(callbackQuery);
+	return update;
+    }
+}
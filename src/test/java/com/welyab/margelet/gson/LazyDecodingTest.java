@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.TypeAdapter;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.types.LazyValue;
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.Update;
+import com.welyab.margelet.types.UpdateType;
+
+public class LazyDecodingTest {
+
+    private static final Configuration LAZY = Configuration.builder()
+	    .property(Constants.CONFIG_LAZY_DECODING, true)
+	    .build();
+
+    private static final String MESSAGE = "{ \"message_id\" : 5, \"text\" : \"a \\\"quoted\\\" } ] text\" }";
+
+    private final List<Update> updates = new ArrayList<>();
+
+    private final List<String> rawJson = new ArrayList<>();
+
+    @Test
+    public void decodesPayloadOnFirstAccess() throws IOException {
+	read(GsonFactory.updateAdapter(LAZY, UpdateProjection.all()), "{\"update_id\":1,\"message\":" + MESSAGE + "}");
+	Update update = updates.get(0);
+	assertEquals(1, update.getUpdateId());
+	assertEquals(UpdateType.MESSAGE, update.getType());
+	LazyValue<?> payload = update.getLazyPayload();
+	assertFalse(payload.isDecoded());
+	assertEquals("a \"quoted\" } ] text", update.getMessage().getText());
+	assertTrue(payload.isDecoded());
+    }
+
+    @Test
+    public void keepsRawJsonAsReceived() throws IOException {
+	String json = "{ \"update_id\" : 2 ,\n \"message\" : " + MESSAGE + " }";
+	Response<Integer> response = UpdateStreamReader.withRawJson(
+		GsonFactory.create(LAZY),
+		GsonFactory.updateAdapter(LAZY, UpdateProjection.all()),
+		(update, raw) -> {
+		    updates.add(update);
+		    rawJson.add(raw);
+		}
+	).read(200, body("{\"ok\":true,\"result\":[" + json + ",{\"update_id\":3}]}"));
+	assertEquals(Integer.valueOf(2), response.getResult());
+	assertEquals(json, rawJson.get(0));
+	assertEquals("{\"update_id\":3}", rawJson.get(1));
+	assertEquals(5, updates.get(0).getMessage().getMessageId());
+    }
+
+    @Test
+    public void skipsPayloadsNotProjected() throws IOException {
+	UpdateProjection projection = UpdateProjection.builder()
+		.updateTypes(UpdateType.CALLBACK_QUERY)
+		.build();
+	read(GsonFactory.updateAdapter(LAZY, projection), "{\"update_id\":4,\"message\":" + MESSAGE + "}");
+	Update update = updates.get(0);
+	assertEquals(UpdateType.MESSAGE, update.getType());
+	assertNull(update.getLazyPayload());
+	assertNull(update.getMessage());
+    }
+
+    @Test
+    public void keepsTelegramErrors() throws IOException {
+	Response<Integer> response = read(
+		GsonFactory.updateAdapter(LAZY, UpdateProjection.all()),
+		429,
+		"{\"ok\":false,\"error_code\":429,\"description\":\"Too \\u004dany\",\"parameters\":{\"retry_after\":3},\"result\":[{\"update_id\":1}]}"
+	);
+	assertFalse(response.isOk());
+	assertEquals(Integer.valueOf(429), response.getErrorCode());
+	assertEquals("Too Many", response.getDescription());
+	assertEquals(Integer.valueOf(3), response.getParameters().getRetryAfter());
+	assertTrue(updates.isEmpty());
+    }
+
+    @Test
+    public void decodesUpdateDocuments() throws IOException {
+	TypeAdapter<Update> adapter = GsonFactory.updateAdapter(LAZY, UpdateProjection.all());
+	Update update = GsonFactory.decodeUpdate(adapter, "{\"update_id\":6,\"edited_message\":" + MESSAGE + "}");
+	assertEquals(UpdateType.EDITED_MESSAGE, update.getType());
+	assertEquals(5, update.getEditedMessage().getMessageId());
+	for (String malformed : new String[] {
+		"{\"update_id\":6,\"message\":{\"text\":\"unterminated}}",
+		"{\"update_id\":6,\"message\":{\"text\":1}",
+		"{\"update_id\":6} trailing",
+		"{\"update_id\":\"six\"}" }) {
+	    try {
+		GsonFactory.decodeUpdate(adapter, malformed);
+		fail("Malformed update decoded: " + malformed);
+	    } catch (IOException e) {
+		// expected
+	    }
+	}
+    }
+
+    @Test
+    public void decodesEagerlyWithoutLazyDecoding() throws IOException {
+	Update update = GsonFactory.decodeUpdate(
+		GsonFactory.updateAdapter(Configuration.empty(), UpdateProjection.all()),
+		"{\"update_id\":7,\"message\":" + MESSAGE + "}"
+	);
+	assertNull(update.getLazyPayload());
+	assertEquals(5, update.getMessage().getMessageId());
+    }
+
+    private Response<Integer> read(TypeAdapter<Update> adapter, String update) throws IOException {
+	return read(adapter, 200, "{\"ok\":true,\"result\":[" + update + "]}");
+    }
+
+    private Response<Integer> read(TypeAdapter<Update> adapter, int statusCode, String json) throws IOException {
+	return new UpdateStreamReader(GsonFactory.create(LAZY), adapter, updates::add).read(statusCode, body(json));
+    }
+
+    private static ByteArrayInputStream body(String json) {
+	return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
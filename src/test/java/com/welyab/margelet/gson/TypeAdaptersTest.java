@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.reflect.ClassPath;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.User;
+
+/**
+ * Checks the hand-written adapters of every Telegram Bot API type against the
+ * reflective adapter of Gson, which follows the <code>@SerializedName</code>
+ * fields of each type.
+ */
+public class TypeAdaptersTest {
+
+    private static final String TYPES_PACKAGE = "com.welyab.margelet.types";
+
+    private static final int MAXIMUM_DEPTH = 3;
+
+    private final Gson gson = GsonFactory.create(Configuration.empty());
+
+    private final Gson reflective = new Gson();
+
+    private int counter;
+
+    @Test
+    public void readsLikeReflectiveAdapter() throws IOException {
+	for (Type type : types()) {
+	    JsonElement json = sample(type, 0);
+	    Object expected = reflective.fromJson(json, type);
+	    assertEquals("Incomplete sample of " + type, json, reflective.toJsonTree(expected, type));
+	    Object actual = gson.fromJson(json, type);
+	    assertEquals("Read of " + type, json, reflective.toJsonTree(actual, type));
+	}
+    }
+
+    @Test
+    public void writesLikeReflectiveAdapter() throws IOException {
+	for (Type type : types()) {
+	    Object value = gson.fromJson(sample(type, 0), type);
+	    assertEquals("Write of " + type, reflective.toJsonTree(value, type), gson.toJsonTree(value, type));
+	}
+    }
+
+    private List<Type> types() throws IOException {
+	List<Type> types = new ArrayList<>();
+	for (ClassPath.ClassInfo info : ClassPath.from(getClass().getClassLoader()).getTopLevelClasses(TYPES_PACKAGE)) {
+	    Class<?> type = info.load();
+	    // the tests of the types share their package
+	    if (type.isEnum() || !hasDefaultConstructor(type) || info.getSimpleName().endsWith("Test")) {
+		continue;
+	    }
+	    types.add(type == Response.class ? TypeToken.getParameterized(Response.class, User.class).getType() : type);
+	}
+	assertTrue(types.size() > 20);
+	return types;
+    }
+
+    private JsonElement sample(Type type, int depth) {
+	if (type instanceof TypeVariable) {
+	    return sample(User.class, depth);
+	}
+	Class<?> rawType = TypeToken.get(type).getRawType();
+	if (rawType == int.class || rawType == Integer.class) {
+	    return new JsonPrimitive(++counter);
+	}
+	if (rawType == long.class || rawType == Long.class) {
+	    return new JsonPrimitive((1L << 40) + ++counter);
+	}
+	if (rawType == boolean.class || rawType == Boolean.class) {
+	    return new JsonPrimitive(true);
+	}
+	if (rawType == String.class) {
+	    return new JsonPrimitive("s" + ++counter);
+	}
+	if (depth == MAXIMUM_DEPTH) {
+	    return null;
+	}
+	if (rawType == List.class) {
+	    JsonArray array = new JsonArray();
+	    array.add(sample(((ParameterizedType) type).getActualTypeArguments()[0], depth + 1));
+	    return array;
+	}
+	JsonObject object = new JsonObject();
+	for (Field field : rawType.getDeclaredFields()) {
+	    SerializedName name = field.getAnnotation(SerializedName.class);
+	    if (name == null || Modifier.isTransient(field.getModifiers())) {
+		continue;
+	    }
+	    JsonElement value = sample(field.getGenericType(), depth + 1);
+	    if (value != null) {
+		object.add(name.value(), value);
+	    }
+	}
+	return object;
+    }
+
+    private static boolean hasDefaultConstructor(Class<?> type) {
+	try {
+	    type.getConstructor();
+	    return true;
+	} catch (NoSuchMethodException e) {
+	    return false;
+	}
+    }
+}
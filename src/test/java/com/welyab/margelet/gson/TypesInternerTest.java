@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.types.Chat;
+import com.welyab.margelet.types.Message;
+import com.welyab.margelet.types.User;
+
+public class TypesInternerTest {
+
+    @Test
+    public void equalUsersShareOneFrozenInstance() {
+	Gson gson = internedGson(100);
+	User first = gson.fromJson(user(1, "Ada"), User.class);
+	User second = gson.fromJson(user(1, "Ada"), User.class);
+	assertSame(first, second);
+	assertTrue(first.isFrozen());
+	// a user that changed its name is a new entry
+	User renamed = gson.fromJson(user(1, "Grace"), User.class);
+	assertNotSame(first, renamed);
+	assertEquals("Grace", renamed.getFirstName());
+    }
+
+    @Test
+    public void messagesShareTheirUsersAndChats() {
+	Gson gson = internedGson(100);
+	String json = "{\"message_id\":%d,\"from\":" + user(1, "Ada") + ",\"chat\":{\"id\":7,\"type\":\"private\"}}";
+	Message first = gson.fromJson(String.format(json, 1), Message.class);
+	Message second = gson.fromJson(String.format(json, 2), Message.class);
+	assertSame(first.getFrom(), second.getFrom());
+	assertSame(first.getChat(), second.getChat());
+	assertTrue(first.getChat().isFrozen());
+    }
+
+    @Test
+    public void usersAreNotSharedByDefault() {
+	Gson gson = GsonFactory.create(Configuration.builder().build());
+	User first = gson.fromJson(user(1, "Ada"), User.class);
+	User second = gson.fromJson(user(1, "Ada"), User.class);
+	assertNotSame(first, second);
+	assertFalse(first.isFrozen());
+    }
+
+    @Test
+    public void evictsEntriesBeyondTheMaximumSize() {
+	Gson gson = internedGson(2);
+	User ada = gson.fromJson(user(1, "Ada"), User.class);
+	assertSame(ada, gson.fromJson(user(1, "Ada"), User.class));
+	gson.fromJson(user(2, "Grace"), User.class);
+	gson.fromJson(user(3, "Barbara"), User.class);
+	// the least recently used entry made room for the third user
+	User again = gson.fromJson(user(1, "Ada"), User.class);
+	assertNotSame(ada, again);
+	assertEquals(1L, again.getId());
+    }
+
+    @Test
+    public void frozenUserRejectsEverySetter() {
+	User user = new User();
+	user.freeze();
+	List<Runnable> setters = Arrays.asList(
+		() -> user.setId(1),
+		() -> user.setBot(true),
+		() -> user.setFirstName("Ada"),
+		() -> user.setLastName("Lovelace"),
+		() -> user.setUsername("ada"),
+		() -> user.setLanguageCode("en")
+	);
+	assertRejected(setters, "This user is frozen and cannot be modified");
+	assertFalse(user.hasId());
+    }
+
+    @Test
+    public void frozenChatRejectsEverySetter() {
+	Chat chat = new Chat();
+	chat.freeze();
+	List<Runnable> setters = Arrays.asList(
+		() -> chat.setId(1),
+		() -> chat.setType("group"),
+		() -> chat.setTitle("Title"),
+		() -> chat.setUsername("chat"),
+		() -> chat.setFirstName("Ada"),
+		() -> chat.setLastName("Lovelace"),
+		() -> chat.setAllMembersAreAdministrators(true)
+	);
+	assertRejected(setters, "This chat is frozen and cannot be modified");
+	assertFalse(chat.hasId());
+    }
+
+    private static void assertRejected(List<Runnable> setters, String message) {
+	for (Runnable setter : setters) {
+	    try {
+		setter.run();
+		fail();
+	    } catch (IllegalStateException e) {
+		assertEquals(message, e.getMessage());
+	    }
+	}
+    }
+
+    private static Gson internedGson(long maximumSize) {
+	return GsonFactory.create(Configuration.builder()
+		.property(Constants.CONFIG_INTERNING, true)
+		.property(Constants.CONFIG_INTERNING_MAXIMUM_SIZE, maximumSize)
+		.build());
+    }
+
+    private static String user(long id, String firstName) {
+	return "{\"id\":" + id + ",\"is_bot\":false,\"first_name\":\"" + firstName + "\"}";
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.gson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.types.Response;
+import com.welyab.margelet.types.Update;
+
+public class UpdateStreamReaderTest {
+
+    private final List<Update> updates = new ArrayList<>();
+
+    private final UpdateStreamReader reader = new UpdateStreamReader(
+	    GsonFactory.create(Configuration.empty()),
+	    updates::add
+    );
+
+    @Test
+    public void readsUpdates() throws IOException {
+	Response<Integer> response = read(200, "{\"ok\":true,\"result\":[{\"update_id\":7},{\"update_id\":8}]}");
+	assertTrue(response.isOk());
+	assertEquals(Integer.valueOf(2), response.getResult());
+	assertEquals(Arrays.asList(7, 8), updates.stream().map(Update::getUpdateId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void keepsTelegramErrors() throws IOException {
+	Response<Integer> response = read(
+		429,
+		"{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests\",\"parameters\":{\"retry_after\":3}}"
+	);
+	assertFalse(response.isOk());
+	assertEquals(Integer.valueOf(429), response.getErrorCode());
+	assertEquals("Too Many Requests", response.getDescription());
+	assertEquals(Integer.valueOf(3), response.getParameters().getRetryAfter());
+    }
+
+    @Test
+    public void failsWithHttpStatusOnHtmlBody() throws IOException {
+	Response<Integer> response = read(502, "<html><body>Bad Gateway</body></html>");
+	assertFalse(response.isOk());
+	assertEquals(Integer.valueOf(502), response.getErrorCode());
+	assertTrue(updates.isEmpty());
+    }
+
+    @Test
+    public void failsWithHttpStatusOnEmptyBody() throws IOException {
+	Response<Integer> response = read(504, "");
+	assertFalse(response.isOk());
+	assertEquals(Integer.valueOf(504), response.getErrorCode());
+    }
+
+    @Test
+    public void rejectsMalformedSuccessfulResponse() throws IOException {
+	try {
+	    read(200, "<html></html>");
+	    fail("A malformed successful response must not be taken as a failure");
+	} catch (IOException | IllegalStateException e) {
+	    // expected
+	}
+    }
+
+    @Test
+    public void keepsRawJsonAsReceived() throws IOException {
+	String json = "{ \"update_id\" : 9,\n  \"message\" : { \"message_id\" : 1.0e0, \"text\" : \"\\u0041\" } }";
+	List<String> rawJson = new ArrayList<>();
+	Response<Integer> response = UpdateStreamReader.withRawJson(
+		GsonFactory.create(Configuration.empty()),
+		GsonFactory.create(Configuration.empty()).getAdapter(Update.class),
+		(update, raw) -> {
+		    updates.add(update);
+		    rawJson.add(raw);
+		}
+	).read(200, new ByteArrayInputStream(
+		("{\"ok\":true,\"result\":[" + json + "]}").getBytes(StandardCharsets.UTF_8)
+	));
+	assertEquals(Integer.valueOf(1), response.getResult());
+	assertEquals(Arrays.asList(json), rawJson);
+	assertEquals("A", updates.get(0).getMessage().getText());
+    }
+
+    private Response<Integer> read(int statusCode, String body) throws IOException {
+	return reader.read(statusCode, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.MargeletException;
+
+public class ApacheHttpTransportTest {
+
+    private static final String URL = "http://127.0.0.1:1/";
+
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void failsAsyncRequestsAfterClose() throws Exception {
+	ApacheHttpTransport transport = new ApacheHttpTransport(Configuration.empty());
+	transport.close();
+	CompletableFuture<Integer> future = transport.executeAsync(HttpTransportRequest.get(URL), (status, content) -> status);
+	try {
+	    future.get(5, TimeUnit.SECONDS);
+	    fail("A closed transport must not execute requests");
+	} catch (ExecutionException e) {
+	    assertTrue(e.getCause() instanceof MargeletException);
+	}
+	assertEquals(0, ioDispatcherThreads());
+    }
+
+    @Test
+    public void leavesNoReactorWhenClosedConcurrently() throws Exception {
+	for (int round = 0; round < ROUNDS; round++) {
+	    ApacheHttpTransport transport = new ApacheHttpTransport(Configuration.empty());
+	    AtomicReference<Throwable> thrown = new AtomicReference<>();
+	    Thread requester = new Thread(() -> {
+		try {
+		    CompletableFuture<Integer> future = transport.executeAsync(
+			    HttpTransportRequest.get(URL),
+			    (status, content) -> status
+		    );
+		    future.handle((status, throwable) -> status).get(5, TimeUnit.SECONDS);
+		} catch (Throwable e) {
+		    thrown.set(e);
+		}
+	    });
+	    requester.start();
+	    transport.close();
+	    requester.join();
+	    if (thrown.get() != null) {
+		throw new AssertionError("Request failed synchronously", thrown.get());
+	    }
+	}
+	long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+	while (ioDispatcherThreads() > 0 && System.nanoTime() < deadline) {
+	    Thread.sleep(10);
+	}
+	assertEquals(0, ioDispatcherThreads());
+    }
+
+    private static int ioDispatcherThreads() {
+	int count = 0;
+	for (Thread thread : Thread.getAllStackTraces().keySet()) {
+	    if (thread.getName().startsWith("I/O dispatcher") && thread.isAlive()) {
+		count++;
+	    }
+	}
+	return count;
+    }
+}
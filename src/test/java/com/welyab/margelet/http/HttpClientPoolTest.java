@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.MargeletException;
+
+public class HttpClientPoolTest {
+
+    private static final int THREADS = 4;
+
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void sharesTransportOfSameConfiguration() throws IOException {
+	try (HttpClientPool pool = new HttpClientPool()) {
+	    assertSame(pool.getTransport(configuration(1)), pool.getTransport(configuration(1)));
+	}
+    }
+
+    @Test
+    public void rejectsTransportsAfterClose() throws IOException {
+	HttpClientPool pool = new HttpClientPool();
+	pool.getTransport(configuration(1));
+	pool.close();
+	try {
+	    pool.getTransport(configuration(1));
+	    fail("A closed pool must not hand out transports");
+	} catch (MargeletException e) {
+	    // expected
+	}
+    }
+
+    @Test
+    public void closesEveryTransportCreatedWhileClosing() throws Exception {
+	int open = StubHttpTransport.openTransports.get();
+	for (int round = 0; round < ROUNDS; round++) {
+	    HttpClientPool pool = new HttpClientPool();
+	    CountDownLatch start = new CountDownLatch(1);
+	    List<Thread> threads = new ArrayList<>();
+	    for (int i = 0; i < THREADS; i++) {
+		int offset = i * 1000;
+		Thread thread = new Thread(() -> {
+		    awaitUninterruptibly(start);
+		    try {
+			for (int n = 1; n <= 50; n++) {
+			    pool.getTransport(configuration(offset + n));
+			}
+		    } catch (MargeletException e) {
+			// the pool was closed
+		    }
+		});
+		thread.start();
+		threads.add(thread);
+	    }
+	    start.countDown();
+	    pool.close();
+	    for (Thread thread : threads) {
+		thread.join();
+	    }
+	    assertEquals("transports left open in round " + round, open, StubHttpTransport.openTransports.get());
+	}
+    }
+
+    private static Configuration configuration(int ioThreads) {
+	return Configuration.builder()
+		.property(Constants.CONFIG_HTTP_TRANSPORT, StubHttpTransport.NAME)
+		.property(Constants.CONFIG_HTTP_IO_THREADS, ioThreads)
+		.build();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+	try {
+	    latch.await();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpServer;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+
+public class JdkHttpTransportIT {
+
+    private HttpServer server;
+
+    private String url;
+
+    @Before
+    public void startServer() throws IOException {
+	assumeTrue(featureVersion() >= 11);
+	server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+	server.createContext("/echo", exchange -> {
+	    byte[] body = ByteStreams.toByteArray(exchange.getRequestBody());
+	    exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+	    try (OutputStream out = exchange.getResponseBody()) {
+		out.write(body);
+	    }
+	});
+	server.start();
+	url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+    }
+
+    @After
+    public void stopServer() {
+	if (server != null) {
+	    server.stop(0);
+	}
+    }
+
+    @Test
+    public void exchangesThroughJdkClient() throws Exception {
+	Configuration configuration = Configuration.builder()
+		.property(Constants.CONFIG_HTTP_TRANSPORT, HttpClientPool.JDK_TRANSPORT_NAME)
+		.build();
+	try (HttpClientPool pool = new HttpClientPool()) {
+	    HttpTransport transport = pool.getTransport(configuration);
+	    assertEquals("com.welyab.margelet.http.JdkHttpTransport", transport.getClass().getName());
+	    byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+	    assertEquals(
+		    "200 {\"ok\":true}",
+		    transport.execute(HttpTransportRequest.post(url, "application/json", body), JdkHttpTransportIT::read)
+	    );
+	    assertEquals(
+		    "200 ",
+		    transport.executeAsync(HttpTransportRequest.get(url), JdkHttpTransportIT::read).get(5, TimeUnit.SECONDS)
+	    );
+	}
+    }
+
+    private static String read(int statusCode, InputStream content) throws IOException {
+	return statusCode + " " + new String(ByteStreams.toByteArray(content), StandardCharsets.UTF_8);
+    }
+
+    private static int featureVersion() {
+	String version = System.getProperty("java.specification.version");
+	return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.welyab.margelet.Configuration;
+
+/**
+ * An HTTP transport for tests, which answers every request with the JSON
+ * produced by {@link #responder} from the request body, without contacting
+ * Telegram services. Selected with the transport name <code>"stub"</code>.
+ * 
+ * @author Welyab Paula
+ */
+public class StubHttpTransport implements HttpTransport {
+
+    /**
+     * The transport name.
+     */
+    public static final String NAME = "stub";
+
+    /**
+     * Produces the response body of each request from the request body.
+     */
+    public static volatile Function<String, String> responder = body -> "{\"ok\":true,\"result\":[]}";
+
+    /**
+     * The number of stub transports created and not closed yet.
+     */
+    public static final AtomicInteger openTransports = new AtomicInteger();
+
+    /**
+     * Indicates that this transport was closed.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Creates a new transport.
+     */
+    public StubHttpTransport() {
+	openTransports.incrementAndGet();
+    }
+
+    @Override
+    public <T> T execute(HttpTransportRequest request, ResponseBodyReader<T> reader) throws IOException {
+	String response = responder.apply(body(request));
+	return reader.read(200, new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeAsync(HttpTransportRequest request, ResponseBodyReader<T> reader) {
+	CompletableFuture<T> future = new CompletableFuture<>();
+	try {
+	    future.complete(execute(request, reader));
+	} catch (IOException | RuntimeException e) {
+	    future.completeExceptionally(e);
+	}
+	return future;
+    }
+
+    @Override
+    public void close() {
+	if (closed.compareAndSet(false, true)) {
+	    openTransports.decrementAndGet();
+	}
+    }
+
+    @SuppressWarnings("javadoc")
+    private static String body(HttpTransportRequest request) throws IOException {
+	if (request.getBody() == null) {
+	    return "";
+	}
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	request.getBody().writeTo(out);
+	return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The factory of the stub transport.
+     * 
+     * @author Welyab Paula
+     */
+    public static class Factory implements HttpTransportFactory {
+
+	@Override
+	public String getName() {
+	    return NAME;
+	}
+
+	@Override
+	public HttpTransport create(Configuration configuration) {
+	    return new StubHttpTransport();
+	}
+    }
+}
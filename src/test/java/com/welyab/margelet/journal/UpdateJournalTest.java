@@ -0,0 +1,364 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.Margelet;
+import com.welyab.margelet.MargeletException;
+import com.welyab.margelet.UpdateProjection;
+import com.welyab.margelet.http.StubHttpTransport;
+import com.welyab.margelet.polling.UpdatePoller;
+import com.welyab.margelet.types.Update;
+
+public class UpdateJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setUp() {
+	directory = folder.getRoot().toPath();
+    }
+
+    @After
+    public void tearDown() {
+	StubHttpTransport.responder = body -> "{\"ok\":true,\"result\":[]}";
+    }
+
+    @Test
+    public void replaysAppendedEntriesAfterReopen() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 10);
+	}
+	try (UpdateJournal journal = open()) {
+	    assertEquals(10, journal.getLastUpdateId());
+	    assertTrue(journal.hasUnprocessed());
+	    assertEquals(range(1, 10), replayAll(journal));
+	    assertFalse(journal.hasUnprocessed());
+	}
+	try (UpdateJournal journal = open()) {
+	    assertEquals(Collections.emptyList(), replayAll(journal));
+	}
+    }
+
+    @Test
+    public void checkpointSurvivesReopen() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 10);
+	    assertTrue(journal.checkpoint(4));
+	    assertFalse(journal.checkpoint(99));
+	}
+	try (UpdateJournal journal = open()) {
+	    assertEquals(range(5, 10), replayAll(journal));
+	}
+    }
+
+    @Test
+    public void crashWithoutCloseKeepsEntries() throws IOException {
+	UpdateJournal crashed = open();
+	appendRange(crashed, 1, 5);
+	crashed.checkpoint(2);
+	// the process dies: the journal is never closed
+	try (UpdateJournal journal = open()) {
+	    assertEquals(5, journal.getLastUpdateId());
+	    assertEquals(range(3, 5), replayAll(journal));
+	}
+    }
+
+    @Test
+    public void dropsEntryWithBadChecksum() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 3);
+	}
+	Path segment = segments().get(0);
+	// flips a byte of the JSON of the last entry
+	long offset = entryOffset(segment, 2) + 12 + 2;
+	try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+	    file.seek(offset);
+	    int value = file.read();
+	    file.seek(offset);
+	    file.write(value ^ 0x55);
+	}
+	try (UpdateJournal journal = open()) {
+	    assertEquals(2, journal.getLastUpdateId());
+	    assertEquals(range(1, 2), replayAll(journal));
+	    // new entries replace the dropped one
+	    journal.append(3, json(3));
+	}
+	try (UpdateJournal journal = open()) {
+	    assertEquals(Collections.singletonList(3), replayAll(journal));
+	}
+    }
+
+    @Test
+    public void dropsEntryTornByTruncation() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 3);
+	}
+	Path segment = segments().get(0);
+	long cut = entryOffset(segment, 2) + 12 + 5;
+	try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+	    file.setLength(cut);
+	}
+	try (UpdateJournal journal = open()) {
+	    assertEquals(2, journal.getLastUpdateId());
+	    assertEquals(range(1, 2), replayAll(journal));
+	}
+    }
+
+    @Test
+    public void fallsBackToPreviousCheckpointSlot() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 10);
+	    // generation 1 goes to the second slot, generation 2 to the first
+	    journal.checkpoint(3);
+	    journal.checkpoint(6);
+	}
+	try (RandomAccessFile file = new RandomAccessFile(directory.resolve("checkpoint").toFile(), "rw")) {
+	    file.seek(10);
+	    file.write(0x7F);
+	}
+	try (UpdateJournal journal = open()) {
+	    assertEquals(range(4, 10), replayAll(journal));
+	}
+    }
+
+    @Test
+    public void ignoresCorruptCheckpoints() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 4);
+	    journal.checkpoint(2);
+	}
+	try (RandomAccessFile file = new RandomAccessFile(directory.resolve("checkpoint").toFile(), "rw")) {
+	    file.write(new byte[48]);
+	    file.seek(0);
+	    file.writeLong(1);
+	    file.seek(24);
+	    file.writeLong(2);
+	}
+	try (UpdateJournal journal = open()) {
+	    // no valid slot: every entry is unprocessed
+	    assertEquals(range(1, 4), replayAll(journal));
+	}
+    }
+
+    @Test
+    public void rollsSegmentsAndCompactsProcessedOnes() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 200);
+	    int segments = journal.getSegmentCount();
+	    assertTrue(segments > 3);
+	    assertEquals(segments, segments().size());
+	    journal.checkpoint(100);
+	    assertTrue(journal.getSegmentCount() < segments);
+	    assertEquals(journal.getSegmentCount(), segments().size());
+	    journal.checkpoint(200);
+	    assertEquals(1, journal.getSegmentCount());
+	    assertEquals(1, segments().size());
+	    assertFalse(journal.hasUnprocessed());
+	}
+	try (UpdateJournal journal = open()) {
+	    assertEquals(200, journal.getLastUpdateId());
+	    assertEquals(Collections.emptyList(), replayAll(journal));
+	}
+    }
+
+    @Test
+    public void compactsWhileReplaying() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 200);
+	}
+	try (UpdateJournal journal = open()) {
+	    int segments = journal.getSegmentCount();
+	    List<Integer> replayed = new ArrayList<>();
+	    List<Integer> segmentCounts = new ArrayList<>();
+	    int count = journal.replay(UpdateProjection.all(), 7, batch -> {
+		batch.forEach(update -> replayed.add(update.getUpdateId()));
+		segmentCounts.add(journal.getSegmentCount());
+	    });
+	    assertEquals(200, count);
+	    assertEquals(range(1, 200), replayed);
+	    assertTrue(segmentCounts.get(segmentCounts.size() - 1) < segments);
+	    assertEquals(1, journal.getSegmentCount());
+	}
+    }
+
+    @Test
+    public void failedReplayBatchIsReplayedAgain() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 6);
+	    List<Integer> replayed = new ArrayList<>();
+	    try {
+		journal.replay(UpdateProjection.all(), 3, batch -> {
+		    if (batch.get(0).getUpdateId() == 4) {
+			throw new IllegalStateException();
+		    }
+		    batch.forEach(update -> replayed.add(update.getUpdateId()));
+		});
+		fail();
+	    } catch (IllegalStateException e) {
+		// expected
+	    }
+	    assertEquals(range(1, 3), replayed);
+	    assertEquals(range(4, 6), replayAll(journal));
+	}
+    }
+
+    @Test
+    public void readsEveryEntryWithoutOpening() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    appendRange(journal, 1, 20);
+	    // processed entries of the active segment are kept
+	    journal.checkpoint(10);
+	}
+	List<String> entries = new ArrayList<>();
+	assertEquals(20, UpdateJournal.read(directory, entries::add));
+	assertEquals(json(1), entries.get(0));
+    }
+
+    @Test(expected = MargeletException.class)
+    public void rejectsEntriesLargerThanASegment() throws IOException {
+	try (UpdateJournal journal = open()) {
+	    StringBuilder text = new StringBuilder();
+	    for (int i = 0; i < SEGMENT_SIZE; i++) {
+		text.append('x');
+	    }
+	    journal.append(1, "{\"update_id\":1,\"message\":{\"text\":\"" + text + "\"}}");
+	}
+    }
+
+    @Test
+    public void pollerReplaysEntriesLeftByACrash() throws IOException, InterruptedException {
+	// the previous run journaled updates 1 to 3, and crashed before
+	// handling them
+	UpdateJournal crashed = open();
+	appendRange(crashed, 1, 3);
+	List<String> requests = new CopyOnWriteArrayList<>();
+	StubHttpTransport.responder = body -> {
+	    requests.add(body);
+	    return body.contains("\"offset\":4")
+		    ? "{\"ok\":true,\"result\":[" + json(4) + "," + json(5) + "]}"
+		    : "{\"ok\":true,\"result\":[]}";
+	};
+	List<Integer> handled = new CopyOnWriteArrayList<>();
+	try (UpdateJournal journal = open(); Margelet margelet = stubMargelet()) {
+	    UpdatePoller poller = UpdatePoller.builder(
+		    margelet,
+		    updates -> updates.forEach(update -> handled.add(update.getUpdateId()))
+	    )
+		    .journal(journal)
+		    .timeout(0)
+		    .build();
+	    assertEquals(4, poller.getOffset());
+	    poller.start();
+	    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+	    while (handled.size() < 5 && System.nanoTime() < deadline) {
+		Thread.sleep(10);
+	    }
+	    poller.close();
+	    assertEquals(range(1, 5), handled);
+	    assertTrue(requests.get(0).contains("\"offset\":4"));
+	    assertEquals(5, journal.getLastUpdateId());
+	    assertFalse(journal.hasUnprocessed());
+	}
+    }
+
+    private UpdateJournal open() throws IOException {
+	return UpdateJournal.builder(directory).segmentSize(SEGMENT_SIZE).build();
+    }
+
+    private static Margelet stubMargelet() {
+	return new Margelet(
+		"token",
+		Configuration.builder().property(Constants.CONFIG_HTTP_TRANSPORT, StubHttpTransport.NAME).build()
+	);
+    }
+
+    private static void appendRange(UpdateJournal journal, int first, int last) {
+	for (int id = first; id <= last; id++) {
+	    journal.append(id, json(id));
+	}
+    }
+
+    private static String json(int id) {
+	return "{\"update_id\":" + id + ",\"message\":{\"message_id\":" + id + ",\"text\":\"message " + id + "\"}}";
+    }
+
+    private static List<Integer> range(int first, int last) {
+	List<Integer> ids = new ArrayList<>();
+	for (int id = first; id <= last; id++) {
+	    ids.add(id);
+	}
+	return ids;
+    }
+
+    private static List<Integer> replayAll(UpdateJournal journal) {
+	List<Integer> ids = new ArrayList<>();
+	journal.replay(UpdateProjection.all(), 4, batch -> {
+	    for (Update update : batch) {
+		assertEquals("message " + update.getUpdateId(), update.getMessage().getText());
+		ids.add(update.getUpdateId());
+	    }
+	});
+	return ids;
+    }
+
+    private List<Path> segments() throws IOException {
+	try (Stream<Path> files = Files.list(directory)) {
+	    return files.filter(path -> path.toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+	}
+    }
+
+    private static long entryOffset(Path segment, int index) throws IOException {
+	try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "r")) {
+	    long position = 8;
+	    for (int i = 0; i < index; i++) {
+		file.seek(position);
+		position += 12 + file.readInt();
+	    }
+	    return position;
+	}
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.polling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.Constants;
+import com.welyab.margelet.Margelet;
+import com.welyab.margelet.TelegramApiException;
+import com.welyab.margelet.http.StubHttpTransport;
+import com.welyab.margelet.types.Update;
+
+public class UpdatePollerTest {
+
+    @After
+    public void tearDown() {
+	StubHttpTransport.responder = body -> "{\"ok\":true,\"result\":[]}";
+    }
+
+    @Test
+    public void nextOffsetFollowsTheGreatestUpdateId() {
+	assertEquals(8, UpdatePoller.nextOffset(Arrays.asList(update(5), update(7), update(6)), 0));
+	assertEquals(10, UpdatePoller.nextOffset(Arrays.asList(update(5), update(7)), 10));
+	assertEquals(10, UpdatePoller.nextOffset(Arrays.asList(new Update()), 10));
+    }
+
+    @Test
+    public void advancesTheOffsetPastEachBatch() throws InterruptedException {
+	List<JsonObject> requests = new CopyOnWriteArrayList<>();
+	StubHttpTransport.responder = body -> {
+	    JsonObject request = new JsonParser().parse(body).getAsJsonObject();
+	    requests.add(request);
+	    return !request.has("offset") ? updates(5, 7, 6) : updates();
+	};
+	List<Integer> handled = new CopyOnWriteArrayList<>();
+	try (Margelet margelet = stubMargelet()) {
+	    UpdatePoller poller = UpdatePoller.builder(margelet, batch -> batch.forEach(update -> handled.add(update.getUpdateId())))
+		    .timeout(0)
+		    .build();
+	    poller.start();
+	    awaitRequests(requests, 2);
+	    poller.close();
+	    assertEquals(Arrays.asList(5, 7, 6), handled);
+	    assertEquals(8, requests.get(1).get("offset").getAsInt());
+	    assertEquals(8, poller.getOffset());
+	    assertEquals(8, poller.getCommittedOffset());
+	}
+    }
+
+    @Test
+    public void waitsForTheRetryAfterOfFloodControl() throws InterruptedException {
+	List<Long> requestTimes = new CopyOnWriteArrayList<>();
+	StubHttpTransport.responder = body -> {
+	    requestTimes.add(System.nanoTime());
+	    return requestTimes.size() == 1
+		    ? "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after 1\","
+			    + "\"parameters\":{\"retry_after\":1}}"
+		    : updates();
+	};
+	List<Throwable> failures = new CopyOnWriteArrayList<>();
+	try (Margelet margelet = stubMargelet()) {
+	    UpdatePoller poller = UpdatePoller.builder(margelet, batch -> {
+	    })
+		    .timeout(0)
+		    .backoff(1, 10, TimeUnit.MILLISECONDS)
+		    .errorHandler(failures::add)
+		    .build();
+	    poller.start();
+	    awaitRequests(requestTimes, 2);
+	    poller.close();
+	}
+	assertEquals(1, failures.size());
+	assertEquals(1, ((TelegramApiException) failures.get(0)).getRetryAfter());
+	long delay = TimeUnit.NANOSECONDS.toMillis(requestTimes.get(1) - requestTimes.get(0));
+	// the backoff alone would retry within 10 milliseconds
+	assertTrue("retried after " + delay + " ms", delay >= 950);
+    }
+
+    @Test
+    public void pipelineDeliversBatchesInOrder() throws InterruptedException {
+	StubHttpTransport.responder = body -> {
+	    JsonObject request = new JsonParser().parse(body).getAsJsonObject();
+	    int offset = request.has("offset") ? request.get("offset").getAsInt() : 1;
+	    return offset <= 20 ? updates(offset, offset + 1) : updates();
+	};
+	List<Integer> handled = new CopyOnWriteArrayList<>();
+	AtomicInteger fetchedAhead = new AtomicInteger();
+	AtomicReference<UpdatePoller> self = new AtomicReference<>();
+	try (Margelet margelet = stubMargelet()) {
+	    UpdatePoller poller = UpdatePoller.builder(margelet, batch -> {
+		if (self.get().getOffset() > batch.get(batch.size() - 1).getUpdateId() + 1) {
+		    fetchedAhead.incrementAndGet();
+		}
+		batch.forEach(update -> handled.add(update.getUpdateId()));
+		sleep(5);
+	    })
+		    .timeout(0)
+		    .pipelineDepth(3)
+		    .build();
+	    self.set(poller);
+	    poller.start();
+	    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+	    while (handled.size() < 20 && System.nanoTime() < deadline) {
+		Thread.sleep(10);
+	    }
+	    poller.close();
+	    assertEquals(21, poller.getCommittedOffset());
+	}
+	assertEquals(range(1, 20), handled);
+	assertTrue(fetchedAhead.get() > 0);
+    }
+
+    @Test
+    public void confirmsTheLastBatchWhenClosed() throws InterruptedException {
+	List<JsonObject> requests = new CopyOnWriteArrayList<>();
+	StubHttpTransport.responder = body -> {
+	    JsonObject request = new JsonParser().parse(body).getAsJsonObject();
+	    requests.add(request);
+	    return requests.size() == 1 ? updates(1, 2) : updates();
+	};
+	AtomicReference<UpdatePoller> self = new AtomicReference<>();
+	try (Margelet margelet = stubMargelet()) {
+	    // stops before the next request could confirm the batch
+	    UpdatePoller poller = UpdatePoller.builder(margelet, batch -> self.get().stop())
+		    .timeout(0)
+		    .build();
+	    self.set(poller);
+	    poller.start();
+	    assertTrue(poller.awaitTermination(10, TimeUnit.SECONDS));
+	}
+	assertEquals(2, requests.size());
+	JsonObject confirm = requests.get(1);
+	assertEquals(3, confirm.get("offset").getAsInt());
+	assertEquals(0, confirm.get("timeout").getAsInt());
+	assertEquals(1, confirm.get("limit").getAsInt());
+    }
+
+    private static Margelet stubMargelet() {
+	return new Margelet(
+		"token",
+		Configuration.builder().property(Constants.CONFIG_HTTP_TRANSPORT, StubHttpTransport.NAME).build()
+	);
+    }
+
+    private static void awaitRequests(List<?> requests, int count) throws InterruptedException {
+	long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+	while (requests.size() < count && System.nanoTime() < deadline) {
+	    Thread.sleep(1);
+	}
+	assertTrue(requests.size() >= count);
+    }
+
+    private static String updates(int... ids) {
+	StringBuilder json = new StringBuilder("{\"ok\":true,\"result\":[");
+	for (int i = 0; i < ids.length; i++) {
+	    if (i > 0) {
+		json.append(',');
+	    }
+	    json.append("{\"update_id\":").append(ids[i]).append(",\"message\":{\"message_id\":").append(ids[i]).append("}}");
+	}
+	return json.append("]}").toString();
+    }
+
+    private static Update update(int id) {
+	Update update = new Update();
+	update.setUpdateId(id);
+	return update;
+    }
+
+    private static List<Integer> range(int first, int last) {
+	List<Integer> ids = new ArrayList<>();
+	for (int id = first; id <= last; id++) {
+	    ids.add(id);
+	}
+	return ids;
+    }
+
+    private static void sleep(long millis) {
+	try {
+	    Thread.sleep(millis);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.welyab.margelet.types.Update;
+
+public class UpdateReplayerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Integer> ids = new ArrayList<>();
+
+    @Test
+    public void decodesLinesByEnvelopeShape() throws IOException {
+	Path file = lines(
+		"{\"ok\":true,\"result\":[{\"update_id\":1},{\"update_id\":2}]}",
+		"",
+		"{\"result\":[{\"update_id\":3}],\"ok\":true}",
+		"{ \"update_id\": 4 }",
+		"{\"message\":{\"message_id\":1,\"date\":0,\"chat\":{\"id\":1,\"type\":\"private\"}},\"update_id\":5}",
+		"{\"description\":\"Conflict\",\"ok\":false,\"error_code\":409}",
+		"{\"ok\":true,\"result\":[]}"
+	);
+	ReplayReport report = replayer().build().replayJsonLines(file);
+	assertEquals(Arrays.asList(1, 2, 3, 4, 5), ids);
+	assertEquals(5, report.getUpdates());
+    }
+
+    @Test
+    public void createsLatencyRecorderForEachReplay() throws IOException {
+	Path file = lines("{\"update_id\":1}", "{\"update_id\":2}");
+	UpdateReplayer replayer = replayer().batchSize(1).build();
+	ReplayReport first = replayer.replayJsonLines(file);
+	ReplayReport second = replayer.replayJsonLines(file);
+	assertEquals(2, first.getLatencies().get(UpdateReplayer.BATCH_LATENCY).getCount());
+	assertEquals(2, second.getLatencies().get(UpdateReplayer.BATCH_LATENCY).getCount());
+    }
+
+    @Test
+    public void sharesGivenLatencyRecorder() throws IOException {
+	Path file = lines("{\"update_id\":1}", "{\"update_id\":2}");
+	LatencyRecorder recorder = new LatencyRecorder();
+	UpdateReplayer replayer = replayer().batchSize(1).latencyRecorder(recorder).build();
+	replayer.replayJsonLines(file);
+	ReplayReport report = replayer.replayJsonLines(file);
+	LatencyHistogram batches = recorder.getHistogram(UpdateReplayer.BATCH_LATENCY);
+	assertEquals(4, batches.getCount());
+	assertSame(batches, report.getLatencies().get(UpdateReplayer.BATCH_LATENCY));
+    }
+
+    private UpdateReplayer.Builder replayer() {
+	return UpdateReplayer.builder(updates -> {
+	    for (Update update : updates) {
+		ids.add(update.getUpdateId());
+	    }
+	});
+    }
+
+    private Path lines(String... lines) throws IOException {
+	Path file = folder.newFile().toPath();
+	Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+	return file;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.gson.GsonFactory;
+
+public class MessageTest {
+
+    private final Gson gson = GsonFactory.create(Configuration.builder().build());
+
+    @Test
+    public void absentNumbersAreNotPresent() {
+	Message message = gson.fromJson("{\"text\":\"hello\"}", Message.class);
+	assertFalse(message.hasMessageId());
+	assertFalse(message.hasDate());
+	assertFalse(message.hasForwardFromMessageId());
+	assertFalse(message.hasForwardDate());
+	assertFalse(message.hasEditDate());
+	assertFalse(message.hasMigrateToChatId());
+	assertFalse(message.hasMigrateFromChatId());
+	assertEquals(0, message.getMessageId());
+	assertEquals(0L, message.getMigrateToChatId());
+    }
+
+    @Test
+    public void zeroNumbersArePresent() {
+	Message message = gson.fromJson(
+		"{\"message_id\":0,\"date\":0,\"forward_from_message_id\":0,\"forward_date\":0,"
+			+ "\"edit_date\":0,\"migrate_to_chat_id\":0,\"migrate_from_chat_id\":0}",
+		Message.class
+	);
+	assertTrue(message.hasMessageId());
+	assertTrue(message.hasDate());
+	assertTrue(message.hasForwardFromMessageId());
+	assertTrue(message.hasForwardDate());
+	assertTrue(message.hasEditDate());
+	assertTrue(message.hasMigrateToChatId());
+	assertTrue(message.hasMigrateFromChatId());
+	assertEquals(0, message.getMessageId());
+    }
+
+    @Test
+    public void settersMarkNumbersAsPresent() {
+	Message message = new Message();
+	assertFalse(message.hasDate());
+	message.setDate(0);
+	assertTrue(message.hasDate());
+	assertFalse(message.hasMessageId());
+    }
+
+    @Test
+    public void encodesOnlyPresentNumbers() {
+	Message message = new Message();
+	message.setMessageId(0);
+	assertEquals("{\"message_id\":0}", gson.toJson(message));
+    }
+
+    @Test
+    public void updateIdIsPresentOnlyWhenReceived() {
+	assertFalse(gson.fromJson("{}", Update.class).hasUpdateId());
+	Update update = gson.fromJson("{\"update_id\":0}", Update.class);
+	assertTrue(update.hasUpdateId());
+	assertEquals(0, update.getUpdateId());
+    }
+}
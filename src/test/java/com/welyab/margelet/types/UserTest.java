@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import com.welyab.margelet.Configuration;
+import com.welyab.margelet.gson.GsonFactory;
+
+public class UserTest {
+
+    private final Gson gson = GsonFactory.create(Configuration.builder().build());
+
+    @Test
+    public void absentIdIsNotPresent() {
+	User user = gson.fromJson("{\"first_name\":\"Ada\"}", User.class);
+	assertFalse(user.hasId());
+	assertEquals(0L, user.getId());
+	assertFalse(user.getBot());
+    }
+
+    @Test
+    public void zeroIdIsPresent() {
+	User user = gson.fromJson("{\"id\":0}", User.class);
+	assertTrue(user.hasId());
+	assertEquals(0L, user.getId());
+    }
+
+    @Test
+    public void settersMarkIdAsPresent() {
+	User user = new User();
+	user.setId(0);
+	assertTrue(user.hasId());
+	Chat chat = new Chat();
+	assertFalse(chat.hasId());
+	chat.setId(0);
+	assertTrue(chat.hasId());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 Welyab da Silva Paula
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.welyab.margelet.webhook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class WebhookServerTest {
+
+    private WebhookServer server;
+
+    @After
+    public void tearDown() {
+	if (server != null) {
+	    server.close();
+	}
+    }
+
+    @Test
+    public void acceptsUpdate() throws IOException {
+	List<Integer> ids = new ArrayList<>();
+	CountDownLatch received = new CountDownLatch(1);
+	start(WebhookServer.builder(update -> {
+	    ids.add(update.getUpdateId());
+	    received.countDown();
+	}));
+	assertEquals(200, post("{\"update_id\":5}", false));
+	await(received);
+	assertEquals(5, (int) ids.get(0));
+    }
+
+    @Test
+    public void rejectsLargeChunkedBody() throws IOException {
+	start(WebhookServer.builder(update -> {
+	}).maxBodySize(64));
+	StringBuilder body = new StringBuilder("{\"update_id\":1,\"message\":{\"text\":\"");
+	while (body.length() < 1000) {
+	    body.append("0123456789");
+	}
+	body.append("\"}}");
+	assertEquals(413, post(body.toString(), true));
+	assertEquals(413, post(body.toString(), false));
+	assertEquals(400, post("{\"update_id\":", true));
+    }
+
+    @Test
+    public void answersUnavailableWhenDispatchQueueIsFull() throws IOException {
+	CountDownLatch release = new CountDownLatch(1);
+	CountDownLatch dispatching = new CountDownLatch(1);
+	start(WebhookServer.builder(update -> {
+	    dispatching.countDown();
+	    await(release);
+	}).dispatchQueueSize(2));
+	try {
+	    assertEquals(200, post("{\"update_id\":1}", false));
+	    await(dispatching);
+	    assertEquals(200, post("{\"update_id\":2}", false));
+	    assertEquals(200, post("{\"update_id\":3}", false));
+	    assertEquals(503, post("{\"update_id\":4}", false));
+	} finally {
+	    release.countDown();
+	}
+    }
+
+    private void start(WebhookServer.Builder builder) {
+	server = builder.address(new InetSocketAddress("127.0.0.1", 0)).build();
+	server.start();
+    }
+
+    private int post(String body, boolean chunked) throws IOException {
+	InetSocketAddress address = server.getAddress();
+	URL url = new URL("http", address.getHostString(), address.getPort(), "/");
+	HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+	try {
+	    connection.setRequestMethod("POST");
+	    connection.setDoOutput(true);
+	    if (chunked) {
+		connection.setChunkedStreamingMode(16);
+	    }
+	    try (OutputStream out = connection.getOutputStream()) {
+		out.write(body.getBytes(StandardCharsets.UTF_8));
+	    }
+	    return connection.getResponseCode();
+	} finally {
+	    connection.disconnect();
+	}
+    }
+
+    private static void await(CountDownLatch latch) {
+	try {
+	    assertTrue(latch.await(5, TimeUnit.SECONDS));
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+}